@@ -0,0 +1,128 @@
+
+package org.openrefine.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.refine.io.ArchiveCodec;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.ProjectSnapshot;
+import com.google.refine.model.Row;
+import com.google.refine.util.Pool;
+
+/**
+ * Compares the time taken to write and read a project archive with each {@link ArchiveCodec}. The size of the archive
+ * written by each codec is printed when the trial starts.
+ */
+public class ArchiveCodecBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ExecutionPlan {
+
+        @Param({ "deflate", "fast-deflate", "stored", "lz4" })
+        public String codecId;
+
+        @Param({ "100000" })
+        public int rowCount;
+
+        ArchiveCodec codec;
+        ProjectSnapshot snapshot;
+        File file;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, ModelException {
+            codec = ArchiveCodec.fromId(codecId);
+            Project project = new Project();
+            String[] statuses = { "open", "closed", "pending", "rejected" };
+            for (int c = 0; c < 4; c++) {
+                project.columnModel.addColumn(c, new Column(c, "column " + c), false);
+            }
+            Random rnd = new Random(42);
+            for (int i = 0; i < rowCount; i++) {
+                Row row = new Row(4);
+                row.setCell(0, new Cell("item " + i, null));
+                row.setCell(1, new Cell(statuses[rnd.nextInt(statuses.length)], null));
+                row.setCell(2, new Cell((long) rnd.nextInt(100000), null));
+                row.setCell(3, new Cell(rnd.nextDouble() * 1000, null));
+                project.rows.add(row);
+            }
+            snapshot = project.snapshot();
+            file = File.createTempFile("archive-codec-benchmark", ".zip");
+            write(this);
+            System.out.println(codecId + " archive: " + file.length() + " bytes");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            snapshot.close();
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    static void write(ExecutionPlan plan) throws IOException {
+        try (ZipOutputStream out = plan.codec.createArchive(new FileOutputStream(plan.file))) {
+            Pool pool = new Pool();
+            try (OutputStream entry = plan.codec.putNextEntry(out, "data.txt")) {
+                plan.snapshot.saveToOutputStream(entry, pool, false);
+            }
+            try (OutputStream entry = plan.codec.putNextEntry(out, "pool.txt")) {
+                pool.save(entry);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Fork(1)
+    public void save(ExecutionPlan plan) throws IOException {
+        write(plan);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+    @Fork(1)
+    public void load(ExecutionPlan plan, Blackhole blackhole) throws IOException {
+        try (ZipFile zipFile = new ZipFile(plan.file)) {
+            ArchiveCodec codec = ArchiveCodec.detect(zipFile);
+            Pool pool = new Pool();
+            try (InputStream in = codec.getInputStream(zipFile, "pool.txt")) {
+                pool.load(in);
+            }
+            try (InputStream in = codec.getInputStream(zipFile, "data.txt")) {
+                blackhole.consume(Project.loadFromInputStream(in, 1L, pool));
+            }
+        }
+    }
+}
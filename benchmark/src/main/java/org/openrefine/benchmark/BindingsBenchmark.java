@@ -0,0 +1,112 @@
+
+package org.openrefine.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.refine.browsing.util.ExpressionNominalValueGrouper;
+import com.google.refine.expr.CellTuple;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.ParsingException;
+import com.google.refine.expr.WrappedCell;
+import com.google.refine.expr.WrappedRow;
+import com.google.refine.grel.Parser;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * Compares the number of rows per second grouped by a {@code value.trim()} text facet when a new {@link Properties}
+ * table is created and filled for each row, as facets used to do, and when the reusable
+ * {@link com.google.refine.expr.Bindings} are bound to each row.
+ */
+public class BindingsBenchmark {
+
+    static final int ROW_COUNT = 100000;
+
+    @State(Scope.Benchmark)
+    public static class ExecutionPlan {
+
+        Project project;
+        Evaluable evaluable;
+
+        @Setup(Level.Trial)
+        public void setUp() throws ModelException, ParsingException {
+            project = new Project();
+            project.columnModel.addColumn(0, new Column(0, "status"), false);
+            String[] statuses = { "open", " closed", "pending ", " rejected " };
+            Random rnd = new Random(42);
+            for (int i = 0; i < ROW_COUNT; i++) {
+                Row row = new Row(1);
+                row.setCell(0, new Cell(statuses[rnd.nextInt(statuses.length)], null));
+                project.rows.add(row);
+            }
+            evaluable = Parser.grelParser.parse("value.trim()", "grel");
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(ROW_COUNT)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public Map<Object, Integer> propertiesPerRow(ExecutionPlan plan) {
+        Project project = plan.project;
+        Map<Object, Integer> counts = new HashMap<>();
+        for (int r = 0; r < ROW_COUNT; r++) {
+            Row row = project.rows.get(r);
+            Cell cell = row.getCell(0);
+
+            Properties bindings = new Properties();
+            bindings.put("true", true);
+            bindings.put("false", false);
+            bindings.put("PI", Math.PI);
+            bindings.put("project", project);
+            bindings.put("rowIndex", r);
+            bindings.put("row", new WrappedRow(project, r, row));
+            bindings.put("cells", new CellTuple(project, row));
+            bindings.put("columnName", "status");
+            bindings.put("cell", new WrappedCell(project, "status", cell));
+            bindings.put("value", cell.value);
+
+            counts.merge(plan.evaluable.evaluate(bindings), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(ROW_COUNT)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public ExpressionNominalValueGrouper reusedBindings(ExecutionPlan plan) {
+        Project project = plan.project;
+        ExpressionNominalValueGrouper grouper = new ExpressionNominalValueGrouper(plan.evaluable, "status", 0);
+        for (int r = 0; r < ROW_COUNT; r++) {
+            grouper.visit(project, r, project.rows.get(r));
+        }
+        return grouper;
+    }
+}
@@ -0,0 +1,103 @@
+
+package org.openrefine.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.expr.ParsingException;
+import com.google.refine.grel.Parser;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * Compares the number of cells per second transformed by GREL expressions, as in a text transform, when the expression
+ * is interpreted and when it is compiled by {@link Parser#compilingGrelParser}.
+ */
+public class GrelCompilerBenchmark {
+
+    static final int ROW_COUNT = 100000;
+
+    @State(Scope.Benchmark)
+    public static class ExecutionPlan {
+
+        @Param({
+                "value * 2 + 1 > 100",
+                "(value + 1) * (value - 1) % 7 == 3",
+                "if(value > 50, \"high\", \"low\") == \"high\"",
+                "value.toString().length() + 1",
+                "if(value.toString().trim() == \"\", null, value.toString().trim().toUppercase())",
+                "value.toString() + \"a,b,c\".split(\",\").join(\"-\")",
+        })
+        String expression;
+
+        Project project;
+        Evaluable interpreted;
+        Evaluable compiled;
+
+        @Setup(Level.Trial)
+        public void setUp() throws ModelException, ParsingException {
+            project = new Project();
+            project.columnModel.addColumn(0, new Column(0, "number"), false);
+            Random rnd = new Random(42);
+            for (int i = 0; i < ROW_COUNT; i++) {
+                Row row = new Row(1);
+                row.setCell(0, new Cell(Long.valueOf(rnd.nextInt(100)), null));
+                project.rows.add(row);
+            }
+            interpreted = Parser.grelParser.parse(expression, "grel");
+            compiled = Parser.compilingGrelParser.parse(expression, "grel");
+        }
+    }
+
+    static void transform(Project project, Evaluable evaluable, Blackhole blackhole) {
+        Properties bindings = ExpressionUtils.createBindings(project);
+        for (int r = 0; r < ROW_COUNT; r++) {
+            Row row = project.rows.get(r);
+            ExpressionUtils.bind(bindings, row, r, "number", row.getCell(0));
+            blackhole.consume(evaluable.evaluate(bindings));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(ROW_COUNT)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public void interpreted(ExecutionPlan plan, Blackhole blackhole) {
+        transform(plan.project, plan.interpreted, blackhole);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(ROW_COUNT)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public void compiled(ExecutionPlan plan, Blackhole blackhole) {
+        transform(plan.project, plan.compiled, blackhole);
+    }
+}
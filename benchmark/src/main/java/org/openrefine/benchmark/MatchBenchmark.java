@@ -0,0 +1,97 @@
+
+package org.openrefine.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.refine.expr.functions.strings.Match;
+
+/**
+ * Measures the {@code match} function called with a pattern given as a string, as in {@code value.match("...")},
+ * against compiling the pattern on each call as it used to.
+ */
+public class MatchBenchmark {
+
+    static Properties bindings = new Properties();
+
+    @State(Scope.Benchmark)
+    public static class ExecutionPlan {
+
+        @Param({ "(\\d+)-(\\d+)", "[a-z]+@[a-z]+\\.org", "N/A" })
+        public String pattern;
+
+        public Match f;
+        Object[] args = new Object[2];
+        String[] values = new String[1024];
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            f = new Match();
+            Random rnd = new Random(42);
+            for (int i = 0; i < values.length; i++) {
+                switch (rnd.nextInt(3)) {
+                    case 0:
+                        values[i] = rnd.nextInt(1000) + "-" + rnd.nextInt(1000);
+                        break;
+                    case 1:
+                        values[i] = "user" + i + "@example.org";
+                        break;
+                    default:
+                        values[i] = "N/A";
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public void match(ExecutionPlan plan, Blackhole blackhole) {
+        for (String value : plan.values) {
+            plan.args[0] = value;
+            plan.args[1] = plan.pattern;
+            blackhole.consume(plan.f.call(bindings, plan.args));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public void compileEachCall(ExecutionPlan plan, Blackhole blackhole) {
+        for (String value : plan.values) {
+            Matcher matcher = Pattern.compile(plan.pattern).matcher(value);
+            if (matcher.matches()) {
+                String[] groups = new String[matcher.groupCount()];
+                for (int i = 0; i < groups.length; i++) {
+                    groups[i] = matcher.group(i + 1);
+                }
+                blackhole.consume(groups);
+            } else {
+                blackhole.consume(null);
+            }
+        }
+    }
+}
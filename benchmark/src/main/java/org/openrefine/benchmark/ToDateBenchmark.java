@@ -0,0 +1,95 @@
+
+package org.openrefine.benchmark;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.refine.expr.functions.ToDate;
+
+/**
+ * Measures the number of values per second converted by {@code toDate}, for dates in ISO 8601 form and in formats given
+ * to the function, possibly with a locale.
+ */
+public class ToDateBenchmark {
+
+    static final int VALUE_COUNT = 1024;
+    static final String[] MONTHS_FR = { "janvier", "février", "mars", "avril", "mai", "juin", "juillet", "août", "septembre",
+            "octobre", "novembre", "décembre" };
+    static final String[] MONTHS_EN = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+    static Properties bindings = new Properties();
+
+    @State(Scope.Benchmark)
+    public static class ExecutionPlan {
+
+        /**
+         * iso: toDate(value) on timestamps, isoDate: toDate(value) on dates, format: toDate(value, "dd/MM/yyyy"),
+         * locale: toDate(value, "fr", "d MMMM yyyy"), lastFormat: toDate(value, "yyyy-MM-dd", "dd/MM/yyyy", "MMM d,
+         * yyyy") on dates matching the last format
+         */
+        @Param({ "iso", "isoDate", "format", "locale", "lastFormat" })
+        public String kind;
+
+        ToDate f;
+        Object[][] args = new Object[VALUE_COUNT][];
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            f = new ToDate();
+            Random rnd = new Random(42);
+            for (int i = 0; i < VALUE_COUNT; i++) {
+                int year = 1950 + rnd.nextInt(80);
+                int month = 1 + rnd.nextInt(12);
+                int day = 1 + rnd.nextInt(28);
+                switch (kind) {
+                    case "iso":
+                        args[i] = new Object[] { String.format("%04d-%02d-%02dT%02d:%02d:%02dZ", year, month, day, rnd.nextInt(24),
+                                rnd.nextInt(60), rnd.nextInt(60)) };
+                        break;
+                    case "isoDate":
+                        args[i] = new Object[] { String.format("%04d-%02d-%02d", year, month, day) };
+                        break;
+                    case "format":
+                        args[i] = new Object[] { String.format("%02d/%02d/%04d", day, month, year), "dd/MM/yyyy" };
+                        break;
+                    case "locale":
+                        args[i] = new Object[] { day + " " + MONTHS_FR[month - 1] + " " + year, "fr", "d MMMM yyyy" };
+                        break;
+                    default:
+                        args[i] = new Object[] { MONTHS_EN[month - 1] + " " + day + ", " + year, "yyyy-MM-dd", "dd/MM/yyyy",
+                                "MMM d, yyyy" };
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(VALUE_COUNT)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public void toDate(ExecutionPlan plan, Blackhole blackhole) {
+        for (Object[] args : plan.args) {
+            // the function may consume its arguments
+            blackhole.consume(plan.f.call(bindings, args.clone()));
+        }
+    }
+}
@@ -51,9 +51,11 @@ import org.slf4j.LoggerFactory;
 
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.FilteredRows;
-import com.google.refine.browsing.facets.ScatterplotDrawingRowVisitor;
 import com.google.refine.browsing.facets.ScatterplotFacet;
+import com.google.refine.browsing.facets.ScatterplotRasterizer;
+import com.google.refine.browsing.util.ExpressionBasedRowEvaluable;
 import com.google.refine.browsing.util.NumericBinIndex;
+import com.google.refine.browsing.util.RowEvaluable;
 import com.google.refine.commands.Command;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.MetaParser;
@@ -221,25 +223,31 @@ public class GetScatterplotCommand extends Command {
         }
 
         if (index_x != null && index_y != null && index_x.isNumeric() && index_y.isNumeric()) {
-            ScatterplotDrawingRowVisitor drawer = new ScatterplotDrawingRowVisitor(
-                    columnIndex_x, columnIndex_y, min_x, max_x, min_y, max_y,
-                    o.size, o.dim_x, o.dim_y, o.rotation, o.dot, color);
+            RowEvaluable rowEvaluable_x = new ExpressionBasedRowEvaluable(column_x.getName(), columnIndex_x, eval_x);
+            RowEvaluable rowEvaluable_y = new ExpressionBasedRowEvaluable(column_y.getName(), columnIndex_y, eval_y);
+            int[] pixels = ScatterplotRasterizer.createBackground(o.size, o.rotation);
 
             if (base_color != null) {
-                drawer.setColor(base_color);
+                ScatterplotRasterizer rasterizer = new ScatterplotRasterizer(
+                        index_x, rowEvaluable_x, o.dim_x, index_y, rowEvaluable_y, o.dim_y, o.size, o.rotation, o.dot);
 
                 FilteredRows filteredRows = engine.getAllRows();
-                filteredRows.accept(project, drawer);
+                filteredRows.accept(project, rasterizer);
 
-                drawer.setColor(color);
+                rasterizer.paint(pixels, base_color.getRGB());
             }
 
             {
+                ScatterplotRasterizer rasterizer = new ScatterplotRasterizer(
+                        index_x, rowEvaluable_x, o.dim_x, index_y, rowEvaluable_y, o.dim_y, o.size, o.rotation, o.dot);
+
                 FilteredRows filteredRows = engine.getAllFilteredRows();
-                filteredRows.accept(project, drawer);
+                filteredRows.accept(project, rasterizer);
+
+                rasterizer.paint(pixels, color.getRGB());
             }
 
-            ImageIO.write(drawer.getImage(), "png", output);
+            ImageIO.write(ScatterplotRasterizer.toImage(pixels, o.size), "png", output);
         } else {
             ImageIO.write(new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR), "png", output);
         }
@@ -34,6 +34,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.commands.row;
 
 import java.io.IOException;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -47,11 +48,13 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
 
 import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.Engine.FilterStep;
 import com.google.refine.browsing.Engine.Mode;
 import com.google.refine.browsing.FilteredRecords;
 import com.google.refine.browsing.FilteredRows;
 import com.google.refine.browsing.RecordVisitor;
 import com.google.refine.browsing.RowVisitor;
+import com.google.refine.browsing.util.BitSetFilteredRows;
 import com.google.refine.commands.Command;
 import com.google.refine.importing.ImportingJob;
 import com.google.refine.importing.ImportingManager;
@@ -153,9 +156,21 @@ public class GetRowsCommand extends Command {
         @JsonProperty("nextPageStart")
         @JsonInclude(Include.NON_NULL)
         protected final Integer nextPageStart;
+        /**
+         * How the filters of the facets were applied, only included when the 'explain' parameter is set.
+         */
+        @JsonProperty("plan")
+        @JsonInclude(Include.NON_NULL)
+        protected final List<FilterStep> plan;
 
         protected JsonResult(Mode mode, List<WrappedRow> rows, int filtered,
                 int totalCount, int totalRows, int start, int end, int limit, Pool pool, Integer previousPageEnd, Integer nextPageStart) {
+            this(mode, rows, filtered, totalCount, totalRows, start, end, limit, pool, previousPageEnd, nextPageStart, null);
+        }
+
+        protected JsonResult(Mode mode, List<WrappedRow> rows, int filtered,
+                int totalCount, int totalRows, int start, int end, int limit, Pool pool, Integer previousPageEnd, Integer nextPageStart,
+                List<FilterStep> plan) {
             this.mode = mode;
             this.rows = rows;
             this.filtered = filtered;
@@ -167,6 +182,7 @@ public class GetRowsCommand extends Command {
             this.pool = pool;
             this.previousPageEnd = previousPageEnd;
             this.nextPageStart = nextPageStart;
+            this.plan = plan;
         }
     }
 
@@ -243,7 +259,12 @@ public class GetRowsCommand extends Command {
                         visitor = srv;
                     }
                 }
-                filteredRows.accept(project, visitor);
+                if (visitor == rwv && filteredRows instanceof BitSetFilteredRows) {
+                    // only read the rows of the page
+                    rwv.visitPage(project, ((BitSetFilteredRows) filteredRows).getRows());
+                } else {
+                    filteredRows.accept(project, visitor);
+                }
             } else {
                 FilteredRecords filteredRecords = engine.getFilteredRecords();
                 RecordVisitor visitor = rwv;
@@ -293,7 +314,8 @@ public class GetRowsCommand extends Command {
             JsonResult result = new JsonResult(engine.getMode(),
                     rwv.results, rwv.total,
                     engine.getMode() == Mode.RowBased ? project.rows.size() : project.recordModel.getRecordCount(),
-                    rwv.totalRows, start, end, limit, pool, previousPageEnd, nextPageStart);
+                    rwv.totalRows, start, end, limit, pool, previousPageEnd, nextPageStart,
+                    "true".equals(request.getParameter("explain")) ? engine.getFilterPlan() : null);
 
             respondJSON(response, result);
         } catch (IllegalJsonpException e2) {
@@ -351,6 +373,23 @@ public class GetRowsCommand extends Command {
             return false;
         }
 
+        /**
+         * Equivalent to visiting the given rows in order without sorting, but only reads the rows of the page.
+         */
+        protected void visitPage(Project project, BitSet rows) {
+            int c = project.rows.size();
+            total = totalRows = rows.get(0, c).cardinality();
+            if (start != -1) {
+                for (int r = rows.nextSetBit(start); r >= 0 && r < c && results.size() < limit; r = rows.nextSetBit(r + 1)) {
+                    internalVisit(project, r, project.rows.get(r), r);
+                }
+            } else {
+                for (int r = rows.previousSetBit(Math.min(end, c) - 1); r >= 0 && results.size() < limit; r = rows.previousSetBit(r - 1)) {
+                    results.addFirst(new WrappedRow(project.rows.get(r), r, null, r));
+                }
+            }
+        }
+
         @Override
         public boolean visit(Project project, Record record) {
             return visit(project, record.fromRowIndex, record);
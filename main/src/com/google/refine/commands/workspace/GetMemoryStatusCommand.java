@@ -0,0 +1,26 @@
+
+package com.google.refine.commands.workspace;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.commands.Command;
+
+/**
+ * Returns the projects currently loaded in memory with their estimated sizes, the memory budget for loaded projects and
+ * the number of projects unloaded to stay within it.
+ *
+ * @since 3.10
+ */
+public class GetMemoryStatusCommand extends Command {
+
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        respondJSON(response, ProjectManager.singleton.getMemoryStatus());
+    }
+}
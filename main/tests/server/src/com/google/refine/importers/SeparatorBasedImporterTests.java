@@ -624,6 +624,36 @@ public class SeparatorBasedImporterTests extends ImporterTest {
         Assert.assertEquals(project.columnModel.columns.get(2).getName(), "Col 5");
     }
 
+    @Test
+    public void testCellsOfLowCardinalityColumnsAreShared() {
+        String input = "status,id\n" +
+                "open,1\n" +
+                "closed,2\n" +
+                "open,3\n" +
+                "closed,4\n";
+
+        prepareOptions(",", -1, 0, 0, 1, false, false);
+        whenGetIntegerOption("internCardinalityLimit", options, 2);
+        parseOneFile(SUT, new StringReader(input));
+
+        Assert.assertEquals(project.rows.size(), 4);
+        Assert.assertSame(project.rows.get(0).getCell(0), project.rows.get(2).getCell(0));
+        Assert.assertSame(project.rows.get(1).getCell(0), project.rows.get(3).getCell(0));
+        Assert.assertEquals(project.rows.get(3).getCellValue(1), "4");
+    }
+
+    @Test
+    public void testCellSharingCanBeDisabled() {
+        String input = "status\nopen\nopen\n";
+
+        prepareOptions(",", -1, 0, 0, 1, false, false);
+        whenGetBooleanOption("internCells", options, false);
+        parseOneFile(SUT, new StringReader(input));
+
+        Assert.assertEquals(project.rows.get(0).getCell(0), project.rows.get(1).getCell(0));
+        Assert.assertNotSame(project.rows.get(0).getCell(0), project.rows.get(1).getCell(0));
+    }
+
     // ---------------------guess separators------------------------
 
     @Test
@@ -40,9 +40,20 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -54,6 +65,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.refine.history.HistoryEntryManager;
+import com.google.refine.model.PagedRowList;
+import com.google.refine.model.PrecomputeCache;
 import com.google.refine.model.Project;
 import com.google.refine.preference.PreferenceStore;
 import com.google.refine.preference.TopList;
@@ -76,6 +89,19 @@ public abstract class ProjectManager {
     // Don't spend more than this much time saving projects if doing a quick save
     static protected final Duration QUICK_SAVE_MAX_TIME = Duration.ofSeconds(30);
 
+    // Maximum number of projects saved in parallel
+    static protected final int SAVE_THREADS_MAX = 4;
+
+    /**
+     * Preference setting the heap budget for loaded projects, in bytes. Defaults to half of the maximum heap size. A
+     * negative or zero value disables the budget.
+     */
+    static public final String MEMORY_BUDGET_PREFERENCE = "project.memory.budget";
+
+    // Rough heap cost of a row and of a cell, used to estimate the size of loaded projects
+    static protected final long ESTIMATED_ROW_BYTES = 80;
+    static protected final long ESTIMATED_CELL_BYTES = 56;
+
     protected Map<Long, ProjectMetadata> _projectsMetadata;
     /**
      * Count of projects which have the given tag
@@ -102,6 +128,23 @@ public abstract class ProjectManager {
      */
     transient protected Map<Long, Project> _projects;
 
+    /**
+     * Last access time of loaded projects, least recently used first.
+     */
+    transient protected LinkedHashMap<Long, Instant> _projectAccessTimes = new LinkedHashMap<>(16, 0.75f, true);
+    transient protected long _evictionCount = 0;
+    /**
+     * Number of requests using each loaded project (see {@link #beginRequest()}). Projects in use are not unloaded to
+     * stay within the memory budget, since requests may still modify them.
+     */
+    transient protected Map<Long, Integer> _projectUsers = new HashMap<>();
+    /**
+     * Ids of the projects obtained by the request handled by the current thread, or null outside of requests.
+     */
+    transient final protected ThreadLocal<Set<Long>> _requestProjects = new ThreadLocal<>();
+    transient final protected AtomicBoolean _memoryBudgetCheckScheduled = new AtomicBoolean();
+    transient protected ExecutorService _saveExecutor;
+
     static public ProjectManager singleton;
 
     protected ProjectManager() {
@@ -124,6 +167,13 @@ public abstract class ProjectManager {
 
         _projects.clear();
         _projectsMetadata.clear();
+
+        synchronized (this) {
+            if (_saveExecutor != null) {
+                _saveExecutor.shutdown();
+                _saveExecutor = null;
+            }
+        }
     }
 
     /**
@@ -139,6 +189,11 @@ public abstract class ProjectManager {
             _projects.put(project.id, project);
             _projectsMetadata.put(project.id, projectMetadata);
             addProjectTags(projectMetadata.getTags());
+            _projectAccessTimes.put(project.id, Instant.now());
+            useProject(project.id);
+            if (isAboveMemoryBudget()) {
+                scheduleMemoryBudgetCheck();
+            }
         }
     }
 
@@ -232,6 +287,9 @@ public abstract class ProjectManager {
         if (allModified || _busy == 0) {
             saveProjects(allModified);
             saveWorkspace();
+            if (!allModified) {
+                enforceMemoryBudget();
+            }
         }
     }
 
@@ -281,7 +339,7 @@ public abstract class ProjectManager {
                         long msecsOverdue = Duration.between(startTimeOfSave, project.getLastSave()).toMillis();
                         records.add(new SaveRecord(project, msecsOverdue));
 
-                    } else if (!project.getProcessManager().hasPending()
+                    } else if (!project.getProcessManager().hasPending() && !_projectUsers.containsKey(id)
                             && project.getLastSave().plus(PROJECT_FLUSH_DELAY).isBefore(startTimeOfSave)) {
 
                         /*
@@ -289,6 +347,7 @@ public abstract class ProjectManager {
                          * safely remove it from the cache to save some memory.
                          */
                         _projects.remove(id).dispose();
+                        _projectAccessTimes.remove(id);
                     }
                 }
             }
@@ -300,22 +359,56 @@ public abstract class ProjectManager {
 
             logger.info(allModified ? "Saving all modified projects ..." : "Saving some modified projects ...");
 
+            List<Future<?>> saves = new ArrayList<>(records.size());
             for (SaveRecord record : records) {
-                // If we've run out of time, bail out, unless we've been asked to save all modified projects
-                if (!allModified && Instant.now().isAfter(quicksaveDeadline)) {
-                    break;
-                }
+                saves.add(getSaveExecutor().submit(() -> {
+                    // If we've run out of time, bail out, unless we've been asked to save all modified projects
+                    if (!allModified && Instant.now().isAfter(quicksaveDeadline)) {
+                        return;
+                    }
+                    try {
+                        saveProject(record.project);
+                    } catch (Exception e) {
+                        logger.error("Error when saving projects. Attempting to free memory", e);
+                        // In case we're running low on memory, free as much as we can
+                        disposeUnmodifiedProjects();
+                    }
+                }));
+            }
+            for (Future<?> save : saves) {
                 try {
-                    saveProject(record.project);
-                } catch (Exception e) {
-                    logger.error("Error when saving projects. Attempting to free memory", e);
-                    // In case we're running low on memory, free as much as we can
-                    disposeUnmodifiedProjects();
+                    save.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    logger.error("Error when saving projects", e.getCause());
                 }
             }
         }
     }
 
+    /**
+     * Executor saving projects in parallel, most overdue first. Its threads stop when they are idle.
+     */
+    protected ExecutorService getSaveExecutor() {
+        synchronized (this) {
+            if (_saveExecutor == null) {
+                int threads = Math.max(1, Math.min(SAVE_THREADS_MAX, Runtime.getRuntime().availableProcessors() / 2));
+                AtomicInteger threadCount = new AtomicInteger();
+                ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), runnable -> {
+                            Thread thread = new Thread(runnable, "project-save-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+                executor.allowCoreThreadTimeOut(true);
+                _saveExecutor = executor;
+            }
+            return _saveExecutor;
+        }
+    }
+
     /**
      * Flush all unmodified projects from memory.
      */
@@ -324,9 +417,10 @@ public abstract class ProjectManager {
             for (long id : _projectsMetadata.keySet()) {
                 ProjectMetadata metadata = getProjectMetadata(id);
                 Project project = _projects.get(id);
-                if (project != null && !project.getProcessManager().hasPending()
+                if (project != null && !project.getProcessManager().hasPending() && !_projectUsers.containsKey(id)
                         && project.getLastSave().isAfter(metadata.getModified())) {
                     _projects.remove(id).dispose();
+                    _projectAccessTimes.remove(id);
                 }
             }
         }
@@ -554,17 +648,247 @@ public abstract class ProjectManager {
     public Project getProject(long id) {
         synchronized (this) {
             if (_projects.containsKey(id)) {
+                _projectAccessTimes.put(id, Instant.now());
+                useProject(id);
                 return _projects.get(id);
             } else {
                 Project project = loadProject(id);
                 if (project != null) {
                     _projects.put(id, project);
+                    _projectAccessTimes.put(id, Instant.now());
+                    useProject(id);
+                    if (isAboveMemoryBudget()) {
+                        scheduleMemoryBudgetCheck();
+                    }
                 }
                 return project;
             }
         }
     }
 
+    /**
+     * Marks the start of a request handled by the current thread. Until {@link #endRequest()} is called, the projects
+     * returned by {@link #getProject(long)} on this thread are in use and are not unloaded to stay within the memory
+     * budget.
+     */
+    public void beginRequest() {
+        _requestProjects.set(new HashSet<>());
+    }
+
+    /**
+     * Marks the end of the request handled by the current thread, releasing the projects it used.
+     */
+    public void endRequest() {
+        Set<Long> ids = _requestProjects.get();
+        _requestProjects.remove();
+        if (ids == null) {
+            return;
+        }
+        synchronized (this) {
+            for (long id : ids) {
+                _projectUsers.computeIfPresent(id, (k, users) -> users > 1 ? users - 1 : null);
+            }
+        }
+    }
+
+    protected void useProject(long id) {
+        Set<Long> ids = _requestProjects.get();
+        if (ids != null && ids.add(id)) {
+            synchronized (this) {
+                _projectUsers.merge(id, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Unloads the least recently used projects until the estimated size of loaded projects fits in the memory budget.
+     * Projects with unsaved changes are saved first, without holding the lock of the project manager. Projects in use
+     * by a request or with pending processes are kept, as well as the most recently used project.
+     * <p>
+     * This is called by the autosave, and from the save executor when loading a project goes above the budget.
+     */
+    protected void enforceMemoryBudget() {
+        long budget = getMemoryBudget();
+        if (budget <= 0) {
+            return;
+        }
+        List<Project> candidates = new ArrayList<>();
+        synchronized (this) {
+            if (getEstimatedSize() <= budget) {
+                return;
+            }
+            for (long id : _projectAccessTimes.keySet()) {
+                Project project = _projects.get(id);
+                if (project != null && canUnload(project)) {
+                    candidates.add(project);
+                }
+            }
+        }
+
+        for (Project project : candidates) {
+            if (hasUnsavedChanges(project)) {
+                try {
+                    saveProject(project);
+                } catch (Exception e) {
+                    logger.error("Error saving project {} before unloading it", project.id, e);
+                    continue;
+                }
+            }
+            synchronized (this) {
+                if (getEstimatedSize() <= budget) {
+                    return;
+                }
+                // the project may have been used or modified while it was saved
+                if (_projects.get(project.id) != project || !canUnload(project) || hasUnsavedChanges(project)) {
+                    continue;
+                }
+                long size = estimateSize(project);
+                _projects.remove(project.id).dispose();
+                _projectAccessTimes.remove(project.id);
+                _evictionCount++;
+                logger.info("Unloaded project {} (estimated {} bytes) to stay within the memory budget of {} bytes",
+                        project.id, size, budget);
+            }
+        }
+        synchronized (this) {
+            long total = getEstimatedSize();
+            if (total > budget) {
+                logger.warn("Loaded projects use an estimated {} bytes, above the memory budget of {} bytes", total, budget);
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #enforceMemoryBudget()} on the save executor, unless it is already scheduled.
+     */
+    protected void scheduleMemoryBudgetCheck() {
+        if (_memoryBudgetCheckScheduled.compareAndSet(false, true)) {
+            getSaveExecutor().submit(() -> {
+                _memoryBudgetCheckScheduled.set(false);
+                try {
+                    enforceMemoryBudget();
+                } catch (Exception e) {
+                    logger.error("Error unloading projects to stay within the memory budget", e);
+                }
+            });
+        }
+    }
+
+    synchronized protected boolean isAboveMemoryBudget() {
+        long budget = getMemoryBudget();
+        return budget > 0 && getEstimatedSize() > budget;
+    }
+
+    synchronized protected long getEstimatedSize() {
+        long total = 0;
+        for (Project project : _projects.values()) {
+            total += estimateSize(project);
+        }
+        return total;
+    }
+
+    synchronized protected boolean canUnload(Project project) {
+        long mostRecentId = -1;
+        for (long id : _projectAccessTimes.keySet()) {
+            mostRecentId = id;
+        }
+        return project.id != mostRecentId && !_projectUsers.containsKey(project.id)
+                && !project.getProcessManager().hasPending();
+    }
+
+    protected boolean hasUnsavedChanges(Project project) {
+        ProjectMetadata metadata = getProjectMetadata(project.id);
+        return metadata != null && !project.getLastSave().isAfter(metadata.getModified());
+    }
+
+    /**
+     * Estimates the heap used by the rows of a project from its row and cell counts.
+     */
+    static public long estimateSize(Project project) {
+        long rowCount = project.rows == null ? 0 : project.rows.size();
+        if (project.rows instanceof PagedRowList) {
+            rowCount = ((PagedRowList) project.rows).getHotRowCount();
+        }
+        long cellsPerRow = project.columnModel == null ? 0 : project.columnModel.getMaxCellIndex() + 1;
+        return rowCount * (ESTIMATED_ROW_BYTES + cellsPerRow * ESTIMATED_CELL_BYTES);
+    }
+
+    protected long getMemoryBudget() {
+        Object v = _preferenceStore.get(MEMORY_BUDGET_PREFERENCE);
+        if (v instanceof Number) {
+            return ((Number) v).longValue();
+        } else if (v != null) {
+            try {
+                return Long.parseLong(v.toString());
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return Runtime.getRuntime().maxMemory() / 2;
+    }
+
+    /**
+     * Summary of the loaded projects and of their estimated memory usage.
+     */
+    static public class MemoryStatus {
+
+        @JsonProperty("budget")
+        public final long budget;
+        @JsonProperty("estimatedBytes")
+        public final long estimatedBytes;
+        @JsonProperty("evictions")
+        public final long evictions;
+        @JsonProperty("projects")
+        public final List<ResidentProject> projects;
+
+        protected MemoryStatus(long budget, long estimatedBytes, long evictions, List<ResidentProject> projects) {
+            this.budget = budget;
+            this.estimatedBytes = estimatedBytes;
+            this.evictions = evictions;
+            this.projects = projects;
+        }
+    }
+
+    static public class ResidentProject {
+
+        @JsonProperty("id")
+        public final long id;
+        @JsonProperty("estimatedBytes")
+        public final long estimatedBytes;
+        @JsonProperty("lastAccessed")
+        public final Instant lastAccessed;
+        @JsonProperty("precomputes")
+        public final PrecomputeCache.Stats precomputes;
+
+        protected ResidentProject(long id, long estimatedBytes, Instant lastAccessed, PrecomputeCache.Stats precomputes) {
+            this.id = id;
+            this.estimatedBytes = estimatedBytes;
+            this.lastAccessed = lastAccessed;
+            this.precomputes = precomputes;
+        }
+    }
+
+    /**
+     * @return the loaded projects, least recently used first, with their estimated sizes
+     */
+    @JsonIgnore
+    public MemoryStatus getMemoryStatus() {
+        synchronized (this) {
+            List<ResidentProject> projects = new ArrayList<>();
+            long total = 0;
+            for (Entry<Long, Instant> entry : _projectAccessTimes.entrySet()) {
+                Project project = _projects.get(entry.getKey());
+                if (project != null) {
+                    long size = estimateSize(project);
+                    projects.add(new ResidentProject(entry.getKey(), size, entry.getValue(),
+                            project.columnModel.getPrecomputeCache().getStats()));
+                    total += size;
+                }
+            }
+            return new MemoryStatus(getMemoryBudget(), total, _evictionCount, projects);
+        }
+    }
+
     /**
      * Gets the preference store
      * 
@@ -618,6 +942,7 @@ public abstract class ProjectManager {
         if (_projects.containsKey(projectID)) {
             _projects.remove(projectID).dispose();
         }
+        _projectAccessTimes.remove(projectID);
         _projectsMetadata.remove(projectID);
     }
 
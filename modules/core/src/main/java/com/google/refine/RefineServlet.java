@@ -172,43 +172,16 @@ public class RefineServlet extends Butterfly {
             String commandKey = getCommandKey(request);
             Command command = commands.get(commandKey);
             if (command != null) {
-                if (request.getMethod().equals("GET")) {
-                    if (!logger.isTraceEnabled() && command.logRequests()) {
-                        logger.info("GET {}", request.getPathInfo());
-                    }
-                    logger.trace("> GET {}", commandKey);
-                    command.doGet(request, response);
-                    logger.trace("< GET {}", commandKey);
-                } else if (request.getMethod().equals("POST")) {
-                    if (!logger.isTraceEnabled() && command.logRequests()) {
-                        logger.info("POST {}", request.getPathInfo());
-                    }
-                    logger.trace("> POST {}", commandKey);
-                    command.doPost(request, response);
-                    logger.trace("< POST {}", commandKey);
-                } else if (request.getMethod().equals("PUT")) {
-                    if (!logger.isTraceEnabled() && command.logRequests()) {
-                        logger.info("PUT {}", request.getPathInfo());
-                    }
-                    logger.trace("> PUT {}", commandKey);
-                    command.doPut(request, response);
-                    logger.trace("< PUT {}", commandKey);
-                } else if (request.getMethod().equals("DELETE")) {
-                    if (!logger.isTraceEnabled() && command.logRequests()) {
-                        logger.info("DELETE {}", request.getPathInfo());
-                    }
-                    logger.trace("> DELETE {}", commandKey);
-                    command.doDelete(request, response);
-                    logger.trace("< DELETE {}", commandKey);
-                } else if (request.getMethod().equals("HEAD")) {
-                    if (!logger.isTraceEnabled() && command.logRequests()) {
-                        logger.info("HEAD {}", request.getPathInfo());
+                ProjectManager projectManager = ProjectManager.singleton;
+                if (projectManager != null) {
+                    projectManager.beginRequest();
+                }
+                try {
+                    serviceCommand(commandKey, command, request, response);
+                } finally {
+                    if (projectManager != null) {
+                        projectManager.endRequest();
                     }
-                    logger.trace("> HEAD {}", commandKey);
-                    command.doHead(request, response);
-                    logger.trace("< HEAD {}", commandKey);
-                } else {
-                    response.sendError(HttpStatus.SC_METHOD_NOT_ALLOWED);
                 }
             } else {
                 response.sendError(HttpStatus.SC_NOT_FOUND);
@@ -218,6 +191,48 @@ public class RefineServlet extends Butterfly {
         }
     }
 
+    protected void serviceCommand(String commandKey, Command command, HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (request.getMethod().equals("GET")) {
+            if (!logger.isTraceEnabled() && command.logRequests()) {
+                logger.info("GET {}", request.getPathInfo());
+            }
+            logger.trace("> GET {}", commandKey);
+            command.doGet(request, response);
+            logger.trace("< GET {}", commandKey);
+        } else if (request.getMethod().equals("POST")) {
+            if (!logger.isTraceEnabled() && command.logRequests()) {
+                logger.info("POST {}", request.getPathInfo());
+            }
+            logger.trace("> POST {}", commandKey);
+            command.doPost(request, response);
+            logger.trace("< POST {}", commandKey);
+        } else if (request.getMethod().equals("PUT")) {
+            if (!logger.isTraceEnabled() && command.logRequests()) {
+                logger.info("PUT {}", request.getPathInfo());
+            }
+            logger.trace("> PUT {}", commandKey);
+            command.doPut(request, response);
+            logger.trace("< PUT {}", commandKey);
+        } else if (request.getMethod().equals("DELETE")) {
+            if (!logger.isTraceEnabled() && command.logRequests()) {
+                logger.info("DELETE {}", request.getPathInfo());
+            }
+            logger.trace("> DELETE {}", commandKey);
+            command.doDelete(request, response);
+            logger.trace("< DELETE {}", commandKey);
+        } else if (request.getMethod().equals("HEAD")) {
+            if (!logger.isTraceEnabled() && command.logRequests()) {
+                logger.info("HEAD {}", request.getPathInfo());
+            }
+            logger.trace("> HEAD {}", commandKey);
+            command.doHead(request, response);
+            logger.trace("< HEAD {}", commandKey);
+        } else {
+            response.sendError(HttpStatus.SC_METHOD_NOT_ALLOWED);
+        }
+    }
+
     public ButterflyModule getModule(String name) {
         return _modulesByName.get(name);
     }
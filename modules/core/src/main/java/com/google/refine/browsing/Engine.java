@@ -33,18 +33,26 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import com.google.refine.browsing.facets.Facet;
+import com.google.refine.browsing.facets.FacetConfig;
+import com.google.refine.browsing.util.BitSetFilteredRecords;
+import com.google.refine.browsing.util.BitSetFilteredRows;
 import com.google.refine.browsing.util.ConjunctiveFilteredRecords;
 import com.google.refine.browsing.util.ConjunctiveFilteredRows;
+import com.google.refine.browsing.util.FilterStatistics;
 import com.google.refine.browsing.util.FilteredRecordsAsFilteredRows;
+import com.google.refine.browsing.util.ParallelTraversal;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
@@ -69,9 +77,37 @@ public class Engine {
     @JsonIgnore
     protected Project _project;
     @JsonProperty("facets")
-    protected List<Facet> _facets = new LinkedList<Facet>();
+    protected List<Facet> _facets = new ArrayList<Facet>();
     @JsonIgnore
     protected EngineConfig _config = new EngineConfig(Collections.emptyList(), Mode.RowBased);
+    @JsonIgnore
+    protected List<FilterStep> _filterPlan = Collections.emptyList();
+
+    /**
+     * The application of the filter of a facet, as part of a filter plan (see {@link Engine#getFilterPlan()}).
+     */
+    static public class FilterStep {
+
+        /**
+         * Position of the facet in the engine configuration
+         */
+        @JsonProperty("facet")
+        public final int facetIndex;
+        /**
+         * Whether the rows (or records) matched by the filter were read from the {@link FilterCache}, rather than
+         * evaluated
+         */
+        @JsonProperty("cached")
+        public final boolean cached;
+        @JsonProperty("statistics")
+        public final FilterStatistics statistics;
+
+        protected FilterStep(int facetIndex, boolean cached, FilterStatistics statistics) {
+            this.facetIndex = facetIndex;
+            this.cached = cached;
+            this.statistics = statistics;
+        }
+    }
 
     static public String modeToString(Mode mode) {
         return mode == Mode.RowBased ? MODE_ROW_BASED : MODE_RECORD_BASED;
@@ -104,16 +140,22 @@ public class Engine {
                     visitor.start(project);
 
                     int c = project.rows.size();
-                    for (int rowIndex = 0; rowIndex < c; rowIndex++) {
-                        Row row = project.rows.get(rowIndex);
-                        if (visitor.visit(project, rowIndex, rowIndex, row)) {
-                            break;
-                        }
+                    if (!ParallelTraversal.visit(visitor, c, (v, from, to) -> visitSpan(project, v, from, to))) {
+                        visitSpan(project, visitor, 0, c);
                     }
                 } finally {
                     visitor.end(project);
                 }
             }
+
+            protected void visitSpan(Project project, RowVisitor visitor, int from, int to) {
+                for (int rowIndex = from; rowIndex < to; rowIndex++) {
+                    Row row = project.rows.get(rowIndex);
+                    if (visitor.visit(project, rowIndex, rowIndex, row)) {
+                        break;
+                    }
+                }
+            }
         };
     }
 
@@ -126,16 +168,43 @@ public class Engine {
         if (_config.getMode().equals(Mode.RecordBased)) {
             return new FilteredRecordsAsFilteredRows(getFilteredRecords(except));
         } else if (_config.getMode().equals(Mode.RowBased)) {
-            ConjunctiveFilteredRows cfr = new ConjunctiveFilteredRows();
-            for (Facet facet : _facets) {
-                if (facet != except) {
-                    RowFilter rowFilter = facet.getRowFilter(_project);
-                    if (rowFilter != null) {
-                        cfr.add(rowFilter);
+            int count = _project.rows.size();
+            BitSet rows = new BitSet(count);
+            rows.set(0, count);
+            List<FilterStep> plan = new ArrayList<>();
+            List<Integer> uncachedFacets = new ArrayList<>();
+            List<RowFilter> uncachedFilters = new ArrayList<>();
+            for (int i = 0; i < _facets.size(); i++) {
+                if (_facets.get(i) != except) {
+                    RowFilter rowFilter = _facets.get(i).getRowFilter(_project);
+                    if (rowFilter == null) {
+                        continue;
+                    } else if (isCached(i, Mode.RowBased, count)) {
+                        rows.and(getRowMatches(i, rowFilter, count));
+                        plan.add(new FilterStep(i, true, getStatistics(i, Mode.RowBased)));
+                    } else {
+                        uncachedFacets.add(i);
+                        uncachedFilters.add(rowFilter);
                     }
                 }
             }
-            return cfr;
+
+            if (uncachedFacets.size() == 1) {
+                // evaluated over all rows, so that it is cached for the next requests
+                int i = uncachedFacets.get(0);
+                rows.and(getRowMatches(i, uncachedFilters.get(0), count));
+                plan.add(new FilterStep(i, false, getStatistics(i, Mode.RowBased)));
+            } else if (uncachedFacets.size() > 1) {
+                // only evaluated over the rows matched so far, stopping at the first filter rejecting each row
+                ConjunctiveFilteredRows conjunction = new ConjunctiveFilteredRows();
+                for (int j = 0; j < uncachedFacets.size(); j++) {
+                    conjunction.add(uncachedFilters.get(j), getStatistics(uncachedFacets.get(j), Mode.RowBased));
+                }
+                rows = conjunction.evaluate(_project, rows);
+                addSteps(plan, uncachedFacets, conjunction.getFilterOrder(), conjunction.getPlan());
+            }
+            _filterPlan = plan;
+            return new BitSetFilteredRows(rows);
         }
         throw new InternalError("Unknown mode.");
     }
@@ -150,14 +219,20 @@ public class Engine {
                     visitor.start(project);
 
                     int c = project.recordModel.getRecordCount();
-                    for (int r = 0; r < c; r++) {
-                        Record record = project.recordModel.getRecord(r);
-                        visitor.visit(project, record.fromRowIndex, record);
+                    if (!ParallelTraversal.visit(visitor, c, (v, from, to) -> visitSpan(project, v, from, to))) {
+                        visitSpan(project, visitor, 0, c);
                     }
                 } finally {
                     visitor.end(project);
                 }
             }
+
+            protected void visitSpan(Project project, RecordVisitor visitor, int from, int to) {
+                for (int r = from; r < to; r++) {
+                    Record record = project.recordModel.getRecord(r);
+                    visitor.visit(project, record.fromRowIndex, record);
+                }
+            }
         };
     }
 
@@ -168,16 +243,41 @@ public class Engine {
 
     public FilteredRecords getFilteredRecords(Facet except) {
         if (_config.getMode().equals(Mode.RecordBased)) {
-            ConjunctiveFilteredRecords cfr = new ConjunctiveFilteredRecords();
-            for (Facet facet : _facets) {
-                if (facet != except) {
-                    RecordFilter recordFilter = facet.getRecordFilter(_project);
-                    if (recordFilter != null) {
-                        cfr.add(recordFilter);
+            int count = _project.recordModel.getRecordCount();
+            BitSet records = new BitSet(count);
+            records.set(0, count);
+            List<FilterStep> plan = new ArrayList<>();
+            List<Integer> uncachedFacets = new ArrayList<>();
+            List<RecordFilter> uncachedFilters = new ArrayList<>();
+            for (int i = 0; i < _facets.size(); i++) {
+                if (_facets.get(i) != except) {
+                    RecordFilter recordFilter = _facets.get(i).getRecordFilter(_project);
+                    if (recordFilter == null) {
+                        continue;
+                    } else if (isCached(i, Mode.RecordBased, count)) {
+                        records.and(getRecordMatches(i, recordFilter, count));
+                        plan.add(new FilterStep(i, true, getStatistics(i, Mode.RecordBased)));
+                    } else {
+                        uncachedFacets.add(i);
+                        uncachedFilters.add(recordFilter);
                     }
                 }
             }
-            return cfr;
+
+            if (uncachedFacets.size() == 1) {
+                int i = uncachedFacets.get(0);
+                records.and(getRecordMatches(i, uncachedFilters.get(0), count));
+                plan.add(new FilterStep(i, false, getStatistics(i, Mode.RecordBased)));
+            } else if (uncachedFacets.size() > 1) {
+                ConjunctiveFilteredRecords conjunction = new ConjunctiveFilteredRecords();
+                for (int j = 0; j < uncachedFacets.size(); j++) {
+                    conjunction.add(uncachedFilters.get(j), getStatistics(uncachedFacets.get(j), Mode.RecordBased));
+                }
+                records = conjunction.evaluate(_project, records);
+                addSteps(plan, uncachedFacets, conjunction.getFilterOrder(), conjunction.getPlan());
+            }
+            _filterPlan = plan;
+            return new BitSetFilteredRecords(records);
         }
         throw new InternalError("This method should not be called when the engine is not in record mode.");
     }
@@ -189,21 +289,154 @@ public class Engine {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Computes the choices of each facet over the rows (or records) matched by all other facets. The filter of each
+     * facet is evaluated once into a bitset, and each facet is then computed over the conjunction of the bitsets of the
+     * other facets, instead of evaluating the filters of all other facets again for each facet.
+     */
     public void computeFacets() {
         if (_config.getMode().equals(Mode.RowBased)) {
-            for (Facet facet : _facets) {
-                FilteredRows filteredRows = getFilteredRows(facet);
-
-                facet.computeChoices(_project, filteredRows);
+            int count = _project.rows.size();
+            BitSet[] matches = new BitSet[_facets.size()];
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] = getMatches(i, Mode.RowBased, count);
+            }
+            BitSet[] others = combineOthers(matches, count);
+            FilterCache filterCache = _project.getFilterCache();
+            List<FacetConfig> facetConfigs = _config.getFacetConfigs();
+            for (int i = 0; i < matches.length; i++) {
+                BitSet rows = others[i];
+                if (filterCache != null && facetConfigs.size() == _facets.size()) {
+                    // reuses the results of the facet if only a few rows changed since they were computed
+                    FacetConfig facetConfig = facetConfigs.get(i);
+                    FilteredRows filteredRows = (project, visitor) -> filterCache.visit(project, facetConfig, rows, visitor);
+                    _facets.get(i).computeChoices(_project, filteredRows);
+                } else {
+                    _facets.get(i).computeChoices(_project, new BitSetFilteredRows(rows));
+                }
             }
         } else if (_config.getMode().equals(Mode.RecordBased)) {
-            for (Facet facet : _facets) {
-                FilteredRecords filteredRecords = getFilteredRecords(facet);
-
-                facet.computeChoices(_project, filteredRecords);
+            int count = _project.recordModel.getRecordCount();
+            BitSet[] matches = new BitSet[_facets.size()];
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] = getMatches(i, Mode.RecordBased, count);
+            }
+            BitSet[] others = combineOthers(matches, count);
+            for (int i = 0; i < matches.length; i++) {
+                _facets.get(i).computeChoices(_project, new BitSetFilteredRecords(others[i]));
             }
         } else {
             throw new InternalError("Unknown mode.");
         }
     }
+
+    /**
+     * Returns the rows (or records) matched by the filter of a facet, from the {@link FilterCache} of the project when
+     * possible. The returned bitset is shared and must not be modified.
+     *
+     * @return null if the facet does not filter anything
+     */
+    protected BitSet getMatches(int facetIndex, Mode mode, int count) {
+        Facet facet = _facets.get(facetIndex);
+        if (mode == Mode.RowBased) {
+            RowFilter rowFilter = facet.getRowFilter(_project);
+            return rowFilter == null ? null : getRowMatches(facetIndex, rowFilter, count);
+        } else {
+            RecordFilter recordFilter = facet.getRecordFilter(_project);
+            return recordFilter == null ? null : getRecordMatches(facetIndex, recordFilter, count);
+        }
+    }
+
+    protected BitSet getRowMatches(int facetIndex, RowFilter rowFilter, int count) {
+        return getMatches(facetIndex, Mode.RowBased, count,
+                () -> BitSetFilteredRows.evaluate(_project, rowFilter),
+                r -> rowFilter.filterRow(_project, r, _project.rows.get(r)));
+    }
+
+    protected BitSet getRecordMatches(int facetIndex, RecordFilter recordFilter, int count) {
+        return getMatches(facetIndex, Mode.RecordBased, count,
+                () -> BitSetFilteredRecords.evaluate(_project, recordFilter), null);
+    }
+
+    protected BitSet getMatches(int facetIndex, Mode mode, int count, Supplier<BitSet> evaluate, IntPredicate filter) {
+        FilterStatistics statistics = getStatistics(facetIndex, mode);
+        Supplier<BitSet> measured = () -> {
+            long start = System.nanoTime();
+            BitSet matches = evaluate.get();
+            statistics.record(count, matches.cardinality(), System.nanoTime() - start);
+            return matches;
+        };
+
+        FilterCache filterCache = _project.getFilterCache();
+        List<FacetConfig> facetConfigs = _config.getFacetConfigs();
+        if (filterCache == null || facetConfigs.size() != _facets.size()) {
+            // facets were not created from the configuration
+            return measured.get();
+        }
+        return filterCache.get(facetConfigs.get(facetIndex), mode, count, measured, filter);
+    }
+
+    /**
+     * @return whether the rows (or records) matched by the filter of a facet are available from the {@link FilterCache}
+     *         of the project
+     */
+    protected boolean isCached(int facetIndex, Mode mode, int count) {
+        FilterCache filterCache = _project.getFilterCache();
+        List<FacetConfig> facetConfigs = _config.getFacetConfigs();
+        return filterCache != null && facetConfigs.size() == _facets.size()
+                && filterCache.contains(facetConfigs.get(facetIndex), mode, count);
+    }
+
+    /**
+     * @return the measured cost and pass rate of the filter of a facet, shared with other engines through the
+     *         {@link FilterCache} of the project when possible
+     */
+    protected FilterStatistics getStatistics(int facetIndex, Mode mode) {
+        FilterCache filterCache = _project.getFilterCache();
+        List<FacetConfig> facetConfigs = _config.getFacetConfigs();
+        if (filterCache == null || facetConfigs.size() != _facets.size()) {
+            return new FilterStatistics();
+        }
+        return filterCache.getStatistics(facetConfigs.get(facetIndex), mode);
+    }
+
+    static protected void addSteps(List<FilterStep> plan, List<Integer> facets, int[] order, List<FilterStatistics> statistics) {
+        for (int j = 0; j < order.length; j++) {
+            plan.add(new FilterStep(facets.get(order[j]), false, statistics.get(j)));
+        }
+    }
+
+    /**
+     * Describes how the filters of the facets were applied by the last call to {@link #getFilteredRows(Facet)} or
+     * {@link #getFilteredRecords(Facet)}, in the order in which they were applied.
+     */
+    @JsonIgnore
+    public List<FilterStep> getFilterPlan() {
+        return _filterPlan;
+    }
+
+    /**
+     * For each position, computes the conjunction of all given bitsets except the one at that position, using running
+     * conjunctions from both ends so that the cost stays linear in the number of facets. Null bitsets match everything.
+     */
+    static protected BitSet[] combineOthers(BitSet[] matches, int count) {
+        BitSet[] others = new BitSet[matches.length];
+        BitSet prefix = new BitSet(count);
+        prefix.set(0, count);
+        for (int i = 0; i < matches.length; i++) {
+            others[i] = (BitSet) prefix.clone();
+            if (matches[i] != null) {
+                prefix.and(matches[i]);
+            }
+        }
+        BitSet suffix = new BitSet(count);
+        suffix.set(0, count);
+        for (int i = matches.length - 1; i >= 0; i--) {
+            others[i].and(suffix);
+            if (matches[i] != null) {
+                suffix.and(matches[i]);
+            }
+        }
+        return others;
+    }
 }
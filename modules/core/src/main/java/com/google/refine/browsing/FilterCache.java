@@ -0,0 +1,483 @@
+
+package com.google.refine.browsing;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.facets.FacetConfig;
+import com.google.refine.browsing.util.BitSetFilteredRows;
+import com.google.refine.browsing.util.FilterStatistics;
+import com.google.refine.history.Change;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ColumnsDiff;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.model.changes.ColumnChange;
+import com.google.refine.model.changes.ColumnSplitChange;
+import com.google.refine.model.changes.MassCellChange;
+import com.google.refine.model.changes.MassReconChange;
+import com.google.refine.util.ParsingUtilities;
+
+/**
+ * Rows (or records) matched by the filters of recently used facets of a project, so that browsing requests which
+ * rebuild an {@link Engine} with some of the same facets do not evaluate their filters again. In row mode, the results
+ * of the facets whose visitors are {@link IncrementalVisitor}s are cached as well.
+ * <p>
+ * Entries are keyed by the JSON serialization of the facet configuration and the engine mode. Facets which are not
+ * deterministic (see {@link FacetConfig#isDeterministic()}), such as those using {@code now()} or {@code cross()}, are
+ * not cached. Entries are discarded when a history entry is applied or reverted, unless the change is known to only
+ * modify cells of some columns and the facet does not depend on any of them (see
+ * {@link FacetConfig#getColumnDependencies()}). Entries of record-based facets are always discarded, since any change
+ * of cells can alter the record structure.
+ * <p>
+ * When a change only modifies a few cells, as when editing one cell, row-based entries depending on the modified
+ * columns are kept: the changed rows are only evaluated again by the next request using them.
+ *
+ * @since 3.10
+ */
+public class FilterCache {
+
+    static final int MAX_ENTRIES = 64;
+    /**
+     * Largest number of rows which are updated in an entry instead of evaluating the facet over all rows.
+     */
+    static final int MAX_DELTA_ROWS = 1000;
+
+    static protected class CachedFilter {
+
+        final Optional<Set<String>> dependencies;
+        final Mode mode;
+        final int count;
+        final BitSet matches;
+        // rows whose cells changed since the filter was evaluated, or null
+        BitSet pending;
+
+        CachedFilter(Optional<Set<String>> dependencies, Mode mode, int count, BitSet matches) {
+            this.dependencies = dependencies;
+            this.mode = mode;
+            this.count = count;
+            this.matches = matches;
+        }
+    }
+
+    /**
+     * Results of a facet computed over some rows. Accessed while holding its own lock.
+     */
+    static protected class CachedResults {
+
+        final Optional<Set<String>> dependencies;
+        final int count;
+        final IncrementalVisitor results;
+        BitSet rows;
+        // previous content of the rows whose cells changed since they were visited
+        final Map<Integer, Row> previousRows = new HashMap<>();
+        // set when the entry is removed from the cache, possibly while it is being used
+        boolean discarded = false;
+
+        CachedResults(Optional<Set<String>> dependencies, int count, IncrementalVisitor results, BitSet rows) {
+            this.dependencies = dependencies;
+            this.count = count;
+            this.results = results;
+            this.rows = rows;
+        }
+
+        /**
+         * Updates the results so that they cover the given rows with their current content.
+         *
+         * @param visitor
+         *            a visitor compatible with the results, configured for the current state of the project, which is
+         *            split to visit the changed rows
+         * @return false if too many rows differ for the update to be worth it
+         */
+        boolean update(Project project, BitSet newRows, IncrementalVisitor visitor) {
+            BitSet changed = (BitSet) rows.clone();
+            changed.xor(newRows);
+            for (int r : previousRows.keySet()) {
+                changed.set(r);
+            }
+            if (changed.cardinality() > MAX_DELTA_ROWS) {
+                return false;
+            }
+
+            // the cached results may hold configuration which has been rebuilt since, such as a base bin index
+            MergeableVisitor removed = visitor.split();
+            MergeableVisitor added = visitor.split();
+            if (removed == null || added == null) {
+                return false;
+            }
+            for (int r = changed.nextSetBit(0); r >= 0; r = changed.nextSetBit(r + 1)) {
+                Row row = project.rows.get(r);
+                if (rows.get(r)) {
+                    ((RowVisitor) removed).visit(project, r, previousRows.getOrDefault(r, row));
+                }
+                if (newRows.get(r)) {
+                    ((RowVisitor) added).visit(project, r, row);
+                }
+            }
+            results.unmerge(removed);
+            results.merge(added);
+            rows = newRows;
+            previousRows.clear();
+            return true;
+        }
+    }
+
+    protected final Map<String, CachedFilter> _entries = new LinkedHashMap<String, CachedFilter>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedFilter> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    protected final Map<String, CachedResults> _results = new LinkedHashMap<String, CachedResults>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResults> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    // kept across changes of the project, since they are only used to order filters
+    protected final Map<String, FilterStatistics> _statistics = new LinkedHashMap<String, FilterStatistics>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, FilterStatistics> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    // incremented on each invalidation, so that results computed concurrently with a change are not cached
+    protected long _version = 0;
+
+    /**
+     * Returns the indices matched by the filter of a facet, evaluating them if they are not cached.
+     *
+     * @param config
+     *            configuration of the facet
+     * @param mode
+     *            the mode of the engine
+     * @param count
+     *            the current number of rows (or records in record mode) in the project
+     * @param evaluate
+     *            evaluates the filter over the project
+     */
+    public BitSet get(FacetConfig config, Mode mode, int count, Supplier<BitSet> evaluate) {
+        return get(config, mode, count, evaluate, null);
+    }
+
+    /**
+     * Returns the indices matched by the filter of a facet, evaluating them if they are not cached.
+     *
+     * @param config
+     *            configuration of the facet
+     * @param mode
+     *            the mode of the engine
+     * @param count
+     *            the current number of rows (or records in record mode) in the project
+     * @param evaluate
+     *            evaluates the filter over the project
+     * @param filter
+     *            evaluates the filter on one row, to update cached results after a change of a few cells, or null
+     */
+    public BitSet get(FacetConfig config, Mode mode, int count, Supplier<BitSet> evaluate, IntPredicate filter) {
+        String key = getKey(config, mode);
+        if (key == null) {
+            return evaluate.get();
+        }
+
+        long version;
+        synchronized (this) {
+            CachedFilter entry = _entries.get(key);
+            if (entry != null && entry.count == count) {
+                if (entry.pending == null) {
+                    return entry.matches;
+                } else if (filter != null) {
+                    // cached bitsets are shared, so the update is made on a copy
+                    BitSet matches = (BitSet) entry.matches.clone();
+                    for (int r = entry.pending.nextSetBit(0); r >= 0; r = entry.pending.nextSetBit(r + 1)) {
+                        matches.set(r, filter.test(r));
+                    }
+                    _entries.put(key, new CachedFilter(entry.dependencies, mode, count, matches));
+                    return matches;
+                }
+            }
+            version = _version;
+        }
+
+        BitSet matches = evaluate.get();
+        synchronized (this) {
+            if (version == _version) {
+                _entries.put(key, new CachedFilter(config.getColumnDependencies(), mode, count, matches));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return whether the indices matched by the filter of a facet can be returned by
+     *         {@link #get(FacetConfig, Mode, int, Supplier, IntPredicate)} without evaluating the filter over the whole
+     *         project
+     */
+    synchronized public boolean contains(FacetConfig config, Mode mode, int count) {
+        String key = getKey(config, mode);
+        CachedFilter entry = key == null ? null : _entries.get(key);
+        return entry != null && entry.count == count;
+    }
+
+    /**
+     * Returns the measured cost and pass rate of the filter of a facet, shared by all engines using the same facet so
+     * that they can order their filters before evaluating them.
+     */
+    synchronized public FilterStatistics getStatistics(FacetConfig config, Mode mode) {
+        String key = getKey(config, mode);
+        if (key == null) {
+            return new FilterStatistics();
+        }
+        return _statistics.computeIfAbsent(key, k -> new FilterStatistics());
+    }
+
+    /**
+     * Visits the given rows with a visitor computing the results of a facet in row mode. If the visitor is an
+     * {@link IncrementalVisitor}, it receives the results of a previous visit for the same facet, updated for the rows
+     * which changed since then, instead of visiting all the rows.
+     *
+     * @param rows
+     *            the rows to visit, which must not be modified afterwards
+     */
+    public void visit(Project project, FacetConfig config, BitSet rows, RowVisitor visitor) {
+        String key = getKey(config, Mode.RowBased);
+        if (key == null || !(visitor instanceof IncrementalVisitor)) {
+            new BitSetFilteredRows(rows).accept(project, visitor);
+            return;
+        }
+        IncrementalVisitor incremental = (IncrementalVisitor) visitor;
+        int count = project.rows.size();
+
+        CachedResults entry;
+        long version;
+        synchronized (this) {
+            entry = _results.get(key);
+            version = _version;
+        }
+        if (entry != null && entry.count == count && entry.results.getClass() == visitor.getClass()
+                && incremental.isCompatible(entry.results)) {
+            synchronized (entry) {
+                if (!entry.discarded && entry.update(project, rows, incremental)) {
+                    try {
+                        visitor.start(project);
+                        incremental.merge(entry.results);
+                    } finally {
+                        visitor.end(project);
+                    }
+                    return;
+                }
+            }
+        }
+
+        new BitSetFilteredRows(rows).accept(project, visitor);
+
+        MergeableVisitor results = incremental.split();
+        if (results != null) {
+            results.merge(incremental);
+            synchronized (this) {
+                if (version == _version) {
+                    _results.put(key, new CachedResults(config.getColumnDependencies(), count, (IncrementalVisitor) results, rows));
+                }
+            }
+        }
+    }
+
+    /**
+     * Discards or updates the entries which may be affected by a history entry just applied or reverted.
+     *
+     * @param reverted
+     *            true if the history entry was reverted, false if it was applied
+     */
+    public void invalidate(Project project, HistoryEntry historyEntry, boolean reverted) {
+        List<CellChange> cellChanges = getCellChanges(historyEntry.getChange());
+        if (cellChanges != null && cellChanges.size() <= MAX_DELTA_ROWS) {
+            Set<String> columns = new HashSet<>();
+            Map<Integer, Row> previousRows = new HashMap<>();
+            for (CellChange cellChange : cellChanges) {
+                Column column = project.columnModel.getColumnByCellIndex(cellChange.cellIndex);
+                if (column == null || cellChange.row >= project.rows.size()) {
+                    invalidate(Optional.empty());
+                    return;
+                }
+                columns.add(column.getName());
+
+                Row row = project.rows.get(cellChange.row);
+                Cell previous = reverted ? cellChange.newCell : cellChange.oldCell;
+                previousRows.computeIfAbsent(cellChange.row, r -> row.dup()).setCell(cellChange.cellIndex, previous);
+            }
+            update(columns, previousRows);
+        } else {
+            invalidate(getModifiedColumns(project, historyEntry));
+        }
+    }
+
+    /**
+     * Discards the entries which depend on the given columns.
+     *
+     * @param modifiedColumns
+     *            the names of the columns whose cells changed, or {@link Optional#empty()} if rows may have changed in
+     *            any way
+     */
+    synchronized public void invalidate(Optional<Set<String>> modifiedColumns) {
+        _version++;
+        if (modifiedColumns.isEmpty()) {
+            _entries.clear();
+            discardResults(entry -> true);
+            return;
+        }
+        Iterator<CachedFilter> it = _entries.values().iterator();
+        while (it.hasNext()) {
+            CachedFilter entry = it.next();
+            if (entry.mode != Mode.RowBased || dependsOn(entry.dependencies, modifiedColumns.get())) {
+                it.remove();
+            }
+        }
+        discardResults(entry -> dependsOn(entry.dependencies, modifiedColumns.get()));
+    }
+
+    /**
+     * Marks the given rows as changed in the entries which depend on the given columns, and discards the entries which
+     * cannot be updated.
+     *
+     * @param previousRows
+     *            the content of the changed rows before the change
+     */
+    synchronized protected void update(Set<String> modifiedColumns, Map<Integer, Row> previousRows) {
+        _version++;
+        Iterator<CachedFilter> it = _entries.values().iterator();
+        while (it.hasNext()) {
+            CachedFilter entry = it.next();
+            if (entry.mode != Mode.RowBased || entry.dependencies.isEmpty()) {
+                it.remove();
+            } else if (dependsOn(entry.dependencies, modifiedColumns)) {
+                if (entry.pending == null) {
+                    entry.pending = new BitSet();
+                }
+                previousRows.keySet().forEach(entry.pending::set);
+                if (entry.pending.cardinality() > MAX_DELTA_ROWS) {
+                    it.remove();
+                }
+            }
+        }
+
+        // facets with unknown dependencies may read other rows, such as the rows of the same record
+        discardResults(entry -> entry.dependencies.isEmpty());
+        for (CachedResults entry : _results.values()) {
+            if (dependsOn(entry.dependencies, modifiedColumns)) {
+                synchronized (entry) {
+                    for (Map.Entry<Integer, Row> previous : previousRows.entrySet()) {
+                        // the rows were visited with their content before the first change
+                        entry.previousRows.putIfAbsent(previous.getKey(), previous.getValue());
+                    }
+                }
+            }
+        }
+        discardResults(entry -> entry.previousRows.size() > MAX_DELTA_ROWS);
+    }
+
+    synchronized private void discardResults(Predicate<CachedResults> predicate) {
+        Iterator<CachedResults> it = _results.values().iterator();
+        while (it.hasNext()) {
+            CachedResults entry = it.next();
+            synchronized (entry) {
+                if (predicate.test(entry)) {
+                    entry.discarded = true;
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    synchronized public void clear() {
+        _version++;
+        _entries.clear();
+        _statistics.clear();
+        discardResults(entry -> true);
+    }
+
+    synchronized public int size() {
+        return _entries.size();
+    }
+
+    static private boolean dependsOn(Optional<Set<String>> dependencies, Set<String> columns) {
+        return dependencies.isEmpty() || dependencies.get().stream().anyMatch(columns::contains);
+    }
+
+    /**
+     * @return the key of the entries of a facet, or null if its results cannot be cached
+     */
+    static private String getKey(FacetConfig config, Mode mode) {
+        if (!config.isDeterministic()) {
+            return null;
+        }
+        try {
+            return Engine.modeToString(mode) + ParsingUtilities.mapper.writeValueAsString(config);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the cells modified by a change which does not alter rows in any other way, or null if the change may do
+     *         more than modifying cells
+     */
+    static protected List<CellChange> getCellChanges(Change change) {
+        if (change instanceof CellChange) {
+            return List.of((CellChange) change);
+        } else if (change instanceof MassCellChange && !((MassCellChange) change).updatesRowContextDependencies()) {
+            return ((MassCellChange) change).getCellChanges();
+        }
+        return null;
+    }
+
+    /**
+     * @return the names of the columns whose cells may have been changed by the history entry, or
+     *         {@link Optional#empty()} if the change may have altered rows in other ways, such as adding, removing,
+     *         reordering or flagging them.
+     */
+    static protected Optional<Set<String>> getModifiedColumns(Project project, HistoryEntry historyEntry) {
+        Change change = historyEntry.getChange();
+        if (change instanceof CellChange) {
+            Column column = project.columnModel.getColumnByCellIndex(((CellChange) change).cellIndex);
+            return column == null ? Optional.empty() : Optional.of(Set.of(column.getName()));
+        }
+        boolean cellsOnly = change instanceof MassCellChange || change instanceof MassReconChange
+                || change instanceof ColumnChange || change instanceof ColumnSplitChange;
+        if (!cellsOnly || historyEntry.operation == null) {
+            return Optional.empty();
+        }
+        Optional<ColumnsDiff> diff = historyEntry.operation.getColumnsDiff();
+        if (diff.isEmpty()) {
+            return Optional.empty();
+        }
+        Set<String> columns = new HashSet<>(diff.get().getModifiedColumns());
+        columns.addAll(diff.get().getDeletedColumns());
+        columns.addAll(diff.get().getAddedColumnNames());
+        return Optional.of(columns);
+    }
+}
@@ -0,0 +1,29 @@
+
+package com.google.refine.browsing;
+
+/**
+ * Capability of a {@link MergeableVisitor} whose results can also be taken away, which lets the results of a facet be
+ * updated when a few rows change instead of visiting all rows again (see {@link FilterCache}).
+ * <p>
+ * The visitors returned by {@link #split()} are used to visit the changed rows: once with their previous content, to
+ * remove them with {@link #unmerge(MergeableVisitor)}, and once with their current content, to add them back with
+ * {@link #merge(MergeableVisitor)}. Merging must not make the visitors share mutable state.
+ *
+ * @since 3.10
+ */
+public interface IncrementalVisitor extends MergeableVisitor {
+
+    /**
+     * Removes the results of a visitor returned by {@link #split()} from the results of this visitor. The other visitor
+     * only visited rows which this visitor already counted.
+     */
+    public void unmerge(MergeableVisitor other);
+
+    /**
+     * @param other
+     *            a visitor of the same class, possibly created for a different request on the same facet
+     * @return true if the results of the other visitor can be merged into this one, false if they were computed with a
+     *         different configuration, such as different bins
+     */
+    public boolean isCompatible(MergeableVisitor other);
+}
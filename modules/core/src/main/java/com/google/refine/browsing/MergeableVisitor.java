@@ -0,0 +1,28 @@
+
+package com.google.refine.browsing;
+
+/**
+ * Capability of a {@link RowVisitor} or {@link RecordVisitor} whose results can be computed over separate spans of the
+ * project and combined afterwards, which lets large projects be visited on several threads (see
+ * {@link com.google.refine.browsing.util.ParallelTraversal}).
+ * <p>
+ * Only the original visitor is started and ended. The visitors returned by {@link #split()} only receive calls to
+ * {@code visit}, for the rows or records of one span, in order, and must not stop the traversal early.
+ *
+ * @since 3.10
+ */
+public interface MergeableVisitor {
+
+    /**
+     * @return a visitor with the same configuration as this one and no results, to visit a span of the project on
+     *         another thread, or null if this visitor cannot be split, for instance because it evaluates an expression
+     *         which is not thread-safe
+     */
+    public MergeableVisitor split();
+
+    /**
+     * Adds the results of a visitor returned by {@link #split()} to the results of this visitor. Visitors are merged in
+     * the order of the spans they visited.
+     */
+    public void merge(MergeableVisitor other);
+}
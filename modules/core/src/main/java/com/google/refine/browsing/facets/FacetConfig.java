@@ -93,6 +93,18 @@ public interface FacetConfig {
         return Optional.empty();
     }
 
+    /**
+     * Whether the rows matched by this facet and its results only depend on the content of the project, so that they
+     * can be cached until the project changes (see {@link com.google.refine.browsing.FilterCache}).
+     *
+     * @return false by default, since the facet might evaluate expressions which are not deterministic (see
+     *         {@link com.google.refine.expr.Evaluable#isDeterministic()})
+     */
+    @JsonIgnore
+    public default boolean isDeterministic() {
+        return false;
+    }
+
     /**
      * Translates this facet by simultaneously substituting column names, as specified by the supplied map. This is a
      * best effort transformation: some references to columns might not get renamed in complex expressions. It can
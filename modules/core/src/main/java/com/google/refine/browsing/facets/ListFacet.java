@@ -156,6 +156,15 @@ public class ListFacet implements Facet {
             }
         }
 
+        @Override
+        public boolean isDeterministic() {
+            try {
+                return MetaParser.parse(expression).isDeterministic();
+            } catch (ParsingException e) {
+                return true;
+            }
+        }
+
         @Override
         public FacetConfig renameColumnDependencies(Map<String, String> substitutions) {
             String newExpression;
@@ -152,6 +152,15 @@ public class RangeFacet implements Facet {
             }
         }
 
+        @Override
+        public boolean isDeterministic() {
+            try {
+                return MetaParser.parse(_expression).isDeterministic();
+            } catch (ParsingException e) {
+                return true;
+            }
+        }
+
         @Override
         public FacetConfig renameColumnDependencies(Map<String, String> substitutions) {
             String newExpression;
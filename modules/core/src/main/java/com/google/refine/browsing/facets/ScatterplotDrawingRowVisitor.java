@@ -50,6 +50,13 @@ import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
 
+/**
+ * Draws the dots of a scatterplot with Java2D, reading their coordinates from the cells of two columns.
+ *
+ * @deprecated use {@link ScatterplotRasterizer}, which reads the values of the expressions of the plot and draws in
+ *             parallel
+ */
+@Deprecated
 public class ScatterplotDrawingRowVisitor implements RowVisitor, RecordVisitor {
 
     int col_x;
@@ -36,23 +36,16 @@ package com.google.refine.browsing.facets;
 import java.awt.Color;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
-import java.awt.image.BufferedImage;
-import java.awt.image.RenderedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
-import javax.imageio.ImageIO;
-
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -204,6 +197,15 @@ public class ScatterplotFacet implements Facet {
             }
         }
 
+        @Override
+        public boolean isDeterministic() {
+            try {
+                return MetaParser.parse(expression_x).isDeterministic() && MetaParser.parse(expression_y).isDeterministic();
+            } catch (ParsingException e) {
+                return true;
+            }
+        }
+
         @Override
         public FacetConfig renameColumnDependencies(Map<String, String> substitutions) {
             String newExpressionX;
@@ -262,10 +264,7 @@ public class ScatterplotFacet implements Facet {
     protected double max_y;
     protected AffineTransform t;
 
-    protected String image;
-
     public static final String NAME = "name";
-    public static final String IMAGE = "image";
     public static final String COLOR = "color";
     public static final String BASE_COLOR = "base_color";
     public static final String SIZE = "l";
@@ -290,20 +289,8 @@ public class ScatterplotFacet implements Facet {
     public static final String FROM_Y = "from_y";
     public static final String ERROR_Y = "error_y";
 
-    private static final boolean IMAGE_URI = false;
-
-    public static String EMPTY_IMAGE;
-
     final static Logger logger = LoggerFactory.getLogger("scatterplot_facet");
 
-    static {
-        try {
-            EMPTY_IMAGE = serializeImage(new BufferedImage(1, 1, BufferedImage.TYPE_4BYTE_ABGR));
-        } catch (IOException e) {
-            EMPTY_IMAGE = "";
-        }
-    }
-
     @JsonProperty(NAME)
     public String getName() {
         return config.name;
@@ -359,15 +346,6 @@ public class ScatterplotFacet implements Facet {
         return config.color_str;
     }
 
-    @JsonProperty(IMAGE)
-    @JsonInclude(Include.NON_NULL)
-    public String getImage() {
-        if (IMAGE_URI) {
-            return image;
-        }
-        return null;
-    }
-
     @JsonProperty(ERROR_X)
     @JsonInclude(Include.NON_NULL)
     public String getErrorX() {
@@ -506,23 +484,6 @@ public class ScatterplotFacet implements Facet {
             NumericBinIndex index_y = getBinIndex(project, column_y, eval_y, config.expression_y, "row-based");
 
             retrieveDataFromBinIndices(index_x, index_y);
-
-            if (IMAGE_URI) {
-                if (index_x.isNumeric() && index_y.isNumeric()) {
-                    ScatterplotDrawingRowVisitor drawer = new ScatterplotDrawingRowVisitor(
-                            columnIndex_x, columnIndex_y, min_x, max_x, min_y, max_y,
-                            config.size, config.dim_x, config.dim_y, config.rotation, config.dot, config.getColor());
-                    filteredRows.accept(project, drawer);
-
-                    try {
-                        image = serializeImage(drawer.getImage());
-                    } catch (IOException e) {
-                        logger.warn("Exception caught while generating the image", e);
-                    }
-                } else {
-                    image = EMPTY_IMAGE;
-                }
-            }
         }
     }
 
@@ -536,23 +497,6 @@ public class ScatterplotFacet implements Facet {
             NumericBinIndex index_y = getBinIndex(project, column_y, eval_y, config.expression_y, "record-based");
 
             retrieveDataFromBinIndices(index_x, index_y);
-
-            if (IMAGE_URI) {
-                if (index_x.isNumeric() && index_y.isNumeric()) {
-                    ScatterplotDrawingRowVisitor drawer = new ScatterplotDrawingRowVisitor(
-                            columnIndex_x, columnIndex_y, min_x, max_x, min_y, max_y,
-                            config.size, config.dim_x, config.dim_y, config.rotation, config.dot, config.getColor());
-                    filteredRecords.accept(project, drawer);
-
-                    try {
-                        image = serializeImage(drawer.getImage());
-                    } catch (IOException e) {
-                        logger.warn("Exception caught while generating the image", e);
-                    }
-                } else {
-                    image = EMPTY_IMAGE;
-                }
-            }
         }
     }
 
@@ -564,15 +508,6 @@ public class ScatterplotFacet implements Facet {
         max_y = index_y.getMax();
     }
 
-    public static String serializeImage(RenderedImage image) throws IOException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream(4096);
-        ImageIO.write(image, "png", output);
-        output.close();
-        String encoded = Base64.encodeBase64String(output.toByteArray());
-        String url = "data:image/png;base64," + encoded;
-        return url;
-    }
-
     public static int getAxisDim(String type) {
         return ("log".equals(type.toLowerCase())) ? LOG : LIN;
     }
@@ -0,0 +1,293 @@
+
+package com.google.refine.browsing.facets;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.util.Properties;
+
+import com.google.refine.browsing.MergeableVisitor;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.browsing.util.NumericBinIndex;
+import com.google.refine.browsing.util.RowEvaluable;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+
+/**
+ * Draws the dots of a scatterplot into a coverage buffer, without going through Java2D. The coordinates of a row are
+ * read from the values stored in the base bin indices of the two axes when available (see
+ * {@link NumericBinIndex#hasRowValues(Project, int, Row)}), so that the expressions are not evaluated again for each
+ * drawing. Rows are drawn in parallel spans when the expressions are thread-safe, each span drawing into a buffer of
+ * its own.
+ * <p>
+ * Dots are drawn as squares whose edges partially cover pixels, and overlapping dots keep the largest coverage of each
+ * pixel, so the result does not depend on how the rows were split into spans. Layers of dots are then painted with
+ * {@link #paint(int[], int)} onto an ARGB buffer created with {@link #createBackground(int, int)}.
+ *
+ * @since 3.10
+ */
+public class ScatterplotRasterizer implements RowVisitor, RecordVisitor, MergeableVisitor {
+
+    static final int LIGHT_GRAY = 0xFFC0C0C0;
+
+    final protected Axis _x;
+    final protected Axis _y;
+    final protected int _size;
+    final protected double _dot;
+    // rotation matrix, as returned by AffineTransform.getMatrix, or null
+    final protected double[] _rotation;
+
+    final protected byte[] _coverage;
+
+    /**
+     * Numeric values of the rows along one axis.
+     */
+    static protected class Axis {
+
+        final NumericBinIndex index;
+        final RowEvaluable rowEvaluable;
+        final int dim;
+        final double min;
+        final double range;
+        final boolean log;
+        final double logRange;
+        Properties bindings;
+
+        Axis(NumericBinIndex index, RowEvaluable rowEvaluable, int dim) {
+            this.index = index;
+            this.rowEvaluable = rowEvaluable;
+            this.dim = dim;
+            this.min = index.getMin();
+            this.range = index.getMax() - index.getMin();
+            this.log = dim == ScatterplotFacet.LOG;
+            this.logRange = Math.log10(range + 1);
+        }
+
+        Axis split() {
+            return new Axis(index, rowEvaluable, dim);
+        }
+
+        /**
+         * @return the value of a row, or NaN if it is not a single number
+         */
+        double valueOf(Project project, int rowIndex, Row row) {
+            if (index.hasRowValues(project, rowIndex, row)) {
+                int start = index.getRowValuesStart(rowIndex);
+                if (index.getRowFlags(rowIndex) == NumericBinIndex.NUMERIC && index.getRowValuesEnd(rowIndex) == start + 1) {
+                    return index.getValues()[start];
+                }
+                return Double.NaN;
+            }
+            if (bindings == null) {
+                bindings = ExpressionUtils.createBindings(project);
+            }
+            Object value = rowEvaluable.eval(project, rowIndex, row, bindings);
+            return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+        }
+
+        /**
+         * @return the position of a value along the axis, from 0 to the given length
+         */
+        double scale(double v, int length) {
+            double relative = v - min;
+            return log ? Math.log10(relative + 1) * length / logRange : relative * length / range;
+        }
+    }
+
+    public ScatterplotRasterizer(
+            NumericBinIndex index_x, RowEvaluable eval_x, int dim_x,
+            NumericBinIndex index_y, RowEvaluable eval_y, int dim_y,
+            int size, int rotation, double dot) {
+        this(new Axis(index_x, eval_x, dim_x), new Axis(index_y, eval_y, dim_y), size, dot, getRotationMatrix(rotation, size));
+    }
+
+    protected ScatterplotRasterizer(Axis x, Axis y, int size, double dot, double[] rotation) {
+        _x = x;
+        _y = y;
+        _size = size;
+        _dot = dot;
+        _rotation = rotation;
+        _coverage = new byte[size * size];
+    }
+
+    static protected double[] getRotationMatrix(int rotation, int size) {
+        AffineTransform t = ScatterplotFacet.createRotationMatrix(rotation, size);
+        if (t == null) {
+            return null;
+        }
+        double[] matrix = new double[6];
+        t.getMatrix(matrix);
+        return matrix;
+    }
+
+    @Override
+    public void start(Project project) {
+        // nothing to do
+    }
+
+    @Override
+    public void end(Project project) {
+        // nothing to do
+    }
+
+    @Override
+    public MergeableVisitor split() {
+        if (!_x.rowEvaluable.isThreadSafe() || !_y.rowEvaluable.isThreadSafe()) {
+            return null;
+        }
+        return new ScatterplotRasterizer(_x.split(), _y.split(), _size, _dot, _rotation);
+    }
+
+    @Override
+    public void merge(MergeableVisitor other) {
+        byte[] coverage = ((ScatterplotRasterizer) other)._coverage;
+        for (int i = 0; i < _coverage.length; i++) {
+            if ((coverage[i] & 0xFF) > (_coverage[i] & 0xFF)) {
+                _coverage[i] = coverage[i];
+            }
+        }
+    }
+
+    @Override
+    public boolean visit(Project project, int rowIndex, Row row) {
+        double xv = _x.valueOf(project, rowIndex, row);
+        double yv = _y.valueOf(project, rowIndex, row);
+        if (Double.isNaN(xv) || Double.isNaN(yv)) {
+            return false;
+        }
+
+        double x = _x.scale(xv, _size);
+        double y = _y.scale(yv, _size);
+        if (_rotation != null) {
+            double rx = _rotation[0] * x + _rotation[2] * y + _rotation[4];
+            double ry = _rotation[1] * x + _rotation[3] * y + _rotation[5];
+            x = rx;
+            y = ry;
+        }
+        // the y axis points up in the plot and down in the image
+        fillSquare(x, _size - y);
+        return false;
+    }
+
+    @Override
+    public boolean visit(Project project, Record record) {
+        for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
+            visit(project, r, r, project.rows.get(r));
+        }
+        return false;
+    }
+
+    protected void fillSquare(double cx, double cy) {
+        double half = _dot / 2;
+        double x0 = cx - half;
+        double x1 = cx + half;
+        double y0 = cy - half;
+        double y1 = cy + half;
+        if (!(x1 > 0 && y1 > 0 && x0 < _size && y0 < _size)) {
+            // also excludes infinite and NaN coordinates
+            return;
+        }
+        int fromX = Math.max((int) Math.floor(x0), 0);
+        int toX = Math.min((int) Math.ceil(x1), _size);
+        int fromY = Math.max((int) Math.floor(y0), 0);
+        int toY = Math.min((int) Math.ceil(y1), _size);
+        for (int j = fromY; j < toY; j++) {
+            double coverY = Math.min(j + 1, y1) - Math.max(j, y0);
+            int offset = j * _size;
+            for (int i = fromX; i < toX; i++) {
+                double coverX = Math.min(i + 1, x1) - Math.max(i, x0);
+                int coverage = (int) Math.round(coverX * coverY * 255);
+                if (coverage > (_coverage[offset + i] & 0xFF)) {
+                    _coverage[offset + i] = (byte) coverage;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the coverage of each pixel by the dots drawn, from 0 to 255, row by row from the top of the image
+     */
+    public byte[] getCoverage() {
+        return _coverage;
+    }
+
+    /**
+     * Paints the dots drawn so far onto an image.
+     *
+     * @param pixels
+     *            the ARGB pixels of the image, row by row from the top
+     * @param rgb
+     *            the color of the dots
+     */
+    public void paint(int[] pixels, int rgb) {
+        for (int i = 0; i < _coverage.length; i++) {
+            int coverage = _coverage[i] & 0xFF;
+            if (coverage > 0) {
+                pixels[i] = blend(rgb, coverage, pixels[i]);
+            }
+        }
+    }
+
+    /**
+     * Composes a color with the given opacity over an ARGB pixel.
+     */
+    static protected int blend(int rgb, int alpha, int pixel) {
+        int dstAlpha = pixel >>> 24;
+        int outAlpha = alpha + dstAlpha * (255 - alpha) / 255;
+        if (outAlpha == 0) {
+            return 0;
+        }
+        int result = outAlpha << 24;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int src = (rgb >> shift) & 0xFF;
+            int dst = (pixel >> shift) & 0xFF;
+            int out = (src * alpha + dst * dstAlpha * (255 - alpha) / 255) / outAlpha;
+            result |= out << shift;
+        }
+        return result;
+    }
+
+    /**
+     * Creates the pixels of an empty scatterplot. When the plot is rotated, the areas of negative coordinates are
+     * filled in light gray, to give a hint of how it has been rotated.
+     *
+     * @return the ARGB pixels of the image, row by row from the top
+     */
+    static public int[] createBackground(int size, int rotation) {
+        int[] pixels = new int[size * size];
+        AffineTransform t = ScatterplotFacet.createRotationMatrix(rotation, size);
+        if (t == null) {
+            return pixels;
+        }
+        AffineTransform inverse;
+        try {
+            inverse = t.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            return pixels;
+        }
+        double[] point = new double[2];
+        for (int j = 0; j < size; j++) {
+            for (int i = 0; i < size; i++) {
+                point[0] = i + 0.5;
+                point[1] = size - (j + 0.5);
+                inverse.transform(point, 0, point, 0, 1);
+                double x = point[0];
+                double y = point[1];
+                if ((x >= -size && x < 0 && y >= 0 && y < size) || (x >= 0 && x < size && y >= -size && y < 0)) {
+                    pixels[j * size + i] = LIGHT_GRAY;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    static public RenderedImage toImage(int[] pixels, int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(0, 0, size, size, pixels, 0, size);
+        return image;
+    }
+}
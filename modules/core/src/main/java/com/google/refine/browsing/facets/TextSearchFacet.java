@@ -33,6 +33,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.facets;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
@@ -49,6 +50,7 @@ import com.google.refine.browsing.RecordFilter;
 import com.google.refine.browsing.RowFilter;
 import com.google.refine.browsing.filters.AnyRowRecordFilter;
 import com.google.refine.browsing.filters.ExpressionStringComparisonRowFilter;
+import com.google.refine.browsing.util.TrigramIndex;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.model.Column;
@@ -105,6 +107,11 @@ public class TextSearchFacet implements Facet {
             return Optional.of(Collections.singleton(_columnName));
         }
 
+        @Override
+        public boolean isDeterministic() {
+            return true;
+        }
+
         @Override
         public FacetConfig renameColumnDependencies(Map<String, String> substitutions) {
             TextSearchFacetConfig newConfig = new TextSearchFacetConfig();
@@ -215,9 +222,15 @@ public class TextSearchFacet implements Facet {
 
         };
 
+        BitSet candidates = getCandidateRows(project);
         if ("regex".equals(_config._mode)) {
             return new ExpressionStringComparisonRowFilter(eval, _config._invert, _config._columnName, _cellIndex) {
 
+                @Override
+                protected boolean isCandidate(int rowIndex) {
+                    return candidates == null || candidates.get(rowIndex);
+                }
+
                 @Override
                 protected boolean checkValue(String s) {
                     return _pattern.matcher(s).find();
@@ -226,6 +239,11 @@ public class TextSearchFacet implements Facet {
         } else {
             return new ExpressionStringComparisonRowFilter(eval, _config._invert, _config._columnName, _cellIndex) {
 
+                @Override
+                protected boolean isCandidate(int rowIndex) {
+                    return candidates == null || candidates.get(rowIndex);
+                }
+
                 @Override
                 protected boolean checkValue(String s) {
                     return (_config._caseSensitive ? s : s.toLowerCase()).contains(_query);
@@ -234,6 +252,21 @@ public class TextSearchFacet implements Facet {
         }
     }
 
+    /**
+     * @return the rows which can match the query according to the trigram index of the column, or null if all the rows
+     *         have to be checked
+     */
+    protected BitSet getCandidateRows(Project project) {
+        TrigramIndex index = TrigramIndex.get(project, project.columnModel.getColumnByCellIndex(_cellIndex));
+        if (index == null) {
+            return null;
+        } else if ("regex".equals(_config._mode)) {
+            return index.getCandidateRows(TrigramIndex.getRequiredLiterals(_config._query), false);
+        } else {
+            return index.getCandidateRows(Collections.singleton(_query), !_config._caseSensitive);
+        }
+    }
+
     @Override
     public RecordFilter getRecordFilter(Project project) {
         RowFilter rowFilter = getRowFilter(project);
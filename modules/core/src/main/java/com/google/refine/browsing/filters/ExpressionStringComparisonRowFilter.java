@@ -66,6 +66,10 @@ abstract public class ExpressionStringComparisonRowFilter implements RowFilter {
 
     @Override
     public boolean filterRow(Project project, int rowIndex, Row row) {
+        if (!isCandidate(rowIndex)) {
+            return _invert;
+        }
+
         Cell cell = _cellIndex < 0 ? null : row.getCell(_cellIndex);
 
         Properties bindings = ExpressionUtils.createBindings(project);
@@ -106,5 +110,13 @@ abstract public class ExpressionStringComparisonRowFilter implements RowFilter {
         return invert;
     }
 
+    /**
+     * @return false if the value of the row is known not to pass {@link #checkValue(String)}, which lets filters backed
+     *         by an index skip evaluating the expression on most rows
+     */
+    protected boolean isCandidate(int rowIndex) {
+        return true;
+    }
+
     abstract protected boolean checkValue(String s);
 }
@@ -0,0 +1,62 @@
+
+package com.google.refine.browsing.util;
+
+import java.util.BitSet;
+
+import com.google.refine.browsing.FilteredRecords;
+import com.google.refine.browsing.RecordFilter;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+
+/**
+ * Visits the records whose indices are set in a bitset, typically the combination of several record filters evaluated
+ * beforehand with {@link #evaluate(Project, RecordFilter)}.
+ *
+ * @since 3.10
+ */
+public class BitSetFilteredRecords implements FilteredRecords {
+
+    final protected BitSet _records;
+
+    public BitSetFilteredRecords(BitSet records) {
+        _records = records;
+    }
+
+    @Override
+    public void accept(Project project, RecordVisitor visitor) {
+        try {
+            visitor.start(project);
+
+            int c = project.recordModel.getRecordCount();
+            if (!ParallelTraversal.visit(visitor, c, (v, from, to) -> visitSpan(project, v, from, to))) {
+                visitSpan(project, visitor, 0, c);
+            }
+        } finally {
+            visitor.end(project);
+        }
+    }
+
+    protected void visitSpan(Project project, RecordVisitor visitor, int from, int to) {
+        for (int r = _records.nextSetBit(from); r >= 0 && r < to; r = _records.nextSetBit(r + 1)) {
+            Record record = project.recordModel.getRecord(r);
+            if (visitor.visit(project, record.fromRowIndex, record)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the indices of the records matched by the filter
+     */
+    static public BitSet evaluate(Project project, RecordFilter recordFilter) {
+        int c = project.recordModel.getRecordCount();
+        BitSet records = new BitSet(c);
+        for (int r = 0; r < c; r++) {
+            if (recordFilter.filterRecord(project, project.recordModel.getRecord(r))) {
+                records.set(r);
+            }
+        }
+        return records;
+    }
+}
@@ -0,0 +1,67 @@
+
+package com.google.refine.browsing.util;
+
+import java.util.BitSet;
+
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RowFilter;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.model.Project;
+
+/**
+ * Visits the rows whose indices are set in a bitset, typically the combination of several row filters evaluated
+ * beforehand with {@link #evaluate(Project, RowFilter)}.
+ *
+ * @since 3.10
+ */
+public class BitSetFilteredRows implements FilteredRows {
+
+    final protected BitSet _rows;
+
+    public BitSetFilteredRows(BitSet rows) {
+        _rows = rows;
+    }
+
+    /**
+     * @return the indices of the visited rows, which must not be modified
+     */
+    public BitSet getRows() {
+        return _rows;
+    }
+
+    @Override
+    public void accept(Project project, RowVisitor visitor) {
+        try {
+            visitor.start(project);
+
+            int c = project.rows.size();
+            if (!ParallelTraversal.visit(visitor, c, (v, from, to) -> visitSpan(project, v, from, to))) {
+                visitSpan(project, visitor, 0, c);
+            }
+        } finally {
+            visitor.end(project);
+        }
+    }
+
+    protected void visitSpan(Project project, RowVisitor visitor, int from, int to) {
+        for (int rowIndex = _rows.nextSetBit(from); rowIndex >= 0 && rowIndex < to; rowIndex = _rows.nextSetBit(rowIndex + 1)) {
+            if (visitor.visit(project, rowIndex, rowIndex, project.rows.get(rowIndex))) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return the indices of the rows matched by the filter
+     */
+    static public BitSet evaluate(Project project, RowFilter rowFilter) {
+        int c = project.rows.size();
+        BitSet rows = new BitSet(c);
+        for (int rowIndex = 0; rowIndex < c; rowIndex++) {
+            if (rowFilter.filterRow(project, rowIndex, project.rows.get(rowIndex))) {
+                rows.set(rowIndex);
+            }
+        }
+        return rows;
+    }
+}
@@ -33,7 +33,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.util;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import com.google.refine.browsing.FilteredRecords;
@@ -43,14 +44,58 @@ import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 
 /**
- * Encapsulate logic for visiting records that match all given record filters.
+ * Encapsulate logic for visiting records that match all given record filters. The filters are evaluated in the order
+ * given by a {@link FilterOrder}, as in {@link ConjunctiveFilteredRows}.
  */
 public class ConjunctiveFilteredRecords implements FilteredRecords {
 
-    final protected List<RecordFilter> _recordFilters = new LinkedList<RecordFilter>();
+    final protected List<RecordFilter> _recordFilters = new ArrayList<RecordFilter>();
+    final protected FilterOrder _order = new FilterOrder();
 
     public void add(RecordFilter recordFilter) {
+        add(recordFilter, new FilterStatistics());
+    }
+
+    /**
+     * Adds a filter whose cost and pass rate may have been measured before.
+     *
+     * @param statistics
+     *            the measurements of the filter, to which the new measurements are added
+     */
+    public void add(RecordFilter recordFilter, FilterStatistics statistics) {
         _recordFilters.add(recordFilter);
+        _order.add(statistics);
+    }
+
+    /**
+     * @return the statistics of the filters, in the order in which they are currently evaluated
+     */
+    public List<FilterStatistics> getPlan() {
+        return _order.getPlan();
+    }
+
+    /**
+     * @return the indices of the filters, in the order in which they are currently evaluated
+     */
+    public int[] getFilterOrder() {
+        return _order.getOrder();
+    }
+
+    /**
+     * @param candidates
+     *            the records to filter, which is not modified
+     * @return the candidate records matched by all filters
+     */
+    public BitSet evaluate(Project project, BitSet candidates) {
+        int c = project.recordModel.getRecordCount();
+        BitSet records = new BitSet(c);
+        for (int r = candidates.nextSetBit(0); r >= 0 && r < c; r = candidates.nextSetBit(r + 1)) {
+            if (matchRecord(project, project.recordModel.getRecord(r))) {
+                records.set(r);
+            }
+        }
+        _order.flush();
+        return records;
     }
 
     @Override
@@ -68,13 +113,25 @@ public class ConjunctiveFilteredRecords implements FilteredRecords {
                 }
             }
         } finally {
+            _order.flush();
             visitor.end(project);
         }
     }
 
     protected boolean matchRecord(Project project, Record record) {
-        for (RecordFilter recordFilter : _recordFilters) {
-            if (!recordFilter.filterRecord(project, record)) {
+        if (_order.nextIsSample()) {
+            boolean matched = true;
+            for (int i = 0; i < _recordFilters.size(); i++) {
+                long start = System.nanoTime();
+                boolean passed = _recordFilters.get(i).filterRecord(project, record);
+                _order.record(i, passed, System.nanoTime() - start);
+                matched &= passed;
+            }
+            _order.endSample();
+            return matched;
+        }
+        for (int i : _order.getOrder()) {
+            if (!_recordFilters.get(i).filterRecord(project, record)) {
                 return false;
             }
         }
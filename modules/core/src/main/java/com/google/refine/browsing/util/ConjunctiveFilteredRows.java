@@ -33,7 +33,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.util;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import com.google.refine.browsing.FilteredRows;
@@ -45,13 +46,59 @@ import com.google.refine.model.Row;
 /**
  * Encapsulate logic for visiting rows that match all give row filters. Also visit context rows and dependent rows if
  * configured so.
+ * <p>
+ * The filters are not evaluated in the order in which they were added, but in the order given by a {@link FilterOrder},
+ * which is adapted to the cost and pass rate of the filters measured as rows are visited.
  */
 public class ConjunctiveFilteredRows implements FilteredRows {
 
-    final protected List<RowFilter> _rowFilters = new LinkedList<RowFilter>();
+    final protected List<RowFilter> _rowFilters = new ArrayList<RowFilter>();
+    final protected FilterOrder _order = new FilterOrder();
 
     public void add(RowFilter rowFilter) {
+        add(rowFilter, new FilterStatistics());
+    }
+
+    /**
+     * Adds a filter whose cost and pass rate may have been measured before.
+     *
+     * @param statistics
+     *            the measurements of the filter, to which the new measurements are added
+     */
+    public void add(RowFilter rowFilter, FilterStatistics statistics) {
         _rowFilters.add(rowFilter);
+        _order.add(statistics);
+    }
+
+    /**
+     * @return the statistics of the filters, in the order in which they are currently evaluated
+     */
+    public List<FilterStatistics> getPlan() {
+        return _order.getPlan();
+    }
+
+    /**
+     * @return the indices of the filters, in the order in which they are currently evaluated
+     */
+    public int[] getFilterOrder() {
+        return _order.getOrder();
+    }
+
+    /**
+     * @param candidates
+     *            the rows to filter, which is not modified
+     * @return the candidate rows matched by all filters
+     */
+    public BitSet evaluate(Project project, BitSet candidates) {
+        int c = project.rows.size();
+        BitSet rows = new BitSet(c);
+        for (int rowIndex = candidates.nextSetBit(0); rowIndex >= 0 && rowIndex < c; rowIndex = candidates.nextSetBit(rowIndex + 1)) {
+            if (matchRow(project, rowIndex, project.rows.get(rowIndex))) {
+                rows.set(rowIndex);
+            }
+        }
+        _order.flush();
+        return rows;
     }
 
     @Override
@@ -69,6 +116,7 @@ public class ConjunctiveFilteredRows implements FilteredRows {
                 }
             }
         } finally {
+            _order.flush();
             visitor.end(project);
         }
     }
@@ -78,8 +126,19 @@ public class ConjunctiveFilteredRows implements FilteredRows {
     }
 
     protected boolean matchRow(Project project, int rowIndex, Row row) {
-        for (RowFilter rowFilter : _rowFilters) {
-            if (!rowFilter.filterRow(project, rowIndex, row)) {
+        if (_order.nextIsSample()) {
+            boolean matched = true;
+            for (int i = 0; i < _rowFilters.size(); i++) {
+                long start = System.nanoTime();
+                boolean passed = _rowFilters.get(i).filterRow(project, rowIndex, row);
+                _order.record(i, passed, System.nanoTime() - start);
+                matched &= passed;
+            }
+            _order.endSample();
+            return matched;
+        }
+        for (int i : _order.getOrder()) {
+            if (!_rowFilters.get(i).filterRow(project, rowIndex, row)) {
                 return false;
             }
         }
@@ -33,7 +33,9 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.util;
 
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
@@ -65,4 +67,15 @@ public class ExpressionBasedRowEvaluable implements RowEvaluable {
 
         return _eval.evaluate(bindings);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return _eval.isThreadSafe();
+    }
+
+    @Override
+    public boolean dependsOnBaseColumnOnly() {
+        Optional<Set<String>> dependencies = _eval.getColumnDependencies(Optional.of(_columnName));
+        return dependencies.isPresent() && dependencies.get().stream().allMatch(_columnName::equals);
+    }
 }
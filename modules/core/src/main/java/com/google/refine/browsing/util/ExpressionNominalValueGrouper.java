@@ -41,12 +41,15 @@ import java.util.Map;
 import java.util.Properties;
 
 import com.google.refine.browsing.DecoratedValue;
+import com.google.refine.browsing.IncrementalVisitor;
+import com.google.refine.browsing.MergeableVisitor;
 import com.google.refine.browsing.RecordVisitor;
 import com.google.refine.browsing.RowVisitor;
 import com.google.refine.browsing.facets.NominalFacetChoice;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.model.Cell;
+import com.google.refine.model.PrecomputeCache;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
@@ -55,7 +58,7 @@ import com.google.refine.util.StringUtils;
 /**
  * Visit matched rows or records and group them into facet choices based on the values computed from a given expression.
  */
-public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor {
+public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor, IncrementalVisitor, PrecomputeCache.Sized {
 
     static public class IndexedNominalFacetChoice extends NominalFacetChoice {
 
@@ -86,6 +89,8 @@ public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor
      */
     protected boolean hasBlank;
     protected boolean hasError;
+    protected Properties _bindings;
+    protected Project _bindingsProject;
 
     public ExpressionNominalValueGrouper(Evaluable evaluable, String columnName, int cellIndex) {
         _evaluable = evaluable;
@@ -103,12 +108,75 @@ public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor
         // nothing to do
     }
 
+    @Override
+    public MergeableVisitor split() {
+        return _evaluable.isThreadSafe() ? new ExpressionNominalValueGrouper(_evaluable, _columnName, _cellIndex) : null;
+    }
+
+    @Override
+    public void merge(MergeableVisitor other) {
+        ExpressionNominalValueGrouper grouper = (ExpressionNominalValueGrouper) other;
+        for (Map.Entry<Object, IndexedNominalFacetChoice> entry : grouper.choices.entrySet()) {
+            IndexedNominalFacetChoice choice = choices.get(entry.getKey());
+            if (choice == null) {
+                IndexedNominalFacetChoice copy = new IndexedNominalFacetChoice(entry.getValue().decoratedValue,
+                        entry.getValue()._latestIndex);
+                copy.count = entry.getValue().count;
+                choices.put(entry.getKey(), copy);
+            } else {
+                // spans do not overlap, so a row or record is never counted by both visitors
+                choice.count += entry.getValue().count;
+                choice._latestIndex = Math.max(choice._latestIndex, entry.getValue()._latestIndex);
+            }
+        }
+        blankCount += grouper.blankCount;
+        errorCount += grouper.errorCount;
+    }
+
+    @Override
+    public void unmerge(MergeableVisitor other) {
+        ExpressionNominalValueGrouper grouper = (ExpressionNominalValueGrouper) other;
+        for (Map.Entry<Object, IndexedNominalFacetChoice> entry : grouper.choices.entrySet()) {
+            IndexedNominalFacetChoice choice = choices.get(entry.getKey());
+            if (choice != null) {
+                choice.count -= entry.getValue().count;
+                if (choice.count <= 0) {
+                    choices.remove(entry.getKey());
+                }
+            }
+        }
+        blankCount -= grouper.blankCount;
+        errorCount -= grouper.errorCount;
+    }
+
+    @Override
+    public boolean isCompatible(MergeableVisitor other) {
+        return true;
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        // a choice costs its value, its label and a map entry
+        return 64 + 160L * choices.size();
+    }
+
+    /**
+     * @return bindings reused for all the rows this visitor evaluates in the given project
+     */
+    protected Properties getBindings(Project project) {
+        if (_bindings == null || _bindingsProject != project) {
+            _bindings = ExpressionUtils.createBindings(project);
+            _bindingsProject = project;
+        }
+        return _bindings;
+    }
+
     @Override
     public boolean visit(Project project, int rowIndex, Row row) {
         hasError = false;
         hasBlank = false;
 
-        Properties bindings = ExpressionUtils.createBindings(project);
+        Properties bindings = getBindings(project);
 
         visitRow(project, rowIndex, row, bindings, rowIndex);
 
@@ -124,7 +192,7 @@ public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor
 
     @Override
     public boolean visit(Project project, Record record) {
-        Properties bindings = ExpressionUtils.createBindings(project);
+        Properties bindings = getBindings(project);
 
         for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
             hasError = false;
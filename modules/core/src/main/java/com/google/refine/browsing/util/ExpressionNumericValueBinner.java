@@ -36,6 +36,8 @@ package com.google.refine.browsing.util;
 import java.util.Collection;
 import java.util.Properties;
 
+import com.google.refine.browsing.IncrementalVisitor;
+import com.google.refine.browsing.MergeableVisitor;
 import com.google.refine.browsing.RecordVisitor;
 import com.google.refine.browsing.RowVisitor;
 import com.google.refine.expr.ExpressionUtils;
@@ -46,7 +48,7 @@ import com.google.refine.model.Row;
 /**
  * Visit matched rows or records and slot them into bins based on the numbers computed from a given expression.
  */
-public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor {
+public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor, IncrementalVisitor {
 
     /*
      * Configuration
@@ -70,6 +72,8 @@ public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor {
     protected boolean hasBlank;
     protected boolean hasNumeric;
     protected boolean hasNonNumeric;
+    protected Properties _bindings;
+    protected Project _bindingsProject;
 
     public ExpressionNumericValueBinner(RowEvaluable rowEvaluable, NumericBinIndex index) {
         _rowEvaluable = rowEvaluable;
@@ -87,11 +91,58 @@ public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor {
         // nothing to do
     }
 
+    @Override
+    public MergeableVisitor split() {
+        return _rowEvaluable.isThreadSafe() ? new ExpressionNumericValueBinner(_rowEvaluable, _index) : null;
+    }
+
+    @Override
+    public void merge(MergeableVisitor other) {
+        ExpressionNumericValueBinner binner = (ExpressionNumericValueBinner) other;
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] += binner.bins[i];
+        }
+        numericCount += binner.numericCount;
+        nonNumericCount += binner.nonNumericCount;
+        blankCount += binner.blankCount;
+        errorCount += binner.errorCount;
+    }
+
+    @Override
+    public void unmerge(MergeableVisitor other) {
+        ExpressionNumericValueBinner binner = (ExpressionNumericValueBinner) other;
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] -= binner.bins[i];
+        }
+        numericCount -= binner.numericCount;
+        nonNumericCount -= binner.nonNumericCount;
+        blankCount -= binner.blankCount;
+        errorCount -= binner.errorCount;
+    }
+
+    @Override
+    public boolean isCompatible(MergeableVisitor other) {
+        ExpressionNumericValueBinner binner = (ExpressionNumericValueBinner) other;
+        return binner._index == _index || (binner._index.getMin() == _index.getMin()
+                && binner._index.getStep() == _index.getStep() && binner.bins.length == bins.length);
+    }
+
+    /**
+     * @return bindings reused for all the rows this visitor evaluates in the given project
+     */
+    protected Properties getBindings(Project project) {
+        if (_bindings == null || _bindingsProject != project) {
+            _bindings = ExpressionUtils.createBindings(project);
+            _bindingsProject = project;
+        }
+        return _bindings;
+    }
+
     @Override
     public boolean visit(Project project, int rowIndex, Row row) {
         resetFlags();
 
-        Properties bindings = ExpressionUtils.createBindings(project);
+        Properties bindings = getBindings(project);
         processRow(project, rowIndex, row, bindings);
 
         updateCounts();
@@ -103,7 +154,7 @@ public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor {
     public boolean visit(Project project, Record record) {
         resetFlags();
 
-        Properties bindings = ExpressionUtils.createBindings(project);
+        Properties bindings = getBindings(project);
         for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
             processRow(project, r, project.rows.get(r), bindings);
         }
@@ -136,6 +187,11 @@ public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor {
     }
 
     protected void processRow(Project project, int rowIndex, Row row, Properties bindings) {
+        if (_index.hasRowValues(project, rowIndex, row)) {
+            processStoredRow(rowIndex);
+            return;
+        }
+
         Object value = _rowEvaluable.eval(project, rowIndex, row, bindings);
         if (value != null) {
             if (value.getClass().isArray()) {
@@ -155,6 +211,26 @@ public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor {
         processValue(value);
     }
 
+    /**
+     * Bins the values of a row stored in the base bin index, which are those the expression would evaluate to.
+     */
+    protected void processStoredRow(int rowIndex) {
+        int flags = _index.getRowFlags(rowIndex);
+        hasError |= (flags & NumericBinIndex.ERROR) != 0;
+        hasBlank |= (flags & NumericBinIndex.BLANK) != 0;
+        hasNumeric |= (flags & NumericBinIndex.NUMERIC) != 0;
+        hasNonNumeric |= (flags & NumericBinIndex.NON_NUMERIC) != 0;
+
+        double[] values = _index.getValues();
+        int end = _index.getRowValuesEnd(rowIndex);
+        for (int i = _index.getRowValuesStart(rowIndex); i < end; i++) {
+            int bin = (int) Math.floor((values[i] - _index.getMin()) / _index.getStep());
+            if (bin >= 0 && bin < bins.length) { // as a precaution
+                bins[bin]++;
+            }
+        }
+    }
+
     protected void processValue(Object value) {
         if (ExpressionUtils.isError(value)) {
             hasError = true;
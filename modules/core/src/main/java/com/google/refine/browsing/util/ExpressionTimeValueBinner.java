@@ -37,6 +37,8 @@ import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.Properties;
 
+import com.google.refine.browsing.IncrementalVisitor;
+import com.google.refine.browsing.MergeableVisitor;
 import com.google.refine.browsing.RecordVisitor;
 import com.google.refine.browsing.RowVisitor;
 import com.google.refine.expr.ExpressionUtils;
@@ -47,7 +49,7 @@ import com.google.refine.model.Row;
 /**
  * Visit matched rows or records and slot them into bins based on the date computed from a given expression.
  */
-public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
+public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor, IncrementalVisitor {
 
     /*
      * Configuration
@@ -71,6 +73,8 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
     protected boolean hasBlank;
     protected boolean hasTime;
     protected boolean hasNonTime;
+    protected Properties _bindings;
+    protected Project _bindingsProject;
 
     public ExpressionTimeValueBinner(RowEvaluable rowEvaluable, TimeBinIndex index) {
         _rowEvaluable = rowEvaluable;
@@ -88,11 +92,58 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
         // nothing to do
     }
 
+    @Override
+    public MergeableVisitor split() {
+        return _rowEvaluable.isThreadSafe() ? new ExpressionTimeValueBinner(_rowEvaluable, _index) : null;
+    }
+
+    @Override
+    public void merge(MergeableVisitor other) {
+        ExpressionTimeValueBinner binner = (ExpressionTimeValueBinner) other;
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] += binner.bins[i];
+        }
+        timeCount += binner.timeCount;
+        nonTimeCount += binner.nonTimeCount;
+        blankCount += binner.blankCount;
+        errorCount += binner.errorCount;
+    }
+
+    @Override
+    public void unmerge(MergeableVisitor other) {
+        ExpressionTimeValueBinner binner = (ExpressionTimeValueBinner) other;
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] -= binner.bins[i];
+        }
+        timeCount -= binner.timeCount;
+        nonTimeCount -= binner.nonTimeCount;
+        blankCount -= binner.blankCount;
+        errorCount -= binner.errorCount;
+    }
+
+    @Override
+    public boolean isCompatible(MergeableVisitor other) {
+        ExpressionTimeValueBinner binner = (ExpressionTimeValueBinner) other;
+        return binner._index == _index || (binner._index.getMin() == _index.getMin()
+                && binner._index.getStep() == _index.getStep() && binner.bins.length == bins.length);
+    }
+
+    /**
+     * @return bindings reused for all the rows this visitor evaluates in the given project
+     */
+    protected Properties getBindings(Project project) {
+        if (_bindings == null || _bindingsProject != project) {
+            _bindings = ExpressionUtils.createBindings(project);
+            _bindingsProject = project;
+        }
+        return _bindings;
+    }
+
     @Override
     public boolean visit(Project project, int rowIndex, Row row) {
         resetFlags();
 
-        Properties bindings = ExpressionUtils.createBindings(project);
+        Properties bindings = getBindings(project);
         processRow(project, rowIndex, row, bindings);
 
         updateCounts();
@@ -104,7 +155,7 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
     public boolean visit(Project project, Record record) {
         resetFlags();
 
-        Properties bindings = ExpressionUtils.createBindings(project);
+        Properties bindings = getBindings(project);
         for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
             processRow(project, r, project.rows.get(r), bindings);
         }
@@ -137,6 +188,11 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
     }
 
     protected void processRow(Project project, int rowIndex, Row row, Properties bindings) {
+        if (_index.hasRowValues(project, rowIndex, row)) {
+            processStoredRow(rowIndex);
+            return;
+        }
+
         Object value = _rowEvaluable.eval(project, rowIndex, row, bindings);
         if (value != null) {
             if (value.getClass().isArray()) {
@@ -156,6 +212,26 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
         processValue(value);
     }
 
+    /**
+     * Bins the values of a row stored in the base bin index, which are those the expression would evaluate to.
+     */
+    protected void processStoredRow(int rowIndex) {
+        int flags = _index.getRowFlags(rowIndex);
+        hasError |= (flags & TimeBinIndex.ERROR) != 0;
+        hasBlank |= (flags & TimeBinIndex.BLANK) != 0;
+        hasTime |= (flags & TimeBinIndex.TIME) != 0;
+        hasNonTime |= (flags & TimeBinIndex.NON_TIME) != 0;
+
+        long[] values = _index.getValues();
+        int end = _index.getRowValuesEnd(rowIndex);
+        for (int i = _index.getRowValuesStart(rowIndex); i < end; i++) {
+            int bin = (int) Math.floor((double) (values[i] - _index.getMin()) / (double) _index.getStep());
+            if (bin >= 0 && bin < bins.length) { // as a precaution
+                bins[bin]++;
+            }
+        }
+    }
+
     protected void processValue(Object value) {
         if (ExpressionUtils.isError(value)) {
             hasError = true;
@@ -0,0 +1,135 @@
+
+package com.google.refine.browsing.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Order in which the filters of a conjunction are evaluated, adapted as rows are filtered. One row out of
+ * {@link #SAMPLE_PERIOD} on average is evaluated against all filters to measure their cost and pass rate, and the other
+ * rows are evaluated against the filters by increasing {@link FilterStatistics#getRank()}, stopping at the first filter
+ * which rejects them. Rows are sampled pseudo-randomly rather than at fixed intervals, so that the measurements are not
+ * biased by data following a periodic pattern.
+ * <p>
+ * Not thread-safe: a conjunction is evaluated by a single thread. The measurements are added to the statistics of the
+ * filters each time the filters are ordered again, and when {@link #flush()} is called.
+ *
+ * @since 3.10
+ */
+public class FilterOrder {
+
+    /**
+     * One row out of this many is sampled on average. Must be a power of two.
+     */
+    static final int SAMPLE_PERIOD = 64;
+    /**
+     * Number of sampled rows between two orderings of the filters, once this many rows have been sampled.
+     */
+    static final int REORDER_PERIOD = 16;
+
+    final protected List<FilterStatistics> _statistics = new ArrayList<>();
+    // indices of the filters in evaluation order
+    protected int[] _order = new int[0];
+    // measurements which have not been added to the statistics yet
+    protected long[] _passed = new long[0];
+    protected long[] _nanos = new long[0];
+    protected long _pendingSamples = 0;
+    // state of the xorshift generator choosing the sampled rows, seeded with a constant for reproducibility
+    protected long _random = 0x2545F4914F6CDD1DL;
+    protected boolean _first = true;
+    protected long _samples = 0;
+
+    public void add(FilterStatistics statistics) {
+        int i = _statistics.size();
+        _statistics.add(statistics);
+        _order = Arrays.copyOf(_order, i + 1);
+        _order[i] = i;
+        _passed = Arrays.copyOf(_passed, i + 1);
+        _nanos = Arrays.copyOf(_nanos, i + 1);
+        reorder();
+    }
+
+    public int size() {
+        return _statistics.size();
+    }
+
+    /**
+     * To be called once before filtering each row.
+     *
+     * @return whether the row should be evaluated against all filters, reporting each of them with
+     *         {@link #record(int, boolean, long)} and then calling {@link #endSample()}
+     */
+    public boolean nextIsSample() {
+        if (_first) {
+            _first = false;
+            return true;
+        }
+        _random ^= _random << 13;
+        _random ^= _random >>> 7;
+        _random ^= _random << 17;
+        return (_random & (SAMPLE_PERIOD - 1)) == 0;
+    }
+
+    public void record(int filter, boolean passed, long nanos) {
+        if (passed) {
+            _passed[filter]++;
+        }
+        _nanos[filter] += nanos;
+    }
+
+    public void endSample() {
+        _pendingSamples++;
+        _samples++;
+        if (_samples <= REORDER_PERIOD || _samples % REORDER_PERIOD == 0) {
+            flush();
+            reorder();
+        }
+    }
+
+    /**
+     * @return the indices of the filters, in the order in which they should be evaluated. Must not be modified.
+     */
+    public int[] getOrder() {
+        return _order;
+    }
+
+    /**
+     * Adds the pending measurements to the statistics of the filters.
+     */
+    public void flush() {
+        if (_pendingSamples == 0) {
+            return;
+        }
+        for (int i = 0; i < _statistics.size(); i++) {
+            _statistics.get(i).record(_pendingSamples, _passed[i], _nanos[i]);
+            _passed[i] = 0;
+            _nanos[i] = 0;
+        }
+        _pendingSamples = 0;
+    }
+
+    protected void reorder() {
+        double[] ranks = new double[_statistics.size()];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = _statistics.get(i).getRank();
+        }
+        // the sort is stable, so filters of equal rank keep their relative order
+        _order = Arrays.stream(_order).boxed()
+                .sorted(Comparator.comparingDouble(i -> ranks[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @return the statistics of the filters, in the order in which they are evaluated
+     */
+    public List<FilterStatistics> getPlan() {
+        List<FilterStatistics> plan = new ArrayList<>(_order.length);
+        for (int i : _order) {
+            plan.add(_statistics.get(i));
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,79 @@
+
+package com.google.refine.browsing.util;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Measured cost and pass rate of a row (or record) filter, used to decide in which order the filters of a conjunction
+ * are evaluated (see {@link FilterOrder}). Measurements can be accumulated over several evaluations of the same facet:
+ * older measurements are progressively given less weight, so that the statistics follow changes of the data.
+ *
+ * @since 3.10
+ */
+public class FilterStatistics {
+
+    /**
+     * Number of evaluations beyond which the accumulated measurements are halved.
+     */
+    static final long MAX_WEIGHT = 1 << 20;
+
+    protected long _evaluated = 0;
+    protected long _passed = 0;
+    protected long _nanos = 0;
+
+    /**
+     * Adds measurements of the filter.
+     *
+     * @param evaluated
+     *            the number of rows (or records) evaluated
+     * @param passed
+     *            how many of them were matched by the filter
+     * @param nanos
+     *            the time spent evaluating them
+     */
+    synchronized public void record(long evaluated, long passed, long nanos) {
+        _evaluated += evaluated;
+        _passed += passed;
+        _nanos += nanos;
+        while (_evaluated > MAX_WEIGHT) {
+            _evaluated /= 2;
+            _passed /= 2;
+            _nanos /= 2;
+        }
+    }
+
+    @JsonProperty("evaluated")
+    synchronized public long getEvaluatedCount() {
+        return _evaluated;
+    }
+
+    /**
+     * @return the proportion of the rows matched by the filter, or 1 if it has not been measured yet
+     */
+    @JsonProperty("passRate")
+    synchronized public double getPassRate() {
+        return _evaluated == 0 ? 1.0 : (double) _passed / _evaluated;
+    }
+
+    /**
+     * @return the average time spent evaluating the filter on a row, or 0 if it has not been measured yet
+     */
+    @JsonProperty("nanosPerRow")
+    synchronized public double getCostPerRow() {
+        return _evaluated == 0 ? 0.0 : (double) _nanos / _evaluated;
+    }
+
+    /**
+     * Filters of a conjunction are best evaluated by increasing rank, which is their cost divided by the proportion of
+     * rows they reject: a filter is worth evaluating early if it is cheap or if it rejects many rows. Filters which
+     * have not been measured yet come first.
+     */
+    synchronized public double getRank() {
+        if (_evaluated == 0) {
+            return 0.0;
+        } else if (_passed >= _evaluated) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (double) _nanos / (_evaluated - _passed);
+    }
+}
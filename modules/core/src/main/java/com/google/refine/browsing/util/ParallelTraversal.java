@@ -0,0 +1,76 @@
+
+package com.google.refine.browsing.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.google.refine.browsing.MergeableVisitor;
+
+/**
+ * Visits the rows or records of a project on the common fork-join pool, by splitting their range into contiguous spans
+ * which are visited by separate copies of a {@link MergeableVisitor}. Spans of records follow record boundaries since
+ * they are ranges of record indices.
+ *
+ * @since 3.10
+ */
+public class ParallelTraversal {
+
+    /**
+     * Visits the rows or records of the range [from, to) with the given visitor, in order.
+     */
+    @FunctionalInterface
+    public interface SpanVisitor<V> {
+
+        public void visit(V visitor, int from, int to);
+    }
+
+    /**
+     * Smallest number of rows or records visited by a task.
+     */
+    static final int MIN_SPAN_SIZE = 16384;
+
+    /**
+     * Visits the range [0, count) in parallel if the visitor is a {@link MergeableVisitor} which can be split and the
+     * range is large enough. The visitor must have been started by the caller, which is also responsible for ending it.
+     *
+     * @return true if the range was visited, false if the caller should visit it sequentially instead
+     */
+    static public <V> boolean visit(V visitor, int count, SpanVisitor<V> spanVisitor) {
+        return visit(ForkJoinPool.commonPool(), visitor, count, MIN_SPAN_SIZE, spanVisitor);
+    }
+
+    @SuppressWarnings("unchecked")
+    static protected <V> boolean visit(ForkJoinPool pool, V visitor, int count, int minSpanSize, SpanVisitor<V> spanVisitor) {
+        int spanCount = Math.min(pool.getParallelism() * 4, count / minSpanSize);
+        if (!(visitor instanceof MergeableVisitor) || spanCount < 2) {
+            return false;
+        }
+
+        MergeableVisitor root = (MergeableVisitor) visitor;
+        List<MergeableVisitor> splits = new ArrayList<>(spanCount);
+        for (int i = 0; i < spanCount; i++) {
+            MergeableVisitor split = root.split();
+            if (split == null) {
+                return false;
+            }
+            splits.add(split);
+        }
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(spanCount);
+        for (int i = 0; i < spanCount; i++) {
+            V split = (V) splits.get(i);
+            int from = (int) ((long) count * i / spanCount);
+            int to = (int) ((long) count * (i + 1) / spanCount);
+            tasks.add(pool.submit(() -> spanVisitor.visit(split, from, to)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        for (MergeableVisitor split : splits) {
+            root.merge(split);
+        }
+        return true;
+    }
+}
@@ -41,4 +41,22 @@ import com.google.refine.model.Row;
 public interface RowEvaluable {
 
     public Object eval(Project project, int rowIndex, Row row, Properties bindings);
+
+    /**
+     * @see com.google.refine.expr.Evaluable#isThreadSafe()
+     */
+    public default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Whether the values only depend on the cells of the column the facet is based on, and on the position of the row.
+     * Such values can be stored in the precomputes of that column, which are dropped whenever its cells or the rows
+     * change.
+     * 
+     * @return false by default
+     */
+    public default boolean dependsOnBaseColumnOnly() {
+        return false;
+    }
 }
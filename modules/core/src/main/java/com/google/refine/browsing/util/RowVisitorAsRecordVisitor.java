@@ -33,12 +33,13 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.util;
 
+import com.google.refine.browsing.MergeableVisitor;
 import com.google.refine.browsing.RecordVisitor;
 import com.google.refine.browsing.RowVisitor;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 
-public class RowVisitorAsRecordVisitor implements RecordVisitor {
+public class RowVisitorAsRecordVisitor implements RecordVisitor, MergeableVisitor {
 
     final protected RowVisitor _rowVisitor;
 
@@ -56,6 +57,20 @@ public class RowVisitorAsRecordVisitor implements RecordVisitor {
         _rowVisitor.end(project);
     }
 
+    @Override
+    public MergeableVisitor split() {
+        if (_rowVisitor instanceof MergeableVisitor) {
+            MergeableVisitor split = ((MergeableVisitor) _rowVisitor).split();
+            return split != null ? new RowVisitorAsRecordVisitor((RowVisitor) split) : null;
+        }
+        return null;
+    }
+
+    @Override
+    public void merge(MergeableVisitor other) {
+        ((MergeableVisitor) _rowVisitor).merge((MergeableVisitor) ((RowVisitorAsRecordVisitor) other)._rowVisitor);
+    }
+
     @Override
     public boolean visit(Project project, Record record) {
         for (int r = record.fromRowIndex; r < record.toRowIndex; r++) {
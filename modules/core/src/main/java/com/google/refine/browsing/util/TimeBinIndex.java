@@ -34,13 +34,15 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.browsing.util;
 
 import java.time.OffsetDateTime;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
 import java.util.Properties;
 
+import com.google.refine.browsing.MergeableVisitor;
 import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.model.PrecomputeCache;
 import com.google.refine.model.Project;
+import com.google.refine.model.Record;
 import com.google.refine.model.Row;
 
 /**
@@ -50,8 +52,19 @@ import com.google.refine.model.Row;
  * 
  * This class processes all rows rather than just the filtered rows because it needs to compute the base bins of a
  * temporal range facet, which remain unchanged as the user interacts with the facet.
+ * 
+ * When the expression only depends on the column the index is stored in, the values of each row are kept, so that
+ * {@link ExpressionTimeValueBinner} can bin the filtered rows without evaluating the expression again.
  */
-abstract public class TimeBinIndex {
+abstract public class TimeBinIndex implements PrecomputeCache.Sized {
+
+    /*
+     * Flags describing the values of a row
+     */
+    static public final int ERROR = 1;
+    static public final int BLANK = 2;
+    static public final int TIME = 4;
+    static public final int NON_TIME = 8;
 
     protected int _totalValueCount;
     protected int _timeValueCount;
@@ -65,10 +78,13 @@ abstract public class TimeBinIndex {
     protected int _blankRowCount;
     protected int _errorRowCount;
 
-    protected boolean _hasError = false;
-    protected boolean _hasNonTime = false;
-    protected boolean _hasTime = false;
-    protected boolean _hasBlank = false;
+    /*
+     * Values of the rows, if stored: the times of row r, in milliseconds since the epoch, are _values[_rowOffsets[r]]
+     * to _values[_rowOffsets[r + 1] - 1], and its flags are _rowFlags[r].
+     */
+    protected long[] _values;
+    protected int[] _rowOffsets;
+    protected byte[] _rowFlags;
 
     protected long[] steps = {
             1, // msec
@@ -84,17 +100,33 @@ abstract public class TimeBinIndex {
             1000l * 31556952l * 1000l, // millennium
     };
 
-    abstract protected void iterate(Project project, RowEvaluable rowEvaluable, List<Long> allValues);
+    abstract protected void iterate(Project project, RowEvaluable rowEvaluable, Builder builder);
 
     public TimeBinIndex(Project project, RowEvaluable rowEvaluable) {
-        _min = Long.MAX_VALUE;
-        _max = Long.MIN_VALUE;
-
-        List<Long> allValues = new ArrayList<Long>();
-
-        iterate(project, rowEvaluable, allValues);
-
-        _timeValueCount = allValues.size();
+        boolean storeRows = rowEvaluable.dependsOnBaseColumnOnly();
+        Builder builder = new Builder(project, rowEvaluable,
+                storeRows ? new int[project.rows.size() + 1] : null,
+                storeRows ? new byte[project.rows.size()] : null);
+
+        iterate(project, rowEvaluable, builder);
+
+        _totalValueCount = builder.totalValueCount;
+        _timeValueCount = builder.size;
+        _timeRowCount = builder.timeRowCount;
+        _nonTimeRowCount = builder.nonTimeRowCount;
+        _blankRowCount = builder.blankRowCount;
+        _errorRowCount = builder.errorRowCount;
+        _min = builder.min;
+        _max = builder.max;
+
+        if (storeRows) {
+            _values = builder.size == builder.values.length ? builder.values : Arrays.copyOf(builder.values, builder.size);
+            _rowOffsets = builder.rowOffsets;
+            for (int r = 0; r < builder.rowFlags.length; r++) {
+                _rowOffsets[r + 1] += _rowOffsets[r];
+            }
+            _rowFlags = builder.rowFlags;
+        }
 
         if (_min >= _max) {
             _step = 1;
@@ -115,8 +147,9 @@ abstract public class TimeBinIndex {
         }
 
         _bins = new int[(int) (diff / _step) + 1];
-        for (long d : allValues) {
-            int bin = (int) Math.max((d - _min) / _step, 0);
+        long[] values = builder.values;
+        for (int i = 0; i < builder.size; i++) {
+            int bin = (int) Math.max((values[i] - _min) / _step, 0);
             _bins[bin]++;
         }
     }
@@ -157,94 +190,204 @@ abstract public class TimeBinIndex {
         return _errorRowCount;
     }
 
-    protected void processRow(
-            Project project,
-            RowEvaluable rowEvaluable,
-            List<Long> allValues,
-            int rowIndex,
-            Row row,
-            Properties bindings) {
-        Object value = rowEvaluable.eval(project, rowIndex, row, bindings);
-
-        if (ExpressionUtils.isError(value)) {
-            _hasError = true;
-        } else if (ExpressionUtils.isNonBlankData(value)) {
-            if (value.getClass().isArray()) {
-                Object[] a = (Object[]) value;
-                for (Object v : a) {
-                    _totalValueCount++;
-
-                    if (ExpressionUtils.isError(v)) {
-                        _hasError = true;
-                    } else if (ExpressionUtils.isNonBlankData(v)) {
-                        if (v instanceof OffsetDateTime) {
-                            _hasTime = true;
-                            processValue(((OffsetDateTime) v).toInstant().toEpochMilli(), allValues);
-                        } else {
-                            _hasNonTime = true;
-                        }
-                    } else {
-                        _hasBlank = true;
-                    }
+    @Override
+    public long getEstimatedSize() {
+        long size = 64 + 4L * _bins.length;
+        if (_rowFlags != null) {
+            size += 8L * _values.length + 4L * _rowOffsets.length + _rowFlags.length;
+        }
+        return size;
+    }
+
+    /**
+     * @return true if the values of the given row were stored when building the index, which is only the case if the
+     *         expression depends on the base column only and the row has not been replaced since
+     */
+    public boolean hasRowValues(Project project, int rowIndex, Row row) {
+        return _rowFlags != null && _rowFlags.length == project.rows.size() && rowIndex >= 0 && rowIndex < _rowFlags.length
+                && project.rows.get(rowIndex) == row;
+    }
+
+    /**
+     * @return the combination of {@link #ERROR}, {@link #BLANK}, {@link #TIME} and {@link #NON_TIME} describing the
+     *         values of a row, if {@link #hasRowValues(Project, int, Row)}
+     */
+    public int getRowFlags(int rowIndex) {
+        return _rowFlags[rowIndex];
+    }
+
+    /**
+     * @return the position in {@link #getValues()} of the first time of a row
+     */
+    public int getRowValuesStart(int rowIndex) {
+        return _rowOffsets[rowIndex];
+    }
+
+    /**
+     * @return the position in {@link #getValues()} after the last time of a row
+     */
+    public int getRowValuesEnd(int rowIndex) {
+        return _rowOffsets[rowIndex + 1];
+    }
+
+    /**
+     * @return the times of all rows in row order, in milliseconds since the epoch, if
+     *         {@link #hasRowValues(Project, int, Row)}
+     */
+    public long[] getValues() {
+        return _values;
+    }
+
+    /**
+     * Evaluates the expression on spans of rows or records, possibly in parallel, and collects the times in a growable
+     * array. The arrays describing each row, if any, are shared by all the builders split from one another, as each of
+     * them writes to the rows of its own span.
+     */
+    static protected class Builder implements MergeableVisitor {
+
+        final Project project;
+        final RowEvaluable rowEvaluable;
+        final Properties bindings;
+        // number of values of row r at index r + 1
+        final int[] rowOffsets;
+        final byte[] rowFlags;
+
+        long[] values = new long[16];
+        int size = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+
+        int totalValueCount;
+        int timeRowCount;
+        int nonTimeRowCount;
+        int blankRowCount;
+        int errorRowCount;
+
+        protected Builder(Project project, RowEvaluable rowEvaluable, int[] rowOffsets, byte[] rowFlags) {
+            this.project = project;
+            this.rowEvaluable = rowEvaluable;
+            this.bindings = ExpressionUtils.createBindings(project);
+            this.rowOffsets = rowOffsets;
+            this.rowFlags = rowFlags;
+        }
+
+        @Override
+        public MergeableVisitor split() {
+            return rowEvaluable.isThreadSafe() ? new Builder(project, rowEvaluable, rowOffsets, rowFlags) : null;
+        }
+
+        @Override
+        public void merge(MergeableVisitor other) {
+            Builder builder = (Builder) other;
+            ensureCapacity(size + builder.size);
+            System.arraycopy(builder.values, 0, values, size, builder.size);
+            size += builder.size;
+            min = Math.min(min, builder.min);
+            max = Math.max(max, builder.max);
+
+            totalValueCount += builder.totalValueCount;
+            timeRowCount += builder.timeRowCount;
+            nonTimeRowCount += builder.nonTimeRowCount;
+            blankRowCount += builder.blankRowCount;
+            errorRowCount += builder.errorRowCount;
+        }
+
+        /**
+         * Visits the rows of the range [from, to), each counted separately.
+         */
+        public void visitRows(int from, int to) {
+            for (int i = from; i < to; i++) {
+                count(processRow(i, project.rows.get(i)));
+            }
+        }
+
+        /**
+         * Visits the records of the range [from, to), each counted once whatever the number of its rows.
+         */
+        public void visitRecords(int from, int to) {
+            for (int r = from; r < to; r++) {
+                Record record = project.recordModel.getRecord(r);
+
+                int flags = 0;
+                for (int i = record.fromRowIndex; i < record.toRowIndex; i++) {
+                    flags |= processRow(i, project.rows.get(i));
                 }
-            } else if (value instanceof Collection<?>) {
-                for (Object v : ExpressionUtils.toObjectCollection(value)) {
-                    _totalValueCount++;
-
-                    if (ExpressionUtils.isError(v)) {
-                        _hasError = true;
-                    } else if (ExpressionUtils.isNonBlankData(v)) {
-                        if (v instanceof OffsetDateTime) {
-                            _hasTime = true;
-                            processValue(((OffsetDateTime) v).toInstant().toEpochMilli(), allValues);
-                        } else {
-                            _hasNonTime = true;
-                        }
-                    } else {
-                        _hasBlank = true;
+                count(flags);
+            }
+        }
+
+        protected void count(int flags) {
+            if ((flags & ERROR) != 0) {
+                errorRowCount++;
+            }
+            if ((flags & BLANK) != 0) {
+                blankRowCount++;
+            }
+            if ((flags & TIME) != 0) {
+                timeRowCount++;
+            }
+            if ((flags & NON_TIME) != 0) {
+                nonTimeRowCount++;
+            }
+        }
+
+        protected int processRow(int rowIndex, Row row) {
+            int start = size;
+            int flags = 0;
+            Object value = rowEvaluable.eval(project, rowIndex, row, bindings);
+
+            if (ExpressionUtils.isError(value)) {
+                flags = ERROR;
+            } else if (ExpressionUtils.isNonBlankData(value)) {
+                if (value.getClass().isArray()) {
+                    Object[] a = (Object[]) value;
+                    for (Object v : a) {
+                        flags |= processValue(v);
+                    }
+                } else if (value instanceof Collection<?>) {
+                    for (Object v : ExpressionUtils.toObjectCollection(value)) {
+                        flags |= processValue(v);
                     }
+                } else {
+                    totalValueCount++;
+                    flags = value instanceof OffsetDateTime ? processTime((OffsetDateTime) value) : NON_TIME;
                 }
             } else {
-                _totalValueCount++;
+                flags = BLANK;
+            }
 
-                if (value instanceof OffsetDateTime) {
-                    _hasTime = true;
-                    processValue(((OffsetDateTime) value).toInstant().toEpochMilli(), allValues);
-                } else {
-                    _hasNonTime = true;
-                }
+            if (rowFlags != null) {
+                rowFlags[rowIndex] = (byte) flags;
+                rowOffsets[rowIndex + 1] = size - start;
             }
-        } else {
-            _hasBlank = true;
+            return flags;
         }
-    }
 
-    protected void preprocessing() {
-        _hasBlank = false;
-        _hasError = false;
-        _hasNonTime = false;
-        _hasTime = false;
-    }
+        protected int processValue(Object v) {
+            totalValueCount++;
 
-    protected void postprocessing() {
-        if (_hasError) {
-            _errorRowCount++;
-        }
-        if (_hasBlank) {
-            _blankRowCount++;
-        }
-        if (_hasTime) {
-            _timeRowCount++;
+            if (ExpressionUtils.isError(v)) {
+                return ERROR;
+            } else if (ExpressionUtils.isNonBlankData(v)) {
+                return v instanceof OffsetDateTime ? processTime((OffsetDateTime) v) : NON_TIME;
+            } else {
+                return BLANK;
+            }
         }
-        if (_hasNonTime) {
-            _nonTimeRowCount++;
+
+        protected int processTime(OffsetDateTime time) {
+            long v = time.toInstant().toEpochMilli();
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+            ensureCapacity(size + 1);
+            values[size++] = v;
+            return TIME;
         }
-    }
 
-    protected void processValue(long v, List<Long> allValues) {
-        _min = Math.min(_min, v);
-        _max = Math.max(_max, v);
-        allValues.add(v);
+        protected void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+            }
+        }
     }
-
 }
@@ -33,13 +33,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing.util;
 
-import java.util.List;
-import java.util.Properties;
-
-import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.model.Project;
-import com.google.refine.model.Record;
-import com.google.refine.model.Row;
 
 public class TimeBinRecordIndex extends TimeBinIndex {
 
@@ -48,23 +42,11 @@ public class TimeBinRecordIndex extends TimeBinIndex {
     }
 
     @Override
-    protected void iterate(Project project, RowEvaluable rowEvaluable, List<Long> allValues) {
-
-        Properties bindings = ExpressionUtils.createBindings(project);
+    protected void iterate(Project project, RowEvaluable rowEvaluable, Builder builder) {
         int count = project.recordModel.getRecordCount();
 
-        for (int r = 0; r < count; r++) {
-            Record record = project.recordModel.getRecord(r);
-
-            preprocessing();
-
-            for (int i = record.fromRowIndex; i < record.toRowIndex; i++) {
-                Row row = project.rows.get(i);
-
-                processRow(project, rowEvaluable, allValues, i, row, bindings);
-            }
-
-            postprocessing();
+        if (!ParallelTraversal.visit(builder, count, (span, from, to) -> span.visitRecords(from, to))) {
+            builder.visitRecords(0, count);
         }
     }
 
@@ -0,0 +1,393 @@
+
+package com.google.refine.browsing.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.PrecomputeCache;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * An inverted index from the trigrams (sequences of three characters) of the cells of a column to the rows containing
+ * them, used by text search facets to find the few rows which can contain a substring before checking them one by one.
+ * It is built on the first search in a column and stored in its precomputes, so it is dropped whenever the cells of the
+ * column change.
+ * <p>
+ * Cells are indexed after lowercasing each of their characters, which makes the index usable for case-sensitive as well
+ * as case-insensitive searches.
+ *
+ * @since 3.10
+ */
+public class TrigramIndex implements PrecomputeCache.Sized {
+
+    /**
+     * Preference setting the number of rows from which text search facets build an index. Setting it to zero or less
+     * disables the index.
+     */
+    public static final String THRESHOLD_PREFERENCE = "ui.browsing.textSearchFacet.indexThreshold";
+    static final int DEFAULT_THRESHOLD = 100000;
+
+    static final String PRECOMPUTE_KEY = "trigram-index";
+
+    static final int[] EMPTY = new int[0];
+
+    final protected int _rowCount;
+    final protected Map<Long, int[]> _postings;
+    // rows whose lowercase form, as computed by String.toLowerCase, is not the one indexed
+    final protected BitSet _unindexedRows;
+
+    public TrigramIndex(Project project, int cellIndex) {
+        Map<Long, PostingsBuilder> builders = new HashMap<>();
+        _unindexedRows = new BitSet();
+
+        _rowCount = project.rows.size();
+        for (int r = 0; r < _rowCount; r++) {
+            Row row = project.rows.get(r);
+            Cell cell = row.getCell(cellIndex);
+            if (cell == null || cell.value == null) {
+                continue;
+            }
+            String s = cell.value instanceof String ? (String) cell.value : cell.value.toString();
+            String folded = fold(s);
+            if (!folded.equals(s.toLowerCase())) {
+                _unindexedRows.set(r);
+            }
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                long trigram = trigram(folded, i);
+                PostingsBuilder builder = builders.get(trigram);
+                if (builder == null) {
+                    builder = new PostingsBuilder();
+                    builders.put(trigram, builder);
+                }
+                builder.add(r);
+            }
+        }
+
+        _postings = new HashMap<>(builders.size() * 4 / 3 + 1);
+        for (Map.Entry<Long, PostingsBuilder> entry : builders.entrySet()) {
+            _postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * @return the index of the column, built if needed, or null if the project is too small for an index to be useful
+     *         or indexing is disabled in the preferences
+     */
+    static public TrigramIndex get(Project project, Column column) {
+        int threshold = getThreshold();
+        if (column == null || threshold <= 0 || project.rows.size() < threshold) {
+            return null;
+        }
+        TrigramIndex index = (TrigramIndex) column.getPrecompute(PRECOMPUTE_KEY);
+        if (index == null || index._rowCount != project.rows.size()) {
+            index = new TrigramIndex(project, column.getCellIndex());
+            column.setPrecompute(PRECOMPUTE_KEY, index);
+        }
+        return index;
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        // each posting list costs its array, a boxed key and a map entry
+        long size = 64 + _unindexedRows.size() / 8;
+        for (int[] rows : _postings.values()) {
+            size += 16 + 4L * rows.length + 64;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the rows which can contain all the given strings. Strings shorter than three characters do not narrow the
+     * search.
+     *
+     * @param strings
+     *            the strings to look for
+     * @param lowercased
+     *            true if the strings are matched against cells lowercased with {@link String#toLowerCase()}, false if
+     *            they are matched against the cells themselves, possibly ignoring case
+     * @return the candidate rows, or null if none of the strings is long enough to narrow the search
+     */
+    public BitSet getCandidateRows(Collection<String> strings, boolean lowercased) {
+        Set<Long> trigrams = new TreeSet<>();
+        for (String s : strings) {
+            String folded = lowercased ? s : fold(s);
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                trigrams.add(trigram(folded, i));
+            }
+        }
+        if (trigrams.isEmpty()) {
+            return null;
+        }
+
+        List<int[]> lists = new ArrayList<>(trigrams.size());
+        for (Long trigram : trigrams) {
+            lists.add(_postings.getOrDefault(trigram, EMPTY));
+        }
+        lists.sort((a, b) -> Integer.compare(a.length, b.length));
+
+        int[] rows = lists.get(0);
+        int size = rows.length;
+        for (int i = 1; i < lists.size() && size > 0; i++) {
+            rows = Arrays.copyOf(rows, size);
+            size = intersect(rows, size, lists.get(i));
+        }
+
+        BitSet candidates = new BitSet();
+        for (int i = 0; i < size; i++) {
+            candidates.set(rows[i]);
+        }
+        if (lowercased) {
+            candidates.or(_unindexedRows);
+        }
+        return candidates;
+    }
+
+    /**
+     * Intersects the first {@code size} elements of a sorted array with another sorted array, in place.
+     *
+     * @return the size of the intersection
+     */
+    static protected int intersect(int[] rows, int size, int[] other) {
+        int count = 0;
+        int j = 0;
+        for (int i = 0; i < size && j < other.length; i++) {
+            int r = rows[i];
+            while (j < other.length && other[j] < r) {
+                j++;
+            }
+            if (j < other.length && other[j] == r) {
+                rows[count++] = r;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the literal strings which any match of a regular expression contains. Only simple expressions are
+     * analyzed: if the expression contains alternatives, inline flags or quoted sections, no string is returned, and
+     * groups and character classes are skipped.
+     *
+     * @return the literal strings, possibly empty
+     */
+    static public List<String> getRequiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        // whether the last character of the run can be removed by a quantifier
+        boolean lastIsLiteral = false;
+        int i = 0;
+        int l = regex.length();
+        while (i < l) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= l || regex.charAt(i + 1) == 'Q') {
+                    return Arrays.asList();
+                }
+                char d = regex.charAt(i + 1);
+                i += 2;
+                if (Character.isDigit(d) || "xucpPkN".indexOf(d) >= 0 || (d == 'b' && i < l && regex.charAt(i) == '{')) {
+                    // escapes followed by arguments, and back-references
+                    return Arrays.asList();
+                } else if (Character.isLetter(d)) {
+                    // character classes and anchors
+                    flush(run, literals);
+                    lastIsLiteral = false;
+                } else {
+                    run.append(d);
+                    lastIsLiteral = true;
+                }
+            } else if (c == '|' || c == ')') {
+                return Arrays.asList();
+            } else if (c == '(') {
+                if (i + 1 < l && regex.charAt(i + 1) == '?') {
+                    return Arrays.asList();
+                }
+                i = skipGroup(regex, i);
+                if (i < 0) {
+                    return Arrays.asList();
+                }
+                flush(run, literals);
+                lastIsLiteral = false;
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+                if (i < 0) {
+                    return Arrays.asList();
+                }
+                flush(run, literals);
+                lastIsLiteral = false;
+            } else if (c == '*' || c == '?' || c == '+' || c == '{') {
+                boolean optional = c != '+';
+                i++;
+                if (c == '{') {
+                    int end = regex.indexOf('}', i);
+                    if (end < 0) {
+                        return Arrays.asList();
+                    }
+                    optional = regex.startsWith("0", i) || regex.charAt(i) == ',';
+                    i = end + 1;
+                }
+                if (lastIsLiteral && optional) {
+                    int last = run.length() - 1;
+                    if (last > 0 && Character.isSurrogatePair(run.charAt(last - 1), run.charAt(last))) {
+                        last--;
+                    }
+                    run.setLength(last);
+                }
+                flush(run, literals);
+                lastIsLiteral = false;
+                // lazy and possessive quantifiers
+                if (i < l && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                    i++;
+                }
+            } else if (c == '.' || c == '^' || c == '$') {
+                flush(run, literals);
+                lastIsLiteral = false;
+                i++;
+            } else {
+                run.append(c);
+                lastIsLiteral = true;
+                i++;
+            }
+        }
+        flush(run, literals);
+        return literals;
+    }
+
+    static private void flush(StringBuilder run, List<String> literals) {
+        if (run.length() > 0) {
+            literals.add(run.toString());
+            run.setLength(0);
+        }
+    }
+
+    /**
+     * @return the position after the group starting at the given position, or -1 if it is not closed
+     */
+    static private int skipGroup(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            } else if (c == '[') {
+                i = skipClass(regex, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the position after the character class starting at the given position, or -1 if it is not closed
+     */
+    static private int skipClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            } else if (c == '[') {
+                depth++;
+                // a closing bracket right after the opening one is literal
+                if (regex.startsWith("^]", i + 1)) {
+                    i += 2;
+                } else if (regex.startsWith("]", i + 1)) {
+                    i++;
+                }
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the string with each of its characters lowercased, which keeps its length
+     */
+    static public String fold(String s) {
+        char[] chars = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            char lower = Character.toLowerCase(c);
+            if (lower != c) {
+                if (chars == null) {
+                    chars = s.toCharArray();
+                }
+                chars[i] = lower;
+            }
+        }
+        return chars == null ? s : new String(chars);
+    }
+
+    static private long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    static protected int getThreshold() {
+        if (ProjectManager.singleton == null || ProjectManager.singleton.getPreferenceStore() == null) {
+            return DEFAULT_THRESHOLD;
+        }
+        Object v = ProjectManager.singleton.getPreferenceStore().get(THRESHOLD_PREFERENCE);
+        if (v instanceof Number) {
+            return ((Number) v).intValue();
+        } else if (v != null) {
+            try {
+                return Integer.parseInt(v.toString());
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return DEFAULT_THRESHOLD;
+    }
+
+    static private class PostingsBuilder {
+
+        int[] rows = new int[4];
+        int size = 0;
+
+        void add(int row) {
+            // rows are added in order, so a row containing a trigram several times is only added once
+            if (size > 0 && rows[size - 1] == row) {
+                return;
+            }
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+
+        int[] toArray() {
+            return size == rows.length ? rows : Arrays.copyOf(rows, size);
+        }
+    }
+}
@@ -54,6 +54,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.MergeableVisitor;
 import com.google.refine.browsing.RowVisitor;
 import com.google.refine.clustering.ClusteredEntry;
 import com.google.refine.clustering.Clusterer;
@@ -128,7 +129,7 @@ public class BinningClusterer extends Clusterer {
 
     List<Map<String, Integer>> _clusters;
 
-    class BinningRowVisitor implements RowVisitor {
+    class BinningRowVisitor implements RowVisitor, MergeableVisitor {
 
         Keyer _keyer;
         Object[] _params;
@@ -157,6 +158,25 @@ public class BinningClusterer extends Clusterer {
             // nothing to do
         }
 
+        @Override
+        public MergeableVisitor split() {
+            return _keyer.isThreadSafe() ? new BinningRowVisitor(_keyer, _parameters) : null;
+        }
+
+        @Override
+        public void merge(MergeableVisitor other) {
+            for (Entry<String, Map<String, Integer>> bin : ((BinningRowVisitor) other)._map.entrySet()) {
+                Map<String, Integer> m = _map.get(bin.getKey());
+                if (m == null) {
+                    _map.put(bin.getKey(), bin.getValue());
+                } else {
+                    for (Entry<String, Integer> value : bin.getValue().entrySet()) {
+                        m.merge(value.getKey(), value.getValue(), Integer::sum);
+                    }
+                }
+            }
+        }
+
         @Override
         public boolean visit(Project project, int rowIndex, Row row) {
             Cell cell = row.getCell(_colindex);
@@ -41,4 +41,14 @@ public abstract class Keyer {
 
     public abstract String key(String string, Object... params);
 
+    /**
+     * Whether {@link #key(String, Object...)} can be called concurrently by several threads, in which case clustering
+     * may visit the rows of large projects in parallel.
+     *
+     * @return false by default (for compatibility with older extensions)
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
 }
@@ -88,4 +88,8 @@ public class NGramFingerprintKeyer extends FingerprintKeyer {
         return set;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -0,0 +1,275 @@
+
+package com.google.refine.expr;
+
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+/**
+ * Bindings returned by {@link ExpressionUtils#createBindings(Project)}, meant to be reused for all the rows evaluated
+ * by one thread. The variables bound for each row ({@code value}, {@code cell}, {@code row}, {@code cells},
+ * {@code rowIndex}, {@code columnName} and {@code project}) are held in fixed slots rather than in the synchronized
+ * table of {@link java.util.Properties}, and the {@link WrappedCell}, {@link WrappedRow} and {@link CellTuple} objects
+ * are only created if the expression reads them. Expressions can read a slot directly with {@link #getSlot(int)}, after
+ * resolving the variable name once with {@link #slotOf(String)}.
+ * <p>
+ * All other keys, such as those added by {@link Binder}s, are stored as usual, and the whole
+ * {@link java.util.Properties} API keeps working: methods enumerating the bindings first copy the slots to the table.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @since 3.10
+ */
+public class Bindings extends java.util.Properties {
+
+    private static final long serialVersionUID = 1L;
+
+    static public final int VALUE = 0;
+    static public final int CELL = 1;
+    static public final int ROW = 2;
+    static public final int CELLS = 3;
+    static public final int ROW_INDEX = 4;
+    static public final int COLUMN_NAME = 5;
+    static public final int PROJECT = 6;
+    static final int SLOT_COUNT = 7;
+
+    static private final String[] NAMES = { "value", "cell", "row", "cells", "rowIndex", "columnName", "project" };
+    // marks a slot whose value is created from the current row on first access
+    static private final Object LAZY = new Object();
+
+    protected Object[] _slots = new Object[SLOT_COUNT];
+    protected Row _row;
+    protected int _rowIndex;
+    protected Cell _cell;
+    protected String _cellColumnName;
+    // true once the slots have been copied to the table by a method enumerating the bindings
+    protected boolean _materialized = false;
+
+    /**
+     * @return the slot of the given variable, or -1 if it is not held in a slot
+     */
+    static public int slotOf(String name) {
+        switch (name) {
+            case "value":
+                return VALUE;
+            case "cell":
+                return CELL;
+            case "row":
+                return ROW;
+            case "cells":
+                return CELLS;
+            case "rowIndex":
+                return ROW_INDEX;
+            case "columnName":
+                return COLUMN_NAME;
+            case "project":
+                return PROJECT;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Binds the variables of a row, like {@link ExpressionUtils#bind(java.util.Properties, Row, int, String, Cell)}.
+     */
+    public void bind(Row row, int rowIndex, String columnName, Cell cell) {
+        if (_materialized) {
+            for (String name : NAMES) {
+                super.remove(name);
+            }
+            _materialized = false;
+        }
+        _row = row;
+        _rowIndex = rowIndex;
+        _cell = cell;
+        _cellColumnName = columnName;
+        _slots[ROW] = LAZY;
+        _slots[CELLS] = LAZY;
+        _slots[ROW_INDEX] = LAZY;
+        if (columnName != null) {
+            _slots[COLUMN_NAME] = columnName;
+        }
+        _slots[CELL] = cell == null ? null : LAZY;
+        _slots[VALUE] = cell == null ? null : cell.value;
+    }
+
+    /**
+     * @return the value of the variable held in the given slot, or null if it is not bound
+     */
+    public Object getSlot(int slot) {
+        Object value = _slots[slot];
+        if (value == LAZY) {
+            value = resolve(slot);
+            _slots[slot] = value;
+        }
+        return value;
+    }
+
+    protected Object resolve(int slot) {
+        Project project = (Project) _slots[PROJECT];
+        switch (slot) {
+            case CELL:
+                return new WrappedCell(project, _cellColumnName, _cell);
+            case ROW:
+                return new WrappedRow(project, _rowIndex, _row);
+            case CELLS:
+                return new CellTuple(project, _row);
+            case ROW_INDEX:
+                return _rowIndex;
+            default:
+                throw new IllegalStateException("Slot " + slot + " is not computed");
+        }
+    }
+
+    protected void materialize() {
+        if (!_materialized) {
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                Object value = getSlot(slot);
+                if (value != null) {
+                    super.put(NAMES[slot], value);
+                }
+            }
+            _materialized = true;
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = key instanceof String ? slotOf((String) key) : -1;
+        return slot >= 0 ? getSlot(slot) : super.get(key);
+    }
+
+    @Override
+    public String getProperty(String key) {
+        Object value = get(key);
+        return value instanceof String ? (String) value : super.getProperty(key);
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        int slot = key instanceof String ? slotOf((String) key) : -1;
+        if (slot < 0) {
+            return super.put(key, value);
+        }
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        Object previous = getSlot(slot);
+        _slots[slot] = value;
+        if (_materialized) {
+            super.put(key, value);
+        }
+        return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = key instanceof String ? slotOf((String) key) : -1;
+        if (slot < 0) {
+            return super.remove(key);
+        }
+        Object previous = getSlot(slot);
+        _slots[slot] = null;
+        if (_materialized) {
+            super.remove(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = key instanceof String ? slotOf((String) key) : -1;
+        return slot >= 0 ? _slots[slot] != null : super.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        materialize();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        materialize();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Enumeration<Object> keys() {
+        materialize();
+        return super.keys();
+    }
+
+    @Override
+    public Enumeration<Object> elements() {
+        materialize();
+        return super.elements();
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        materialize();
+        return super.contains(value);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        materialize();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Set<Object> keySet() {
+        materialize();
+        return super.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        materialize();
+        return super.entrySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        materialize();
+        return super.values();
+    }
+
+    @Override
+    public Enumeration<?> propertyNames() {
+        materialize();
+        return super.propertyNames();
+    }
+
+    @Override
+    public Set<String> stringPropertyNames() {
+        materialize();
+        return super.stringPropertyNames();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Object, ? super Object> action) {
+        materialize();
+        super.forEach(action);
+    }
+
+    @Override
+    public synchronized String toString() {
+        materialize();
+        return super.toString();
+    }
+
+    @Override
+    public synchronized Object clone() {
+        Bindings clone = (Bindings) super.clone();
+        clone._slots = _slots.clone();
+        return clone;
+    }
+}
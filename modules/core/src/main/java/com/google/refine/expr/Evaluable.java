@@ -81,6 +81,27 @@ public interface Evaluable {
      */
     public Object evaluate(Properties bindings);
 
+    /**
+     * Whether this expression can be evaluated concurrently by several threads, each with its own bindings. Rows are
+     * only visited in parallel (see {@link com.google.refine.browsing.MergeableVisitor}) with thread-safe expressions.
+     * 
+     * @return false by default (for compatibility with older extensions)
+     */
+    public default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Whether this expression always evaluates to the same value for the same bindings, so that its results over the
+     * rows of a project can be cached until the project changes. Expressions reading the current time, random numbers
+     * or other projects are not deterministic.
+     * 
+     * @return false by default (for compatibility with older extensions)
+     */
+    public default boolean isDeterministic() {
+        return false;
+    }
+
     /**
      * Returns an approximation of the names of the columns this expression depends on. This approximation is designed
      * to be safe: if a set of column names is returned, then the expression does not read any other column than the
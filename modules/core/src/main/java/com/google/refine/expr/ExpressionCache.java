@@ -0,0 +1,81 @@
+
+package com.google.refine.expr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Recently parsed expressions, keyed by their language prefix and source, so that the expressions of facets and
+ * previews are not parsed again each time the same configuration is received. Only expressions which are thread-safe
+ * (see {@link Evaluable#isThreadSafe()}) are cached, since the same instance is returned to all callers.
+ * <p>
+ * The least recently used expressions are discarded when the cache is full. It is emptied when a language is registered
+ * or unregistered in {@link MetaParser}, and when preferences change, since they can affect how expressions are parsed.
+ *
+ * @since 3.10
+ */
+public class ExpressionCache {
+
+    static final int MAX_ENTRIES = 512;
+
+    protected final Map<String, Evaluable> _entries = new LinkedHashMap<String, Evaluable>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Evaluable> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    protected long _hits = 0;
+    protected long _misses = 0;
+
+    static String key(String languagePrefix, String source) {
+        // language prefixes cannot contain colons
+        return languagePrefix + ":" + source;
+    }
+
+    /**
+     * Returns a parsed expression, parsing it if it is not cached. The parser is called without holding the lock of the
+     * cache, so concurrent requests for the same expression may parse it several times.
+     */
+    public Evaluable get(String languagePrefix, String source, LanguageSpecificParser parser) throws ParsingException {
+        String key = key(languagePrefix, source);
+        synchronized (this) {
+            Evaluable cached = _entries.get(key);
+            if (cached != null) {
+                _hits++;
+                return cached;
+            }
+            _misses++;
+        }
+        Evaluable evaluable = parser.parse(source, languagePrefix);
+        if (evaluable != null && evaluable.isThreadSafe()) {
+            synchronized (this) {
+                _entries.put(key, evaluable);
+            }
+        }
+        return evaluable;
+    }
+
+    synchronized public void clear() {
+        _entries.clear();
+    }
+
+    @JsonProperty("size")
+    synchronized public int size() {
+        return _entries.size();
+    }
+
+    @JsonProperty("hits")
+    synchronized public long getHitCount() {
+        return _hits;
+    }
+
+    @JsonProperty("misses")
+    synchronized public long getMissCount() {
+        return _misses;
+    }
+}
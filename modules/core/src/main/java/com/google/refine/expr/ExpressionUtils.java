@@ -57,7 +57,7 @@ public class ExpressionUtils {
     }
 
     static public Properties createBindings(Project project) {
-        Properties bindings = new Properties();
+        Properties bindings = new Bindings();
 
         bindings.put("true", true);
         bindings.put("false", false);
@@ -73,6 +73,14 @@ public class ExpressionUtils {
     }
 
     static public void bind(Properties bindings, Row row, int rowIndex, String columnName, Cell cell) {
+        if (bindings instanceof Bindings) {
+            ((Bindings) bindings).bind(row, rowIndex, columnName, cell);
+            for (Binder binder : s_binders) {
+                binder.bind(bindings, row, rowIndex, columnName, cell);
+            }
+            return;
+        }
+
         Project project = (Project) bindings.get("project");
 
         bindings.put("rowIndex", rowIndex);
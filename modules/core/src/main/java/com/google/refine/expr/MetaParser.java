@@ -60,6 +60,7 @@ abstract public class MetaParser {
 
     static final public String GREL_LANGUAGE_CODE = "grel";
     static final protected Map<String, LanguageInfo> s_languages = new HashMap<String, LanguageInfo>();
+    static final protected ExpressionCache s_cache = new ExpressionCache();
 
     /**
      * languagePrefix will be stored in the meta model as an identifier. so be careful when change it as it will break
@@ -72,6 +73,7 @@ abstract public class MetaParser {
      */
     static public void registerLanguageParser(String languagePrefix, String name, LanguageSpecificParser parser, String defaultExpression) {
         s_languages.put(languagePrefix, new LanguageInfo(name, parser, defaultExpression));
+        s_cache.clear();
     }
 
     /**
@@ -82,6 +84,7 @@ abstract public class MetaParser {
      */
     static public void unregisterLanguageParser(String languagePrefix) {
         s_languages.remove(languagePrefix.toLowerCase());
+        s_cache.clear();
     }
 
     static public LanguageInfo getLanguageInfo(String languagePrefix) {
@@ -92,9 +95,17 @@ abstract public class MetaParser {
         return s_languages.keySet();
     }
 
+    /**
+     * @return the cache of the expressions parsed by {@link #parse(String)}
+     */
+    static public ExpressionCache getCache() {
+        return s_cache;
+    }
+
     /**
      * Parse an expression that might have a language prefix into an Evaluable. Expressions without valid prefixes or
-     * without any prefix are assumed to be GREL expressions.
+     * without any prefix are assumed to be GREL expressions. Parsed expressions are cached (see
+     * {@link ExpressionCache}), so the same instance can be returned for the same expression.
      * 
      * @param s
      * @return
@@ -114,7 +125,7 @@ abstract public class MetaParser {
         language = language.toLowerCase();
         LanguageInfo info = s_languages.get(language);
         if (info != null) {
-            return info.parser.parse(s.substring(colon + 1), language);
+            return s_cache.get(language, s.substring(colon + 1), info.parser);
         } else {
             return parseGREL(s);
         }
@@ -125,6 +136,6 @@ abstract public class MetaParser {
         if (info == null) {
             throw new ParsingException("Default language GREL is not available");
         }
-        return info.parser.parse(s, GREL_LANGUAGE_CODE);
+        return s_cache.get(GREL_LANGUAGE_CODE, s, info.parser);
     }
 }
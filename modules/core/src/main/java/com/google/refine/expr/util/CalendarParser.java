@@ -36,6 +36,9 @@ package com.google.refine.expr.util;
 import java.time.OffsetDateTime;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -529,6 +532,21 @@ public class CalendarParser {
 
     /** list of time zone names. */
     private static final String[] zoneNames = loadTimeZoneNames();
+    /** lower case time zone names, to look tokens up. */
+    private static final Set<String> lowerCaseZoneNames = new HashSet<>();
+
+    static {
+        if (zoneNames != null) {
+            for (String zoneName : zoneNames) {
+                lowerCaseZoneNames.add(zoneName.toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    /** separators of the tokens of a date. */
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("([\\s/,]+|(\\S)\\-)");
+    /** separators of the fields of a time. */
+    private static final Pattern TIME_SEPARATOR = Pattern.compile("[:\\.]");
 
     /** Unknown place in time parsing. */
     private static final int PLACE_UNKNOWN = 0;
@@ -672,6 +690,20 @@ public class CalendarParser {
         return "??" + order + "??";
     }
 
+    /** Whether a string only has the characters accepted by Integer.parseInt, which can still fail on large numbers. */
+    private static final boolean isInteger(String str) {
+        int start = !str.isEmpty() && (str.charAt(0) == '-' || str.charAt(0) == '+') ? 1 : 0;
+        if (start == str.length()) {
+            return false;
+        }
+        for (int i = start; i < str.length(); i++) {
+            if (Character.digit(str.charAt(i), 10) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Translate a string representation of an ordinal number to the appropriate numeric value.<br>
      * For example, <code>"1st"</code> would return <code>1</code>, <code>"23rd"</code> would return <code>23</code>,
@@ -1024,17 +1056,13 @@ public class CalendarParser {
                     System.err.println("TIME=PM (" + token + ")");
                 }
                 return;
-            } else if (zoneNames != null) {
+            } else if (lowerCaseZoneNames.contains(token.toLowerCase(Locale.ROOT))) {
                 // maybe it's a time zone name
-                for (String zoneName : zoneNames) {
-                    if (token.equalsIgnoreCase(zoneName)) {
-                        // FIXME: Just try it as a timezone name without any prechecking
-                        TimeZone tz = TimeZone.getTimeZone(token);
-                        if (tz.getRawOffset() != 0 || lToken.equals("gmt")) {
-                            state.setTimeZone(tz);
-                            return;
-                        }
-                    }
+                // FIXME: Just try it as a timezone name without any prechecking
+                TimeZone tz = TimeZone.getTimeZone(token);
+                if (tz.getRawOffset() != 0 || lToken.equals("gmt")) {
+                    state.setTimeZone(tz);
+                    return;
                 }
             }
 
@@ -1525,8 +1553,7 @@ public class CalendarParser {
             boolean ignoreChanges) throws CalendarParserException {
         ParserState state = new ParserState(order);
 
-        Pattern pat = Pattern.compile("([\\s/,]+|(\\S)\\-)");
-        Matcher matcher = pat.matcher(dateStr);
+        Matcher matcher = TOKEN_SEPARATOR.matcher(dateStr);
 
         int prevEnd = 0;
         while (prevEnd < dateStr.length()) {
@@ -1561,11 +1588,15 @@ public class CalendarParser {
                         + ", TOKEN=\"" + token + "\"");
             }
 
-            // try to decipher next token as a number
-            try {
-                final int val = Integer.parseInt(token);
-                parseNumericToken(dateStr, state, val);
-            } catch (NumberFormatException e) {
+            // try to decipher next token as a number, checking it first as exceptions are costly
+            if (isInteger(token)) {
+                try {
+                    final int val = Integer.parseInt(token);
+                    parseNumericToken(dateStr, state, val);
+                } catch (NumberFormatException e) {
+                    parseNonNumericToken(dateStr, state, token);
+                }
+            } else {
                 parseNonNumericToken(dateStr, state, token);
             }
         }
@@ -1669,7 +1700,7 @@ public class CalendarParser {
             }
         }
 
-        String[] tList = tmpTime.split("[:\\.]");
+        String[] tList = TIME_SEPARATOR.split(tmpTime);
         for (String token : tList) {
             if (DEBUG) {
                 System.err.println("HOUR "
@@ -59,4 +59,13 @@ public class CalendarParserException extends Exception {
     public CalendarParserException(String str) {
         super(str);
     }
+
+    /**
+     * Failures are expected when trying several ways to parse a value, as toDate does for each cell, so no stack trace
+     * is recorded.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
 }
@@ -51,6 +51,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.refine.ProjectManager;
 import com.google.refine.ProjectMetadata;
 import com.google.refine.RefineServlet;
+import com.google.refine.browsing.FilterCache;
 import com.google.refine.model.Project;
 import com.google.refine.util.Pool;
 
@@ -138,6 +139,7 @@ public class History {
             synchronized (this) {
                 entry.apply(project);
                 _pastEntries.add(entry);
+                invalidateFilters(project, entry, false);
 
                 setModified();
 
@@ -157,6 +159,42 @@ public class History {
         }
     }
 
+    /**
+     * Re-applies an entry recorded in a project journal while the project is being loaded. Unlike
+     * {@link #addEntry(HistoryEntry)}, the project is not looked up through the project manager, it is not marked as
+     * modified and the change files of discarded future entries are left alone, as this was taken care of when the
+     * entry was first added. Applying the entry still writes its change file to the history directory, so that it can
+     * be undone once the project is loaded. Entries which are already done are skipped.
+     *
+     * @return true if the entry was applied
+     */
+    synchronized public boolean replayEntry(Project project, HistoryEntry entry) {
+        for (HistoryEntry pastEntry : _pastEntries) {
+            if (pastEntry.id == entry.id) {
+                return false;
+            }
+        }
+
+        entry.apply(project);
+        _pastEntries.add(entry);
+        invalidateFilters(project, entry, false);
+
+        if (!_futureEntries.isEmpty() && _futureEntries.get(0).id == entry.id) {
+            // the entry was redone
+            _futureEntries.remove(0);
+        } else {
+            _futureEntries = new ArrayList<HistoryEntry>();
+        }
+        return true;
+    }
+
+    protected void invalidateFilters(Project project, HistoryEntry entry, boolean reverted) {
+        FilterCache filterCache = project != null ? project.getFilterCache() : null;
+        if (filterCache != null) {
+            filterCache.invalidate(project, entry, reverted);
+        }
+    }
+
     protected void setModified() {
         // Refresh shadow copy of row count (and modified time as a side effect)
         int rowCount = ProjectManager.singleton.getProject(_projectID).rows.size();
@@ -241,6 +279,7 @@ public class History {
             HistoryEntry entry = _pastEntries.get(_pastEntries.size() - 1);
 
             entry.revert(project);
+            invalidateFilters(project, entry, true);
 
             setModified();
             times--;
@@ -257,6 +296,7 @@ public class History {
             HistoryEntry entry = _futureEntries.get(0);
 
             entry.apply(project);
+            invalidateFilters(project, entry, false);
 
             setModified();
             times--;
@@ -159,19 +159,24 @@ public class HistoryEntry {
         }
 
         synchronized (project) {
-            getChange().apply(project);
+            project.beginRowUpdate();
+            try {
+                getChange().apply(project);
 
-            // When a change is applied, it can hang on to old data (in order to be able
-            // to revert later). Hence, we need to save the change out.
+                // When a change is applied, it can hang on to old data (in order to be able
+                // to revert later). Hence, we need to save the change out.
 
-            try {
-                _manager.saveChange(this);
-            } catch (Exception e) {
-                e.printStackTrace();
+                try {
+                    _manager.saveChange(this);
+                } catch (Exception e) {
+                    e.printStackTrace();
 
-                getChange().revert(project);
+                    getChange().revert(project);
 
-                throw new RuntimeException("Failed to apply change", e);
+                    throw new RuntimeException("Failed to apply change", e);
+                }
+            } finally {
+                project.endRowUpdate();
             }
         }
     }
@@ -180,7 +185,12 @@ public class HistoryEntry {
         if (getChange() == null) {
             _manager.loadChange(this);
         }
-        getChange().revert(project);
+        project.beginRowUpdate();
+        try {
+            getChange().revert(project);
+        } finally {
+            project.endRowUpdate();
+        }
     }
 
     static public HistoryEntry load(Project project, String s) throws IOException {
@@ -0,0 +1,82 @@
+
+package com.google.refine.importers;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.refine.model.Cell;
+
+/**
+ * Shares identical cells of a column during import. Columns with few distinct values, such as a country or a status,
+ * then hold one {@link Cell} and one value per distinct value instead of one per row. Only cells without a recon are
+ * shared, which is safe since cells are immutable.
+ * <p>
+ * Once the column has more distinct values than the cardinality limit, sharing stops and the dictionary is released,
+ * since high-cardinality columns would only pay the cost of the lookups.
+ *
+ * @since 3.10
+ */
+public class CellInterner {
+
+    static final int DEFAULT_CARDINALITY_LIMIT = 10000;
+
+    final protected int cardinalityLimit;
+    protected Map<Serializable, Cell> cells = new HashMap<>();
+    protected long savedBytes = 0;
+
+    public CellInterner(int cardinalityLimit) {
+        this.cardinalityLimit = cardinalityLimit;
+    }
+
+    /**
+     * @return a cell holding the given value, shared with previous cells of equal value while the column is below the
+     *         cardinality limit
+     */
+    public Cell intern(Serializable value) {
+        if (cells == null) {
+            return new Cell(value, null);
+        }
+        Cell cell = cells.get(value);
+        if (cell != null) {
+            savedBytes += estimateSize(value);
+            return cell;
+        }
+        cell = new Cell(value, null);
+        if (cells.size() >= cardinalityLimit) {
+            cells = null;
+        } else {
+            cells.put(value, cell);
+        }
+        return cell;
+    }
+
+    public boolean isEnabled() {
+        return cells != null;
+    }
+
+    /**
+     * @return an estimate of the heap saved so far by sharing cells, in bytes
+     */
+    public long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * Rough size of a cell and its value on a 64-bit JVM with compressed references.
+     */
+    static long estimateSize(Serializable value) {
+        long size = 24; // Cell
+        if (value instanceof String) {
+            // String object and its byte array, assuming a compact Latin-1 string
+            size += 24 + align(16 + ((String) value).length());
+        } else if (value instanceof Long || value instanceof Double) {
+            size += 16;
+        }
+        return size;
+    }
+
+    static private long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -132,11 +132,14 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
         boolean storeBlankRows = JSONUtilities.getBoolean(options, "storeBlankRows", true);
         boolean storeBlankCellsAsNulls = JSONUtilities.getBoolean(options, "storeBlankCellsAsNulls", true);
         boolean trimStrings = JSONUtilities.getBoolean(options, "trimStrings", false);
+        boolean internCells = JSONUtilities.getBoolean(options, "internCells", true);
+        int internCardinalityLimit = JSONUtilities.getInt(options, "internCardinalityLimit", CellInterner.DEFAULT_CARDINALITY_LIMIT);
 
         List<String> columnNames = new ArrayList<String>();
         boolean hasOurOwnColumnNames = headerLines > 0;
 
         List<Boolean> columnsHasData = new ArrayList<>(); // Determine if there is data in each column,def = false
+        List<CellInterner> interners = new ArrayList<>(); // Shared cells of each column, by cell index
 
         List<Object> cells = null;
         int rowsWithData = 0;
@@ -188,6 +191,9 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
                             while (cellIndex >= columnsHasData.size()) {
                                 columnsHasData.add(false);
                             }
+                            while (internCells && cellIndex >= interners.size()) {
+                                interners.add(new CellInterner(internCardinalityLimit));
+                            }
 
                             Object value = cells.get(c);
                             if (value instanceof Cell) {
@@ -206,11 +212,12 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
                                     storedValue = ExpressionUtils.wrapStorable(value);
                                 }
 
-                                row.setCell(cellIndex, new Cell(storedValue, null));
+                                row.setCell(cellIndex,
+                                        internCells ? interners.get(cellIndex).intern(storedValue) : new Cell(storedValue, null));
                                 rowHasData = true;
                                 columnsHasData.set(cellIndex, true);
                             } else if (!storeBlankCellsAsNulls) {
-                                row.setCell(cellIndex, new Cell("", null));
+                                row.setCell(cellIndex, internCells ? interners.get(cellIndex).intern("") : new Cell("", null));
                             } else {
                                 row.setCell(cellIndex, null);
                             }
@@ -234,6 +241,16 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
         } catch (ModelException e) {
             exceptions.add(e);
         }
+
+        if (internCells) {
+            long savedBytes = 0;
+            int sharedColumns = 0;
+            for (CellInterner interner : interners) {
+                savedBytes += interner.getSavedBytes();
+                sharedColumns += interner.isEnabled() ? 1 : 0;
+            }
+            logger.info("Sharing cells of {} out of {} columns saved about {} bytes", sharedColumns, interners.size(), savedBytes);
+        }
     }
 
     /**
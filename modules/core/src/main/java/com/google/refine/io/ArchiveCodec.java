@@ -0,0 +1,155 @@
+
+package com.google.refine.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+
+import com.google.refine.ProjectManager;
+
+/**
+ * Compression used for the entries of project and change archives. Archives remain zip files: codecs other than
+ * {@link #DEFLATE} record themselves in a {@link #ENTRY_NAME} entry, written first, so that readers know how to decode
+ * the other entries. Archives without this entry are read as {@link #DEFLATE}, which covers all archives written by
+ * previous versions.
+ * <p>
+ * {@link #FAST_DEFLATE} and {@link #STORED} archives are plain zip files which previous versions can read too, while
+ * {@link #LZ4} entries hold LZ4 frames inside uncompressed zip entries.
+ *
+ * @since 3.10
+ */
+public enum ArchiveCodec {
+
+    /**
+     * Zip deflate at the default level, as written by previous versions.
+     */
+    DEFLATE("deflate", Deflater.DEFAULT_COMPRESSION, false),
+    /**
+     * Zip deflate at the fastest level.
+     */
+    FAST_DEFLATE("fast-deflate", Deflater.BEST_SPEED, false),
+    /**
+     * No compression.
+     */
+    STORED("stored", Deflater.NO_COMPRESSION, false),
+    /**
+     * LZ4 frames, faster than deflate with a lower compression ratio.
+     */
+    LZ4("lz4", Deflater.NO_COMPRESSION, true);
+
+    public static final String ENTRY_NAME = "codec.txt";
+
+    /**
+     * Preference selecting the codec of newly written archives, by id.
+     */
+    public static final String PREFERENCE = "project.storage.codec";
+
+    final private String id;
+    final private int level;
+    final private boolean lz4Frames;
+
+    ArchiveCodec(String id, int level, boolean lz4Frames) {
+        this.id = id;
+        this.level = level;
+        this.lz4Frames = lz4Frames;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Opens an archive for writing with this codec.
+     */
+    public ZipOutputStream createArchive(OutputStream out) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(level);
+        if (this != DEFLATE) {
+            zip.putNextEntry(new ZipEntry(ENTRY_NAME));
+            zip.write(id.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return zip;
+    }
+
+    /**
+     * Starts a new entry in the archive. Closing the returned stream ends the entry and leaves the archive open.
+     */
+    public OutputStream putNextEntry(ZipOutputStream zip, String name) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        OutputStream entry = new FilterOutputStream(zip) {
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+                zip.closeEntry();
+            }
+        };
+        return lz4Frames ? new FramedLZ4CompressorOutputStream(entry) : entry;
+    }
+
+    /**
+     * @return the decoded content of the entry, or null if the archive has no such entry
+     */
+    public InputStream getInputStream(ZipFile zipFile, String name) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        InputStream in = zipFile.getInputStream(entry);
+        return lz4Frames ? new FramedLZ4CompressorInputStream(in) : in;
+    }
+
+    /**
+     * @return the codec recorded in the archive
+     */
+    static public ArchiveCodec detect(ZipFile zipFile) throws IOException {
+        ZipEntry entry = zipFile.getEntry(ENTRY_NAME);
+        if (entry == null) {
+            return DEFLATE;
+        }
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            String id = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            ArchiveCodec codec = fromId(id);
+            if (codec == null) {
+                throw new IOException("Unsupported archive codec " + id + " in " + zipFile.getName());
+            }
+            return codec;
+        }
+    }
+
+    static public ArchiveCodec fromId(String id) {
+        for (ArchiveCodec codec : values()) {
+            if (codec.id.equals(id)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the codec set in the preferences, or {@link #DEFLATE} if none is set
+     */
+    static public ArchiveCodec getPreferred() {
+        if (ProjectManager.singleton == null || ProjectManager.singleton.getPreferenceStore() == null) {
+            return DEFLATE;
+        }
+        Object v = ProjectManager.singleton.getPreferenceStore().get(PREFERENCE);
+        ArchiveCodec codec = v != null ? fromId(v.toString()) : null;
+        return codec != null ? codec : DEFLATE;
+    }
+}
@@ -0,0 +1,328 @@
+
+package com.google.refine.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Recon;
+import com.google.refine.model.Row;
+import com.google.refine.util.Pool;
+
+/**
+ * Binary, column-oriented encoding of the rows of a project. It is stored as the {@link #ENTRY_NAME} entry of a
+ * project's {@code data.zip}, next to {@code data.txt} which keeps the column model, history and overlay models.
+ * <p>
+ * The stream starts with a header (magic number, format version, row count) followed by one flag byte and the cell
+ * count of each row. Then comes one section per cell index, made of a vector of type tags and of one vector per value
+ * type: dictionary-encoded strings, longs, doubles and recon ids. Big integers and decimals are stored as strings so
+ * that they keep their precision. Recons themselves are stored in the {@link Pool} as for the line-based format.
+ *
+ * @since 3.10
+ */
+public class ColumnarRowSnapshot {
+
+    public static final String ENTRY_NAME = "rows.bin";
+
+    static final int MAGIC = 0x4f524353; // "ORCS"
+    public static final int VERSION = 2;
+
+    static final byte TAG_NULL_CELL = 0;
+    static final byte TAG_NULL_VALUE = 1;
+    static final byte TAG_STRING = 2;
+    static final byte TAG_LONG = 3;
+    static final byte TAG_INTEGER = 4;
+    static final byte TAG_DOUBLE = 5;
+    static final byte TAG_TRUE = 6;
+    static final byte TAG_FALSE = 7;
+    static final byte TAG_DATE = 8;
+    static final byte TAG_ERROR = 9;
+    static final byte TAG_BIG_INTEGER = 10; // since version 2
+    static final byte TAG_BIG_DECIMAL = 11; // since version 2
+    static final byte TAG_TYPE_MASK = 0x7f;
+    static final byte TAG_HAS_RECON = (byte) 0x80;
+
+    static final int FLAGGED = 1;
+    static final int STARRED = 2;
+
+    /**
+     * Writes the given rows to the stream. The stream is flushed but not closed. Recons encountered are added to the
+     * pool, which must be saved separately.
+     */
+    static public void write(List<Row> rows, OutputStream out, Pool pool) throws IOException {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+
+        dos.writeInt(MAGIC);
+        dos.writeInt(VERSION);
+        dos.writeInt(rows.size());
+
+        int columnCount = 0;
+        for (Row row : rows) {
+            dos.writeByte((row.flagged ? FLAGGED : 0) | (row.starred ? STARRED : 0));
+            writeVarInt(dos, row.cells.size());
+            columnCount = Math.max(columnCount, row.cells.size());
+        }
+
+        dos.writeInt(columnCount);
+        for (int cellIndex = 0; cellIndex < columnCount; cellIndex++) {
+            writeColumn(rows, cellIndex, dos, pool);
+        }
+        dos.flush();
+    }
+
+    static protected void writeColumn(List<Row> rows, int cellIndex, DataOutputStream out, Pool pool) throws IOException {
+        ByteArrayOutputStream tags = new ByteArrayOutputStream();
+        ByteArrayOutputStream stringRefBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream longBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream doubleBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream reconBytes = new ByteArrayOutputStream();
+        DataOutputStream stringRefs = new DataOutputStream(stringRefBytes);
+        DataOutputStream longs = new DataOutputStream(longBytes);
+        DataOutputStream doubles = new DataOutputStream(doubleBytes);
+        DataOutputStream reconIds = new DataOutputStream(reconBytes);
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+
+        for (Row row : rows) {
+            if (cellIndex >= row.cells.size()) {
+                continue;
+            }
+            Cell cell = row.cells.get(cellIndex);
+            if (cell == null) {
+                tags.write(TAG_NULL_CELL);
+                continue;
+            }
+
+            byte tag;
+            Serializable value = cell.value;
+            if (value == null) {
+                tag = TAG_NULL_VALUE;
+            } else if (value instanceof String) {
+                tag = TAG_STRING;
+                writeVarInt(stringRefs, intern((String) value, dictionary, strings));
+            } else if (value instanceof Long) {
+                tag = TAG_LONG;
+                longs.writeLong((Long) value);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                tag = TAG_INTEGER;
+                longs.writeLong(((Number) value).longValue());
+            } else if (value instanceof BigInteger) {
+                tag = TAG_BIG_INTEGER;
+                writeVarInt(stringRefs, intern(value.toString(), dictionary, strings));
+            } else if (value instanceof BigDecimal) {
+                tag = TAG_BIG_DECIMAL;
+                writeVarInt(stringRefs, intern(value.toString(), dictionary, strings));
+            } else if (value instanceof Double || value instanceof Float) {
+                tag = TAG_DOUBLE;
+                doubles.writeDouble(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                tag = (Boolean) value ? TAG_TRUE : TAG_FALSE;
+            } else if (value instanceof OffsetDateTime || value instanceof LocalDateTime) {
+                tag = TAG_DATE;
+                Instant instant = value instanceof OffsetDateTime ? ((OffsetDateTime) value).toInstant()
+                        : ((LocalDateTime) value).toInstant(ZoneOffset.UTC);
+                longs.writeLong(instant.getEpochSecond());
+                longs.writeLong(instant.getNano());
+            } else if (value instanceof EvalError) {
+                tag = TAG_ERROR;
+                writeVarInt(stringRefs, intern(((EvalError) value).message, dictionary, strings));
+            } else {
+                // same fallback as the JSON serialization of cells
+                tag = TAG_STRING;
+                writeVarInt(stringRefs, intern(value.toString(), dictionary, strings));
+            }
+
+            if (cell.recon != null) {
+                tag |= TAG_HAS_RECON;
+                reconIds.writeLong(cell.recon.id);
+                pool.pool(cell.recon);
+            }
+            tags.write(tag);
+        }
+
+        out.writeInt(tags.size());
+        tags.writeTo(out);
+
+        out.writeInt(strings.size());
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        for (ByteArrayOutputStream vector : new ByteArrayOutputStream[] { stringRefBytes, longBytes, doubleBytes, reconBytes }) {
+            out.writeInt(vector.size());
+            vector.writeTo(out);
+        }
+    }
+
+    static private int intern(String s, Map<String, Integer> dictionary, List<String> strings) {
+        Integer index = dictionary.get(s);
+        if (index == null) {
+            index = strings.size();
+            dictionary.put(s, index);
+            strings.add(s);
+        }
+        return index;
+    }
+
+    /**
+     * Reads rows previously written by {@link #write(List, OutputStream, Pool)}. Recons are resolved against the given
+     * pool, which must have been loaded beforehand.
+     */
+    static public List<Row> read(InputStream in, Pool pool) throws IOException {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+
+        if (dis.readInt() != MAGIC) {
+            throw new IOException("Not a columnar row snapshot");
+        }
+        int version = dis.readInt();
+        if (version > VERSION) {
+            throw new IOException("Unsupported columnar row snapshot version " + version);
+        }
+
+        int rowCount = dis.readInt();
+        List<Row> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            int flags = dis.readByte();
+            int cellCount = readVarInt(dis);
+            Row row = new Row(cellCount);
+            row.flagged = (flags & FLAGGED) != 0;
+            row.starred = (flags & STARRED) != 0;
+            for (int j = 0; j < cellCount; j++) {
+                row.cells.add(null);
+            }
+            rows.add(row);
+        }
+
+        int columnCount = dis.readInt();
+        for (int cellIndex = 0; cellIndex < columnCount; cellIndex++) {
+            readColumn(rows, cellIndex, dis, pool);
+        }
+        return rows;
+    }
+
+    static protected void readColumn(List<Row> rows, int cellIndex, DataInputStream in, Pool pool) throws IOException {
+        byte[] tags = readBytes(in);
+
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        DataInputStream stringRefs = new DataInputStream(new ByteArrayInputStream(readBytes(in)));
+        DataInputStream longs = new DataInputStream(new ByteArrayInputStream(readBytes(in)));
+        DataInputStream doubles = new DataInputStream(new ByteArrayInputStream(readBytes(in)));
+        DataInputStream reconIds = new DataInputStream(new ByteArrayInputStream(readBytes(in)));
+
+        int t = 0;
+        for (Row row : rows) {
+            if (cellIndex >= row.cells.size()) {
+                continue;
+            }
+            if (t >= tags.length) {
+                throw new IOException("Truncated tag vector for cell index " + cellIndex);
+            }
+            byte tag = tags[t++];
+            if (tag == TAG_NULL_CELL) {
+                continue;
+            }
+
+            Serializable value;
+            switch (tag & TAG_TYPE_MASK) {
+                case TAG_NULL_VALUE:
+                    value = null;
+                    break;
+                case TAG_STRING:
+                    value = strings[readVarInt(stringRefs)];
+                    break;
+                case TAG_LONG:
+                    value = longs.readLong();
+                    break;
+                case TAG_INTEGER:
+                    value = (int) longs.readLong();
+                    break;
+                case TAG_DOUBLE:
+                    value = doubles.readDouble();
+                    break;
+                case TAG_TRUE:
+                    value = Boolean.TRUE;
+                    break;
+                case TAG_FALSE:
+                    value = Boolean.FALSE;
+                    break;
+                case TAG_DATE:
+                    value = Instant.ofEpochSecond(longs.readLong(), longs.readLong()).atOffset(ZoneOffset.UTC);
+                    break;
+                case TAG_ERROR:
+                    value = new EvalError(strings[readVarInt(stringRefs)]);
+                    break;
+                case TAG_BIG_INTEGER:
+                    value = new BigInteger(strings[readVarInt(stringRefs)]);
+                    break;
+                case TAG_BIG_DECIMAL:
+                    value = new BigDecimal(strings[readVarInt(stringRefs)]);
+                    break;
+                default:
+                    throw new IOException("Unknown cell tag " + tag + " for cell index " + cellIndex);
+            }
+
+            Recon recon = null;
+            if ((tag & TAG_HAS_RECON) != 0) {
+                recon = pool.getRecon(Long.toString(reconIds.readLong()));
+            }
+            row.cells.set(cellIndex, new Cell(value, recon));
+        }
+    }
+
+    static private byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+}
@@ -36,10 +36,12 @@ package com.google.refine.io;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Properties;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
@@ -49,6 +51,7 @@ import com.google.refine.history.HistoryEntry;
 import com.google.refine.history.HistoryEntryManager;
 import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.Pool;
+import com.google.refine.util.StreamingPool;
 
 public class FileHistoryEntryManager implements HistoryEntryManager {
 
@@ -87,19 +90,15 @@ public class FileHistoryEntryManager implements HistoryEntryManager {
     }
 
     protected void loadChange(HistoryEntry historyEntry, File file) throws Exception {
-        ZipFile zipFile = new ZipFile(file);
-        try {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ArchiveCodec codec = ArchiveCodec.detect(zipFile);
             Pool pool = new Pool();
-            ZipEntry poolEntry = zipFile.getEntry("pool.txt");
-            if (poolEntry != null) {
-                pool.load(new InputStreamReader( // TODO: Missing encoding here
-                        zipFile.getInputStream(poolEntry)));
+            InputStream poolStream = codec.getInputStream(zipFile, "pool.txt");
+            if (poolStream != null) {
+                pool.load(new InputStreamReader(poolStream, StandardCharsets.UTF_8));
             } // else, it's a legacy project file
 
-            historyEntry.setChange(History.readOneChange(
-                    zipFile.getInputStream(zipFile.getEntry("change.txt")), pool));
-        } finally {
-            zipFile.close();
+            historyEntry.setChange(History.readOneChange(codec.getInputStream(zipFile, "change.txt"), pool));
         }
     }
 
@@ -112,27 +111,19 @@ public class FileHistoryEntryManager implements HistoryEntryManager {
     }
 
     protected void saveChange(HistoryEntry historyEntry, File file) throws Exception {
-        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
-        try {
-            Pool pool = new Pool();
+        ArchiveCodec codec = ArchiveCodec.getPreferred();
+        try (ZipOutputStream out = codec.createArchive(new FileOutputStream(file));
+                StreamingPool pool = new StreamingPool()) {
 
-            out.putNextEntry(new ZipEntry("change.txt"));
-            try {
-                History.writeOneChange(out, historyEntry.getChange(), pool);
+            try (OutputStream entry = codec.putNextEntry(out, "change.txt")) {
+                History.writeOneChange(entry, historyEntry.getChange(), pool);
             } catch (Exception e) {
                 e.printStackTrace();
-            } finally {
-                out.closeEntry();
             }
 
-            out.putNextEntry(new ZipEntry("pool.txt"));
-            try {
-                pool.save(out);
-            } finally {
-                out.closeEntry();
+            try (OutputStream entry = codec.putNextEntry(out, "pool.txt")) {
+                pool.save(entry);
             }
-        } finally {
-            out.close();
         }
     }
 
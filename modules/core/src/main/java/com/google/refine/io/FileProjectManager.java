@@ -202,6 +202,13 @@ public class FileProjectManager extends ProjectManager {
     @Override
     public void exportProject(long projectId, TarArchiveOutputStream tos) throws IOException {
         File dir = this.getProjectDir(projectId);
+        if (new File(dir, ProjectJournal.JOURNAL_FILE).exists()) {
+            // the project may be opened by a version which ignores the journal
+            Project project = getProject(projectId);
+            if (project != null) {
+                ProjectUtilities.checkpoint(project);
+            }
+        }
         this.tarDir("", dir, tos);
     }
 
@@ -0,0 +1,322 @@
+
+package com.google.refine.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.history.History;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Project;
+import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.Pool;
+
+/**
+ * Append-only journal of the history entries applied to a project since its last full save (the checkpoint stored in
+ * {@code data.zip}). Each record holds the serialized history entry with its change and recon pool, so that the journal
+ * can be replayed without the files of the history directory. Each append ends with a record of the column model and
+ * overlay models, which commands can modify without adding a history entry, and which replaces them once the entries
+ * before it are replayed. Project metadata is saved separately and is not journaled.
+ * <p>
+ * The journal starts with the identifier of the checkpoint it extends. A journal whose identifier does not match the
+ * checkpoint is stale (for instance because the process stopped between writing a checkpoint and deleting the journal)
+ * and is ignored.
+ *
+ * @since 3.10
+ */
+public class ProjectJournal {
+
+    final static Logger logger = LoggerFactory.getLogger("project_journal");
+
+    public static final String JOURNAL_FILE = "data.journal";
+    public static final String CHECKPOINT_ENTRY = "checkpoint.txt";
+
+    /**
+     * Preference setting the journal size in bytes above which the next save writes a new checkpoint. Projects are not
+     * journaled unless it is set: older versions ignore the journal and would open the checkpoint without the edits
+     * journaled since, so journaling has to be opted into.
+     */
+    public static final String THRESHOLD_PREFERENCE = "project.storage.journalThreshold";
+
+    static final String MAGIC = "openrefine-journal";
+    static final int VERSION = 2;
+
+    static final int RECORD_ENTRY = 'E'; // since version 2
+    static final int RECORD_MODELS = 'M'; // since version 2
+
+    /**
+     * What is on disk for a loaded project: the checkpoint identifier and the entries done in the checkpoint and
+     * journal combined.
+     */
+    static protected class State {
+
+        final String checkpointId;
+        final List<Long> entryIDs;
+
+        State(String checkpointId, List<Long> entryIDs) {
+            this.checkpointId = checkpointId;
+            this.entryIDs = entryIDs;
+        }
+    }
+
+    static final protected Map<Project, State> states = Collections.synchronizedMap(new WeakHashMap<>());
+
+    static public String newCheckpointId() {
+        return Long.toHexString(Double.doubleToLongBits(Math.random())) + Long.toHexString(System.currentTimeMillis());
+    }
+
+    /**
+     * Records that a checkpoint with the given identifier now holds the full state of the project, and deletes the
+     * journal which is now obsolete.
+     */
+    static public void checkpointed(Project project, File dir, String checkpointId) {
+        checkpointed(project, dir, checkpointId, getEntryIDs(project));
+    }
+
+    /**
+     * @param entryIDs
+     *            the ids of the entries done in the project when the checkpoint was taken, as returned by
+     *            {@link #getEntryIDs(Project)}
+     */
+    static public void checkpointed(Project project, File dir, String checkpointId, List<Long> entryIDs) {
+        File journal = new File(dir, JOURNAL_FILE);
+        if (journal.exists() && !journal.delete()) {
+            logger.warn("Failed to delete journal {}", journal.getAbsolutePath());
+        }
+        states.put(project, new State(checkpointId, entryIDs));
+    }
+
+    /**
+     * Tries to save the project by appending the entries done since the last save to the journal. This is only possible
+     * if the entries done at the last save are still done (no undo happened since), and if the journal is smaller than
+     * the checkpoint threshold.
+     *
+     * @return true if the project was saved, false if a checkpoint needs to be written instead
+     */
+    static public boolean append(Project project, File dir) throws IOException {
+        State state = states.get(project);
+        if (state == null || !new File(dir, ProjectUtilities.DATA_ZIP).exists()) {
+            return false;
+        }
+
+        File journal = new File(dir, JOURNAL_FILE);
+        long threshold = getThreshold();
+        if (threshold < 0 || journal.length() > threshold) {
+            return false;
+        }
+
+        List<HistoryEntry> pastEntries = project.history.getLastPastEntries(0);
+        if (pastEntries.size() <= state.entryIDs.size()) {
+            // nothing new in the history: the project was modified in some other way
+            return false;
+        }
+        for (int i = 0; i < state.entryIDs.size(); i++) {
+            if (pastEntries.get(i).id != state.entryIDs.get(i)) {
+                return false;
+            }
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        if (!journal.exists()) {
+            out.writeUTF(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(state.checkpointId);
+        }
+        for (HistoryEntry entry : pastEntries.subList(state.entryIDs.size(), pastEntries.size())) {
+            if (entry.getChange() == null) {
+                return false;
+            }
+            out.writeByte(RECORD_ENTRY);
+            writeRecord(entry, out);
+        }
+        out.writeByte(RECORD_MODELS);
+        writeModels(project, out);
+        out.flush();
+
+        try (FileOutputStream fos = new FileOutputStream(journal, true)) {
+            buffer.writeTo(fos);
+            fos.getFD().sync();
+        }
+        states.put(project, new State(state.checkpointId, getEntryIDs(project)));
+
+        logger.info("Appended {} history entries to journal of project {}",
+                pastEntries.size() - state.entryIDs.size(), project.id);
+        return true;
+    }
+
+    static protected void writeRecord(HistoryEntry entry, DataOutputStream out) throws IOException {
+        Pool pool = new Pool();
+
+        ByteArrayOutputStream changeBytes = new ByteArrayOutputStream();
+        History.writeOneChange(changeBytes, entry.getChange(), pool);
+
+        ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+        pool.save(poolBytes);
+
+        byte[] entryBytes = ParsingUtilities.saveWriter.writeValueAsBytes(entry);
+        out.writeInt(entryBytes.length);
+        out.write(entryBytes);
+
+        for (ByteArrayOutputStream section : new ByteArrayOutputStream[] { poolBytes, changeBytes }) {
+            out.writeInt(section.size());
+            section.writeTo(out);
+        }
+    }
+
+    static protected void writeModels(Project project, DataOutputStream out) throws IOException {
+        StringWriter writer = new StringWriter();
+        Properties options = new Properties();
+        options.setProperty("mode", "save");
+        project.saveModelsToWriter(writer, options);
+
+        byte[] bytes = writer.toString().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Replays the journal found in the project directory on top of a freshly loaded checkpoint.
+     *
+     * @param checkpointId
+     *            the identifier stored in the checkpoint, or null if it predates journals
+     */
+    static public void replay(Project project, File dir, String checkpointId) {
+        File journal = new File(dir, JOURNAL_FILE);
+        if (checkpointId == null) {
+            if (journal.exists()) {
+                logger.warn("Ignoring journal of project {} as its data file has no checkpoint identifier", project.id);
+            }
+            return;
+        }
+
+        int replayed = 0;
+        boolean modelsRestored = false;
+        boolean consistent = true;
+        if (journal.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+                if (!MAGIC.equals(in.readUTF())) {
+                    throw new IOException("Unsupported journal format");
+                }
+                int version = in.readInt();
+                if (version > VERSION) {
+                    throw new IOException("Unsupported journal version " + version);
+                } else if (version < VERSION) {
+                    // records of the current version cannot be appended to this journal
+                    consistent = false;
+                }
+                if (!checkpointId.equals(in.readUTF())) {
+                    logger.warn("Ignoring stale journal of project {}", project.id);
+                    consistent = false;
+                } else {
+                    while (true) {
+                        int type = version < 2 ? RECORD_ENTRY : in.read();
+                        if (type < 0) {
+                            break;
+                        } else if (type == RECORD_ENTRY) {
+                            HistoryEntry entry = readRecord(project, in);
+                            if (entry == null) {
+                                break;
+                            }
+                            if (project.history.replayEntry(project, entry)) {
+                                replayed++;
+                            }
+                        } else if (type == RECORD_MODELS) {
+                            byte[] models = readSection(in);
+                            project.loadModelsFromReader(new LineNumberReader(
+                                    new InputStreamReader(new ByteArrayInputStream(models), StandardCharsets.UTF_8)));
+                            modelsRestored = true;
+                        } else {
+                            throw new IOException("Unknown journal record type " + type);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("Failed to replay journal of project {}, stopped after {} entries", project.id, replayed, e);
+                consistent = false;
+            }
+        }
+        if (replayed > 0 || modelsRestored) {
+            project.update();
+            logger.info("Replayed {} history entries from journal of project {}", replayed, project.id);
+        }
+        if (consistent) {
+            states.put(project, new State(checkpointId, getEntryIDs(project)));
+        } // else, the next save writes a checkpoint, which discards the journal
+    }
+
+    /**
+     * @return the next entry of the journal, or null at the end of the journal
+     */
+    static protected HistoryEntry readRecord(Project project, DataInputStream in) throws Exception {
+        int b = in.read();
+        if (b < 0) {
+            return null;
+        }
+        byte[] entryBytes = new byte[(b << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte()];
+        in.readFully(entryBytes);
+        byte[] poolBytes = readSection(in);
+        byte[] changeBytes = readSection(in);
+
+        Pool pool = new Pool();
+        pool.load(new InputStreamReader(new ByteArrayInputStream(poolBytes), StandardCharsets.UTF_8));
+
+        HistoryEntry entry = HistoryEntry.load(project, new String(entryBytes, StandardCharsets.UTF_8));
+        entry.setChange(History.readOneChange(new ByteArrayInputStream(changeBytes), pool));
+        return entry;
+    }
+
+    static private byte[] readSection(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    static protected List<Long> getEntryIDs(Project project) {
+        List<Long> ids = new ArrayList<>();
+        for (HistoryEntry entry : project.history.getLastPastEntries(0)) {
+            ids.add(entry.id);
+        }
+        return ids;
+    }
+
+    /**
+     * @return the journal size above which a checkpoint is written, or -1 if projects are not journaled
+     */
+    static protected long getThreshold() {
+        if (ProjectManager.singleton == null) {
+            return -1;
+        }
+        Object v = ProjectManager.singleton.getPreferenceStore().get(THRESHOLD_PREFERENCE);
+        if (v instanceof Number) {
+            return ((Number) v).longValue();
+        } else if (v != null) {
+            try {
+                return Long.parseLong(v.toString());
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return -1;
+    }
+}
@@ -36,7 +36,12 @@ package com.google.refine.io;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.zip.ZipEntry;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
@@ -44,8 +49,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.refine.ProjectManager;
+import com.google.refine.model.PagedRowList;
 import com.google.refine.model.Project;
+import com.google.refine.model.ProjectSnapshot;
 import com.google.refine.util.Pool;
+import com.google.refine.util.StreamingPool;
 
 public class ProjectUtilities {
 
@@ -54,62 +62,160 @@ public class ProjectUtilities {
     public static final String DATA_TEMP_ZIP = "data.temp.zip";
     public static final String DATA_OLD_ZIP = "data.old.zip";
 
-    synchronized public static void save(Project project) throws IOException {
-        synchronized (project) {
-            long id = project.id;
-            File dir = ((FileProjectManager) ProjectManager.singleton).getProjectDir(id);
+    /**
+     * Preference selecting how rows are stored in data.zip: {@link #ROW_FORMAT_JSON} (the default) for the line-based
+     * format, or {@link #ROW_FORMAT_COLUMNAR}. Columnar projects load faster but older versions open them without any
+     * rows, since they ignore the {@link ColumnarRowSnapshot#ENTRY_NAME} entry, so that format has to be opted into.
+     */
+    public static final String ROW_FORMAT_PREFERENCE = "project.storage.rowFormat";
+    public static final String ROW_FORMAT_COLUMNAR = "columnar";
+    public static final String ROW_FORMAT_JSON = "json";
 
-            File tempFile = new File(dir, DATA_TEMP_ZIP);
-            try {
-                saveToFile(project, tempFile);
-            } catch (IOException e) {
-                logger.warn("Failed to save project {}", id, e);
+    /**
+     * One lock per project, so that saves of a given project are sequential while different projects can be saved in
+     * parallel.
+     */
+    static final protected Map<Long, Object> saveLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Saves a project, either by appending its latest history entries to its journal or by writing a full checkpoint.
+     * The lock on the project is only held to take a {@link ProjectSnapshot}, which is then compressed and written
+     * without blocking operations on the project.
+     */
+    public static void save(Project project) throws IOException {
+        save(project, true);
+    }
+
+    /**
+     * Saves a project in full, discarding its journal, so that its data file holds all its edits. This is needed before
+     * the project directory is read by anything else than this version, such as when the project is exported.
+     */
+    public static void checkpoint(Project project) throws IOException {
+        save(project, false);
+    }
+
+    static protected void save(Project project, boolean journal) throws IOException {
+        long id = project.id;
+        File dir = ((FileProjectManager) ProjectManager.singleton).getProjectDir(id);
+
+        synchronized (saveLocks.computeIfAbsent(id, k -> new Object())) {
+            ProjectSnapshot snapshot;
+            List<Long> entryIDs;
+            synchronized (project) {
                 try {
-                    tempFile.delete();
-                } catch (Exception e2) {
-                    // just ignore - file probably was never created.
+                    if (journal && ProjectJournal.append(project, dir)) {
+                        project.setLastSave();
+                        logger.info("Saved project '{}' to journal", id);
+                        return;
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to append to journal of project {}, saving it in full", id, e);
+                }
+
+                snapshot = project.snapshot();
+                entryIDs = ProjectJournal.getEntryIDs(project);
+                if (snapshot.isLive()) {
+                    saveCheckpoint(project, dir, snapshot, entryIDs);
+                    return;
                 }
-                throw e;
             }
+            try {
+                saveCheckpoint(project, dir, snapshot, entryIDs);
+            } finally {
+                snapshot.close();
+            }
+        }
+    }
 
-            File file = new File(dir, DATA_ZIP);
-            File oldFile = new File(dir, DATA_OLD_ZIP);
+    /**
+     * Forgets the lock used to save a project, once it is deleted or unloaded.
+     */
+    public static void forget(long projectId) {
+        saveLocks.remove(projectId);
+    }
 
-            if (file.exists()) {
-                file.renameTo(oldFile);
+    static protected void saveCheckpoint(Project project, File dir, ProjectSnapshot snapshot, List<Long> entryIDs) throws IOException {
+        long start = System.currentTimeMillis();
+        String checkpointId = ProjectJournal.newCheckpointId();
+        File tempFile = new File(dir, DATA_TEMP_ZIP);
+        try {
+            saveToFile(snapshot, tempFile, useColumnarRows(project), checkpointId);
+        } catch (IOException e) {
+            logger.warn("Failed to save project {}", project.id, e);
+            try {
+                tempFile.delete();
+            } catch (Exception e2) {
+                // just ignore - file probably was never created.
             }
+            throw e;
+        }
 
-            tempFile.renameTo(file);
-            if (oldFile.exists()) {
-                oldFile.delete();
-            }
+        File file = new File(dir, DATA_ZIP);
+        File oldFile = new File(dir, DATA_OLD_ZIP);
 
-            project.setLastSave();
+        if (file.exists()) {
+            file.renameTo(oldFile);
+        }
 
-            logger.info("Saved project '{}'", id);
+        tempFile.renameTo(file);
+        if (oldFile.exists()) {
+            oldFile.delete();
         }
+        ProjectJournal.checkpointed(project, dir, checkpointId, entryIDs);
+
+        // changes made while the snapshot was being written remain unsaved
+        project.setLastSave(snapshot.time);
+
+        logger.info("Saved project '{}' in {} ms", project.id, System.currentTimeMillis() - start);
     }
 
     protected static void saveToFile(Project project, File file) throws IOException {
-        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
-        try {
-            Pool pool = new Pool();
+        saveToFile(project, file, useColumnarRows(project));
+    }
 
-            out.putNextEntry(new ZipEntry("data.txt"));
-            try {
-                project.saveToOutputStream(out, pool);
-            } finally {
-                out.closeEntry();
+    protected static void saveToFile(Project project, File file, boolean columnarRows) throws IOException {
+        saveToFile(project, file, columnarRows, null);
+    }
+
+    /**
+     * @param checkpointId
+     *            identifier of the checkpoint, which journal appends refer to, or null if the file is not meant to be
+     *            extended by a journal
+     */
+    protected static void saveToFile(Project project, File file, boolean columnarRows, String checkpointId) throws IOException {
+        try (ProjectSnapshot snapshot = project.snapshot()) {
+            saveToFile(snapshot, file, columnarRows, checkpointId);
+        }
+    }
+
+    protected static void saveToFile(ProjectSnapshot snapshot, File file, boolean columnarRows, String checkpointId) throws IOException {
+        saveToFile(snapshot, file, columnarRows, checkpointId, ArchiveCodec.getPreferred());
+    }
+
+    protected static void saveToFile(ProjectSnapshot snapshot, File file, boolean columnarRows, String checkpointId, ArchiveCodec codec)
+            throws IOException {
+        try (ZipOutputStream out = codec.createArchive(new FileOutputStream(file));
+                StreamingPool pool = new StreamingPool()) {
+
+            try (OutputStream entry = codec.putNextEntry(out, "data.txt")) {
+                snapshot.saveToOutputStream(entry, pool, columnarRows);
             }
 
-            out.putNextEntry(new ZipEntry("pool.txt"));
-            try {
-                pool.save(out);
-            } finally {
-                out.closeEntry();
+            if (columnarRows) {
+                try (OutputStream entry = codec.putNextEntry(out, ColumnarRowSnapshot.ENTRY_NAME)) {
+                    ColumnarRowSnapshot.write(snapshot.rows, entry, pool);
+                }
+            }
+
+            if (checkpointId != null) {
+                try (OutputStream entry = codec.putNextEntry(out, ProjectJournal.CHECKPOINT_ENTRY)) {
+                    entry.write(checkpointId.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            try (OutputStream entry = codec.putNextEntry(out, "pool.txt")) {
+                pool.save(entry);
             }
-        } finally {
-            out.close();
         }
     }
 
@@ -118,7 +224,9 @@ public class ProjectUtilities {
             try {
                 File file = new File(dir, filename);
                 if (file.exists()) {
-                    return loadFromFile(file, id);
+                    Project project = loadFromFile(file, id);
+                    ProjectJournal.replay(project, dir, loadCheckpointId(file));
+                    return project;
                 }
             } catch (IOException e) {
                 logger.warn("Failed to load from data file {} / {}", dir, filename, e);
@@ -131,20 +239,50 @@ public class ProjectUtilities {
     static protected Project loadFromFile(
             File file,
             long id) throws IOException {
-        ZipFile zipFile = new ZipFile(file);
-        try {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ArchiveCodec codec = ArchiveCodec.detect(zipFile);
             Pool pool = new Pool();
-            ZipEntry poolEntry = zipFile.getEntry("pool.txt");
-            if (poolEntry != null) {
-                pool.load(zipFile.getInputStream(poolEntry));
+            InputStream poolStream = codec.getInputStream(zipFile, "pool.txt");
+            if (poolStream != null) {
+                pool.load(poolStream);
             } // else, it's a legacy project file
 
+            Project.RowSource rowSource = null;
+            if (zipFile.getEntry(ColumnarRowSnapshot.ENTRY_NAME) != null) {
+                rowSource = () -> ColumnarRowSnapshot.read(codec.getInputStream(zipFile, ColumnarRowSnapshot.ENTRY_NAME), pool);
+            } // else, rows are stored inline in data.txt
+
             return Project.loadFromInputStream(
-                    zipFile.getInputStream(zipFile.getEntry("data.txt")),
+                    codec.getInputStream(zipFile, "data.txt"),
                     id,
-                    pool);
-        } finally {
-            zipFile.close();
+                    pool,
+                    rowSource);
+        }
+    }
+
+    static protected String loadCheckpointId(File file) throws IOException {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            InputStream in = ArchiveCodec.detect(zipFile).getInputStream(zipFile, ProjectJournal.CHECKPOINT_ENTRY);
+            if (in == null) {
+                return null;
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Rows kept in a {@link PagedRowList} are written in the line-based format, which is streamed row by row, since the
+     * columnar snapshot needs all rows on the heap when it is read back.
+     */
+    static protected boolean useColumnarRows(Project project) {
+        return ROW_FORMAT_COLUMNAR.equals(getRowFormatPreference()) && !(project.rows instanceof PagedRowList);
+    }
+
+    static protected String getRowFormatPreference() {
+        if (ProjectManager.singleton == null) {
+            return ROW_FORMAT_JSON;
         }
+        Object v = ProjectManager.singleton.getPreferenceStore().get(ROW_FORMAT_PREFERENCE);
+        return v != null ? v.toString() : ROW_FORMAT_JSON;
     }
 }
@@ -35,8 +35,6 @@ package com.google.refine.model;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashMap;
-import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -54,7 +52,7 @@ public class Column {
     private ReconConfig _reconConfig;
     private ReconStats _reconStats;
 
-    transient protected Map<String, Object> _precomputes;
+    transient protected PrecomputeCache _precomputes;
     private ReconConfig _sourceReconConfig;
 
     @JsonCreator
@@ -125,24 +123,36 @@ public class Column {
      * {@link com.google.refine.LookupCacheManager#flushLookupsInvolvingProjectColumn(long, String)} e.g.
      * ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, column.getName())
      */
-    public void clearPrecomputes() {
+    synchronized public void clearPrecomputes() {
         if (_precomputes != null) {
-            _precomputes.clear();
+            _precomputes.clear(this);
         }
     }
 
-    public Object getPrecompute(String key) {
+    synchronized public Object getPrecompute(String key) {
         if (_precomputes != null) {
-            return _precomputes.get(key);
+            return _precomputes.get(this, key);
         }
         return null;
     }
 
-    public void setPrecompute(String key, Object value) {
+    /**
+     * Stores a value computed from the cells of this column, until they change. Values are stored in the
+     * {@link PrecomputeCache} of the project once the column is part of a {@link ColumnModel}, so they may be evicted
+     * before.
+     */
+    synchronized public void setPrecompute(String key, Object value) {
         if (_precomputes == null) {
-            _precomputes = new HashMap<String, Object>();
+            _precomputes = new PrecomputeCache();
+        }
+        _precomputes.put(this, key, value);
+    }
+
+    synchronized void setPrecomputeCache(PrecomputeCache cache) {
+        if (_precomputes != null && _precomputes != cache) {
+            _precomputes.clear(this);
         }
-        _precomputes.put(key, value);
+        _precomputes = cache;
     }
 
     public void save(Writer writer) {
@@ -64,6 +64,7 @@ public class ColumnModel {
     transient protected Map<Integer, Column> _cellIndexToColumn;
     transient protected List<ColumnGroup> _rootColumnGroups;
     transient protected List<String> _columnNames;
+    transient final protected PrecomputeCache _precomputeCache = new PrecomputeCache();
 
     public ColumnModel() {
         internalInitialize();
@@ -313,8 +314,18 @@ public class ColumnModel {
             }
             _cellIndexToColumn.put(cidx, column);
             _columnNames.add(column.getName());
+            column.setPrecomputeCache(_precomputeCache);
         }
         _maxCellIndex = maxCellIndex;
+        _precomputeCache.retain(columns);
+    }
+
+    /**
+     * @return the values precomputed from the cells of the columns, shared by all columns
+     */
+    @JsonIgnore
+    public PrecomputeCache getPrecomputeCache() {
+        return _precomputeCache;
     }
 
     /**
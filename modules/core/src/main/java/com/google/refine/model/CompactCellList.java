@@ -0,0 +1,205 @@
+
+package com.google.refine.model;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * List of cells which stores cell values without a {@link Cell} object per cell. Longs, integers, doubles and booleans
+ * are stored inline as primitives, other values and recons are stored as plain references. {@link Cell} objects are
+ * created when cells are read from the list, so the list behaves like an {@code ArrayList<Cell>} except that reading
+ * the same cell twice returns equal but distinct objects.
+ * <p>
+ * The arrays holding primitives, references and recons are only allocated once a cell needs them.
+ *
+ * @since 3.10
+ */
+public class CompactCellList extends AbstractList<Cell> implements RandomAccess {
+
+    static final byte NULL_CELL = 0;
+    static final byte NULL_VALUE = 1;
+    static final byte LONG = 2;
+    static final byte INTEGER = 3;
+    static final byte DOUBLE = 4;
+    static final byte TRUE = 5;
+    static final byte FALSE = 6;
+    static final byte OBJECT = 7;
+
+    static final long[] NO_PRIMITIVES = new long[0];
+    static final Object[] NO_OBJECTS = new Object[0];
+    static final Recon[] NO_RECONS = new Recon[0];
+
+    protected byte[] tags;
+    protected long[] primitives = NO_PRIMITIVES;
+    protected Object[] objects = NO_OBJECTS;
+    protected Recon[] recons = NO_RECONS;
+    protected int size = 0;
+
+    public CompactCellList(int capacity) {
+        tags = new byte[Math.max(capacity, 1)];
+    }
+
+    public CompactCellList(Collection<Cell> cells) {
+        this(cells.size());
+        addAll(cells);
+    }
+
+    @Override
+    public Cell get(int index) {
+        checkIndex(index, size);
+        Serializable value;
+        switch (tags[index]) {
+            case NULL_CELL:
+                return null;
+            case NULL_VALUE:
+                value = null;
+                break;
+            case LONG:
+                value = primitives[index];
+                break;
+            case INTEGER:
+                value = (int) primitives[index];
+                break;
+            case DOUBLE:
+                value = Double.longBitsToDouble(primitives[index]);
+                break;
+            case TRUE:
+                value = Boolean.TRUE;
+                break;
+            case FALSE:
+                value = Boolean.FALSE;
+                break;
+            default:
+                value = (Serializable) objects[index];
+        }
+        return new Cell(value, index < recons.length ? recons[index] : null);
+    }
+
+    @Override
+    public Cell set(int index, Cell cell) {
+        Cell previous = get(index);
+        store(index, cell);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Cell cell) {
+        checkIndex(index, size + 1);
+        if (size == tags.length) {
+            grow(size * 2);
+        }
+        if (index < size) {
+            shift(index, index + 1, size - index);
+        }
+        size++;
+        modCount++;
+        store(index, cell);
+    }
+
+    @Override
+    public Cell remove(int index) {
+        Cell previous = get(index);
+        shift(index + 1, index, size - index - 1);
+        size--;
+        modCount++;
+        store(size, null); // clear references
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(objects, null);
+        Arrays.fill(recons, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    protected void store(int index, Cell cell) {
+        if (index < objects.length) {
+            objects[index] = null;
+        }
+        if (index < recons.length) {
+            recons[index] = null;
+        }
+        if (cell == null) {
+            tags[index] = NULL_CELL;
+            return;
+        }
+
+        Serializable value = cell.value;
+        if (value == null) {
+            tags[index] = NULL_VALUE;
+        } else if (value instanceof Long) {
+            tags[index] = LONG;
+            primitives()[index] = (Long) value;
+        } else if (value instanceof Integer) {
+            tags[index] = INTEGER;
+            primitives()[index] = (Integer) value;
+        } else if (value instanceof Double) {
+            tags[index] = DOUBLE;
+            primitives()[index] = Double.doubleToRawLongBits((Double) value);
+        } else if (value instanceof Boolean) {
+            tags[index] = (Boolean) value ? TRUE : FALSE;
+        } else {
+            tags[index] = OBJECT;
+            if (objects.length == 0) {
+                objects = new Object[tags.length];
+            }
+            objects[index] = value;
+        }
+
+        if (cell.recon != null) {
+            if (recons.length == 0) {
+                recons = new Recon[tags.length];
+            }
+            recons[index] = cell.recon;
+        }
+    }
+
+    protected long[] primitives() {
+        if (primitives.length == 0) {
+            primitives = new long[tags.length];
+        }
+        return primitives;
+    }
+
+    protected void grow(int capacity) {
+        tags = Arrays.copyOf(tags, capacity);
+        if (primitives.length > 0) {
+            primitives = Arrays.copyOf(primitives, capacity);
+        }
+        if (objects.length > 0) {
+            objects = Arrays.copyOf(objects, capacity);
+        }
+        if (recons.length > 0) {
+            recons = Arrays.copyOf(recons, capacity);
+        }
+    }
+
+    protected void shift(int from, int to, int length) {
+        System.arraycopy(tags, from, tags, to, length);
+        if (primitives.length > 0) {
+            System.arraycopy(primitives, from, primitives, to, length);
+        }
+        if (objects.length > 0) {
+            System.arraycopy(objects, from, objects, to, length);
+        }
+        if (recons.length > 0) {
+            System.arraycopy(recons, from, recons, to, length);
+        }
+    }
+
+    static private void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+
+package com.google.refine.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Rows of a project kept on the heap, which can be shared with {@link ProjectSnapshot}s without copying them.
+ * <p>
+ * Rows which are modified in place must be obtained with {@link #getForUpdate(int)} (see
+ * {@link Project#getRowForUpdate(int)}): while a snapshot is open, a row obtained this way is replaced by a copy the
+ * first time, so that the row shared with the snapshot is left untouched. Rows which are only read are not copied. Rows
+ * are copied shallowly since cells are immutable.
+ *
+ * @since 3.10
+ */
+public class CopyOnWriteRowList extends AbstractList<Row> implements RandomAccess {
+
+    final protected ArrayList<Row> _rows = new ArrayList<>();
+    /**
+     * Rows copied since the oldest open snapshot was taken, which are not shared with any snapshot.
+     */
+    final protected Set<Row> _copies = Collections.newSetFromMap(new IdentityHashMap<>());
+    protected int _openSnapshots = 0;
+
+    @Override
+    public Row get(int index) {
+        return _rows.get(index);
+    }
+
+    /**
+     * Returns a row which is about to be modified in place, after replacing it by a copy if it is shared with an open
+     * snapshot.
+     */
+    synchronized public Row getForUpdate(int index) {
+        Row row = _rows.get(index);
+        if (_openSnapshots > 0 && !_copies.contains(row)) {
+            row = row.dup();
+            _rows.set(index, row);
+            _copies.add(row);
+        }
+        return row;
+    }
+
+    @Override
+    public int size() {
+        return _rows.size();
+    }
+
+    @Override
+    public Row set(int index, Row row) {
+        return _rows.set(index, row);
+    }
+
+    @Override
+    public void add(int index, Row row) {
+        modCount++;
+        _rows.add(index, row);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Row> c) {
+        modCount++;
+        return _rows.addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Row> c) {
+        modCount++;
+        return _rows.addAll(index, c);
+    }
+
+    @Override
+    public Row remove(int index) {
+        modCount++;
+        return _rows.remove(index);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        _rows.subList(fromIndex, toIndex).clear();
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        _rows.clear();
+    }
+
+    /**
+     * Starts sharing the rows with a snapshot, until {@link #release()} is called.
+     *
+     * @return the rows at this point, which are not modified until they are released
+     */
+    synchronized public List<Row> share() {
+        _openSnapshots++;
+        return new ArrayList<>(_rows);
+    }
+
+    synchronized public void release() {
+        if (--_openSnapshots == 0) {
+            _copies.clear();
+        }
+    }
+}
@@ -0,0 +1,496 @@
+
+package com.google.refine.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.Pool;
+
+/**
+ * List of rows which keeps only a bounded number of rows on the heap. The other rows are serialized to a memory-mapped
+ * file and deserialized again when they are accessed, so the size of a project is no longer bound by the heap.
+ * <p>
+ * Rows are mutable and callers modify them in place after obtaining them with {@link #get(int)}. Therefore, the list
+ * remembers the flags and cells of each row on the heap as they were stored, and a row which leaves the hot set is
+ * serialized and written back if they changed. Outside of an update (see {@link #beginUpdate()}), a reference to a row
+ * is only guaranteed to be backed by the list until {@code cacheSize} other rows have been accessed, so it must not be
+ * modified after that. During an update, rows which leave the hot set are written back as usual but stay backed by the
+ * list for as long as changes hold them, so that they can still be modified in place.
+ * <p>
+ * Rows which are rewritten are appended to the backing file, leaving their previous version behind. The file is
+ * compacted in place once these previous versions take more space than the rows themselves. Recons are kept on the
+ * heap, in a {@link Pool} owned by the list, which only keeps the recons of stored rows from one compaction to the
+ * next.
+ *
+ * @since 3.10
+ */
+public class PagedRowList extends AbstractList<Row> implements Closeable {
+
+    final static Logger logger = LoggerFactory.getLogger("paged_row_list");
+
+    static final int DEFAULT_CACHE_SIZE = 100000;
+    static final int SEGMENT_SIZE = 1 << 26;
+    static final long MIN_GARBAGE_BYTES = 1 << 24;
+
+    final protected int cacheSize;
+    final protected File file;
+    final protected FileChannel channel;
+    final protected List<MappedByteBuffer> segments = new ArrayList<>();
+    protected Pool pool = new Pool();
+    protected ObjectReader reader = Row.getReader(pool);
+
+    /**
+     * Slot of each row, by row index. Slots are stable when rows are inserted or removed, unlike row indices.
+     */
+    protected int[] slots = new int[16];
+    protected int size = 0;
+
+    /**
+     * Position of each slot in the backing file, or -1 if the slot was never written.
+     */
+    protected long[] offsets = new long[16];
+    protected int slotCount = 0;
+    protected int[] freeSlots = new int[16];
+    protected int freeSlotCount = 0;
+    protected long writePosition = 0;
+    /**
+     * Number of bytes of the backing file used by the current version of rows, the rest being garbage.
+     */
+    protected long liveBytes = 0;
+    /**
+     * Number of garbage bytes above which the file is compacted, if they also exceed the live bytes.
+     */
+    protected long minGarbageBytes = MIN_GARBAGE_BYTES;
+
+    /**
+     * Number of updates in progress, and the rows which left the hot set during them, by slot. These rows are only
+     * weakly referenced, so that they are reclaimed once the changes holding them are done with them.
+     */
+    protected int updates = 0;
+    final protected Map<Integer, EvictedRow> evictedRows = new HashMap<>();
+    final protected ReferenceQueue<Row> evictedQueue = new ReferenceQueue<>();
+
+    /**
+     * Rows on the heap, by slot, in access order.
+     */
+    final protected LinkedHashMap<Integer, Row> hotRows;
+    /**
+     * Image (see {@link #imageOf(Row)}) of the stored version of the rows on the heap, by slot. Rows which were never
+     * written have none.
+     */
+    final protected Map<Integer, Object[]> storedImages = new HashMap<>();
+
+    static protected class EvictedRow extends WeakReference<Row> {
+
+        final int slot;
+        final Object[] image;
+
+        EvictedRow(int slot, Row row, Object[] image, ReferenceQueue<Row> queue) {
+            super(row, queue);
+            this.slot = slot;
+            this.image = image;
+        }
+    }
+
+    public PagedRowList(File file, int cacheSize) throws IOException {
+        this.file = file;
+        this.cacheSize = cacheSize;
+        this.channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.hotRows = new LinkedHashMap<Integer, Row>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Row> eldest) {
+                if (size() > PagedRowList.this.cacheSize) {
+                    evict(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a list backed by a temporary file, which is deleted when the list is closed.
+     */
+    static public PagedRowList create(int cacheSize) throws IOException {
+        File file = File.createTempFile("openrefine-rows-", ".bin");
+        return new PagedRowList(file, cacheSize);
+    }
+
+    @Override
+    synchronized public Row get(int index) {
+        checkIndex(index, size);
+        int slot = slots[index];
+        Row row = hotRows.get(slot);
+        if (row == null) {
+            Object[] image = null;
+            EvictedRow evicted = evictedRows.remove(slot);
+            if (evicted != null) {
+                row = evicted.get();
+                image = evicted.image;
+            }
+            if (row == null) {
+                row = readRow(offsets[slot]);
+                image = imageOf(row);
+            }
+            storedImages.put(slot, image);
+            hotRows.put(slot, row);
+        }
+        return row;
+    }
+
+    @Override
+    synchronized public Row set(int index, Row row) {
+        Row previous = get(index);
+        int slot = slots[index];
+        discard(slot);
+        hotRows.put(slot, row);
+        return previous;
+    }
+
+    /**
+     * Starts modifying rows in place: until the matching call to {@link #endUpdate()}, rows obtained from the list stay
+     * backed by it while they are referenced, so that modifications made to them are not lost when they leave the hot
+     * set. Updates can be nested.
+     */
+    synchronized public void beginUpdate() {
+        updates++;
+    }
+
+    /**
+     * Ends an update started with {@link #beginUpdate()}, writing back the rows which left the hot set during the
+     * update and were modified since.
+     */
+    synchronized public void endUpdate() {
+        if (updates == 0) {
+            throw new IllegalStateException("No update in progress");
+        }
+        if (--updates == 0) {
+            for (EvictedRow evicted : evictedRows.values()) {
+                Row row = evicted.get();
+                if (row != null && !Arrays.equals(evicted.image, imageOf(row))) {
+                    writeBack(evicted.slot, row);
+                }
+            }
+            evictedRows.clear();
+            while (evictedQueue.poll() != null) {
+                // the rows are gone already
+            }
+        }
+    }
+
+    @Override
+    synchronized public void add(int index, Row row) {
+        checkIndex(index, size + 1);
+        int slot = allocateSlot();
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+        }
+        System.arraycopy(slots, index, slots, index + 1, size - index);
+        slots[index] = slot;
+        size++;
+        modCount++;
+        hotRows.put(slot, row);
+    }
+
+    @Override
+    synchronized public boolean addAll(int index, Collection<? extends Row> rows) {
+        checkIndex(index, size + 1);
+        int count = rows.size();
+        if (size + count > slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(size + count, size * 2));
+        }
+        System.arraycopy(slots, index, slots, index + count, size - index);
+        size += count;
+        modCount++;
+        for (Row row : rows) {
+            int slot = allocateSlot();
+            slots[index++] = slot;
+            hotRows.put(slot, row);
+        }
+        return count > 0;
+    }
+
+    @Override
+    synchronized public Row remove(int index) {
+        Row row = get(index);
+        int slot = slots[index];
+        System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+        size--;
+        modCount++;
+        hotRows.remove(slot);
+        storedImages.remove(slot);
+        discard(slot);
+        releaseSlot(slot);
+        return row;
+    }
+
+    @Override
+    synchronized public void clear() {
+        size = 0;
+        slotCount = 0;
+        freeSlotCount = 0;
+        writePosition = 0;
+        liveBytes = 0;
+        hotRows.clear();
+        storedImages.clear();
+        evictedRows.clear();
+        pool = new Pool();
+        reader = Row.getReader(pool);
+        modCount++;
+    }
+
+    @Override
+    synchronized public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of rows currently held on the heap
+     */
+    synchronized public int getHotRowCount() {
+        return hotRows.size();
+    }
+
+    /**
+     * @return the number of bytes used in the backing file, including previous versions of rows which were rewritten
+     *         since the last compaction
+     */
+    synchronized public long getStoredBytes() {
+        return writePosition;
+    }
+
+    @Override
+    synchronized public void close() throws IOException {
+        hotRows.clear();
+        storedImages.clear();
+        evictedRows.clear();
+        segments.clear();
+        channel.close();
+        if (!file.delete()) {
+            logger.warn("Failed to delete row storage file {}", file.getAbsolutePath());
+        }
+    }
+
+    protected int allocateSlot() {
+        if (freeSlotCount > 0) {
+            int slot = freeSlots[--freeSlotCount];
+            offsets[slot] = -1;
+            return slot;
+        }
+        if (slotCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, slotCount * 2);
+        }
+        offsets[slotCount] = -1;
+        return slotCount++;
+    }
+
+    protected void releaseSlot(int slot) {
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    /**
+     * Removes a row from the hot set, writing it back if it was modified since it was stored. During an update, the row
+     * remains reachable from {@link #evictedRows} while it is referenced elsewhere.
+     */
+    protected void evict(int slot, Row row) {
+        Object[] image = storedImages.remove(slot);
+        Object[] current = imageOf(row);
+        if (image == null || !Arrays.equals(image, current)) {
+            writeBack(slot, row);
+        }
+        if (updates > 0) {
+            EvictedRow expunged;
+            while ((expunged = (EvictedRow) evictedQueue.poll()) != null) {
+                evictedRows.remove(expunged.slot, expunged);
+            }
+            evictedRows.put(slot, new EvictedRow(slot, row, current, evictedQueue));
+        }
+    }
+
+    /**
+     * What the stored version of a row is compared to, to tell whether the row was modified in place: its flags and its
+     * cells, which are immutable.
+     */
+    static protected Object[] imageOf(Row row) {
+        Object[] image = new Object[row.cells.size() + 2];
+        image[0] = row.flagged;
+        image[1] = row.starred;
+        for (int i = 0; i < row.cells.size(); i++) {
+            image[i + 2] = row.cells.get(i);
+        }
+        return image;
+    }
+
+    protected void writeBack(int slot, Row row) {
+        try {
+            byte[] bytes = ParsingUtilities.saveWriter.writeValueAsBytes(row);
+            for (Cell cell : row.cells) {
+                if (cell != null && cell.recon != null) {
+                    pool.pool(cell.recon);
+                }
+            }
+            long offset = offsets[slot];
+            if (offset >= 0) {
+                liveBytes -= 4 + readLength(offset);
+            }
+            offsets[slot] = writePosition;
+            writeBytes(bytes, writePosition);
+            writePosition += 4 + bytes.length;
+            liveBytes += 4 + bytes.length;
+
+            long garbage = writePosition - liveBytes;
+            if (garbage > minGarbageBytes && garbage > liveBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to page out row", e);
+        }
+    }
+
+    /**
+     * Marks the stored version of a slot as garbage, as the row it holds was replaced or removed.
+     */
+    protected void discard(int slot) {
+        long offset = offsets[slot];
+        if (offset >= 0) {
+            try {
+                liveBytes -= 4 + readLength(offset);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read row storage", e);
+            }
+            offsets[slot] = -1;
+        }
+        storedImages.remove(slot);
+        evictedRows.remove(slot);
+    }
+
+    /**
+     * Moves the stored rows to the start of the file, in the order they are stored, so that the space taken by previous
+     * versions of rows is reused. Rows only move towards the start of the file, so none is overwritten before it is
+     * moved. The pool is rebuilt with the recons of the stored rows, dropping those of previous versions.
+     */
+    protected void compact() throws IOException {
+        List<Integer> stored = new ArrayList<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (offsets[slot] >= 0) {
+                stored.add(slot);
+            }
+        }
+        stored.sort((a, b) -> Long.compare(offsets[a], offsets[b]));
+
+        Pool livePool = new Pool();
+        long position = 0;
+        for (int slot : stored) {
+            byte[] bytes = readBytes(offsets[slot]);
+            for (Cell cell : reader.<Row> readValue(bytes).cells) {
+                if (cell != null && cell.recon != null) {
+                    livePool.pool(cell.recon);
+                }
+            }
+            if (offsets[slot] != position) {
+                writeBytes(bytes, position);
+                offsets[slot] = position;
+            }
+            position += 4 + bytes.length;
+        }
+        logger.debug("Compacted row storage {} from {} to {} bytes", file.getAbsolutePath(), writePosition, position);
+        writePosition = position;
+        liveBytes = position;
+        pool = livePool;
+        reader = Row.getReader(pool);
+    }
+
+    protected Row readRow(long offset) {
+        if (offset < 0) {
+            throw new IllegalStateException("Row was never written to " + file.getAbsolutePath());
+        }
+        try {
+            return reader.readValue(readBytes(offset));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to page in row", e);
+        }
+    }
+
+    /**
+     * Each row is stored as its length, on four bytes, followed by its JSON serialization.
+     */
+    protected void writeBytes(byte[] bytes, long position) throws IOException {
+        byte[] header = ByteBuffer.allocate(4).putInt(bytes.length).array();
+        copy(header, position, true);
+        copy(bytes, position + 4, true);
+    }
+
+    protected byte[] readBytes(long offset) throws IOException {
+        byte[] bytes = new byte[readLength(offset)];
+        copy(bytes, offset + 4, false);
+        return bytes;
+    }
+
+    protected int readLength(long offset) throws IOException {
+        byte[] header = new byte[4];
+        copy(header, offset, false);
+        return ByteBuffer.wrap(header).getInt();
+    }
+
+    /**
+     * Copies bytes between the array and the mapped segments, at the given position of the file. A row may span two
+     * segments.
+     */
+    protected void copy(byte[] bytes, long position, boolean write) throws IOException {
+        int done = 0;
+        while (done < bytes.length) {
+            long current = position + done;
+            ByteBuffer segment = getSegment((int) (current / SEGMENT_SIZE)).duplicate();
+            segment.position((int) (current % SEGMENT_SIZE));
+            int length = Math.min(bytes.length - done, segment.remaining());
+            if (write) {
+                segment.put(bytes, done, length);
+            } else {
+                segment.get(bytes, done, length);
+            }
+            done += length;
+        }
+    }
+
+    protected MappedByteBuffer getSegment(int index) throws IOException {
+        while (segments.size() <= index) {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+        }
+        return segments.get(index);
+    }
+
+    static private void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+
+package com.google.refine.model;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import com.google.refine.util.Pool;
+
+/**
+ * Decodes the line-based row section of a project file in chunks on a fork-join pool. Lines are read sequentially by
+ * the calling thread, each chunk is parsed by a separate task and the chunks are reassembled in file order, so the
+ * resulting list is the same as with sequential parsing.
+ *
+ * @since 3.10
+ */
+public class ParallelRowLoader {
+
+    static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    final protected ObjectReader reader;
+    final protected ForkJoinPool forkJoinPool;
+    final protected int chunkSize;
+
+    protected long ioNanos = 0;
+    final protected LongAdder decodingNanos = new LongAdder();
+
+    public ParallelRowLoader(Pool pool) {
+        this(pool, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    protected ParallelRowLoader(Pool pool, ForkJoinPool forkJoinPool, int chunkSize) {
+        this.reader = Row.getReader(pool);
+        this.forkJoinPool = forkJoinPool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads and decodes up to {@code count} rows, one per line. Reading stops early at the end of the stream. Empty
+     * lines are skipped.
+     */
+    public List<Row> load(LineNumberReader lines, int count) throws IOException {
+        List<Row> rows = new ArrayList<>(count);
+        load(lines, count, rows::add);
+        return rows;
+    }
+
+    /**
+     * Reads and decodes up to {@code count} rows, passing them to the consumer in file order as chunks complete. This
+     * lets the caller store rows without holding all of them in an intermediate list.
+     */
+    public void load(LineNumberReader lines, int count, Consumer<Row> consumer) throws IOException {
+        if (count <= chunkSize) {
+            decode(readChunk(lines, count)).forEach(consumer);
+            return;
+        }
+
+        Deque<ForkJoinTask<List<Row>>> pending = new ArrayDeque<>();
+        int maxPending = 2 * forkJoinPool.getParallelism() + 1;
+        int remaining = count;
+        try {
+            while (remaining > 0) {
+                int requested = Math.min(chunkSize, remaining);
+                List<String> chunk = readChunk(lines, requested);
+                remaining -= chunk.size();
+                if (!chunk.isEmpty()) {
+                    pending.add(forkJoinPool.submit(() -> decode(chunk)));
+                }
+                while (pending.size() >= maxPending) {
+                    join(pending.poll()).forEach(consumer);
+                }
+                if (chunk.size() < requested) {
+                    break; // end of stream
+                }
+            }
+            while (!pending.isEmpty()) {
+                join(pending.poll()).forEach(consumer);
+            }
+        } finally {
+            for (ForkJoinTask<List<Row>> task : pending) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    protected List<String> readChunk(LineNumberReader lines, int size) throws IOException {
+        long start = System.nanoTime();
+        List<String> chunk = new ArrayList<>(size);
+        String line;
+        while (chunk.size() < size && (line = lines.readLine()) != null) {
+            chunk.add(line);
+        }
+        ioNanos += System.nanoTime() - start;
+        return chunk;
+    }
+
+    protected List<Row> decode(List<String> chunk) throws IOException {
+        long start = System.nanoTime();
+        List<Row> rows = new ArrayList<>(chunk.size());
+        for (String line : chunk) {
+            Row row = Row.load(line, reader);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        decodingNanos.add(System.nanoTime() - start);
+        return rows;
+    }
+
+    static private List<Row> join(ForkJoinTask<List<Row>> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading rows", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to decode rows", e.getCause());
+        }
+    }
+
+    /**
+     * @return the time spent reading lines from the stream, in milliseconds
+     */
+    public long getIOMillis() {
+        return ioNanos / 1000000;
+    }
+
+    /**
+     * @return the time spent decoding rows summed over all threads, in milliseconds
+     */
+    public long getDecodingMillis() {
+        return decodingNanos.sum() / 1000000;
+    }
+
+    public int getParallelism() {
+        return forkJoinPool.getParallelism();
+    }
+}
@@ -0,0 +1,207 @@
+
+package com.google.refine.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.google.refine.ProjectManager;
+
+/**
+ * Values precomputed from the cells of the columns of a project, such as the base bins of range facets, shared by all
+ * its columns (see {@link Column#getPrecompute(String)}). The estimated size of the values is bounded by a budget: when
+ * it is exceeded, the least recently used values are evicted, and will be computed again when needed.
+ *
+ * @since 3.10
+ */
+public class PrecomputeCache {
+
+    /**
+     * Preference setting the budget of the precomputed values of each project, in bytes. Defaults to an eighth of the
+     * maximum heap size. A negative or zero value disables the budget.
+     */
+    static public final String MAX_SIZE_PREFERENCE = "project.memory.precomputes";
+
+    /**
+     * Estimated size of the values which do not implement {@link Sized}.
+     */
+    static final long DEFAULT_ENTRY_SIZE = 1024;
+
+    /**
+     * Precomputed values which can estimate their own size.
+     */
+    public interface Sized {
+
+        /**
+         * @return a rough estimate of the heap used by this value, in bytes
+         */
+        public long getEstimatedSize();
+    }
+
+    static protected class Key {
+
+        final Column column;
+        final String key;
+
+        Key(Column column, String key) {
+            this.column = column;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).column == column && ((Key) other).key.equals(key);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(column) * 31 + key.hashCode();
+        }
+    }
+
+    static protected class Entry {
+
+        final Object value;
+        final long size;
+
+        Entry(Object value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    // least recently used first
+    protected final Map<Key, Entry> _entries = new LinkedHashMap<>(16, 0.75f, true);
+    protected long _size = 0;
+    protected long _hitCount = 0;
+    protected long _missCount = 0;
+    protected long _evictionCount = 0;
+
+    synchronized public Object get(Column column, String key) {
+        Entry entry = _entries.get(new Key(column, key));
+        if (entry == null) {
+            _missCount++;
+            return null;
+        }
+        _hitCount++;
+        return entry.value;
+    }
+
+    /**
+     * Stores a value, evicting the least recently used values if the budget is exceeded. The value being stored is
+     * always kept, even if it does not fit in the budget on its own.
+     */
+    synchronized public void put(Column column, String key, Object value) {
+        Key k = new Key(column, key);
+        Entry previous = _entries.remove(k);
+        if (previous != null) {
+            _size -= previous.size;
+        }
+        if (value == null) {
+            return;
+        }
+        Entry entry = new Entry(value, estimateSize(value));
+        _entries.put(k, entry);
+        _size += entry.size;
+
+        long maxSize = getMaxSize();
+        if (maxSize > 0) {
+            Iterator<Map.Entry<Key, Entry>> it = _entries.entrySet().iterator();
+            while (_size > maxSize && _entries.size() > 1) {
+                Map.Entry<Key, Entry> eldest = it.next();
+                _size -= eldest.getValue().size;
+                it.remove();
+                _evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Removes the values of a column.
+     */
+    synchronized public void clear(Column column) {
+        removeIf(c -> c == column);
+    }
+
+    /**
+     * Removes the values of the columns other than the given ones, for instance because they were removed from the
+     * project.
+     */
+    synchronized public void retain(Collection<Column> columns) {
+        Set<Column> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(columns);
+        removeIf(c -> !kept.contains(c));
+    }
+
+    protected void removeIf(Predicate<Column> predicate) {
+        Iterator<Map.Entry<Key, Entry>> it = _entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (predicate.test(entry.getKey().column)) {
+                _size -= entry.getValue().size;
+                it.remove();
+            }
+        }
+    }
+
+    static protected long estimateSize(Object value) {
+        return value instanceof Sized ? ((Sized) value).getEstimatedSize() : DEFAULT_ENTRY_SIZE;
+    }
+
+    static protected long getMaxSize() {
+        long defaultSize = Runtime.getRuntime().maxMemory() / 8;
+        if (ProjectManager.singleton == null || ProjectManager.singleton.getPreferenceStore() == null) {
+            return defaultSize;
+        }
+        Object v = ProjectManager.singleton.getPreferenceStore().get(MAX_SIZE_PREFERENCE);
+        if (v instanceof Number) {
+            return ((Number) v).longValue();
+        } else if (v != null) {
+            try {
+                return Long.parseLong(v.toString());
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        return defaultSize;
+    }
+
+    /**
+     * Summary of the use of the cache.
+     */
+    static public class Stats {
+
+        @JsonProperty("entries")
+        public final int entries;
+        @JsonProperty("estimatedBytes")
+        public final long estimatedBytes;
+        @JsonProperty("budget")
+        public final long budget;
+        @JsonProperty("hits")
+        public final long hits;
+        @JsonProperty("misses")
+        public final long misses;
+        @JsonProperty("evictions")
+        public final long evictions;
+
+        protected Stats(int entries, long estimatedBytes, long budget, long hits, long misses, long evictions) {
+            this.entries = entries;
+            this.estimatedBytes = estimatedBytes;
+            this.budget = budget;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+    }
+
+    synchronized public Stats getStats() {
+        return new Stats(_entries.size(), _size, getMaxSize(), _hitCount, _missCount, _evictionCount);
+    }
+}
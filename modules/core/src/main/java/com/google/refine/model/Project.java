@@ -39,10 +39,10 @@ import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,7 +56,10 @@ import org.slf4j.LoggerFactory;
 import com.google.refine.ProjectManager;
 import com.google.refine.ProjectMetadata;
 import com.google.refine.RefineServlet;
+import com.google.refine.browsing.FilterCache;
 import com.google.refine.history.History;
+import com.google.refine.io.ProjectUtilities;
+import com.google.refine.preference.PreferenceStore;
 import com.google.refine.process.ProcessManager;
 import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.Pool;
@@ -69,17 +72,29 @@ public class Project {
     final static protected Map<String, Class<? extends OverlayModel>> s_overlayModelClasses = new HashMap<String, Class<? extends OverlayModel>>();
 
     final public long id;
-    final public List<Row> rows = new ArrayList<>();
+    final public List<Row> rows;
     final public ColumnModel columnModel = new ColumnModel();
     final public RecordModel recordModel = new RecordModel();
     final public Map<String, OverlayModel> overlayModels = new HashMap<String, OverlayModel>();
     final public History history;
 
     transient public ProcessManager processManager = new ProcessManager();
+    transient final protected FilterCache filterCache = new FilterCache();
     transient private Instant _lastSave = Instant.now();
 
     final static Logger logger = LoggerFactory.getLogger(Project.class);
 
+    /**
+     * Preference enabling the {@link PagedRowList} storage for the rows of projects loaded from the workspace, which
+     * keeps only the most recently used rows on the heap. Projects being imported, and import previews, keep their rows
+     * on the heap.
+     */
+    public static final String PAGED_ROWS_PREFERENCE = "project.storage.pagedRows";
+    /**
+     * Preference setting the number of rows kept on the heap when paged storage is enabled.
+     */
+    public static final String PAGED_ROWS_CACHE_SIZE_PREFERENCE = "project.storage.pagedRowsCacheSize";
+
     static public long generateID() {
         return System.currentTimeMillis() + Math.round(Math.random() * 1000000000000L);
     }
@@ -98,10 +113,39 @@ public class Project {
      *            long ID to be assigned the new project
      */
     protected Project(long id) {
+        this(id, new CopyOnWriteRowList());
+    }
+
+    private Project(long id, List<Row> rows) {
         this.id = id;
+        this.rows = rows;
         this.history = new History(this);
     }
 
+    static protected List<Row> createRowList() {
+        PreferenceStore preferences = ProjectManager.singleton != null ? ProjectManager.singleton.getPreferenceStore() : null;
+        if (preferences == null || !Boolean.parseBoolean(String.valueOf(preferences.get(PAGED_ROWS_PREFERENCE)))) {
+            return new CopyOnWriteRowList();
+        }
+        int cacheSize = PagedRowList.DEFAULT_CACHE_SIZE;
+        Object v = preferences.get(PAGED_ROWS_CACHE_SIZE_PREFERENCE);
+        if (v instanceof Number) {
+            cacheSize = ((Number) v).intValue();
+        } else if (v != null) {
+            try {
+                cacheSize = Integer.parseInt(v.toString());
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+        try {
+            return PagedRowList.create(cacheSize);
+        } catch (IOException e) {
+            logger.warn("Failed to create paged row storage, keeping rows on the heap", e);
+            return new CopyOnWriteRowList();
+        }
+    }
+
     static public void registerOverlayModel(String modelName, Class<? extends OverlayModel> klass) {
         s_overlayModelClasses.put(modelName, klass);
     }
@@ -118,9 +162,45 @@ public class Project {
             }
         }
         ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProject(this.id);
+        ProjectUtilities.forget(this.id);
+        if (rows instanceof PagedRowList) {
+            try {
+                ((PagedRowList) rows).close();
+            } catch (IOException e) {
+                logger.warn("Error closing paged row storage", e);
+            }
+        }
         // The rest of the project should get garbage collected when we return.
     }
 
+    /**
+     * Marks the start of a modification of rows in place, which must be followed by a call to {@link #endRowUpdate()}.
+     * Rows stored in a {@link PagedRowList} stay backed by it in between while they are referenced, so that the
+     * modifications are not lost.
+     */
+    public void beginRowUpdate() {
+        if (rows instanceof PagedRowList) {
+            ((PagedRowList) rows).beginUpdate();
+        }
+    }
+
+    public void endRowUpdate() {
+        if (rows instanceof PagedRowList) {
+            ((PagedRowList) rows).endUpdate();
+        }
+    }
+
+    /**
+     * Returns a row which is about to be modified in place. Rows shared with an open {@link ProjectSnapshot} are copied
+     * first, so changes must obtain the rows they modify this way rather than from {@link #rows} directly.
+     */
+    public Row getRowForUpdate(int index) {
+        if (rows instanceof CopyOnWriteRowList) {
+            return ((CopyOnWriteRowList) rows).getForUpdate(index);
+        }
+        return rows.get(index);
+    }
+
     public Instant getLastSave() {
         return this._lastSave;
     }
@@ -132,11 +212,33 @@ public class Project {
         this._lastSave = Instant.now();
     }
 
+    /**
+     * Sets the lastSave time to the time the saved state was captured, which can precede the end of the save.
+     */
+    public void setLastSave(Instant lastSave) {
+        this._lastSave = lastSave;
+    }
+
     public ProjectMetadata getMetadata() {
         return ProjectManager.singleton.getProjectMetadata(id);
     }
 
     public void saveToOutputStream(OutputStream out, Pool pool) throws IOException {
+        saveToOutputStream(out, pool, false);
+    }
+
+    /**
+     * Saves the project to the given stream.
+     *
+     * @param out
+     *            the stream to write to
+     * @param pool
+     *            the pool collecting the recons referenced by the rows
+     * @param omitRows
+     *            if true, rows are not written inline: only their count is recorded, and the caller is responsible for
+     *            storing them separately (see {@link #loadFromInputStream(InputStream, long, Pool, RowSource)})
+     */
+    public void saveToOutputStream(OutputStream out, Pool pool, boolean omitRows) throws IOException {
         for (OverlayModel overlayModel : overlayModels.values()) {
             try {
                 overlayModel.onBeforeSave(this);
@@ -150,6 +252,9 @@ public class Project {
             Properties options = new Properties();
             options.setProperty("mode", "save");
             options.put("pool", pool);
+            if (omitRows) {
+                options.setProperty("omitRows", "true");
+            }
 
             saveToWriter(writer, options);
         } finally {
@@ -166,6 +271,57 @@ public class Project {
     }
 
     protected void saveToWriter(Writer writer, Properties options) throws IOException {
+        saveHeaderToWriter(writer, options);
+        saveRowsToWriter(rows, writer, options);
+    }
+
+    /**
+     * Takes a copy of the state of the project which {@link #saveToOutputStream(OutputStream, Pool, boolean)} writes,
+     * so that it can be written out without holding the lock on the project. The column model, history and overlay
+     * models are serialized right away, while rows are shared with the project until it modifies them (see
+     * {@link CopyOnWriteRowList}). The snapshot must be closed once written.
+     * <p>
+     * Rows stored in a {@link PagedRowList} are not copied, as that would bring them all on the heap: the snapshot
+     * refers to the live rows instead (see {@link ProjectSnapshot#isLive()}).
+     */
+    public ProjectSnapshot snapshot() throws IOException {
+        synchronized (this) {
+            for (OverlayModel overlayModel : overlayModels.values()) {
+                try {
+                    overlayModel.onBeforeSave(this);
+                } catch (Exception e) {
+                    logger.warn("Error signaling overlay model before saving", e);
+                }
+            }
+
+            Properties options = new Properties();
+            options.setProperty("mode", "save");
+            StringWriter header = new StringWriter();
+            saveHeaderToWriter(header, options);
+
+            List<Row> rowsCopy;
+            Runnable release = null;
+            boolean live = rows instanceof PagedRowList;
+            if (live) {
+                rowsCopy = rows;
+            } else {
+                CopyOnWriteRowList sharedRows = (CopyOnWriteRowList) rows;
+                rowsCopy = sharedRows.share();
+                release = sharedRows::release;
+            }
+
+            for (OverlayModel overlayModel : overlayModels.values()) {
+                try {
+                    overlayModel.onAfterSave(this);
+                } catch (Exception e) {
+                    logger.warn("Error signaling overlay model after saving", e);
+                }
+            }
+            return new ProjectSnapshot(id, header.toString(), rowsCopy, live, release);
+        }
+    }
+
+    protected void saveHeaderToWriter(Writer writer, Properties options) throws IOException {
         writer.write(RefineServlet.VERSION);
         writer.write('\n');
 
@@ -174,6 +330,10 @@ public class Project {
         writer.write("history=\n");
         history.save(writer, options);
 
+        saveOverlayModelsToWriter(writer);
+    }
+
+    protected void saveOverlayModelsToWriter(Writer writer) throws IOException {
         for (String modelName : overlayModels.keySet()) {
             writer.write("overlayModel:");
             writer.write(modelName);
@@ -182,6 +342,49 @@ public class Project {
             ParsingUtilities.saveWriter.writeValue(writer, overlayModels.get(modelName));
             writer.write('\n');
         }
+    }
+
+    /**
+     * Writes the column model and the overlay models, in the same form as in {@code data.txt}. Unlike rows, they can be
+     * modified by commands without adding an entry to the history.
+     */
+    public void saveModelsToWriter(Writer writer, Properties options) throws IOException {
+        writer.write("columnModel=\n");
+        columnModel.save(writer, options);
+        saveOverlayModelsToWriter(writer);
+    }
+
+    /**
+     * Replaces the column model and the overlay models by the ones written by
+     * {@link #saveModelsToWriter(Writer, Properties)}.
+     */
+    public void loadModelsFromReader(LineNumberReader reader) throws IOException {
+        synchronized (columnModel) {
+            columnModel.clearPrecomputes();
+            columnModel.columns.clear();
+            columnModel.columnGroups.clear();
+        }
+        overlayModels.clear();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int equal = line.indexOf('=');
+            String field = line.substring(0, equal);
+            if ("columnModel".equals(field)) {
+                columnModel.load(reader);
+            } else if (field.startsWith("overlayModel:")) {
+                loadOverlayModel(this, field.substring("overlayModel:".length()), line.substring(equal + 1));
+            }
+        }
+    }
+
+    static protected void saveRowsToWriter(List<Row> rows, Writer writer, Properties options) throws IOException {
+        if (options.containsKey("omitRows")) {
+            writer.write("externalRowCount=");
+            writer.write(Integer.toString(rows.size()));
+            writer.write('\n');
+            return;
+        }
 
         writer.write("rowCount=");
         writer.write(Integer.toString(rows.size()));
@@ -192,26 +395,46 @@ public class Project {
         }
     }
 
+    /**
+     * Provides the rows of a project which were saved outside of the main project data stream.
+     */
+    public interface RowSource {
+
+        List<Row> readRows() throws IOException;
+    }
+
     static public Project loadFromInputStream(InputStream is, long id, Pool pool) throws IOException {
-        return loadFromReader(new LineNumberReader(new InputStreamReader(is, StandardCharsets.UTF_8)), id, pool);
+        return loadFromInputStream(is, id, pool, null);
+    }
+
+    /**
+     * Loads a project from its main data stream.
+     *
+     * @param rowSource
+     *            where to read the rows from if they were not saved inline, can be null for the line-based format
+     */
+    static public Project loadFromInputStream(InputStream is, long id, Pool pool, RowSource rowSource) throws IOException {
+        return loadFromReader(new LineNumberReader(new InputStreamReader(is, StandardCharsets.UTF_8)), id, pool, rowSource);
     }
 
     static private Project loadFromReader(
             LineNumberReader reader,
             long id,
-            Pool pool) throws IOException {
+            Pool pool,
+            RowSource rowSource) throws IOException {
         long start = System.currentTimeMillis();
 
         // version of Refine which wrote the file
         /* String version = */ reader.readLine();
 
-        Project project = new Project(id);
+        Project project = new Project(id, createRowList());
         int maxCellCount = 0;
 
         ObjectMapper mapper = ParsingUtilities.mapper.copy();
         InjectableValues injections = new InjectableValues.Std().addValue("project", project);
         mapper.setInjectableValues(injections);
 
+        String rowTimings = "none";
         String line;
         while ((line = reader.readLine()) != null) {
             int equal = line.indexOf('=');
@@ -230,40 +453,60 @@ public class Project {
             } else if ("rowCount".equals(field)) {
                 int count = Integer.parseInt(value);
 
-                for (int i = 0; i < count; i++) {
-                    line = reader.readLine();
-                    if (line != null) {
-                        Row row = Row.load(line, pool);
-                        project.rows.add(row);
-                        maxCellCount = Math.max(maxCellCount, row.cells.size());
-                    }
+                ParallelRowLoader rowLoader = new ParallelRowLoader(pool);
+                int[] chunkMaxCellCount = { maxCellCount };
+                rowLoader.load(reader, count, row -> {
+                    project.rows.add(row);
+                    chunkMaxCellCount[0] = Math.max(chunkMaxCellCount[0], row.cells.size());
+                });
+                maxCellCount = chunkMaxCellCount[0];
+                rowTimings = String.format("%d ms reading, %d ms decoding on %d threads",
+                        rowLoader.getIOMillis(), rowLoader.getDecodingMillis(), rowLoader.getParallelism());
+            } else if ("externalRowCount".equals(field)) {
+                if (rowSource == null) {
+                    throw new IOException("Rows of project " + id + " are stored externally but no row source was provided");
                 }
-            } else if (field.startsWith("overlayModel:")) {
-                String modelName = field.substring("overlayModel:".length());
-                if (s_overlayModelClasses.containsKey(modelName)) {
-                    Class<? extends OverlayModel> klass = s_overlayModelClasses.get(modelName);
-
-                    try {
-                        OverlayModel overlayModel = ParsingUtilities.mapper.readValue(value, klass);
-
-                        project.overlayModels.put(modelName, overlayModel);
-                    } catch (IOException e) {
-                        logger.error("Failed to load overlay model " + modelName);
-                    }
+                long rowStart = System.currentTimeMillis();
+                List<Row> externalRows = rowSource.readRows();
+                if (externalRows.size() != Integer.parseInt(value)) {
+                    throw new IOException("Expected " + value + " rows for project " + id + " but found " + externalRows.size());
+                }
+                for (Row row : externalRows) {
+                    project.rows.add(row);
+                    maxCellCount = Math.max(maxCellCount, row.cells.size());
                 }
+                rowTimings = String.format("%d ms reading and decoding", System.currentTimeMillis() - rowStart);
+            } else if (field.startsWith("overlayModel:")) {
+                loadOverlayModel(project, field.substring("overlayModel:".length()), value);
             }
         }
 
         project.columnModel.setMaxCellIndex(maxCellCount - 1);
 
-        logger.info(
-                "Loaded project {} from disk in {} sec(s)", id, Long.toString((System.currentTimeMillis() - start) / 1000));
-
+        long updateStart = System.currentTimeMillis();
         project.update();
+        long end = System.currentTimeMillis();
+
+        logger.info("Loaded project {} from disk in {} ms (rows: {}; record model update: {} ms)",
+                id, end - start, rowTimings, end - updateStart);
 
         return project;
     }
 
+    static private void loadOverlayModel(Project project, String modelName, String value) {
+        if (s_overlayModelClasses.containsKey(modelName)) {
+            Class<? extends OverlayModel> klass = s_overlayModelClasses.get(modelName);
+
+            try {
+                OverlayModel overlayModel = ParsingUtilities.mapper.readValue(value, klass);
+
+                project.overlayModels.put(modelName, overlayModel);
+            } catch (IOException e) {
+                logger.error("Failed to load overlay model " + modelName);
+            }
+        }
+    }
+
     public void update() {
         columnModel.update();
         recordModel.update(this);
@@ -278,4 +521,11 @@ public class Project {
     public ProcessManager getProcessManager() {
         return this.processManager;
     }
+
+    /**
+     * @return the facet filter results cached for this project
+     */
+    public FilterCache getFilterCache() {
+        return filterCache;
+    }
 }
@@ -0,0 +1,73 @@
+
+package com.google.refine.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Properties;
+
+import com.google.refine.util.Pool;
+
+/**
+ * State of a project captured by {@link Project#snapshot()}, which can be written in the same format as
+ * {@link Project#saveToOutputStream(OutputStream, Pool, boolean)} while the project keeps being modified. It must be
+ * closed once written, so that the project stops copying the rows it modifies.
+ *
+ * @since 3.10
+ */
+public class ProjectSnapshot implements Closeable {
+
+    final public long id;
+    final public Instant time;
+    final protected String header;
+    final public List<Row> rows;
+    final protected boolean live;
+    protected Runnable release;
+
+    protected ProjectSnapshot(long id, String header, List<Row> rows, boolean live, Runnable release) {
+        this.id = id;
+        this.time = Instant.now();
+        this.header = header;
+        this.rows = rows;
+        this.live = live;
+        this.release = release;
+    }
+
+    /**
+     * @return true if the rows of the snapshot are those of the project rather than a copy, in which case the project
+     *         must stay locked while the snapshot is written
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    public void saveToOutputStream(OutputStream out, Pool pool, boolean omitRows) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        try {
+            Properties options = new Properties();
+            options.setProperty("mode", "save");
+            options.put("pool", pool);
+            if (omitRows) {
+                options.setProperty("omitRows", "true");
+            }
+
+            writer.write(header);
+            Project.saveRowsToWriter(rows, writer, options);
+        } finally {
+            writer.flush();
+        }
+    }
+
+    @Override
+    synchronized public void close() {
+        if (release != null) {
+            release.run();
+            release = null;
+        }
+    }
+}
@@ -43,6 +43,7 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.base.CharMatcher;
 
 import com.google.refine.expr.CellTuple;
@@ -63,6 +64,12 @@ public class Row implements HasFields {
     private static final String FLAGGED = "flagged";
     private static final String STARRED = "starred";
 
+    /**
+     * Whether new rows store their cells in a {@link CompactCellList}, which uses less memory but creates {@link Cell}
+     * objects as they are read. Enabled with the {@code refine.compactCells} system property.
+     */
+    static public boolean compactCells = Boolean.getBoolean("refine.compactCells");
+
     /**
      * Construct a new Row.
      * 
@@ -70,7 +77,7 @@ public class Row implements HasFields {
      *            number of cells to give row initially (can be extended later)
      */
     public Row(int cellCount) {
-        cells = new ArrayList<Cell>(cellCount);
+        cells = compactCells ? new CompactCellList(cellCount) : new ArrayList<Cell>(cellCount);
     }
 
     protected Row(List<Cell> cells, boolean flagged, boolean starred) {
@@ -215,7 +222,7 @@ public class Row implements HasFields {
         if (cells == null) {
             cells = new ArrayList<>();
         }
-        return new Row(cells, flagged, starred);
+        return new Row(compactCells ? new CompactCellList(cells) : cells, flagged, starred);
     }
 
     static public Row loadStreaming(String s, Pool pool) throws IOException {
@@ -225,6 +232,21 @@ public class Row implements HasFields {
                 .readValue(s, Row.class);
     }
 
+    /**
+     * Returns a reader for serialized rows whose recons are resolved against the given pool. Unlike
+     * {@link #loadStreaming(String, Pool)}, this does not alter the shared mapper, so the reader can be used from
+     * several threads at once.
+     */
+    static public ObjectReader getReader(Pool pool) {
+        InjectableValues injectableValues = new InjectableValues.Std()
+                .addValue("pool", pool);
+        return ParsingUtilities.mapper.readerFor(Row.class).with(injectableValues);
+    }
+
+    static public Row load(String s, ObjectReader reader) throws IOException {
+        return s.length() == 0 ? null : reader.readValue(s);
+    }
+
     @Override
     public String toString() {
         StringBuffer result = new StringBuffer();
@@ -61,7 +61,7 @@ public class CellChange implements Change {
 
     @Override
     public void apply(Project project) {
-        project.rows.get(row).setCell(cellIndex, newCell);
+        project.getRowForUpdate(row).setCell(cellIndex, newCell);
 
         Column column = project.columnModel.getColumnByCellIndex(cellIndex);
         column.clearPrecomputes();
@@ -70,7 +70,7 @@ public class CellChange implements Change {
 
     @Override
     public void revert(Project project) {
-        project.rows.get(row).setCell(cellIndex, oldCell);
+        project.getRowForUpdate(row).setCell(cellIndex, oldCell);
 
         Column column = project.columnModel.getColumnByCellIndex(cellIndex);
         column.clearPrecomputes();
@@ -100,7 +100,7 @@ public class ColumnRemovalChange extends ColumnChange {
             _oldCells = new CellAtRow[project.rows.size()];
             int cellIndex = _oldColumn.getCellIndex();
             for (int i = 0; i < _oldCells.length; i++) {
-                Row row = project.rows.get(i);
+                Row row = project.getRowForUpdate(i);
 
                 Cell oldCell = null;
                 if (cellIndex < row.cells.size()) {
@@ -122,7 +122,7 @@ public class ColumnRemovalChange extends ColumnChange {
 
             int cellIndex = _oldColumn.getCellIndex();
             for (CellAtRow cell : _oldCells) {
-                project.rows.get(cell.row).cells.set(cellIndex, cell.cell);
+                project.getRowForUpdate(cell.row).cells.set(cellIndex, cell.cell);
             }
 
             project.columnModel.columnGroups.clear();
@@ -111,7 +111,7 @@ public class ColumnReorderChange extends ColumnChange {
             for (int i = 0; i < project.rows.size(); i++) {
                 for (int j = 0; j < _removedColumns.size(); j++) {
                     int cellIndex = _removedColumns.get(j).getCellIndex();
-                    Row row = project.rows.get(i);
+                    Row row = project.getRowForUpdate(i);
                     row.setCell(cellIndex, null);
                 }
             }
@@ -134,7 +134,7 @@ public class ColumnReorderChange extends ColumnChange {
             project.columnModel.columnGroups.addAll(_oldColumnGroups);
 
             for (int i = 0; i < _oldCells.length; i++) {
-                Row row = project.rows.get(_oldCells[i].row);
+                Row row = project.getRowForUpdate(_oldCells[i].row);
                 row.setCell(_oldCells[i].cellIndex, _oldCells[i].cell);
             }
 
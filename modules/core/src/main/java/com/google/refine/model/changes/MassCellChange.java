@@ -36,6 +36,8 @@ package com.google.refine.model.changes;
 import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 
@@ -43,7 +45,6 @@ import com.google.refine.ProjectManager;
 import com.google.refine.history.Change;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
-import com.google.refine.model.Row;
 import com.google.refine.util.Pool;
 
 public class MassCellChange implements Change {
@@ -83,13 +84,22 @@ public class MassCellChange implements Change {
         _updateRowContextDependencies = updateRowContextDependencies;
     }
 
+    public List<CellChange> getCellChanges() {
+        return Collections.unmodifiableList(Arrays.asList(_cellChanges));
+    }
+
+    /**
+     * @return true if the change updates the records and row dependencies of the project once cells are changed
+     */
+    public boolean updatesRowContextDependencies() {
+        return _updateRowContextDependencies;
+    }
+
     @Override
     public void apply(Project project) {
         synchronized (project) {
-            List<Row> rows = project.rows;
-
             for (CellChange cellChange : _cellChanges) {
-                rows.get(cellChange.row).setCell(cellChange.cellIndex, cellChange.newCell);
+                project.getRowForUpdate(cellChange.row).setCell(cellChange.cellIndex, cellChange.newCell);
             }
 
             if (_commonColumnName != null) {
@@ -107,10 +117,8 @@ public class MassCellChange implements Change {
     @Override
     public void revert(Project project) {
         synchronized (project) {
-            List<Row> rows = project.rows;
-
             for (CellChange cellChange : _cellChanges) {
-                rows.get(cellChange.row).setCell(cellChange.cellIndex, cellChange.oldCell);
+                project.getRowForUpdate(cellChange.row).setCell(cellChange.cellIndex, cellChange.oldCell);
             }
 
             if (_commonColumnName != null) {
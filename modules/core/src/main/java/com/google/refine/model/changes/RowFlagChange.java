@@ -56,7 +56,7 @@ public class RowFlagChange implements Change {
 
     @Override
     public void apply(Project project) {
-        Row row = project.rows.get(rowIndex);
+        Row row = project.getRowForUpdate(rowIndex);
         if (oldFlagged == null) {
             oldFlagged = row.flagged;
         }
@@ -65,7 +65,7 @@ public class RowFlagChange implements Change {
 
     @Override
     public void revert(Project project) {
-        Row row = project.rows.get(rowIndex);
+        Row row = project.getRowForUpdate(rowIndex);
 
         row.flagged = oldFlagged;
     }
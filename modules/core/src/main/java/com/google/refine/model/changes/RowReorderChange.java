@@ -66,6 +66,8 @@ public class RowReorderChange implements Change {
             project.rows.clear();
             project.rows.addAll(newRows);
             project.update();
+            // precomputed values, like bin indexes, are stored by row index
+            project.columnModel.clearPrecomputes();
         }
     }
 
@@ -90,6 +92,7 @@ public class RowReorderChange implements Change {
             project.rows.clear();
             project.rows.addAll(oldRows);
             project.update();
+            project.columnModel.clearPrecomputes();
         }
     }
 
@@ -46,6 +46,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import com.google.refine.expr.MetaParser;
 import com.google.refine.util.ParsingUtilities;
 
 public class PreferenceStore {
@@ -62,6 +63,8 @@ public class PreferenceStore {
             _prefs.put(key, value);
         }
         dirty = true;
+        // parsers can depend on preferences, such as grel.compile
+        MetaParser.getCache().clear();
     }
 
     public Object get(String key) {
@@ -112,6 +115,7 @@ public class PreferenceStore {
             }
         }
         dirty = false; // internal puts don't count
+        MetaParser.getCache().clear();
     }
 
     @JsonProperty("entries")
@@ -0,0 +1,128 @@
+
+package com.google.refine.util;
+
+import java.util.Arrays;
+
+/**
+ * A map from primitive longs to primitive longs using open addressing with linear probing, which avoids boxing each
+ * entry into {@link Long}s and allocating a map entry for it.
+ *
+ * @since 3.10
+ */
+public class LongLongHashMap {
+
+    static private final long EMPTY = 0L;
+
+    protected long[] keys;
+    protected long[] values;
+    protected boolean containsEmpty;
+    protected long emptyValue;
+    protected int size;
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new long[capacity];
+    }
+
+    /**
+     * @return true if the key was not in the map already, in which case it is associated with the value
+     */
+    public boolean putIfAbsent(long key, long value) {
+        if (key == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            emptyValue = value;
+            size++;
+            return true;
+        }
+        int i = indexOf(key);
+        if (keys[i] == key) {
+            return false;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Associates a value with a key, which must be in the map already.
+     */
+    public void replace(long key, long value) {
+        if (key == EMPTY) {
+            emptyValue = value;
+        } else {
+            values[indexOf(key)] = value;
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return key == EMPTY ? containsEmpty : keys[indexOf(key)] == key;
+    }
+
+    /**
+     * @return the value associated with the key, or the default value if there is none
+     */
+    public long get(long key, long defaultValue) {
+        if (key == EMPTY) {
+            return containsEmpty ? emptyValue : defaultValue;
+        }
+        int i = indexOf(key);
+        return keys[i] == key ? values[i] : defaultValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        containsEmpty = false;
+        size = 0;
+    }
+
+    /**
+     * @return the slot holding the key, or the empty slot where it would be inserted
+     */
+    protected int indexOf(long key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    protected void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = indexOf(oldKeys[j]);
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    static private int hash(long value) {
+        // mix the bits since recon ids are timestamps with random low digits
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,181 @@
+
+package com.google.refine.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.google.refine.RefineServlet;
+import com.google.refine.model.Recon;
+
+/**
+ * A {@link Pool} used when saving. Instead of keeping every recon in a map until the pool is saved, recons are
+ * serialized to a spool file as soon as they are pooled, and only the offset of each recon in that file is remembered,
+ * in a {@link LongLongHashMap}, to skip duplicates and read recons back. {@link #save(OutputStream)} then copies the
+ * spool file.
+ * <p>
+ * Recons are written in blocks, each with its own {@code reconCount} line, since the total count is not known until all
+ * rows have been saved. {@link Pool#load(java.io.Reader)} reads any number of such blocks.
+ * <p>
+ * The spool file is created in the system temporary directory rather than next to the file being saved, so that it
+ * cannot end up in a project directory, and it is deleted when the pool is closed.
+ *
+ * @since 3.10
+ */
+public class StreamingPool extends Pool implements Closeable {
+
+    static final int BLOCK_SIZE = 1024;
+    /**
+     * Offset of the recons which are not written to the spool file yet.
+     */
+    static private final long PENDING = -1L;
+
+    final protected LongLongHashMap reconOffsets = new LongLongHashMap();
+    final protected Path spoolFile;
+    final protected OutputStream spool;
+    protected long spoolLength = 0;
+    final protected ByteArrayOutputStream block = new ByteArrayOutputStream();
+    final protected long[] blockIds = new long[BLOCK_SIZE];
+    final protected int[] blockOffsets = new int[BLOCK_SIZE];
+    protected int blockCount = 0;
+
+    public StreamingPool() throws IOException {
+        spoolFile = Files.createTempFile("pool", ".tmp");
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(Files.newOutputStream(spoolFile));
+        } finally {
+            if (out == null) {
+                Files.deleteIfExists(spoolFile);
+            }
+        }
+        spool = out;
+    }
+
+    @Override
+    public void pool(Recon recon) {
+        if (!reconOffsets.putIfAbsent(recon.id, PENDING)) {
+            return;
+        }
+        try {
+            blockIds[blockCount] = recon.id;
+            blockOffsets[blockCount] = block.size();
+            ParsingUtilities.saveWriter.writeValue(block, recon);
+            block.write('\n');
+            if (++blockCount >= BLOCK_SIZE) {
+                flushBlock();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to spool recon " + recon.id, e);
+        }
+    }
+
+    /**
+     * Recon candidates are only pooled separately when reading legacy files, so this does nothing.
+     */
+    @Override
+    public void poolReconCandidates(Recon recon) {
+    }
+
+    /**
+     * Reads a pooled recon back from the spool file.
+     */
+    @Override
+    public Recon getRecon(String id) {
+        long reconId;
+        try {
+            reconId = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (!reconOffsets.containsKey(reconId)) {
+            return null;
+        }
+        try {
+            if (reconOffsets.get(reconId, PENDING) == PENDING) {
+                flushBlock();
+            }
+            spool.flush();
+            return Recon.loadStreaming(readLine(reconOffsets.get(reconId, PENDING)));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read back recon " + id, e);
+        }
+    }
+
+    protected String readLine(long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        try (RandomAccessFile file = new RandomAccessFile(spoolFile.toFile(), "r")) {
+            file.seek(offset);
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = file.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] == '\n') {
+                        line.write(buffer, 0, i);
+                        return line.toString(StandardCharsets.UTF_8);
+                    }
+                }
+                line.write(buffer, 0, n);
+            }
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of distinct recons pooled so far
+     */
+    public int getReconCount() {
+        return reconOffsets.size();
+    }
+
+    protected void flushBlock() throws IOException {
+        if (blockCount > 0) {
+            byte[] header = ("reconCount=" + blockCount + "\n").getBytes(StandardCharsets.UTF_8);
+            long blockStart = spoolLength + header.length;
+            for (int i = 0; i < blockCount; i++) {
+                reconOffsets.replace(blockIds[i], blockStart + blockOffsets[i]);
+            }
+            spool.write(header);
+            block.writeTo(spool);
+            spoolLength = blockStart + block.size();
+            block.reset();
+            blockCount = 0;
+        }
+    }
+
+    @Override
+    public void save(OutputStream out) throws IOException {
+        flushBlock();
+        spool.flush();
+        out.write((RefineServlet.VERSION + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.copy(spoolFile, out);
+    }
+
+    @Override
+    public void save(Writer writer) throws IOException {
+        flushBlock();
+        spool.flush();
+        writer.write(RefineServlet.VERSION);
+        writer.write('\n');
+        try (BufferedReader reader = Files.newBufferedReader(spoolFile, StandardCharsets.UTF_8)) {
+            reader.transferTo(writer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            spool.close();
+        } finally {
+            Files.deleteIfExists(spoolFile);
+        }
+    }
+}
@@ -34,6 +34,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine;
 
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -227,8 +229,101 @@ public class ProjectManagerTests extends RefineTest {
     }
     // TODO test canSaveAllModifiedWithRaceCondition
 
+    @Test
+    public void canUnloadLeastRecentlyUsedProjects() {
+        doNothing().when(SUT).scheduleMemoryBudgetCheck();
+        SUT.getPreferenceStore().put(ProjectManager.MEMORY_BUDGET_PREFERENCE, 2 * ROW_COUNT * ProjectManager.ESTIMATED_ROW_BYTES);
+
+        Project project1 = registerStubProject(1, -10);
+        Project project2 = registerStubProject(2, -10);
+        Project project3 = registerStubProject(3, -10);
+        verify(SUT, times(1)).scheduleMemoryBudgetCheck();
+        SUT.enforceMemoryBudget();
+
+        // project1 was the least recently used one
+        verify(project1, times(1)).dispose();
+        verify(SUT, never()).saveProject(project1);
+        Assert.assertNull(SUT._projects.get(1L));
+
+        Assert.assertSame(SUT.getProject(2), project2);
+        registerStubProject(4, -10);
+        SUT.enforceMemoryBudget();
+
+        // project3 is now the least recently used one
+        verify(project3, times(1)).dispose();
+        verify(project2, never()).dispose();
+
+        ProjectManager.MemoryStatus status = SUT.getMemoryStatus();
+        assertEquals(status.evictions, 2);
+        assertEquals(status.projects.size(), 2);
+        assertEquals(status.projects.get(0).id, 2L);
+        assertEquals(status.projects.get(1).id, 4L);
+        assertEquals(status.estimatedBytes, 2 * ProjectManager.estimateSize(project2));
+    }
+
+    @Test
+    public void savesModifiedProjectsBeforeUnloadingThem() {
+        doNothing().when(SUT).scheduleMemoryBudgetCheck();
+        SUT.getPreferenceStore().put(ProjectManager.MEMORY_BUDGET_PREFERENCE, ROW_COUNT * ProjectManager.ESTIMATED_ROW_BYTES);
+
+        Project project1 = registerStubProject(1, 10);
+        doAnswer(invocation -> {
+            when(project1.getLastSave()).thenReturn(BASE_DATE.plusSeconds(20));
+            return null;
+        }).when(SUT).saveProject(project1);
+        registerStubProject(2, -10);
+        SUT.enforceMemoryBudget();
+
+        verify(SUT, times(1)).saveProject(project1);
+        verify(project1, times(1)).dispose();
+    }
+
+    @Test
+    public void keepsModifiedProjectsIfTheirSaveFails() {
+        doNothing().when(SUT).scheduleMemoryBudgetCheck();
+        SUT.getPreferenceStore().put(ProjectManager.MEMORY_BUDGET_PREFERENCE, ROW_COUNT * ProjectManager.ESTIMATED_ROW_BYTES);
+
+        Project project1 = registerStubProject(1, 10);
+        registerStubProject(2, -10);
+        SUT.enforceMemoryBudget();
+
+        // the stub save does not update the last save time
+        verify(SUT, times(1)).saveProject(project1);
+        verify(project1, never()).dispose();
+    }
+
+    @Test
+    public void keepsProjectsInUseAboveBudget() {
+        doNothing().when(SUT).scheduleMemoryBudgetCheck();
+        SUT.getPreferenceStore().put(ProjectManager.MEMORY_BUDGET_PREFERENCE, 1L);
+
+        Project project1 = registerStubProject(1, -10);
+        SUT.beginRequest();
+        Assert.assertSame(SUT.getProject(1), project1);
+        registerStubProject(2, -10);
+        SUT.enforceMemoryBudget();
+
+        // project1 is used by the request, and project2 is the most recently used one
+        verify(project1, never()).dispose();
+        assertEquals(SUT.getMemoryStatus().evictions, 0);
+
+        SUT.endRequest();
+        SUT.enforceMemoryBudget();
+        verify(project1, times(1)).dispose();
+        assertEquals(SUT.getMemoryStatus().evictions, 1);
+    }
+
     // -------------helpers-------------
 
+    protected Project registerStubProject(long id, int secondsDifference) {
+        Project stub = spy(new ProjectStub(id));
+        addRows(stub);
+        ProjectMetadata meta = mock(ProjectMetadata.class);
+        whenGetSaveTimes(stub, meta, secondsDifference);
+        registerProject(stub, meta);
+        return stub;
+    }
+
     protected void registerProject() {
         this.registerProject(project, metadata);
     }
@@ -28,10 +28,18 @@
 package com.google.refine.browsing;
 
 import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.testng.annotations.Test;
 
+import com.google.refine.browsing.facets.Facet;
 import com.google.refine.model.Project;
+import com.google.refine.model.Row;
 import com.google.refine.util.TestUtils;
 
 public class EngineTests {
@@ -42,4 +50,98 @@ public class EngineTests {
         Engine engine = new Engine(project);
         TestUtils.isSerializedTo(engine, "{\"engine-mode\":\"row-based\",\"facets\":[]}");
     }
+
+    @Test
+    public void testComputeFacetsUsesFiltersOfOtherFacets() {
+        Project project = new Project();
+        for (int i = 0; i < 10; i++) {
+            project.rows.add(new Row(0));
+        }
+        Engine engine = new Engine(project);
+        RecordingFacet even = new RecordingFacet((rowIndex, row) -> rowIndex % 2 == 0);
+        RecordingFacet small = new RecordingFacet((rowIndex, row) -> rowIndex < 6);
+        RecordingFacet unfiltered = new RecordingFacet(null);
+        engine._facets.addAll(Arrays.asList(even, small, unfiltered));
+
+        engine.computeFacets();
+
+        assertEquals(even.visited, Arrays.asList(0, 1, 2, 3, 4, 5));
+        assertEquals(small.visited, Arrays.asList(0, 2, 4, 6, 8));
+        assertEquals(unfiltered.visited, Arrays.asList(0, 2, 4));
+    }
+
+    @Test
+    public void testFilteredRowsEvaluatesSelectiveFiltersFirst() {
+        Project project = new Project();
+        for (int i = 0; i < 10000; i++) {
+            project.rows.add(new Row(0));
+        }
+        Engine engine = new Engine(project);
+        List<Integer> evaluated = new ArrayList<>();
+        RecordingFacet everything = new RecordingFacet((rowIndex, row) -> evaluated.add(rowIndex));
+        RecordingFacet selective = new RecordingFacet((rowIndex, row) -> rowIndex % 100 == 0);
+        engine._facets.addAll(Arrays.asList(everything, selective));
+
+        FilteredRows filteredRows = engine.getAllFilteredRows();
+        RecordingFacet result = new RecordingFacet(null);
+        result.computeChoices(project, filteredRows);
+
+        assertEquals(result.visited.size(), 100);
+        assertTrue(evaluated.size() < 1000);
+        List<Engine.FilterStep> plan = engine.getFilterPlan();
+        assertEquals(plan.size(), 2);
+        assertEquals(plan.get(0).facetIndex, 1);
+        assertEquals(plan.get(0).statistics.getPassRate(), 0.01, 0.01);
+        assertEquals(plan.get(1).facetIndex, 0);
+        assertEquals(plan.get(1).statistics.getPassRate(), 1.0);
+    }
+
+    static class RecordingFacet implements Facet {
+
+        interface Predicate {
+
+            boolean test(int rowIndex, Row row);
+        }
+
+        final Predicate predicate;
+        final List<Integer> visited = new ArrayList<>();
+
+        RecordingFacet(Predicate predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public RowFilter getRowFilter(Project project) {
+            return predicate == null ? null : (p, rowIndex, row) -> predicate.test(rowIndex, row);
+        }
+
+        @Override
+        public RecordFilter getRecordFilter(Project project) {
+            return null;
+        }
+
+        @Override
+        public void computeChoices(Project project, FilteredRows filteredRows) {
+            filteredRows.accept(project, new RowVisitor() {
+
+                @Override
+                public void start(Project project) {
+                }
+
+                @Override
+                public boolean visit(Project project, int rowIndex, Row row) {
+                    visited.add(rowIndex);
+                    return false;
+                }
+
+                @Override
+                public void end(Project project) {
+                }
+            });
+        }
+
+        @Override
+        public void computeChoices(Project project, FilteredRecords filteredRecords) {
+        }
+    }
 }
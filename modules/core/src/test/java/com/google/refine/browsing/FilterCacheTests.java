@@ -0,0 +1,199 @@
+
+package com.google.refine.browsing;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.facets.Facet;
+import com.google.refine.browsing.facets.FacetConfig;
+import com.google.refine.browsing.util.ExpressionNominalValueGrouper;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.util.ParsingUtilities;
+
+public class FilterCacheTests extends RefineTest {
+
+    FilterCache cache;
+    FacetConfig config;
+    AtomicInteger evaluations;
+    Supplier<BitSet> evaluate;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        cache = new FilterCache();
+        config = ParsingUtilities.mapper.readValue(
+                "{\"type\":\"text\",\"name\":\"foo\",\"columnName\":\"foo\",\"mode\":\"text\",\"query\":\"bar\",\"caseSensitive\":false,\"invert\":false}",
+                FacetConfig.class);
+        evaluations = new AtomicInteger();
+        evaluate = () -> {
+            evaluations.incrementAndGet();
+            BitSet matches = new BitSet();
+            matches.set(1);
+            return matches;
+        };
+    }
+
+    @Test
+    public void testResultsAreReused() {
+        BitSet first = cache.get(config, Mode.RowBased, 10, evaluate);
+        BitSet second = cache.get(config, Mode.RowBased, 10, evaluate);
+
+        assertSame(second, first);
+        assertEquals(evaluations.get(), 1);
+
+        // different mode or row count
+        cache.get(config, Mode.RecordBased, 10, evaluate);
+        cache.get(config, Mode.RowBased, 11, evaluate);
+        assertEquals(evaluations.get(), 3);
+    }
+
+    @Test
+    public void testFacetsWhichAreNotDeterministicAreNotCached() {
+        FacetConfig random = new FacetConfig() {
+
+            @Override
+            public Facet apply(Project project) {
+                return null;
+            }
+
+            @Override
+            public String getJsonType() {
+                return "random";
+            }
+        };
+        cache.get(random, Mode.RowBased, 10, evaluate);
+        cache.get(random, Mode.RowBased, 10, evaluate);
+
+        assertEquals(evaluations.get(), 2);
+        assertEquals(cache.size(), 0);
+        assertFalse(cache.contains(random, Mode.RowBased, 10));
+    }
+
+    @Test
+    public void testChangesToOtherColumnsKeepResults() {
+        cache.get(config, Mode.RowBased, 10, evaluate);
+        cache.get(config, Mode.RecordBased, 10, evaluate);
+
+        cache.invalidate(Optional.of(Set.of("other")));
+        assertEquals(cache.size(), 1);
+        cache.get(config, Mode.RowBased, 10, evaluate);
+        assertEquals(evaluations.get(), 2);
+
+        cache.invalidate(Optional.of(Set.of("foo")));
+        assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testUnknownChangesDiscardResults() {
+        cache.get(config, Mode.RowBased, 10, evaluate);
+
+        cache.invalidate(Optional.empty());
+
+        assertEquals(cache.size(), 0);
+        cache.get(config, Mode.RowBased, 10, evaluate);
+        assertEquals(evaluations.get(), 2);
+    }
+
+    @Test
+    public void testChangedRowsAreEvaluatedAgain() {
+        AtomicInteger rowEvaluations = new AtomicInteger();
+        IntPredicate filter = r -> {
+            rowEvaluations.incrementAndGet();
+            return r == 3;
+        };
+        BitSet first = cache.get(config, Mode.RowBased, 10, evaluate, filter);
+
+        cache.update(Set.of("foo"), Map.of(3, new Row(1)));
+        BitSet updated = cache.get(config, Mode.RowBased, 10, evaluate, filter);
+
+        assertEquals(evaluations.get(), 1);
+        assertEquals(rowEvaluations.get(), 1);
+        assertTrue(updated.get(1));
+        assertTrue(updated.get(3));
+        // cached bitsets are never modified
+        assertFalse(first.get(3));
+        assertSame(cache.get(config, Mode.RowBased, 10, evaluate, filter), updated);
+    }
+
+    static class CountingEvaluable implements Evaluable {
+
+        int evaluations = 0;
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            evaluations++;
+            return bindings.get("value");
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    }
+
+    @Test
+    public void testResultsAreUpdatedForChangedRows() throws Exception {
+        Project project = new Project();
+        project.columnModel.addColumn(0, new Column(0, "foo"), false);
+        project.columnModel.update();
+        for (int i = 0; i < 100; i++) {
+            Row row = new Row(1);
+            row.setCell(0, new Cell(i % 2 == 0 ? "even" : "odd", null));
+            project.rows.add(row);
+        }
+        CountingEvaluable evaluable = new CountingEvaluable();
+        BitSet rows = new BitSet();
+        rows.set(0, 100);
+        cache.visit(project, config, rows, new ExpressionNominalValueGrouper(evaluable, "foo", 0));
+        assertEquals(evaluable.evaluations, 100);
+
+        Cell oldCell = project.rows.get(4).getCell(0);
+        Cell newCell = new Cell("changed", null);
+        project.rows.get(4).setCell(0, newCell);
+        HistoryEntry entry = new HistoryEntry(1L, project, "edit", null, new CellChange(4, 0, oldCell, newCell));
+        cache.invalidate(project, entry, false);
+        // another facet now filters out row 7
+        BitSet otherRows = (BitSet) rows.clone();
+        otherRows.clear(7);
+
+        evaluable.evaluations = 0;
+        ExpressionNominalValueGrouper grouper = new ExpressionNominalValueGrouper(evaluable, "foo", 0);
+        cache.visit(project, config, otherRows, grouper);
+        // row 4 before and after the change, and row 7
+        assertEquals(evaluable.evaluations, 3);
+        assertEquals(grouper.choices.get("even").count, 49);
+        assertEquals(grouper.choices.get("odd").count, 49);
+        assertEquals(grouper.choices.get("changed").count, 1);
+
+        project.rows.get(4).setCell(0, oldCell);
+        cache.invalidate(project, entry, true);
+
+        grouper = new ExpressionNominalValueGrouper(evaluable, "foo", 0);
+        cache.visit(project, config, otherRows, grouper);
+        assertEquals(grouper.choices.get("even").count, 50);
+        assertEquals(grouper.choices.get("odd").count, 49);
+        assertNull(grouper.choices.get("changed"));
+    }
+}
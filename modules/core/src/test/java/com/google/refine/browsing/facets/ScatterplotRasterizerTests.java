@@ -0,0 +1,173 @@
+
+package com.google.refine.browsing.facets;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.util.ExpressionBasedRowEvaluable;
+import com.google.refine.browsing.util.NumericBinIndex;
+import com.google.refine.browsing.util.NumericBinRowIndex;
+import com.google.refine.browsing.util.RowEvaluable;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.model.Cell;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+public class ScatterplotRasterizerTests extends RefineTest {
+
+    static final int ROW_COUNT = 500;
+    static final int SIZE = 50;
+
+    Project project;
+    ForkJoinPool pool;
+
+    static class ValueEvaluable implements Evaluable {
+
+        final boolean baseColumnOnly;
+        final AtomicInteger evaluations = new AtomicInteger();
+
+        ValueEvaluable(boolean baseColumnOnly) {
+            this.baseColumnOnly = baseColumnOnly;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            evaluations.incrementAndGet();
+            return bindings.get("value");
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
+            return baseColumnOnly ? Optional.of(Collections.singleton(baseColumn.get())) : Optional.empty();
+        }
+    }
+
+    @BeforeMethod
+    public void setUpProject() throws IOException, ModelException {
+        project = createProjectWithColumns("ScatterplotRasterizerTests", "x", "y");
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Row row = new Row(2);
+            row.setCell(0, new Cell(i % 7 == 0 ? "none" : Double.valueOf(i), null));
+            row.setCell(1, new Cell(Long.valueOf((i * 37) % 101), null));
+            project.rows.add(row);
+        }
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterMethod
+    public void tearDownPool() {
+        pool.shutdown();
+    }
+
+    ScatterplotRasterizer rasterizer(ValueEvaluable eval, int rotation) {
+        RowEvaluable x = new ExpressionBasedRowEvaluable("x", 0, eval);
+        RowEvaluable y = new ExpressionBasedRowEvaluable("y", 1, eval);
+        NumericBinIndex index_x = new NumericBinRowIndex(project, x);
+        NumericBinIndex index_y = new NumericBinRowIndex(project, y);
+        return new ScatterplotRasterizer(index_x, x, ScatterplotFacet.LIN, index_y, y, ScatterplotFacet.LOG, SIZE, rotation, 1.4);
+    }
+
+    void visit(ScatterplotRasterizer rasterizer, int from, int to) {
+        for (int r = from; r < to; r++) {
+            rasterizer.visit(project, r, project.rows.get(r));
+        }
+    }
+
+    @Test
+    public void testStoredValuesAreNotEvaluatedAgain() {
+        ValueEvaluable stored = new ValueEvaluable(true);
+        ScatterplotRasterizer fromIndex = rasterizer(stored, ScatterplotFacet.NO_ROTATION);
+        ValueEvaluable evaluated = new ValueEvaluable(false);
+        ScatterplotRasterizer fromExpression = rasterizer(evaluated, ScatterplotFacet.NO_ROTATION);
+
+        stored.evaluations.set(0);
+        evaluated.evaluations.set(0);
+        visit(fromIndex, 0, ROW_COUNT);
+        visit(fromExpression, 0, ROW_COUNT);
+
+        assertEquals(stored.evaluations.get(), 0);
+        assertEquals(evaluated.evaluations.get(), 2 * ROW_COUNT);
+        assertEquals(fromIndex.getCoverage(), fromExpression.getCoverage());
+        int covered = 0;
+        for (byte b : fromIndex.getCoverage()) {
+            covered += b != 0 ? 1 : 0;
+        }
+        assertTrue(covered > 100);
+    }
+
+    @Test
+    public void testSplitDrawingMatchesSequentialDrawing() {
+        for (int rotation : new int[] { ScatterplotFacet.NO_ROTATION, ScatterplotFacet.ROTATE_CW }) {
+            ScatterplotRasterizer sequential = rasterizer(new ValueEvaluable(true), rotation);
+            visit(sequential, 0, ROW_COUNT);
+
+            ScatterplotRasterizer parallel = rasterizer(new ValueEvaluable(true), rotation);
+            ScatterplotRasterizer[] spans = new ScatterplotRasterizer[3];
+            for (int i = 0; i < spans.length; i++) {
+                spans[i] = (ScatterplotRasterizer) parallel.split();
+            }
+            pool.invoke(ForkJoinTask.adapt(() -> visit(spans[2], 400, ROW_COUNT)));
+            visit(spans[0], 0, 150);
+            visit(spans[1], 150, 400);
+            for (ScatterplotRasterizer span : spans) {
+                parallel.merge(span);
+            }
+
+            assertEquals(parallel.getCoverage(), sequential.getCoverage());
+        }
+    }
+
+    @Test
+    public void testPaint() {
+        int[] pixels = ScatterplotRasterizer.createBackground(SIZE, ScatterplotFacet.NO_ROTATION);
+        assertEquals(pixels[0], 0);
+
+        ScatterplotRasterizer rasterizer = rasterizer(new ValueEvaluable(true), ScatterplotFacet.NO_ROTATION);
+        // the first row with a numeric x is on the left edge
+        rasterizer.visit(project, 1, project.rows.get(1));
+        int covered = -1;
+        for (int i = 0; i < pixels.length; i++) {
+            if (rasterizer.getCoverage()[i] != 0) {
+                covered = i;
+                break;
+            }
+        }
+        assertEquals(covered % SIZE, 0);
+
+        rasterizer.paint(pixels, 0xFF6A00);
+        assertEquals(pixels[covered] & 0xFFFFFF, 0xFF6A00);
+        assertEquals(pixels[covered] >>> 24, rasterizer.getCoverage()[covered] & 0xFF);
+        assertEquals(pixels[0], 0);
+
+        assertEquals(ScatterplotRasterizer.blend(0x0000FF, 255, 0xFFFF0000), 0xFF0000FF);
+        assertEquals(ScatterplotRasterizer.blend(0x0000FF, 0, 0xFFFF0000), 0xFFFF0000);
+    }
+
+    @Test
+    public void testRotatedBackground() {
+        int[] pixels = ScatterplotRasterizer.createBackground(SIZE, ScatterplotFacet.ROTATE_CW);
+        // the plot is rotated clockwise by 45 degrees around the middle of the left edge
+        assertEquals(pixels[0], ScatterplotRasterizer.LIGHT_GRAY);
+        assertEquals(pixels[(SIZE / 2) * SIZE + SIZE / 2], 0);
+    }
+}
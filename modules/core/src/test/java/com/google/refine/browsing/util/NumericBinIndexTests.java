@@ -0,0 +1,202 @@
+
+package com.google.refine.browsing.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.RowReorderChange;
+
+public class NumericBinIndexTests extends RefineTest {
+
+    static final int ROW_COUNT = 1000;
+
+    Project project;
+    ForkJoinPool pool;
+
+    /**
+     * Returns the value of the cell, with multiples of 11 doubled into an array.
+     */
+    static class ValueEvaluable implements Evaluable {
+
+        final boolean baseColumnOnly;
+        final AtomicInteger evaluations = new AtomicInteger();
+
+        ValueEvaluable(boolean baseColumnOnly) {
+            this.baseColumnOnly = baseColumnOnly;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            evaluations.incrementAndGet();
+            Object value = bindings.get("value");
+            if (value instanceof Long && (Long) value % 11 == 0) {
+                return new Object[] { value, (Long) value * 2 };
+            }
+            return value;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+
+        @Override
+        public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
+            return baseColumnOnly ? Optional.of(Collections.singleton(baseColumn.get())) : Optional.empty();
+        }
+    }
+
+    @BeforeMethod
+    public void setUpProject() throws IOException, ModelException {
+        project = createProjectWithColumns("NumericBinIndexTests", "Col1");
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Row row = new Row(1);
+            Serializable value;
+            if (i % 10 == 0) {
+                value = null;
+            } else if (i % 13 == 0) {
+                value = "thirteen";
+            } else if (i % 17 == 0) {
+                value = new EvalError("seventeen");
+            } else if (i % 19 == 0) {
+                value = Double.NaN;
+            } else {
+                value = Long.valueOf(i % 97);
+            }
+            row.setCell(0, value == null ? null : new Cell(value, null));
+            project.rows.add(row);
+        }
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterMethod
+    public void tearDownPool() {
+        pool.shutdown();
+    }
+
+    RowEvaluable rowEvaluable(ValueEvaluable eval) {
+        return new ExpressionBasedRowEvaluable("Col1", 0, eval);
+    }
+
+    void assertSameIndex(NumericBinIndex actual, NumericBinIndex expected) {
+        assertEquals(actual.getMin(), expected.getMin());
+        assertEquals(actual.getMax(), expected.getMax());
+        assertEquals(actual.getStep(), expected.getStep());
+        assertEquals(actual.getBins(), expected.getBins());
+        assertEquals(actual.getNumericRowCount(), expected.getNumericRowCount());
+        assertEquals(actual.getNonNumericRowCount(), expected.getNonNumericRowCount());
+        assertEquals(actual.getBlankRowCount(), expected.getBlankRowCount());
+        assertEquals(actual.getErrorRowCount(), expected.getErrorRowCount());
+        assertEquals(actual.isNumeric(), expected.isNumeric());
+    }
+
+    @Test
+    public void testParallelIndexMatchesSequentialIndex() {
+        NumericBinIndex sequential = new NumericBinRowIndex(project, rowEvaluable(new ValueEvaluable(true)));
+        NumericBinIndex parallel = new NumericBinIndex(project, rowEvaluable(new ValueEvaluable(true))) {
+
+            @Override
+            protected void iterate(Project project, RowEvaluable rowEvaluable, Builder builder) {
+                assertTrue(ParallelTraversal.visit(pool, builder, ROW_COUNT, 10, (span, from, to) -> span.visitRows(from, to)));
+            }
+        };
+
+        assertSameIndex(parallel, sequential);
+        assertEquals(parallel.getValues(), sequential.getValues());
+        for (int r = 0; r < ROW_COUNT; r++) {
+            assertEquals(parallel.getRowFlags(r), sequential.getRowFlags(r));
+            assertEquals(parallel.getRowValuesEnd(r), sequential.getRowValuesEnd(r));
+        }
+        assertEquals(sequential.getRowValuesEnd(ROW_COUNT - 1), sequential.getValues().length);
+    }
+
+    @Test
+    public void testBinnerReusesStoredValues() {
+        ValueEvaluable stored = new ValueEvaluable(true);
+        NumericBinIndex index = new NumericBinRowIndex(project, rowEvaluable(stored));
+        ValueEvaluable evaluated = new ValueEvaluable(false);
+        NumericBinIndex reference = new NumericBinRowIndex(project, rowEvaluable(evaluated));
+        assertTrue(index.hasRowValues(project, 0, project.rows.get(0)));
+        assertFalse(reference.hasRowValues(project, 0, project.rows.get(0)));
+        assertSameIndex(index, reference);
+
+        stored.evaluations.set(0);
+        evaluated.evaluations.set(0);
+        ExpressionNumericValueBinner fromIndex = new ExpressionNumericValueBinner(rowEvaluable(stored), index);
+        ExpressionNumericValueBinner fromExpression = new ExpressionNumericValueBinner(rowEvaluable(evaluated), reference);
+        for (int r = 0; r < ROW_COUNT; r += 3) {
+            fromIndex.visit(project, r, project.rows.get(r));
+            fromExpression.visit(project, r, project.rows.get(r));
+        }
+
+        assertEquals(stored.evaluations.get(), 0);
+        assertEquals(evaluated.evaluations.get(), (ROW_COUNT + 2) / 3);
+        assertEquals(fromIndex.bins, fromExpression.bins);
+        assertEquals(fromIndex.numericCount, fromExpression.numericCount);
+        assertEquals(fromIndex.nonNumericCount, fromExpression.nonNumericCount);
+        assertEquals(fromIndex.blankCount, fromExpression.blankCount);
+        assertEquals(fromIndex.errorCount, fromExpression.errorCount);
+    }
+
+    @Test
+    public void testReplacedRowsAreEvaluated() {
+        ValueEvaluable stored = new ValueEvaluable(true);
+        NumericBinIndex index = new NumericBinRowIndex(project, rowEvaluable(stored));
+
+        Row previous = project.rows.get(1).dup();
+        previous.setCell(0, new Cell(2L, null));
+        assertFalse(index.hasRowValues(project, 1, previous));
+
+        stored.evaluations.set(0);
+        ExpressionNumericValueBinner binner = new ExpressionNumericValueBinner(rowEvaluable(stored), index);
+        binner.visit(project, 1, previous);
+
+        assertEquals(stored.evaluations.get(), 1);
+        assertEquals(binner.numericCount, 1);
+        assertEquals(binner.bins[(int) Math.floor((2 - index.getMin()) / index.getStep())], 1);
+    }
+
+    @Test
+    public void testReorderingRowsDiscardsIndex() {
+        Column column = project.columnModel.getColumnByName("Col1");
+        List<Integer> reversed = new ArrayList<>();
+        for (int r = ROW_COUNT - 1; r >= 0; r--) {
+            reversed.add(r);
+        }
+        RowReorderChange change = new RowReorderChange(reversed);
+
+        // values are stored by row index, so they do not apply to reordered rows
+        column.setPrecompute("numeric-bin:value", new NumericBinRowIndex(project, rowEvaluable(new ValueEvaluable(true))));
+        change.apply(project);
+        assertNull(column.getPrecompute("numeric-bin:value"));
+
+        column.setPrecompute("numeric-bin:value", new NumericBinRowIndex(project, rowEvaluable(new ValueEvaluable(true))));
+        change.revert(project);
+        assertNull(column.getPrecompute("numeric-bin:value"));
+    }
+}
@@ -0,0 +1,182 @@
+
+package com.google.refine.browsing.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.browsing.util.ParallelTraversal.SpanVisitor;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.model.Cell;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+public class ParallelTraversalTests extends RefineTest {
+
+    static final int ROW_COUNT = 1000;
+
+    Project project;
+    ForkJoinPool pool;
+
+    static class ValueEvaluable implements Evaluable {
+
+        final boolean threadSafe;
+
+        ValueEvaluable(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            return bindings.get("value");
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return threadSafe;
+        }
+    }
+
+    @BeforeMethod
+    public void setUpProject() throws IOException, ModelException {
+        project = createProjectWithColumns("ParallelTraversalTests", "Col1", "Col2");
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Row row = new Row(2);
+            row.setCell(0, i % 10 == 0 ? null : new Cell(i % 7 == 0 ? "seven" : Long.valueOf(i % 5), null));
+            row.setCell(1, new Cell("row " + i, null));
+            project.rows.add(row);
+        }
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterMethod
+    public void tearDownPool() {
+        pool.shutdown();
+    }
+
+    static class DateEvaluable extends ValueEvaluable {
+
+        DateEvaluable() {
+            super(true);
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            Object value = super.evaluate(bindings);
+            return value instanceof Long ? OffsetDateTime.of(2000 + ((Long) value).intValue(), 1, 1, 0, 0, 0, 0, ZoneOffset.UTC) : value;
+        }
+    }
+
+    <V extends RowVisitor> SpanVisitor<V> span() {
+        return (visitor, from, to) -> {
+            for (int r = from; r < to; r++) {
+                visitor.visit(project, r, project.rows.get(r));
+            }
+        };
+    }
+
+    <V extends RecordVisitor> SpanVisitor<V> recordSpan() {
+        return (visitor, from, to) -> {
+            for (int r = from; r < to; r++) {
+                visitor.visit(project, project.recordModel.getRecord(r));
+            }
+        };
+    }
+
+    void assertSameChoices(ExpressionNominalValueGrouper parallel, ExpressionNominalValueGrouper sequential) {
+        assertEquals(parallel.blankCount, sequential.blankCount);
+        assertEquals(parallel.errorCount, sequential.errorCount);
+        assertEquals(parallel.choices.keySet(), sequential.choices.keySet());
+        for (Object key : sequential.choices.keySet()) {
+            assertEquals(parallel.choices.get(key).count, sequential.choices.get(key).count);
+        }
+    }
+
+    @Test
+    public void testParallelGroupingMatchesSequentialGrouping() {
+        ExpressionNominalValueGrouper sequential = new ExpressionNominalValueGrouper(new ValueEvaluable(true), "Col1", 0);
+        span().visit(sequential, 0, ROW_COUNT);
+
+        ExpressionNominalValueGrouper parallel = new ExpressionNominalValueGrouper(new ValueEvaluable(true), "Col1", 0);
+        assertTrue(ParallelTraversal.visit(pool, parallel, ROW_COUNT, 10, span()));
+
+        assertSameChoices(parallel, sequential);
+    }
+
+    @Test
+    public void testParallelRecordGroupingMatchesSequentialGrouping() {
+        // rows with a blank first cell belong to the record of the previous row
+        project.update();
+        int recordCount = project.recordModel.getRecordCount();
+        assertTrue(recordCount < ROW_COUNT);
+
+        ExpressionNominalValueGrouper sequential = new ExpressionNominalValueGrouper(new ValueEvaluable(true), "Col1", 0);
+        recordSpan().visit(sequential, 0, recordCount);
+
+        ExpressionNominalValueGrouper parallel = new ExpressionNominalValueGrouper(new ValueEvaluable(true), "Col1", 0);
+        // spans smaller than most records, so that their boundaries fall within records if they are not record indices
+        assertTrue(ParallelTraversal.visit(pool, parallel, recordCount, 3, recordSpan()));
+
+        assertSameChoices(parallel, sequential);
+    }
+
+    @Test
+    public void testParallelNumericBinningMatchesSequentialBinning() {
+        RowEvaluable evaluable = new ExpressionBasedRowEvaluable("Col1", 0, new ValueEvaluable(true));
+        NumericBinIndex index = new NumericBinRowIndex(project, evaluable);
+
+        ExpressionNumericValueBinner sequential = new ExpressionNumericValueBinner(evaluable, index);
+        span().visit(sequential, 0, ROW_COUNT);
+
+        ExpressionNumericValueBinner parallel = new ExpressionNumericValueBinner(evaluable, index);
+        assertTrue(ParallelTraversal.visit(pool, parallel, ROW_COUNT, 10, span()));
+
+        assertEquals(parallel.bins, sequential.bins);
+        assertEquals(parallel.numericCount, sequential.numericCount);
+        assertEquals(parallel.nonNumericCount, sequential.nonNumericCount);
+        assertEquals(parallel.blankCount, sequential.blankCount);
+        assertEquals(parallel.errorCount, sequential.errorCount);
+    }
+
+    @Test
+    public void testParallelTimeBinningMatchesSequentialBinning() {
+        RowEvaluable evaluable = new ExpressionBasedRowEvaluable("Col1", 0, new DateEvaluable());
+        TimeBinIndex index = new TimeBinRowIndex(project, evaluable);
+
+        ExpressionTimeValueBinner sequential = new ExpressionTimeValueBinner(evaluable, index);
+        span().visit(sequential, 0, ROW_COUNT);
+        assertTrue(sequential.timeCount > 0);
+
+        ExpressionTimeValueBinner parallel = new ExpressionTimeValueBinner(evaluable, index);
+        assertTrue(ParallelTraversal.visit(pool, parallel, ROW_COUNT, 10, span()));
+
+        assertEquals(parallel.bins, sequential.bins);
+        assertEquals(parallel.timeCount, sequential.timeCount);
+        assertEquals(parallel.nonTimeCount, sequential.nonTimeCount);
+        assertEquals(parallel.blankCount, sequential.blankCount);
+        assertEquals(parallel.errorCount, sequential.errorCount);
+    }
+
+    @Test
+    public void testVisitorsWhichCannotBeSplitAreVisitedSequentially() {
+        ExpressionNominalValueGrouper grouper = new ExpressionNominalValueGrouper(new ValueEvaluable(false), "Col1", 0);
+        assertFalse(ParallelTraversal.visit(pool, grouper, ROW_COUNT, 10, span()));
+        // too few rows
+        assertFalse(ParallelTraversal.visit(pool, grouper, ROW_COUNT, ROW_COUNT, span()));
+        assertTrue(grouper.choices.isEmpty());
+    }
+}
@@ -0,0 +1,167 @@
+
+package com.google.refine.browsing.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.RowFilter;
+import com.google.refine.browsing.facets.TextSearchFacet.TextSearchFacetConfig;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.RowReorderChange;
+import com.google.refine.util.ParsingUtilities;
+
+public class TrigramIndexTests extends RefineTest {
+
+    static final String[] VALUES = { "Paris", "paris, France", "Parisian", "London", "İstanbul", "Rio de Janeiro", "1234",
+            "ΣΊΣΥΦΟΣ" };
+
+    Project project;
+    Column column;
+
+    @BeforeMethod
+    public void setUpProject() throws IOException, ModelException {
+        project = createProjectWithColumns("TrigramIndexTests", "city");
+        for (String value : VALUES) {
+            Row row = new Row(1);
+            row.setCell(0, new Cell(value, null));
+            project.rows.add(row);
+        }
+        project.rows.add(new Row(1));
+        Row number = new Row(1);
+        number.setCell(0, new Cell(12345L, null));
+        project.rows.add(number);
+        column = project.columnModel.getColumnByName("city");
+        ProjectManager.singleton.getPreferenceStore().put(TrigramIndex.THRESHOLD_PREFERENCE, 1);
+    }
+
+    @AfterMethod
+    public void resetPreference() {
+        ProjectManager.singleton.getPreferenceStore().put(TrigramIndex.THRESHOLD_PREFERENCE, null);
+    }
+
+    BitSet rows(int... indices) {
+        BitSet rows = new BitSet();
+        for (int i : indices) {
+            rows.set(i);
+        }
+        return rows;
+    }
+
+    @Test
+    public void testCandidateRows() {
+        TrigramIndex index = new TrigramIndex(project, column.getCellIndex());
+
+        assertEquals(index.getCandidateRows(Collections.singleton("Paris"), false), rows(0, 1, 2));
+        assertEquals(index.getCandidateRows(Collections.singleton("france"), false), rows(1));
+        assertEquals(index.getCandidateRows(Arrays.asList("par", "ian"), false), rows(2));
+        assertEquals(index.getCandidateRows(Collections.singleton("234"), false), rows(6, 9));
+        assertEquals(index.getCandidateRows(Collections.singleton("tokyo"), false), rows());
+        assertNull(index.getCandidateRows(Collections.singleton("pa"), false));
+    }
+
+    @Test
+    public void testRowsWithIrregularLowercaseAreCandidates() {
+        TrigramIndex index = new TrigramIndex(project, column.getCellIndex());
+
+        // "İ" is lowercased to two characters by String.toLowerCase, and a final "Σ" to "ς"
+        assertEquals(index.getCandidateRows(Collections.singleton("london"), true), rows(3, 4, 7));
+        assertEquals(index.getCandidateRows(Collections.singleton("london"), false), rows(3));
+    }
+
+    @Test
+    public void testRequiredLiterals() {
+        assertEquals(TrigramIndex.getRequiredLiterals("paris"), Arrays.asList("paris"));
+        assertEquals(TrigramIndex.getRequiredLiterals("^par.s, fr?ance$"), Arrays.asList("par", "s, f", "ance"));
+        assertEquals(TrigramIndex.getRequiredLiterals("ab+c\\d{2}de*f"), Arrays.asList("ab", "c", "d", "f"));
+        assertEquals(TrigramIndex.getRequiredLiterals("rio\\.de[a-z]+(jan|eiro)x{0,2}"), Arrays.asList("rio.de"));
+        assertEquals(TrigramIndex.getRequiredLiterals("paris|london"), Collections.emptyList());
+        assertEquals(TrigramIndex.getRequiredLiterals("(?i)paris"), Collections.emptyList());
+        assertEquals(TrigramIndex.getRequiredLiterals("\\x41bcd"), Collections.emptyList());
+        assertEquals(TrigramIndex.getRequiredLiterals("\\Qa.b\\E"), Collections.emptyList());
+    }
+
+    @Test
+    public void testIndexIsStoredInColumn() {
+        TrigramIndex index = TrigramIndex.get(project, column);
+        assertNotNull(index);
+        assertSame(TrigramIndex.get(project, column), index);
+
+        column.clearPrecomputes();
+        assertTrue(TrigramIndex.get(project, column) != index);
+
+        ProjectManager.singleton.getPreferenceStore().put(TrigramIndex.THRESHOLD_PREFERENCE, 0);
+        assertNull(TrigramIndex.get(project, column));
+    }
+
+    BitSet filter(String mode, String query, boolean caseSensitive, boolean invert) throws IOException {
+        String json = "{\"type\":\"text\",\"name\":\"city\",\"columnName\":\"city\",\"mode\":\"" + mode + "\",\"query\":"
+                + ParsingUtilities.mapper.writeValueAsString(query) + ",\"caseSensitive\":" + caseSensitive + ",\"invert\":" + invert
+                + "}";
+        TextSearchFacetConfig config = ParsingUtilities.mapper.readValue(json, TextSearchFacetConfig.class);
+        RowFilter filter = config.apply(project).getRowFilter(project);
+        BitSet matches = new BitSet();
+        for (int r = 0; r < project.rows.size(); r++) {
+            if (filter.filterRow(project, r, project.rows.get(r))) {
+                matches.set(r);
+            }
+        }
+        return matches;
+    }
+
+    @Test
+    public void testFacetWithIndexMatchesSameRows() throws IOException {
+        Object[][] queries = {
+                { "text", "paris", false }, { "text", "Paris", true }, { "text", "i̇stanbul", false },
+                { "text", "σίσυφος", false }, { "text", "ΣΊΣ", true }, { "text", "234", false }, { "text", "ri", false },
+                { "regex", "par.s", false }, { "regex", "PAR[a-z]+AN", false }, { "regex", "Rio\\s+de", true },
+                { "regex", "^\\d+$", false }, { "regex", "lon|par", false } };
+        for (boolean invert : new boolean[] { false, true }) {
+            for (Object[] query : queries) {
+                ProjectManager.singleton.getPreferenceStore().put(TrigramIndex.THRESHOLD_PREFERENCE, 0);
+                BitSet expected = filter((String) query[0], (String) query[1], (Boolean) query[2], invert);
+                ProjectManager.singleton.getPreferenceStore().put(TrigramIndex.THRESHOLD_PREFERENCE, 1);
+                BitSet actual = filter((String) query[0], (String) query[1], (Boolean) query[2], invert);
+                assertEquals(actual, expected, Arrays.toString(query));
+            }
+        }
+    }
+
+    @Test
+    public void testSearchAfterReorderingRows() throws IOException {
+        assertEquals(filter("text", "paris", false, false), rows(0, 1, 2));
+        assertNotNull(TrigramIndex.get(project, column));
+
+        int count = project.rows.size();
+        List<Integer> reversed = new ArrayList<>();
+        for (int r = count - 1; r >= 0; r--) {
+            reversed.add(r);
+        }
+        RowReorderChange change = new RowReorderChange(reversed);
+        change.apply(project);
+        assertEquals(filter("text", "paris", false, false), rows(count - 1, count - 2, count - 3));
+        assertEquals(filter("regex", "^\\d+$", false, false), rows(0, count - 7));
+
+        change.revert(project);
+        assertEquals(filter("text", "paris", false, false), rows(0, 1, 2));
+    }
+}
@@ -31,6 +31,7 @@ import static org.testng.Assert.assertEquals;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
@@ -111,4 +112,36 @@ public class BinningClustererTests extends RefineTest {
         clusterer.computeClusters(new Engine(project));
         assertEquals(clusterer.getJsonRepresentation().size(), 1);
     }
+
+    @Test
+    public void testSplitVisitorsAreMerged() throws JsonParseException, JsonMappingException, IOException {
+        Project project = createProject(
+                new String[] { "column" },
+                new Serializable[][] {
+                        { "a" },
+                        { "à" },
+                        { "c" },
+                        { "a" },
+                        { "ĉ" },
+                        { "A" },
+                        { "c" }
+                });
+        BinningClustererConfig config = ParsingUtilities.mapper.readValue(configJson, BinningClustererConfig.class);
+        BinningClusterer clusterer = config.apply(project);
+
+        BinningClusterer.BinningRowVisitor sequential = clusterer.new BinningRowVisitor(clusterer._keyer, clusterer._parameters);
+        BinningClusterer.BinningRowVisitor merged = clusterer.new BinningRowVisitor(clusterer._keyer, clusterer._parameters);
+        // the halves share some keys and values, which must be summed
+        BinningClusterer.BinningRowVisitor first = (BinningClusterer.BinningRowVisitor) merged.split();
+        BinningClusterer.BinningRowVisitor second = (BinningClusterer.BinningRowVisitor) merged.split();
+        for (int r = 0; r < project.rows.size(); r++) {
+            sequential.visit(project, r, project.rows.get(r));
+            (r < 4 ? first : second).visit(project, r, project.rows.get(r));
+        }
+        merged.merge(first);
+        merged.merge(second);
+
+        assertEquals(merged.getMap(), sequential.getMap());
+        assertEquals(merged.getMap().get("a"), Map.of("a", 2, "à", 1, "A", 1));
+    }
 }
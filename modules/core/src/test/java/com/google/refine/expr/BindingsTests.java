@@ -0,0 +1,103 @@
+
+package com.google.refine.expr;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+public class BindingsTests {
+
+    Project project = new Project();
+
+    Row row(Object value) {
+        Row row = new Row(1);
+        row.setCell(0, new Cell((java.io.Serializable) value, null));
+        return row;
+    }
+
+    @Test
+    public void testCreateBindings() {
+        Properties bindings = ExpressionUtils.createBindings(project);
+        assertTrue(bindings instanceof Bindings);
+        assertSame(bindings.get("project"), project);
+        assertEquals(bindings.get("PI"), Math.PI);
+        assertFalse(bindings.containsKey("value"));
+        assertNull(bindings.get("row"));
+    }
+
+    @Test
+    public void testBindRow() {
+        Bindings bindings = (Bindings) ExpressionUtils.createBindings(project);
+        Row row = row("foo");
+        ExpressionUtils.bind(bindings, row, 3, "Col1", row.getCell(0));
+
+        assertEquals(bindings.get("value"), "foo");
+        assertEquals(bindings.getSlot(Bindings.VALUE), "foo");
+        assertEquals(bindings.get("rowIndex"), 3);
+        assertEquals(bindings.getProperty("columnName"), "Col1");
+        WrappedRow wrappedRow = (WrappedRow) bindings.get("row");
+        assertSame(wrappedRow.row, row);
+        // wrappers are created once per row
+        assertSame(bindings.get("row"), wrappedRow);
+        assertEquals(((WrappedCell) bindings.get("cell")).columnName, "Col1");
+        assertTrue(bindings.get("cells") instanceof CellTuple);
+
+        Row other = row("bar");
+        ExpressionUtils.bind(bindings, other, 4, null, null);
+        assertFalse(bindings.containsKey("value"));
+        assertFalse(bindings.containsKey("cell"));
+        assertEquals(bindings.get("columnName"), "Col1");
+        assertSame(((WrappedRow) bindings.get("row")).row, other);
+    }
+
+    @Test
+    public void testPutAndRemoveSlots() {
+        Bindings bindings = (Bindings) ExpressionUtils.createBindings(project);
+        bindings.put("value", 12);
+        assertEquals(bindings.getSlot(Bindings.VALUE), 12);
+        assertEquals(bindings.remove("value"), 12);
+        assertFalse(bindings.containsKey("value"));
+
+        bindings.put("baseColumnName", "Col1");
+        assertEquals(bindings.get("baseColumnName"), "Col1");
+    }
+
+    @Test
+    public void testEnumeration() {
+        Bindings bindings = (Bindings) ExpressionUtils.createBindings(project);
+        Row row = row("foo");
+        ExpressionUtils.bind(bindings, row, 0, "Col1", row.getCell(0));
+
+        assertTrue(bindings.keySet().contains("value"));
+        assertTrue(bindings.keySet().contains("cells"));
+        assertTrue(bindings.containsValue("foo"));
+
+        // the table is refreshed when the next row is bound
+        ExpressionUtils.bind(bindings, row, 1, "Col1", null);
+        assertFalse(bindings.keySet().contains("value"));
+        assertEquals(bindings.get("rowIndex"), 1);
+        assertTrue(bindings.keySet().contains("rowIndex"));
+    }
+
+    @Test
+    public void testClone() {
+        Bindings bindings = (Bindings) ExpressionUtils.createBindings(project);
+        Row row = row("foo");
+        ExpressionUtils.bind(bindings, row, 0, "Col1", row.getCell(0));
+
+        Bindings clone = (Bindings) bindings.clone();
+        clone.put("value", "bar");
+        assertEquals(bindings.get("value"), "foo");
+        assertEquals(clone.get("value"), "bar");
+    }
+}
@@ -0,0 +1,113 @@
+
+package com.google.refine.expr;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertThrows;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.preference.PreferenceStore;
+
+public class ExpressionCacheTests {
+
+    AtomicInteger parses;
+    boolean threadSafe;
+
+    LanguageSpecificParser parser = new LanguageSpecificParser() {
+
+        @Override
+        public Evaluable parse(String source, String languagePrefix) throws ParsingException {
+            parses.incrementAndGet();
+            if (source.isEmpty()) {
+                throw new ParsingException("empty expression");
+            }
+            boolean safe = threadSafe;
+            return new Evaluable() {
+
+                @Override
+                public Object evaluate(Properties bindings) {
+                    return source;
+                }
+
+                @Override
+                public boolean isThreadSafe() {
+                    return safe;
+                }
+            };
+        }
+    };
+
+    @BeforeMethod
+    public void setUp() {
+        parses = new AtomicInteger();
+        threadSafe = true;
+        MetaParser.registerLanguageParser("cachetest", "Cache test", parser, "value");
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        MetaParser.unregisterLanguageParser("cachetest");
+    }
+
+    @Test
+    public void testParsedExpressionsAreReused() throws ParsingException {
+        long hits = MetaParser.getCache().getHitCount();
+        long misses = MetaParser.getCache().getMissCount();
+
+        Evaluable first = MetaParser.parse("cachetest:foo");
+        Evaluable second = MetaParser.parse("cachetest:foo");
+        Evaluable other = MetaParser.parse("cachetest:bar");
+
+        assertSame(second, first);
+        assertEquals(other.evaluate(null), "bar");
+        assertEquals(parses.get(), 2);
+        assertEquals(MetaParser.getCache().getHitCount() - hits, 1);
+        assertEquals(MetaParser.getCache().getMissCount() - misses, 2);
+    }
+
+    @Test
+    public void testUnsafeExpressionsAreNotCached() throws ParsingException {
+        threadSafe = false;
+        assertNotSame(MetaParser.parse("cachetest:foo"), MetaParser.parse("cachetest:foo"));
+        assertEquals(parses.get(), 2);
+    }
+
+    @Test
+    public void testParsingErrorsAreNotCached() {
+        assertThrows(ParsingException.class, () -> MetaParser.parse("cachetest:"));
+        assertThrows(ParsingException.class, () -> MetaParser.parse("cachetest:"));
+        assertEquals(parses.get(), 2);
+    }
+
+    @Test
+    public void testRegistrationClearsCache() throws ParsingException {
+        Evaluable first = MetaParser.parse("cachetest:foo");
+        MetaParser.registerLanguageParser("cachetest", "Cache test", parser, "value");
+        assertNotSame(MetaParser.parse("cachetest:foo"), first);
+    }
+
+    @Test
+    public void testPreferenceChangeClearsCache() throws ParsingException {
+        Evaluable first = MetaParser.parse("cachetest:foo");
+        new PreferenceStore().put("grel.compile", "false");
+        assertNotSame(MetaParser.parse("cachetest:foo"), first);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAreEvicted() throws ParsingException {
+        ExpressionCache cache = new ExpressionCache();
+        Evaluable first = cache.get("cachetest", "0", parser);
+        for (int i = 1; i <= ExpressionCache.MAX_ENTRIES; i++) {
+            cache.get("cachetest", Integer.toString(i), parser);
+        }
+        assertEquals(cache.size(), ExpressionCache.MAX_ENTRIES);
+        assertNotSame(cache.get("cachetest", "0", parser), first);
+    }
+}
@@ -0,0 +1,39 @@
+
+package com.google.refine.importers;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.model.Cell;
+
+public class CellInternerTests {
+
+    @Test
+    public void testEqualValuesShareCells() {
+        CellInterner interner = new CellInterner(10);
+        Cell first = interner.intern(new String("open"));
+        Cell second = interner.intern(new String("open"));
+
+        assertSame(second, first);
+        assertNotSame(interner.intern(12L), first);
+        assertTrue(interner.isEnabled());
+        assertEquals(interner.getSavedBytes(), CellInterner.estimateSize("open"));
+    }
+
+    @Test
+    public void testSharingStopsAboveCardinalityLimit() {
+        CellInterner interner = new CellInterner(2);
+        interner.intern("a");
+        interner.intern("b");
+        Cell c = interner.intern("c");
+
+        assertFalse(interner.isEnabled());
+        assertEquals(c.value, "c");
+        assertNotSame(interner.intern("a"), interner.intern("a"));
+    }
+}
@@ -29,10 +29,13 @@ package com.google.refine.io;
 
 import static org.mockito.Mockito.mock;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertThrows;
 import static org.testng.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -41,12 +44,20 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import com.google.refine.ProjectManager;
 import com.google.refine.ProjectMetadata;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
 import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
 import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.TestUtils;
 
@@ -161,6 +172,45 @@ public class FileProjectManagerTests {
         assertEquals(manager.getProjectID("B"), idB);
     }
 
+    @Test
+    public void testExportCheckpointsJournaledProject() throws IOException, ModelException {
+        FileProjectManager manager = new FileProjectManager(workspaceDir);
+        ProjectManager previous = ProjectManager.singleton;
+        ProjectManager.singleton = manager;
+        try {
+            manager.getPreferenceStore().put(ProjectJournal.THRESHOLD_PREFERENCE, 1024 * 1024);
+            Project project = new Project();
+            project.columnModel.addColumn(0, new Column(0, "a"), false);
+            Row row = new Row(1);
+            row.setCell(0, new Cell("x", null));
+            project.rows.add(row);
+            project.update();
+            ProjectMetadata metadata = new ProjectMetadata();
+            metadata.setName("journaled");
+            manager.registerProject(project, metadata);
+            ProjectUtilities.save(project);
+
+            CellChange change = new CellChange(0, 0, row.getCell(0), new Cell("x2", null));
+            project.history.addEntry(new HistoryEntry(HistoryEntry.allocateID(), project, "edit", null, change));
+            ProjectUtilities.save(project);
+            File dir = manager.getProjectDir(project.id);
+            assertTrue(new File(dir, ProjectJournal.JOURNAL_FILE).exists());
+
+            ByteArrayOutputStream archive = new ByteArrayOutputStream();
+            try (TarArchiveOutputStream tos = new TarArchiveOutputStream(archive)) {
+                manager.exportProject(project.id, tos);
+            }
+            File exported = TestUtils.createTempDirectory("openrefine-project-export-test");
+            manager.untar(exported, new ByteArrayInputStream(archive.toByteArray()));
+
+            assertFalse(new File(exported, ProjectJournal.JOURNAL_FILE).exists());
+            Project loaded = ProjectUtilities.loadFromFile(new File(exported, ProjectUtilities.DATA_ZIP), project.id);
+            assertEquals(loaded.rows.get(0).getCellValue(0), "x2");
+        } finally {
+            ProjectManager.singleton = previous;
+        }
+    }
+
     @Test
     public void testUntarZipSlip() throws IOException {
         FileProjectManager manager = new FileProjectManagerStub(workspaceDir);
@@ -0,0 +1,111 @@
+
+package com.google.refine.io;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineTest;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.util.TestUtils;
+
+public class ProjectJournalTests extends RefineTest {
+
+    File dir;
+    File dataFile;
+    Project project;
+
+    @BeforeMethod
+    public void setUpProject() throws IOException {
+        dir = TestUtils.createTempDirectory("openrefine-project-journal-test");
+        dataFile = new File(dir, ProjectUtilities.DATA_ZIP);
+        project = createProject(new String[] { "a" },
+                new Serializable[][] {
+                        { "x" },
+                        { "y" },
+                });
+        ProjectManager.singleton.getPreferenceStore().put(ProjectJournal.THRESHOLD_PREFERENCE, 1024 * 1024);
+        ProjectUtilities.saveToFile(project, dataFile, true, "checkpoint1");
+        ProjectJournal.checkpointed(project, dir, "checkpoint1");
+    }
+
+    protected void editCell(int row, String value) {
+        Cell oldCell = project.rows.get(row).getCell(0);
+        CellChange change = new CellChange(row, 0, oldCell, new Cell(value, null));
+        project.history.addEntry(new HistoryEntry(HistoryEntry.allocateID(), project, "edit", null, change));
+    }
+
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        editCell(0, "x2");
+        assertTrue(ProjectJournal.append(project, dir));
+        editCell(1, "y2");
+        assertTrue(ProjectJournal.append(project, dir));
+        assertTrue(new File(dir, ProjectJournal.JOURNAL_FILE).exists());
+
+        Project loaded = ProjectUtilities.loadFromFile(dataFile, project.id);
+        assertEquals(loaded.rows.get(0).getCellValue(0), "x");
+        ProjectJournal.replay(loaded, dir, ProjectUtilities.loadCheckpointId(dataFile));
+
+        assertEquals(loaded.rows.get(0).getCellValue(0), "x2");
+        assertEquals(loaded.rows.get(1).getCellValue(0), "y2");
+        assertEquals(loaded.history.getLastPastEntries(0).size(), 2);
+    }
+
+    @Test
+    public void testChangesOutsideHistoryAreReplayed() throws IOException {
+        editCell(0, "x2");
+        // as done by commands which do not add history entries
+        project.columnModel.columns.get(0).setName("renamed");
+        project.columnModel.update();
+        assertTrue(ProjectJournal.append(project, dir));
+
+        Project loaded = ProjectUtilities.loadFromFile(dataFile, project.id);
+        ProjectJournal.replay(loaded, dir, ProjectUtilities.loadCheckpointId(dataFile));
+
+        assertEquals(loaded.rows.get(0).getCellValue(0), "x2");
+        assertEquals(loaded.columnModel.columns.size(), 1);
+        assertEquals(loaded.columnModel.getColumnByName("renamed").getCellIndex(), 0);
+    }
+
+    @Test
+    public void testStaleJournalIsIgnored() throws IOException {
+        editCell(0, "x2");
+        assertTrue(ProjectJournal.append(project, dir));
+
+        Project loaded = ProjectUtilities.loadFromFile(dataFile, project.id);
+        ProjectJournal.replay(loaded, dir, "checkpoint2");
+
+        assertEquals(loaded.rows.get(0).getCellValue(0), "x");
+        assertEquals(loaded.history.getLastPastEntries(0).size(), 0);
+    }
+
+    @Test
+    public void testJournalIsDisabledByDefault() throws IOException {
+        ProjectManager.singleton.getPreferenceStore().put(ProjectJournal.THRESHOLD_PREFERENCE, null);
+        editCell(0, "x2");
+        assertFalse(ProjectJournal.append(project, dir));
+        assertFalse(new File(dir, ProjectJournal.JOURNAL_FILE).exists());
+    }
+
+    @Test
+    public void testUndoRequiresCheckpoint() throws IOException {
+        editCell(0, "x2");
+        assertTrue(ProjectJournal.append(project, dir));
+        project.history.undoRedo(0);
+        editCell(1, "y2");
+
+        assertFalse(ProjectJournal.append(project, dir));
+    }
+}
@@ -0,0 +1,204 @@
+
+package com.google.refine.io;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.expr.EvalError;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.ProjectSnapshot;
+import com.google.refine.model.Recon;
+import com.google.refine.model.Row;
+import com.google.refine.util.TestUtils;
+
+public class ProjectUtilitiesTests extends RefineTest {
+
+    File tempDir;
+    Project project;
+    Recon recon;
+
+    @BeforeMethod
+    public void setUpProject() throws IOException {
+        tempDir = TestUtils.createTempDirectory("openrefine-project-utilities-test");
+        project = createProject("project utilities test",
+                new String[] { "a", "b", "c" },
+                new Serializable[][] {
+                        { "foo", 12L, 3.5 },
+                        { "foo", true, null },
+                        { OffsetDateTime.of(2024, 1, 2, 3, 4, 5, 6, ZoneOffset.UTC), new EvalError("boom"), 7 },
+                });
+        recon = Recon.makeWikidataRecon(1234L);
+        recon.judgment = Recon.Judgment.Matched;
+        project.rows.get(0).setCell(0, new Cell("foo", recon));
+        project.rows.get(1).flagged = true;
+        project.rows.get(2).starred = true;
+        project.rows.get(1).setCell(4, new Cell(Double.NaN, null));
+    }
+
+    @Test
+    public void testColumnarRoundTrip() throws IOException {
+        File file = new File(tempDir, "columnar.zip");
+        ProjectUtilities.saveToFile(project, file, true);
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            assertNotNull(zipFile.getEntry(ColumnarRowSnapshot.ENTRY_NAME));
+        }
+        assertSameRows(ProjectUtilities.loadFromFile(file, project.id));
+    }
+
+    @Test
+    public void testBigNumbersKeepTheirPrecision() throws IOException {
+        BigDecimal decimal = new BigDecimal("12345678901234567890.123456789");
+        BigInteger integer = new BigInteger("123456789012345678901234567890");
+        project.rows.get(1).setCell(2, new Cell(decimal, null));
+        project.rows.get(2).setCell(1, new Cell(integer, null));
+
+        File file = new File(tempDir, "big-numbers.zip");
+        ProjectUtilities.saveToFile(project, file, true);
+
+        Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+        assertEquals(loaded.rows.get(1).getCellValue(2), decimal);
+        assertEquals(loaded.rows.get(2).getCellValue(1), integer);
+    }
+
+    @Test
+    public void testLineBasedFormatIsTheDefault() {
+        assertEquals(ProjectUtilities.getRowFormatPreference(), ProjectUtilities.ROW_FORMAT_JSON);
+        assertFalse(ProjectUtilities.useColumnarRows(project));
+    }
+
+    @Test
+    public void testLegacyFormatStillLoads() throws IOException {
+        File file = new File(tempDir, "legacy.zip");
+        ProjectUtilities.saveToFile(project, file, false);
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            assertNull(zipFile.getEntry(ColumnarRowSnapshot.ENTRY_NAME));
+        }
+        Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+        assertEquals(loaded.rows.size(), project.rows.size());
+        assertEquals(loaded.rows.get(0).getCell(0).recon.id, recon.id);
+        assertEquals(loaded.rows.get(0).getCellValue(0), "foo");
+    }
+
+    @DataProvider(name = "codecs")
+    public Object[][] codecs() {
+        ArchiveCodec[] codecs = ArchiveCodec.values();
+        Object[][] result = new Object[codecs.length][];
+        for (int i = 0; i < codecs.length; i++) {
+            result[i] = new Object[] { codecs[i] };
+        }
+        return result;
+    }
+
+    @Test(dataProvider = "codecs")
+    public void testCodecRoundTrip(ArchiveCodec codec) throws IOException {
+        File file = new File(tempDir, codec.getId() + ".zip");
+        try (ProjectSnapshot snapshot = project.snapshot()) {
+            ProjectUtilities.saveToFile(snapshot, file, true, "checkpoint", codec);
+        }
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            assertEquals(ArchiveCodec.detect(zipFile), codec);
+            assertEquals(zipFile.getEntry(ArchiveCodec.ENTRY_NAME) == null, codec == ArchiveCodec.DEFLATE);
+        }
+        assertSameRows(ProjectUtilities.loadFromFile(file, project.id));
+        assertEquals(ProjectUtilities.loadCheckpointId(file), "checkpoint");
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges() throws IOException {
+        Row row = project.rows.get(1);
+        ProjectSnapshot snapshot = project.snapshot();
+        assertFalse(snapshot.isLive());
+        project.getRowForUpdate(1).setCell(0, new Cell("changed", null));
+        project.getRowForUpdate(1).flagged = false;
+        project.rows.add(new Row(3));
+        // the row shared with the snapshot was copied rather than modified, and only once
+        assertNotSame(project.rows.get(1), row);
+        assertEquals(project.rows.get(1).getCellValue(0), "changed");
+        assertFalse(project.rows.get(1).flagged);
+        assertEquals(row.getCellValue(0), "foo");
+        assertSame(snapshot.rows.get(1), row);
+        assertSame(project.rows.get(0), snapshot.rows.get(0));
+
+        for (boolean columnar : new boolean[] { true, false }) {
+            File file = new File(tempDir, "snapshot-" + columnar + ".zip");
+            ProjectUtilities.saveToFile(snapshot, file, columnar, null);
+
+            Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+            assertEquals(loaded.rows.size(), 3);
+            assertEquals(loaded.rows.get(1).getCellValue(0), "foo");
+            assertTrue(loaded.rows.get(1).flagged);
+        }
+        snapshot.close();
+
+        // once the snapshot is closed, rows are modified in place
+        row = project.rows.get(0);
+        project.getRowForUpdate(0).starred = true;
+        assertSame(project.rows.get(0), row);
+    }
+
+    @Test
+    public void testRowsReadDuringSnapshotAreNotCopied() throws IOException {
+        List<Row> rows = new ArrayList<>(project.rows);
+        ProjectSnapshot snapshot = project.snapshot();
+        for (int i = 0; i < rows.size(); i++) {
+            assertSame(project.rows.get(i), rows.get(i));
+        }
+        assertEquals(new ArrayList<>(project.rows), rows);
+        for (int i = 0; i < rows.size(); i++) {
+            assertSame(project.rows.get(i), rows.get(i));
+        }
+        snapshot.close();
+    }
+
+    protected void assertSameRows(Project loaded) {
+        assertEquals(loaded.rows.size(), project.rows.size());
+        for (int i = 0; i < project.rows.size(); i++) {
+            Row expected = project.rows.get(i);
+            Row actual = loaded.rows.get(i);
+            assertEquals(actual.flagged, expected.flagged);
+            assertEquals(actual.starred, expected.starred);
+            assertEquals(actual.cells.size(), expected.cells.size());
+            for (int j = 0; j < expected.cells.size(); j++) {
+                Cell expectedCell = expected.cells.get(j);
+                Cell actualCell = actual.cells.get(j);
+                if (expectedCell == null) {
+                    assertNull(actualCell);
+                    continue;
+                }
+                assertEquals(actualCell.value, expectedCell.value);
+                assertEquals(actualCell.recon == null, expectedCell.recon == null);
+            }
+        }
+
+        Cell reconciled = loaded.rows.get(0).getCell(0);
+        assertEquals(reconciled.recon.id, recon.id);
+        assertEquals(reconciled.recon.judgment, Recon.Judgment.Matched);
+        assertTrue(loaded.rows.get(0).getCellValue(1) instanceof Long);
+        assertFalse(loaded.rows.get(2).getCellValue(2) instanceof Long);
+    }
+}
@@ -0,0 +1,117 @@
+
+package com.google.refine.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jol.info.GraphLayout;
+import org.testng.annotations.Test;
+
+public class CompactCellListTests {
+
+    /**
+     * Number of rows of the synthetic project used to compare memory footprints. It can be raised to the reference 1M
+     * rows with {@code -Dcompact.cells.rows=1000000} and a large enough heap.
+     */
+    static final int FOOTPRINT_ROWS = Integer.getInteger("compact.cells.rows", 20000);
+    static final int FOOTPRINT_COLUMNS = 20;
+
+    @Test
+    public void testValuesAreRestored() {
+        Recon recon = Recon.makeWikidataRecon(1234L);
+        List<Cell> cells = Arrays.asList(
+                new Cell("foo", null),
+                new Cell(12L, null),
+                new Cell(7, recon),
+                new Cell(3.5, null),
+                new Cell(Double.NaN, null),
+                new Cell(true, null),
+                new Cell(false, null),
+                new Cell(null, recon),
+                null,
+                new Cell(OffsetDateTime.of(2024, 1, 2, 3, 4, 5, 6, ZoneOffset.UTC), null));
+        CompactCellList list = new CompactCellList(cells);
+
+        assertEquals(list, cells);
+        assertTrue(list.get(1).value instanceof Long);
+        assertTrue(list.get(2).value instanceof Integer);
+        assertEquals(list.get(2).recon, recon);
+        assertNull(list.get(8));
+    }
+
+    @Test
+    public void testModifications() {
+        List<Cell> expected = new ArrayList<>();
+        CompactCellList list = new CompactCellList(0);
+        for (int i = 0; i < 10; i++) {
+            Cell cell = i % 2 == 0 ? new Cell((long) i, null) : new Cell("cell " + i, null);
+            expected.add(cell);
+            list.add(cell);
+        }
+        assertEquals(list, expected);
+
+        Recon recon = Recon.makeWikidataRecon(1L);
+        for (List<Cell> l : Arrays.<List<Cell>> asList(expected, list)) {
+            l.add(3, new Cell(2.5, recon));
+            l.remove(0);
+            l.set(5, null);
+            l.set(6, new Cell("replaced", null));
+        }
+        assertEquals(list, expected);
+        assertEquals(list.get(2).recon, recon);
+
+        list.clear();
+        assertEquals(list.size(), 0);
+    }
+
+    @Test
+    public void testRowSetCell() {
+        Row row = new Row(new CompactCellList(0), false, false);
+        row.setCell(3, new Cell(42L, null));
+        assertEquals(row.cells.size(), 4);
+        assertNull(row.getCell(0));
+        assertEquals(row.getCellValue(3), 42L);
+    }
+
+    @Test
+    public void testFootprint() {
+        String[] statuses = { "open", "closed", "pending", "unknown" };
+        List<Row> regular = new ArrayList<>(FOOTPRINT_ROWS);
+        List<Row> compact = new ArrayList<>(FOOTPRINT_ROWS);
+        for (int i = 0; i < FOOTPRINT_ROWS; i++) {
+            List<Cell> cells = new ArrayList<>(FOOTPRINT_COLUMNS);
+            for (int j = 0; j < FOOTPRINT_COLUMNS; j++) {
+                Serializable value;
+                switch (j % 4) {
+                    case 0:
+                        value = (long) i * j;
+                        break;
+                    case 1:
+                        value = i * 0.5 + j;
+                        break;
+                    case 2:
+                        value = i % 3 == 0;
+                        break;
+                    default:
+                        value = statuses[(i + j) % statuses.length];
+                }
+                cells.add(new Cell(value, null));
+            }
+            regular.add(new Row(cells, false, false));
+            compact.add(new Row(new CompactCellList(cells), false, false));
+        }
+
+        long regularBytes = GraphLayout.parseInstance(regular).totalSize();
+        long compactBytes = GraphLayout.parseInstance(compact).totalSize();
+
+        assertTrue(compactBytes * 2 < regularBytes, "compact: " + compactBytes + " bytes, regular: " + regularBytes + " bytes");
+    }
+}
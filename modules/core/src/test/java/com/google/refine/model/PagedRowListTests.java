@@ -0,0 +1,234 @@
+
+package com.google.refine.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PagedRowListTests {
+
+    PagedRowList rows;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        rows = PagedRowList.create(3);
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        rows.close();
+    }
+
+    protected Row makeRow(String value) {
+        Row row = new Row(2);
+        row.setCell(0, new Cell(value, null));
+        row.setCell(1, new Cell(value.length(), null));
+        return row;
+    }
+
+    protected List<Object> values() {
+        List<Object> values = new ArrayList<>();
+        for (Row row : rows) {
+            values.add(row.getCellValue(0));
+        }
+        return values;
+    }
+
+    @Test
+    public void testRowsArePagedOut() {
+        for (int i = 0; i < 100; i++) {
+            rows.add(makeRow("row " + i));
+        }
+
+        assertEquals(rows.size(), 100);
+        assertEquals(rows.getHotRowCount(), 3);
+        assertTrue(rows.getStoredBytes() > 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(rows.get(i).getCellValue(0), "row " + i);
+        }
+        assertEquals(rows.getHotRowCount(), 3);
+    }
+
+    @Test
+    public void testInPlaceModificationsAreWrittenBack() {
+        for (int i = 0; i < 10; i++) {
+            rows.add(makeRow("row " + i));
+        }
+        Row first = rows.get(0);
+        first.setCell(0, new Cell("modified", null));
+        first.starred = true;
+        for (int i = 1; i < 10; i++) {
+            rows.get(i);
+        }
+
+        Row reloaded = rows.get(0);
+        assertNotSame(reloaded, first);
+        assertEquals(reloaded.getCellValue(0), "modified");
+        assertTrue(reloaded.starred);
+        assertFalse(rows.get(1).starred);
+    }
+
+    @Test
+    public void testRowsModifiedDuringUpdateAreKept() {
+        for (int i = 0; i < 10; i++) {
+            rows.add(makeRow("row " + i));
+        }
+        rows.beginUpdate();
+        List<Row> held = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            held.add(rows.get(i));
+        }
+        // modified after they left the hot set
+        for (Row row : held) {
+            row.flagged = true;
+        }
+        assertSame(rows.get(0), held.get(0));
+        rows.endUpdate();
+
+        for (int i = 0; i < 10; i++) {
+            rows.get(i);
+        }
+        assertEquals(rows.getHotRowCount(), 3);
+        for (Row row : rows) {
+            assertTrue(row.flagged);
+        }
+    }
+
+    @Test
+    public void testModifiedRowsAreWrittenBackDuringUpdate() {
+        for (int i = 0; i < 100; i++) {
+            rows.add(makeRow("row " + i));
+        }
+        rows.beginUpdate();
+        long stored = rows.getStoredBytes();
+        for (int i = 0; i < 100; i++) {
+            rows.get(i).setCell(0, new Cell("modified " + i, null));
+        }
+        assertEquals(rows.getHotRowCount(), 3);
+        assertTrue(rows.getStoredBytes() > stored);
+        rows.endUpdate();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(rows.get(i).getCellValue(0), "modified " + i);
+        }
+    }
+
+    @Test
+    public void testUnusedReconsAreDroppedOnCompaction() {
+        rows.minGarbageBytes = 0;
+        for (int i = 0; i < 10; i++) {
+            rows.add(makeRow("row " + i));
+        }
+        List<Recon> recons = new ArrayList<>();
+        for (int round = 0; round < 20; round++) {
+            Recon recon = Recon.makeWikidataRecon(round);
+            recons.add(recon);
+            rows.get(0).setCell(0, new Cell("reconciled", recon));
+            for (int i = 1; i < 10; i++) {
+                rows.get(i);
+            }
+        }
+
+        assertEquals(rows.pool.getRecon(Long.toString(recons.get(0).id)), null);
+        assertEquals(rows.get(0).getCell(0).recon.id, recons.get(19).id);
+    }
+
+    @Test
+    public void testRewrittenRowsAreCompacted() {
+        rows.minGarbageBytes = 0;
+        for (int i = 0; i < 10; i++) {
+            rows.add(makeRow("row " + i));
+        }
+        rows.get(9);
+        for (int i = 0; i < 10; i++) {
+            rows.get(i);
+        }
+        long stored = rows.getStoredBytes();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                rows.get(i).setCell(0, new Cell("row " + i + " round " + round, null));
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            rows.get(i);
+        }
+
+        assertTrue(rows.getStoredBytes() < 4 * stored, "stored bytes: " + rows.getStoredBytes());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(rows.get(i).getCellValue(0), "row " + i + " round 19");
+        }
+    }
+
+    @Test
+    public void testUnmodifiedRowsAreNotRewritten() {
+        for (int i = 0; i < 10; i++) {
+            rows.add(makeRow("row " + i));
+        }
+        rows.get(9); // flush the last rows added
+        for (int i = 0; i < 10; i++) {
+            rows.get(i);
+        }
+        long stored = rows.getStoredBytes();
+        for (int i = 0; i < 10; i++) {
+            rows.get(i);
+        }
+        assertEquals(rows.getStoredBytes(), stored);
+    }
+
+    @Test
+    public void testStructuralModifications() {
+        for (int i = 0; i < 6; i++) {
+            rows.add(makeRow(Integer.toString(i)));
+        }
+        rows.add(2, makeRow("a"));
+        rows.remove(0);
+        rows.set(4, makeRow("b"));
+        rows.addAll(1, Arrays.asList(makeRow("c"), makeRow("d")));
+
+        assertEquals(values(), Arrays.asList("1", "c", "d", "a", "2", "3", "b", "5"));
+
+        rows.clear();
+        assertEquals(rows.size(), 0);
+        assertEquals(rows.getStoredBytes(), 0);
+        rows.add(makeRow("e"));
+        assertEquals(values(), Arrays.asList("e"));
+    }
+
+    @Test
+    public void testReconsArePreserved() {
+        Recon recon = Recon.makeWikidataRecon(1234L);
+        recon.judgment = Recon.Judgment.Matched;
+        Row row = makeRow("reconciled");
+        row.setCell(0, new Cell("reconciled", recon));
+        rows.add(row);
+        for (int i = 0; i < 10; i++) {
+            rows.add(makeRow("row " + i));
+        }
+
+        Cell cell = rows.get(0).getCell(0);
+        assertEquals(cell.recon.id, recon.id);
+        assertEquals(cell.recon.judgment, Recon.Judgment.Matched);
+    }
+
+    @Test
+    public void testCloseDeletesFile() throws IOException {
+        File file = File.createTempFile("openrefine-paged-rows-test", ".bin");
+        PagedRowList list = new PagedRowList(file, 1);
+        list.add(makeRow("x"));
+        list.add(makeRow("y"));
+        list.close();
+        assertFalse(file.exists());
+    }
+}
@@ -0,0 +1,76 @@
+
+package com.google.refine.model;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.util.Pool;
+
+public class ParallelRowLoaderTests {
+
+    ForkJoinPool forkJoinPool;
+    Pool pool;
+
+    @BeforeMethod
+    public void setUp() {
+        forkJoinPool = new ForkJoinPool(4);
+        pool = new Pool();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        forkJoinPool.shutdown();
+    }
+
+    protected String serializeRows(int count) {
+        StringWriter writer = new StringWriter();
+        Properties options = new Properties();
+        for (int i = 0; i < count; i++) {
+            Row row = new Row(2);
+            row.setCell(0, new Cell("row " + i, null));
+            row.setCell(1, new Cell((long) i, null));
+            row.starred = i % 3 == 0;
+            row.save(writer, options);
+            writer.write('\n');
+        }
+        return writer.toString();
+    }
+
+    @Test
+    public void testRowOrderIsPreserved() throws IOException {
+        LineNumberReader reader = new LineNumberReader(new StringReader(serializeRows(100) + "trailing=line\n"));
+        ParallelRowLoader loader = new ParallelRowLoader(pool, forkJoinPool, 7);
+
+        List<Row> rows = loader.load(reader, 100);
+
+        assertEquals(rows.size(), 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(rows.get(i).getCellValue(0), "row " + i);
+            assertEquals(rows.get(i).starred, i % 3 == 0);
+        }
+        // the loader must not consume lines past the row section
+        assertEquals(reader.readLine(), "trailing=line");
+    }
+
+    @Test
+    public void testTruncatedRowSection() throws IOException {
+        LineNumberReader reader = new LineNumberReader(new StringReader(serializeRows(20)));
+        ParallelRowLoader loader = new ParallelRowLoader(pool, forkJoinPool, 3);
+
+        List<Row> rows = loader.load(reader, 50);
+
+        assertEquals(rows.size(), 20);
+        assertEquals(rows.get(19).getCellValue(0), "row 19");
+    }
+}
@@ -0,0 +1,98 @@
+
+package com.google.refine.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineTest;
+
+public class PrecomputeCacheTests extends RefineTest {
+
+    static class SizedValue implements PrecomputeCache.Sized {
+
+        final long size;
+
+        SizedValue(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public long getEstimatedSize() {
+            return size;
+        }
+    }
+
+    ColumnModel columnModel;
+    Column foo;
+    Column bar;
+
+    @BeforeMethod
+    public void setUpColumns() throws ModelException {
+        ProjectManager.singleton.getPreferenceStore().put(PrecomputeCache.MAX_SIZE_PREFERENCE, 3000);
+        columnModel = new ColumnModel();
+        foo = new Column(0, "foo");
+        bar = new Column(1, "bar");
+        columnModel.addColumn(0, foo, false);
+        columnModel.addColumn(1, bar, false);
+        columnModel.update();
+    }
+
+    @AfterMethod
+    public void resetPreference() {
+        ProjectManager.singleton.getPreferenceStore().put(PrecomputeCache.MAX_SIZE_PREFERENCE, null);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedValuesAreEvictedAcrossColumns() {
+        SizedValue first = new SizedValue(1000);
+        foo.setPrecompute("first", first);
+        bar.setPrecompute("second", new SizedValue(1000));
+        foo.setPrecompute("third", new SizedValue(1000));
+        assertSame(foo.getPrecompute("first"), first);
+
+        bar.setPrecompute("fourth", new SizedValue(1000));
+
+        assertNull(bar.getPrecompute("second"));
+        assertSame(foo.getPrecompute("first"), first);
+        assertNull(bar.getPrecompute("first"));
+        PrecomputeCache.Stats stats = columnModel.getPrecomputeCache().getStats();
+        assertEquals(stats.entries, 3);
+        assertEquals(stats.estimatedBytes, 3000);
+        assertEquals(stats.budget, 3000);
+        assertEquals(stats.hits, 2);
+        assertEquals(stats.misses, 2);
+        assertEquals(stats.evictions, 1);
+    }
+
+    @Test
+    public void testValuesLargerThanTheBudgetAreKept() {
+        foo.setPrecompute("small", "value");
+        SizedValue large = new SizedValue(5000);
+        bar.setPrecompute("large", large);
+
+        assertNull(foo.getPrecompute("small"));
+        assertSame(bar.getPrecompute("large"), large);
+        assertEquals(columnModel.getPrecomputeCache().getStats().entries, 1);
+    }
+
+    @Test
+    public void testValuesAreDroppedWithTheirColumn() {
+        foo.setPrecompute("key", new SizedValue(1000));
+        bar.setPrecompute("key", new SizedValue(1000));
+
+        foo.clearPrecomputes();
+        assertNull(foo.getPrecompute("key"));
+        assertEquals(columnModel.getPrecomputeCache().getStats().estimatedBytes, 1000);
+
+        foo.setPrecompute("key", new SizedValue(1000));
+        columnModel.columns.remove(bar);
+        columnModel.update();
+        assertEquals(columnModel.getPrecomputeCache().getStats().estimatedBytes, 1000);
+    }
+}
@@ -0,0 +1,88 @@
+
+package com.google.refine.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.model.Recon;
+
+public class StreamingPoolTests {
+
+    @Test
+    public void testSavedPoolLoadsBack() throws IOException {
+        int count = StreamingPool.BLOCK_SIZE * 2 + 10;
+        Recon[] recons = new Recon[count];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Path spoolFile;
+        try (StreamingPool pool = new StreamingPool()) {
+            spoolFile = pool.spoolFile;
+            for (int i = 0; i < count; i++) {
+                recons[i] = new Recon(0L, "http://example.com/space", "http://example.com/schema");
+                pool.pool(recons[i]);
+                pool.pool(recons[i / 2]);
+            }
+            assertEquals(pool.getReconCount(), count);
+            pool.save(out);
+        }
+        assertFalse(Files.exists(spoolFile));
+
+        Pool loaded = new Pool();
+        loaded.load(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(loaded.recons.size(), count);
+        for (Recon recon : recons) {
+            assertNotNull(loaded.getRecon(Long.toString(recon.id)));
+        }
+    }
+
+    @Test
+    public void testPooledReconsCanBeReadBack() throws IOException {
+        try (StreamingPool pool = new StreamingPool()) {
+            Recon[] recons = new Recon[StreamingPool.BLOCK_SIZE + 10];
+            for (int i = 0; i < recons.length; i++) {
+                recons[i] = new Recon(0L, "http://example.com/space", "http://example.com/schema");
+                recons[i].error = "é" + i;
+                pool.pool(recons[i]);
+            }
+            // recons are read back from both flushed and pending blocks
+            for (Recon recon : recons) {
+                Recon readBack = pool.getRecon(Long.toString(recon.id));
+                assertEquals(readBack.id, recon.id);
+                assertEquals(readBack.error, recon.error);
+            }
+            assertNull(pool.getRecon("1"));
+            assertNull(pool.getRecon("not an id"));
+        }
+    }
+
+    @Test
+    public void testLongLongHashMap() {
+        LongLongHashMap map = new LongLongHashMap();
+        for (long i = -1000; i < 1000; i++) {
+            assertTrue(map.putIfAbsent(i * 7919, i));
+        }
+        assertFalse(map.putIfAbsent(0L, 1L));
+        assertFalse(map.putIfAbsent(7919L, 2L));
+        assertEquals(map.size(), 2000);
+        assertTrue(map.containsKey(-7919L));
+        assertFalse(map.containsKey(1L));
+        assertEquals(map.get(0L, -1L), 0L);
+        assertEquals(map.get(7919L, -1L), 1L);
+        assertEquals(map.get(1L, -1L), -1L);
+        map.replace(-7919L, 42L);
+        assertEquals(map.get(-7919L, -1L), 42L);
+        map.clear();
+        assertFalse(map.containsKey(0L));
+        assertEquals(map.size(), 0);
+    }
+}
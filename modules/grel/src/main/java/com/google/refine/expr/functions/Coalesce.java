@@ -38,10 +38,10 @@ import java.util.Properties;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class Coalesce implements Function {
+public class Coalesce implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -72,5 +72,4 @@ public class Coalesce implements Function {
     public String getReturns() {
         return "object or null";
     }
-
 }
@@ -38,10 +38,10 @@ import java.util.Properties;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import com.google.refine.expr.HasFields;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class HasField implements Function {
+public class HasField implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
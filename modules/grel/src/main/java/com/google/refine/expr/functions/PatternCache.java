@@ -0,0 +1,65 @@
+
+package com.google.refine.expr.functions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Regular expressions compiled by GREL functions which accept a pattern given as a string, such as {@code match}, and
+ * by the parser for regular expression literals. Patterns are immutable, so they are shared by all threads. The cache
+ * is emptied when it is full rather than tracking the least recently used patterns, so that looking up a pattern does
+ * not take a lock while rows are evaluated in parallel.
+ *
+ * @since 3.10
+ */
+public class PatternCache {
+
+    static final int MAX_ENTRIES = 256;
+
+    static final private Map<String, Pattern> s_patterns = new ConcurrentHashMap<>();
+
+    /**
+     * Characters which have a special meaning in a regular expression, outside of character classes.
+     */
+    static final private String METACHARACTERS = "\\^$.|?*+()[]{}";
+
+    /**
+     * Returns a compiled pattern, compiling it if it is not cached.
+     *
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the expression is invalid
+     */
+    static public Pattern get(String regex, int flags) {
+        String key = flags + ":" + regex;
+        Pattern pattern = s_patterns.get(key);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex, flags);
+            if (s_patterns.size() >= MAX_ENTRIES) {
+                s_patterns.clear();
+            }
+            s_patterns.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    static public Pattern get(String regex) {
+        return get(regex, 0);
+    }
+
+    /**
+     * @return whether the expression only matches itself, so that it can be compared as a string instead
+     */
+    static public boolean isLiteral(String regex) {
+        for (int i = 0; i < regex.length(); i++) {
+            if (METACHARACTERS.indexOf(regex.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int size() {
+        return s_patterns.size();
+    }
+}
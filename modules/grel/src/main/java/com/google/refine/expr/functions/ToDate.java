@@ -34,18 +34,25 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.expr.functions;
 
 import java.text.DateFormat;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
+import java.util.HashSet;
 import java.util.IllformedLocaleException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.google.common.base.CharMatcher;
 import org.apache.commons.lang3.StringUtils;
@@ -55,11 +62,57 @@ import com.google.refine.expr.util.CalendarParser;
 import com.google.refine.expr.util.CalendarParserException;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 import com.google.refine.util.ParsingUtilities;
 
-public class ToDate implements Function {
+public class ToDate implements PureFunction {
+
+    static final int MAX_FORMATS = 64;
+    static final int MAX_LEARNED_FORMATS = 1024;
+    static final int MAX_LOCALE_TAGS = 256;
+    /**
+     * Values longer than this are longer than the dates formats are meant for, so the format which parses them is not
+     * learned.
+     */
+    static final int MAX_SHAPE_LENGTH = 64;
+    static final private TimeZone UTC = TimeZone.getTimeZone("Z");
+
+    /**
+     * Date formats are costly to build and not thread-safe, so each thread keeps the ones it used recently, keyed by
+     * locale and pattern.
+     */
+    static final private ThreadLocal<Map<String, SimpleDateFormat>> s_formatters = ThreadLocal
+            .withInitial(() -> new LinkedHashMap<String, SimpleDateFormat>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SimpleDateFormat> eldest) {
+                    return size() > MAX_FORMATS;
+                }
+            });
+
+    /**
+     * Index of the first of a list of formats which parses the values of a given shape (see {@link #getShape(String)}),
+     * or the number of formats if none does. Values of the same column usually have a few shapes, so the formats which
+     * do not match them are only tried once. Emptied when full.
+     */
+    static final private Map<String, Integer> s_learnedFormats = new ConcurrentHashMap<>();
+
+    /**
+     * Whether the first string given after the value is the tag of a supported locale, as a format string is not one
+     * and throws an exception each time it is looked up.
+     */
+    static final private Map<String, Optional<Locale>> s_locales = new ConcurrentHashMap<>();
+
+    /**
+     * Locales supported by {@link DateFormat}, computed once since listing them is costly.
+     */
+    static final private class AvailableLocales {
+
+        static final Set<Locale> LOCALES = new HashSet<>(Arrays.asList(DateFormat.getAvailableLocales()));
+    }
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -136,36 +189,68 @@ public class ToDate implements Function {
         Locale locale = Locale.getDefault();
         if (formats.size() > 0) {
             String possibleLanguageTag = formats.get(0);
-            try {
-                Locale possibleLocale = new Locale.Builder().setLanguageTag(possibleLanguageTag).build();
-                // Check if it's in our list of supported date locales
-                for (Locale l : DateFormat.getAvailableLocales()) {
-                    if (l.equals(possibleLocale)) {
-                        locale = possibleLocale;
-                        formats.remove(0);
-                    }
+            Optional<Locale> possibleLocale = s_locales.get(possibleLanguageTag);
+            if (possibleLocale == null) {
+                possibleLocale = lookUpLocale(possibleLanguageTag);
+                if (s_locales.size() >= MAX_LOCALE_TAGS) {
+                    s_locales.clear();
                 }
-            } catch (IllformedLocaleException e) {
-                // We ignore this. It PROBABLY means we got a date format string, not a language code,
-                // although it could be a malformed language tag like zh_TW instead of zh-TW
+                s_locales.put(possibleLanguageTag, possibleLocale);
+            }
+            if (possibleLocale.isPresent()) {
+                locale = possibleLocale.get();
+                formats.remove(0);
             }
         }
         return locale;
     }
 
+    /**
+     * @return the supported date locale with the given language tag, if the string is one
+     */
+    static private Optional<Locale> lookUpLocale(String possibleLanguageTag) {
+        try {
+            Locale possibleLocale = new Locale.Builder().setLanguageTag(possibleLanguageTag).build();
+            // Check if it's in our list of supported date locales
+            if (AvailableLocales.LOCALES.contains(possibleLocale)) {
+                return Optional.of(possibleLocale);
+            }
+        } catch (IllformedLocaleException e) {
+            // We ignore this. It PROBABLY means we got a date format string, not a language code,
+            // although it could be a malformed language tag like zh_TW instead of zh-TW
+        }
+        return Optional.empty();
+    }
+
     private OffsetDateTime parse(String o1, List<String> formats) throws DateFormatException {
         Locale locale = getLocale(formats);
-        DateFormat formatter;
-        OffsetDateTime date;
+        OffsetDateTime date = null;
         // need to try using each format in the formats list!
         if (formats.size() > 0) {
-            for (int i = 0; i < formats.size(); i++) {
-                try {
-                    formatter = new SimpleDateFormat(formats.get(i), locale);
-                } catch (IllegalArgumentException e) {
-                    throw new DateFormatException("Unable to parse date format " + formats.get(i));
+            String key = o1.length() > MAX_SHAPE_LENGTH ? null
+                    : locale.toLanguageTag() + "\u0000" + String.join("\u0000", formats) + "\u0000" + getShape(o1);
+            Integer learned = key == null ? null : s_learnedFormats.get(key);
+            if (learned != null && learned < formats.size()) {
+                date = parse(o1, getFormatter(formats.get(learned), locale));
+                if (date != null) {
+                    return date;
+                }
+            }
+            if (learned == null || learned < formats.size()) {
+                int matched = formats.size();
+                for (int i = 0; i < formats.size(); i++) {
+                    date = parse(o1, getFormatter(formats.get(i), locale));
+                    if (date != null) {
+                        matched = i;
+                        break;
+                    }
+                }
+                if (key != null) {
+                    if (s_learnedFormats.size() >= MAX_LEARNED_FORMATS) {
+                        s_learnedFormats.clear();
+                    }
+                    s_learnedFormats.put(key, matched);
                 }
-                date = parse(o1, formatter);
                 if (date != null) {
                     return date;
                 }
@@ -185,16 +270,45 @@ public class ToDate implements Function {
         }
     }
 
+    private SimpleDateFormat getFormatter(String format, Locale locale) throws DateFormatException {
+        Map<String, SimpleDateFormat> formatters = s_formatters.get();
+        String key = locale.toLanguageTag() + "\u0000" + format;
+        SimpleDateFormat formatter = formatters.get(key);
+        if (formatter == null) {
+            try {
+                formatter = new SimpleDateFormat(format, locale);
+            } catch (IllegalArgumentException e) {
+                throw new DateFormatException("Unable to parse date format " + format);
+            }
+            formatters.put(key, formatter);
+        }
+        // parsing a time zone name changes the time zone of the formatter, so it is reset each time
+        formatter.setTimeZone(UTC);
+        return formatter;
+    }
+
+    /**
+     * The value with all digits replaced by zeros. Formats are lenient, so whether a format parses a value does not
+     * depend on its digits, only on their positions and on the other characters.
+     */
+    static String getShape(String value) {
+        char[] shape = value.toCharArray();
+        for (int i = 0; i < shape.length; i++) {
+            if (shape[i] >= '0' && shape[i] <= '9') {
+                shape[i] = '0';
+            }
+        }
+        return new String(shape);
+    }
+
     private OffsetDateTime parse(String o1, DateFormat formatter) {
-        try {
-            formatter.setTimeZone(TimeZone.getTimeZone("Z"));
-            Date date = formatter.parse(o1);
-            GregorianCalendar c = new GregorianCalendar();
-            c.setTime(date);
-            return ParsingUtilities.calendarToOffsetDateTime(c);
-        } catch (java.text.ParseException e) {
+        // same as DateFormat.parse(String), without the cost of an exception when the format does not match
+        ParsePosition position = new ParsePosition(0);
+        Date date = formatter.parse(o1, position);
+        if (position.getIndex() == 0 || date == null) {
             return null;
         }
+        return date.toInstant().atOffset(ZoneOffset.of("Z"));
     }
 
     @Override
@@ -220,5 +334,4 @@ public class ToDate implements Function {
             super(string);
         }
     }
-
 }
@@ -101,4 +101,16 @@ public class Sort implements Function {
     public String getReturns() {
         return "array";
     }
+
+    @Override
+    public boolean isPure() {
+        // lists are sorted in place
+        return false;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        // the lists sorted in place are computed by each evaluation
+        return true;
+    }
 }
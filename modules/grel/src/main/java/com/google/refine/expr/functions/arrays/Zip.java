@@ -44,10 +44,10 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class Zip implements Function {
+public class Zip implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -98,5 +98,4 @@ public class Zip implements Function {
     public String getReturns() {
         return "array of arrays";
     }
-
 }
@@ -38,10 +38,10 @@ import java.util.Properties;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class LastIndexOf implements Function {
+public class LastIndexOf implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -69,5 +69,4 @@ public class LastIndexOf implements Function {
     public String getReturns() {
         return "number";
     }
-
 }
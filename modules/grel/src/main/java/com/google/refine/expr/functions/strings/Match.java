@@ -38,12 +38,13 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.google.refine.expr.EvalError;
+import com.google.refine.expr.functions.PatternCache;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class Match implements Function {
+public class Match implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -51,9 +52,14 @@ public class Match implements Function {
             Object s = args[0];
             Object p = args[1];
 
+            if (s != null && p instanceof String && PatternCache.isLiteral((String) p)) {
+                // a pattern without metacharacters has no groups and only matches itself
+                return s.toString().equals(p) ? new String[0] : null;
+            }
+
             if (s != null && p != null && (p instanceof String || p instanceof Pattern)) {
 
-                Pattern pattern = (p instanceof String) ? Pattern.compile((String) p) : (Pattern) p;
+                Pattern pattern = (p instanceof String) ? PatternCache.get((String) p) : (Pattern) p;
 
                 Matcher matcher = pattern.matcher(s.toString());
 
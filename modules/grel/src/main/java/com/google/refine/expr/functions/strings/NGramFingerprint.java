@@ -41,12 +41,12 @@ import com.google.refine.clustering.binning.NGramFingerprintKeyer;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class NGramFingerprint implements Function {
+public class NGramFingerprint implements PureFunction {
 
-    static Keyer ngram_fingerprint = new NGramFingerprintKeyer();
+    static final Keyer ngram_fingerprint = new NGramFingerprintKeyer();
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -44,37 +44,20 @@ import com.google.refine.clustering.binning.KeyerFactory;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class Phonetic implements Function {
+public class Phonetic implements PureFunction {
 
     // TODO deprecate and drop those legacy encodings?
-    static private Metaphone metaphone = null;
-    static private DoubleMetaphone doubleMetaphone = null;
-    static private Soundex soundex = null;
-
-    private Metaphone getMetaphone() {
-        if (metaphone == null) {
-            metaphone = new Metaphone();
-            metaphone.setMaxCodeLen(2000);
-        }
-        return metaphone;
-    }
-
-    private DoubleMetaphone getDoubleMetaphone() {
-        if (doubleMetaphone == null) {
-            doubleMetaphone = new DoubleMetaphone();
-            doubleMetaphone.setMaxCodeLen(2000);
-        }
-        return doubleMetaphone;
-    }
-
-    private Soundex getSoundex() {
-        if (soundex == null) {
-            soundex = new Soundex();
-        }
-        return soundex;
+    // the encoders are thread-safe as long as their settings are not changed after they are published
+    static final private Metaphone metaphone = new Metaphone();
+    static final private DoubleMetaphone doubleMetaphone = new DoubleMetaphone();
+    static final private Soundex soundex = new Soundex();
+
+    static {
+        metaphone.setMaxCodeLen(2000);
+        doubleMetaphone.setMaxCodeLen(2000);
     }
 
     @Override
@@ -101,17 +84,23 @@ public class Phonetic implements Function {
         }
         if (args.length < 3) {
             if ("doublemetaphone".equalsIgnoreCase(encoding)) {
-                return getDoubleMetaphone().doubleMetaphone(str);
+                return doubleMetaphone.doubleMetaphone(str);
             } else if ("metaphone".equalsIgnoreCase(encoding)) {
-                return getMetaphone().metaphone(str);
+                return metaphone.metaphone(str);
             } else if ("soundex".equalsIgnoreCase(encoding)) {
-                return getSoundex().soundex(str);
+                return soundex.soundex(str);
             } else {
                 Keyer keyer = KeyerFactory.get(encoding.toLowerCase());
-                if (keyer != null) {
+                if (keyer == null) {
+                    return new EvalError(
+                            EvalErrorMessage.unable_to_handle_encoding(ControlFunctionRegistry.getFunctionName(this), encoding));
+                } else if (keyer.isThreadSafe()) {
+                    return keyer.key(str);
+                }
+                // keyers are shared by all evaluations
+                synchronized (keyer) {
                     return keyer.key(str);
                 }
-                return new EvalError(EvalErrorMessage.unable_to_handle_encoding(ControlFunctionRegistry.getFunctionName(this), encoding));
             }
         } else {
             return new EvalError(EvalErrorMessage.expects_one_or_two_strings(ControlFunctionRegistry.getFunctionName(this)));
@@ -114,4 +114,15 @@ public class Reinterpret implements Function {
     public String getReturns() {
         return "string";
     }
+
+    @Override
+    public boolean isPure() {
+        // reads the encoding of the project when none is given
+        return false;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
 }
@@ -40,10 +40,10 @@ import org.apache.commons.text.WordUtils;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class ToTitlecase implements Function {
+public class ToTitlecase implements PureFunction {
 
     final static private char[] delimiters = { ' ', '\t', '\r', '\n', '.' };
 
@@ -78,5 +78,4 @@ public class ToTitlecase implements Function {
     public String getReturns() {
         return "string";
     }
-
 }
@@ -40,10 +40,10 @@ import org.jsoup.nodes.Element;
 import com.google.refine.expr.EvalError;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class InnerXml implements Function {
+public class InnerXml implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
@@ -41,10 +41,10 @@ import com.google.refine.expr.EvalError;
 import com.google.refine.expr.functions.Type;
 import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
-import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.grel.PureFunction;
 
-public class WholeText implements Function {
+public class WholeText implements PureFunction {
 
     @Override
     public Object call(Properties bindings, Object[] args) {
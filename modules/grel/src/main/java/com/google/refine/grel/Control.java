@@ -35,6 +35,7 @@ package com.google.refine.grel;
 
 import java.util.Properties;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -62,4 +63,28 @@ public interface Control {
 
     @JsonProperty("returns")
     public String getReturns();
+
+    /**
+     * A control is pure if its result only depends on the values of its arguments in the bindings it evaluates them
+     * with, and it has no side effects other than binding variables for its arguments. Expressions only calling pure
+     * controls and functions are deterministic (see {@link Evaluable#isDeterministic()}).
+     *
+     * @since 3.10
+     */
+    @JsonIgnore
+    default public boolean isPure() {
+        return false;
+    }
+
+    /**
+     * Whether {@link #call(Properties, Evaluable[])} can be called concurrently by several threads, each with its own
+     * bindings (see {@link Function#isThreadSafe()}).
+     *
+     * @return false by default (for compatibility with older extensions)
+     * @since 3.10
+     */
+    @JsonIgnore
+    default public boolean isThreadSafe() {
+        return false;
+    }
 }
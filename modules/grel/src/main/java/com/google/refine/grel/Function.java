@@ -35,6 +35,7 @@ package com.google.refine.grel;
 
 import java.util.Properties;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -58,4 +59,29 @@ public interface Function {
 
     @JsonProperty("returns")
     public String getReturns();
+
+    /**
+     * A function is pure if its result only depends on its arguments and it has no side effects: it does not modify its
+     * arguments, and does not read other rows, the project or any other external state. Calls to pure functions on
+     * constants can be evaluated once, and identical calls in an expression can share their result.
+     *
+     * @since 3.10
+     */
+    @JsonIgnore
+    default public boolean isPure() {
+        return false;
+    }
+
+    /**
+     * Whether {@link #call(Properties, Object[])} can be called concurrently by several threads. Expressions are only
+     * evaluated in parallel if all the functions and controls they call are thread-safe (see
+     * {@link com.google.refine.expr.Evaluable#isThreadSafe()}).
+     *
+     * @return false by default (for compatibility with older extensions)
+     * @since 3.10
+     */
+    @JsonIgnore
+    default public boolean isThreadSafe() {
+        return false;
+    }
 }
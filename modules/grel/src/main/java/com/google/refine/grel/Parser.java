@@ -37,9 +37,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
 
+import com.google.refine.ProjectManager;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.LanguageSpecificParser;
 import com.google.refine.expr.ParsingException;
+import com.google.refine.expr.functions.PatternCache;
 import com.google.refine.grel.Scanner.NumberToken;
 import com.google.refine.grel.Scanner.RegexToken;
 import com.google.refine.grel.Scanner.StringToken;
@@ -47,6 +49,7 @@ import com.google.refine.grel.Scanner.Token;
 import com.google.refine.grel.Scanner.TokenType;
 import com.google.refine.grel.ast.ArrayExpr;
 import com.google.refine.grel.ast.BracketedExpr;
+import com.google.refine.grel.ast.CompiledExpr;
 import com.google.refine.grel.ast.ControlCallExpr;
 import com.google.refine.grel.ast.FieldAccessorExpr;
 import com.google.refine.grel.ast.FunctionCallExpr;
@@ -65,6 +68,32 @@ public class Parser {
         }
     };
 
+    /**
+     * Preference disabling the compilation of GREL expressions by {@link #compilingGrelParser} when set to false.
+     */
+    static public final String COMPILE_PREFERENCE = "grel.compile";
+
+    /**
+     * Parses GREL expressions and compiles them (see {@link CompiledExpr}), which makes them faster to evaluate on many
+     * rows, unless disabled by the {@link #COMPILE_PREFERENCE} preference.
+     */
+    static public LanguageSpecificParser compilingGrelParser = new LanguageSpecificParser() {
+
+        @Override
+        public Evaluable parse(String source, String languagePrefix) throws ParsingException {
+            Evaluable evaluable = grelParser.parse(source, languagePrefix);
+            return isCompilationEnabled() ? CompiledExpr.compile(evaluable) : evaluable;
+        }
+    };
+
+    static protected boolean isCompilationEnabled() {
+        if (ProjectManager.singleton == null || ProjectManager.singleton.getPreferenceStore() == null) {
+            return true;
+        }
+        Object v = ProjectManager.singleton.getPreferenceStore().get(COMPILE_PREFERENCE);
+        return v == null || !"false".equals(v.toString());
+    }
+
     protected Scanner _scanner;
     protected Token _token;
     protected Evaluable _root;
@@ -184,7 +213,7 @@ public class Parser {
             RegexToken t = (RegexToken) _token;
 
             try {
-                Pattern pattern = Pattern.compile(_token.text, t.caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+                Pattern pattern = PatternCache.get(_token.text, t.caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
                 eval = new LiteralExpr(pattern, t.fullSource());
                 next(false);
             } catch (Exception e) {
@@ -0,0 +1,26 @@
+
+package com.google.refine.grel;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Function which is pure (see {@link Function#isPure()}) and thread-safe (see {@link Function#isThreadSafe()}), as most
+ * built-in functions are. Functions which read external state or keep some of their own implement {@link Function}
+ * directly.
+ *
+ * @since 3.10
+ */
+public interface PureFunction extends Function {
+
+    @Override
+    @JsonIgnore
+    default public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    @JsonIgnore
+    default public boolean isThreadSafe() {
+        return true;
+    }
+}
@@ -30,6 +30,21 @@ public class BracketedExpr extends GrelExpr {
         return inner.evaluate(bindings);
     }
 
+    @Override
+    CompiledExpr.Node compile(CompiledExpr.Context context) {
+        return CompiledExpr.compileNode(inner, context);
+    }
+
+    @Override
+    Evaluable[] getChildren() {
+        return new Evaluable[] { inner };
+    }
+
+    @Override
+    boolean isPure() {
+        return true;
+    }
+
     @Override
     public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         return inner.getColumnDependencies(baseColumn);
@@ -0,0 +1,324 @@
+
+package com.google.refine.grel.ast;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import com.google.refine.expr.Evaluable;
+
+/**
+ * A GREL expression compiled into a tree of closures, each specialized for a node of its syntax tree: operators are
+ * resolved once, functions are called directly with an argument array of the right size, and operators applied to
+ * constants are evaluated once. The closures are small and each call site only sees one kind of child, so that the JIT
+ * can inline them into each other, which it cannot do for the interpreted syntax tree.
+ * <p>
+ * Calls to pure functions (see {@link com.google.refine.grel.Function#isPure()}) on constants are evaluated once as
+ * well. Pure subexpressions which occur several times in the expression, such as {@code value.trim()} in
+ * {@code if(value.trim() == "", null, value.trim())}, are evaluated once per evaluation of the expression: their value
+ * is kept in a frame which lives as long as the evaluation.
+ * <p>
+ * Nodes which are not part of GREL are evaluated by calling them as in the interpreter. Apart from the evaluation, the
+ * compiled expression behaves as its syntax tree: it has the same source, column dependencies and equality.
+ *
+ * @since 3.10
+ */
+public class CompiledExpr implements Evaluable {
+
+    /**
+     * The compiled form of a node of the syntax tree.
+     */
+    @FunctionalInterface
+    interface Node {
+
+        Object evaluate(Properties bindings);
+    }
+
+    /**
+     * A node whose value is known when compiling.
+     */
+    static final class Constant implements Node {
+
+        final Object value;
+
+        Constant(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            return value;
+        }
+    }
+
+    /**
+     * Compilation state shared by the nodes of an expression: the subexpressions which occur several times in the
+     * expression and can share their value, and the frame in which their values are kept during an evaluation.
+     */
+    static final class Context {
+
+        // marks a cached null value, as empty slots of the frame are null
+        static final Object NULL = new Object();
+
+        final Map<Evaluable, Integer> _slots = new HashMap<>();
+        final ThreadLocal<Frame> _frame = ThreadLocal.withInitial(Frame::new);
+
+        Context(Evaluable root) {
+            Set<String> boundVariables = new HashSet<>();
+            collectBoundVariables(root, boundVariables);
+            Map<Evaluable, Integer> occurrences = new HashMap<>();
+            countOccurrences(root, boundVariables, occurrences);
+            for (Map.Entry<Evaluable, Integer> entry : occurrences.entrySet()) {
+                if (entry.getValue() > 1) {
+                    _slots.put(entry.getKey(), _slots.size());
+                }
+            }
+        }
+
+        /**
+         * Collects the names of the variables which controls such as forEach bind while evaluating their arguments.
+         * Subexpressions referring to them can take different values in the same evaluation.
+         */
+        static void collectBoundVariables(Evaluable evaluable, Set<String> boundVariables) {
+            if (!(evaluable instanceof GrelExpr)) {
+                return;
+            }
+            for (Evaluable child : ((GrelExpr) evaluable).getChildren()) {
+                if (evaluable instanceof ControlCallExpr && child instanceof VariableExpr) {
+                    boundVariables.add(((VariableExpr) child).getName());
+                }
+                collectBoundVariables(child, boundVariables);
+            }
+        }
+
+        /**
+         * @return whether the subexpression has the same value wherever it is evaluated in the expression
+         */
+        static boolean countOccurrences(Evaluable evaluable, Set<String> boundVariables, Map<Evaluable, Integer> occurrences) {
+            if (!(evaluable instanceof GrelExpr)) {
+                return false;
+            }
+            GrelExpr expr = (GrelExpr) evaluable;
+            boolean shareable = expr.isPure()
+                    && !(expr instanceof VariableExpr && boundVariables.contains(((VariableExpr) expr).getName()));
+            Evaluable[] children = expr.getChildren();
+            for (Evaluable child : children) {
+                // all children are visited, to count the occurrences in impure expressions too
+                shareable &= countOccurrences(child, boundVariables, occurrences);
+            }
+            // literals and variables are not worth caching
+            if (shareable && children.length > 0 && !(expr instanceof BracketedExpr)) {
+                occurrences.merge(expr, 1, Integer::sum);
+            }
+            return shareable;
+        }
+
+        int getFrameSize() {
+            return _slots.size();
+        }
+
+        Node cache(Evaluable evaluable, Node node) {
+            Integer slot = _slots.get(evaluable);
+            if (slot == null || node instanceof Constant) {
+                return node;
+            }
+            int index = slot;
+            ThreadLocal<Frame> frames = _frame;
+            return bindings -> {
+                Object[] frame = frames.get()._values;
+                if (frame == null) {
+                    return node.evaluate(bindings);
+                }
+                Object value = frame[index];
+                if (value == null) {
+                    value = node.evaluate(bindings);
+                    frame[index] = value == null ? NULL : value;
+                    return value;
+                }
+                return value == NULL ? null : value;
+            };
+        }
+    }
+
+    /**
+     * Values of the shared subexpressions during the current evaluation of an expression by a thread. It is reused by
+     * the successive evaluations rather than set for each of them.
+     */
+    static final class Frame {
+
+        Object[] _values;
+    }
+
+    final protected Evaluable _source;
+    final protected Node _node;
+    // frame of the shared subexpressions, or null if there are none or this is an argument of a control
+    final protected ThreadLocal<Frame> _frame;
+    final protected int _frameSize;
+
+    protected CompiledExpr(Evaluable source, Node node, ThreadLocal<Frame> frame, int frameSize) {
+        _source = source;
+        _node = node;
+        _frame = frameSize > 0 ? frame : null;
+        _frameSize = frameSize;
+    }
+
+    /**
+     * Compiles a parsed GREL expression.
+     *
+     * @return the compiled expression, or the given evaluable itself if it is not a GREL syntax tree
+     */
+    static public Evaluable compile(Evaluable evaluable) {
+        if (!(evaluable instanceof GrelExpr)) {
+            return evaluable;
+        }
+        Context context = new Context(evaluable);
+        return new CompiledExpr(evaluable, compileNode(evaluable, context), context._frame, context.getFrameSize());
+    }
+
+    /**
+     * Compiles an argument of a control, which the control evaluates itself. It is evaluated in the frame of the
+     * enclosing expression.
+     */
+    static Evaluable compileArgument(Evaluable evaluable, Context context) {
+        if (!(evaluable instanceof GrelExpr)) {
+            return evaluable;
+        }
+        return new CompiledExpr(evaluable, compileNode(evaluable, context), null, 0);
+    }
+
+    static Node compileNode(Evaluable evaluable, Context context) {
+        Node node;
+        if (evaluable instanceof GrelExpr) {
+            node = ((GrelExpr) evaluable).compile(context);
+        } else if (evaluable instanceof CompiledExpr && ((CompiledExpr) evaluable)._frame == null) {
+            node = ((CompiledExpr) evaluable)._node;
+        } else {
+            node = evaluable::evaluate;
+        }
+        return context.cache(evaluable, node);
+    }
+
+    static Node[] compileNodes(Evaluable[] evaluables, Context context) {
+        Node[] nodes = new Node[evaluables.length];
+        for (int i = 0; i < evaluables.length; i++) {
+            nodes[i] = compileNode(evaluables[i], context);
+        }
+        return nodes;
+    }
+
+    /**
+     * Replaces a node by its value if all its children are constants. The node must not depend on anything else than
+     * its children, and is evaluated without bindings.
+     */
+    static Node fold(Node node, Node[] children) {
+        for (Node child : children) {
+            if (!(child instanceof Constant)) {
+                return node;
+            }
+        }
+        try {
+            Object value = node.evaluate(null);
+            // other values could be modified by the caller, so a new one is computed for each evaluation
+            return isImmutable(value) ? new Constant(value) : node;
+        } catch (RuntimeException e) {
+            // the exception will be thrown again when evaluating the node, as in the interpreter
+            return node;
+        }
+    }
+
+    static boolean isImmutable(Object value) {
+        if (value == null || value instanceof String || value instanceof Number || value instanceof Boolean
+                || value instanceof OffsetDateTime) {
+            return true;
+        } else if (value instanceof Object[]) {
+            // GREL functions never modify arrays in place
+            for (Object element : (Object[]) value) {
+                if (!isImmutable(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether the whole expression was evaluated when compiling it
+     */
+    public boolean isConstant() {
+        return _node instanceof Constant;
+    }
+
+    /**
+     * @return the syntax tree which was compiled
+     */
+    public Evaluable getSourceExpression() {
+        return _source;
+    }
+
+    @Override
+    public Object evaluate(Properties bindings) {
+        if (_frame == null) {
+            return _node.evaluate(bindings);
+        }
+        Frame frame = _frame.get();
+        // the expression can be evaluated again while it is evaluated, by a function like facetCount
+        Object[] previous = frame._values;
+        frame._values = new Object[_frameSize];
+        try {
+            return _node.evaluate(bindings);
+        } finally {
+            frame._values = previous;
+        }
+    }
+
+    @Override
+    public String getSource() {
+        return _source.getSource();
+    }
+
+    @Override
+    public String getLanguagePrefix() {
+        return _source.getLanguagePrefix();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return _source.isThreadSafe();
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        return _source.isDeterministic();
+    }
+
+    @Override
+    public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
+        return _source.getColumnDependencies(baseColumn);
+    }
+
+    @Override
+    public Evaluable renameColumnDependencies(Map<String, String> substitutions) {
+        return compile(_source.renameColumnDependencies(substitutions));
+    }
+
+    @Override
+    public String toString() {
+        return _source.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(_source);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CompiledExpr && _source.equals(((CompiledExpr) obj)._source);
+    }
+}
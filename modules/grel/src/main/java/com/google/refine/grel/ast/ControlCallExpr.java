@@ -87,6 +87,46 @@ public class ControlCallExpr extends GrelExpr {
         }
     }
 
+    @Override
+    CompiledExpr.Node compile(CompiledExpr.Context context) {
+        // controls evaluate their arguments themselves, and expect variable names as variable expressions
+        Evaluable[] args = new Evaluable[_args.length];
+        for (int i = 0; i < _args.length; i++) {
+            args[i] = _args[i] instanceof VariableExpr ? _args[i] : CompiledExpr.compileArgument(_args[i], context);
+        }
+        Control control = _control;
+        return bindings -> {
+            try {
+                return control.call(bindings, args);
+            } catch (Exception e) {
+                return new EvalError(e.toString());
+            }
+        };
+    }
+
+    @Override
+    Evaluable[] getChildren() {
+        return _args;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return _control.isThreadSafe() && super.isThreadSafe();
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        if (!_control.isPure()) {
+            return false;
+        }
+        for (Evaluable arg : _args) {
+            if (!arg.isDeterministic()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public final Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         Set<String> dependencies = new HashSet<>();
@@ -64,15 +64,35 @@ public class FieldAccessorExpr extends GrelExpr {
 
     @Override
     public Object evaluate(Properties bindings) {
-        Object o = _inner.evaluate(bindings);
+        return getField(_inner.evaluate(bindings), _fieldName, bindings);
+    }
+
+    @Override
+    CompiledExpr.Node compile(CompiledExpr.Context context) {
+        CompiledExpr.Node inner = CompiledExpr.compileNode(_inner, context);
+        String fieldName = _fieldName;
+        return bindings -> getField(inner.evaluate(bindings), fieldName, bindings);
+    }
+
+    @Override
+    Evaluable[] getChildren() {
+        return new Evaluable[] { _inner };
+    }
+
+    @Override
+    boolean isPure() {
+        return true;
+    }
+
+    static protected Object getField(Object o, String fieldName, Properties bindings) {
         if (ExpressionUtils.isError(o)) {
             return o; // bubble the error up
         } else if (o == null) {
             return null;
         } else if (o instanceof HasFields) {
-            return ((HasFields) o).getField(_fieldName, bindings);
+            return ((HasFields) o).getField(fieldName, bindings);
         } else if (o instanceof ObjectNode) {
-            JsonNode value = ((ObjectNode) o).get(_fieldName);
+            JsonNode value = ((ObjectNode) o).get(fieldName);
             return JsonValueConverter.convert(value);
         } else {
             return null;
@@ -105,8 +105,99 @@ public class FunctionCallExpr extends GrelExpr {
             }
             args[i] = v;
         }
+        return call(_function, bindings, args);
+    }
+
+    @Override
+    CompiledExpr.Node compile(CompiledExpr.Context context) {
+        CompiledExpr.Node[] args = CompiledExpr.compileNodes(_args, context);
+        CompiledExpr.Node node = compile(_function, args);
+        return _function.isPure() ? CompiledExpr.fold(node, args) : node;
+    }
+
+    static CompiledExpr.Node compile(Function function, CompiledExpr.Node[] args) {
+        // one closure per arity, so that the arguments are evaluated without looping
+        switch (args.length) {
+            case 0:
+                return bindings -> call(function, bindings, new Object[0]);
+            case 1: {
+                CompiledExpr.Node arg0 = args[0];
+                return bindings -> {
+                    Object v0 = arg0.evaluate(bindings);
+                    if (ExpressionUtils.isError(v0)) {
+                        return v0;
+                    }
+                    return call(function, bindings, new Object[] { v0 });
+                };
+            }
+            case 2: {
+                CompiledExpr.Node arg0 = args[0];
+                CompiledExpr.Node arg1 = args[1];
+                return bindings -> {
+                    Object v0 = arg0.evaluate(bindings);
+                    if (ExpressionUtils.isError(v0)) {
+                        return v0;
+                    }
+                    Object v1 = arg1.evaluate(bindings);
+                    if (ExpressionUtils.isError(v1)) {
+                        return v1;
+                    }
+                    return call(function, bindings, new Object[] { v0, v1 });
+                };
+            }
+            case 3: {
+                CompiledExpr.Node arg0 = args[0];
+                CompiledExpr.Node arg1 = args[1];
+                CompiledExpr.Node arg2 = args[2];
+                return bindings -> {
+                    Object v0 = arg0.evaluate(bindings);
+                    if (ExpressionUtils.isError(v0)) {
+                        return v0;
+                    }
+                    Object v1 = arg1.evaluate(bindings);
+                    if (ExpressionUtils.isError(v1)) {
+                        return v1;
+                    }
+                    Object v2 = arg2.evaluate(bindings);
+                    if (ExpressionUtils.isError(v2)) {
+                        return v2;
+                    }
+                    return call(function, bindings, new Object[] { v0, v1, v2 });
+                };
+            }
+            default:
+                return bindings -> {
+                    Object[] values = new Object[args.length];
+                    for (int i = 0; i < args.length; i++) {
+                        Object v = args[i].evaluate(bindings);
+                        if (ExpressionUtils.isError(v)) {
+                            return v;
+                        }
+                        values[i] = v;
+                    }
+                    return call(function, bindings, values);
+                };
+        }
+    }
+
+    @Override
+    Evaluable[] getChildren() {
+        return _args;
+    }
+
+    @Override
+    boolean isPure() {
+        return _function.isPure();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return _function.isThreadSafe() && super.isThreadSafe();
+    }
+
+    static protected Object call(Function function, Properties bindings, Object[] args) {
         try {
-            return _function.call(bindings, args);
+            return function.call(bindings, args);
         } catch (Exception e) {
             return new EvalError(e);
         }
@@ -121,7 +212,8 @@ public class FunctionCallExpr extends GrelExpr {
             String columnName = ((LiteralExpr) _args[1])._value.toString();
             return Optional.of(Collections.singleton(columnName));
         }
-        // TODO distinguish functions which are "pure" and those which access external data, like cross or facetCount
+        // TODO functions which are not pure (see Function#isPure) can access external data, like cross or facetCount,
+        // but their dependencies are still approximated by those of their arguments
         Set<String> dependencies = new HashSet<>();
         for (Evaluable ev : _args) {
             Optional<Set<String>> deps = ev.getColumnDependencies(baseColumn);
@@ -18,6 +18,51 @@ abstract class GrelExpr implements Evaluable {
         return MetaParser.GREL_LANGUAGE_CODE;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        for (Evaluable child : getChildren()) {
+            if (!child.isThreadSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isDeterministic() {
+        if (!isPure()) {
+            return false;
+        }
+        for (Evaluable child : getChildren()) {
+            if (!child.isDeterministic()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compiles this node (see {@link CompiledExpr}). By default, the compiled node calls the interpreter.
+     */
+    CompiledExpr.Node compile(CompiledExpr.Context context) {
+        return this::evaluate;
+    }
+
+    /**
+     * @return the subexpressions of this node
+     */
+    Evaluable[] getChildren() {
+        return new Evaluable[0];
+    }
+
+    /**
+     * @return whether this node always has the same value for the same values of its children and the same bindings,
+     *         without side effects
+     */
+    boolean isPure() {
+        return false;
+    }
+
     // make sure all subclasses implement this method
     @Override
     public abstract Evaluable renameColumnDependencies(Map<String, String> substitutions);
@@ -75,6 +75,16 @@ public class LiteralExpr extends GrelExpr {
         return _value;
     }
 
+    @Override
+    CompiledExpr.Node compile(CompiledExpr.Context context) {
+        return new CompiledExpr.Constant(_value);
+    }
+
+    @Override
+    boolean isPure() {
+        return true;
+    }
+
     @Override
     public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         return Optional.of(Collections.emptySet());
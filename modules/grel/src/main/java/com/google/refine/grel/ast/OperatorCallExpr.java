@@ -36,6 +36,7 @@ package com.google.refine.grel.ast;
 import java.text.Collator;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -50,12 +51,82 @@ import com.google.refine.expr.ExpressionUtils;
  */
 public class OperatorCallExpr extends GrelExpr {
 
+    /**
+     * Operators, resolved when parsing so that they are not compared as strings for each evaluation.
+     */
+    static protected enum Operator {
+
+        PLUS, MINUS, TIMES, DIVIDE, MODULO, GREATER, GREATER_OR_EQUAL, LESS, LESS_OR_EQUAL, EQUAL, NOT_EQUAL, UNKNOWN;
+
+        static Operator of(String op) {
+            switch (op) {
+                case "+":
+                    return PLUS;
+                case "-":
+                    return MINUS;
+                case "*":
+                    return TIMES;
+                case "/":
+                    return DIVIDE;
+                case "%":
+                    return MODULO;
+                case ">":
+                    return GREATER;
+                case ">=":
+                    return GREATER_OR_EQUAL;
+                case "<":
+                    return LESS;
+                case "<=":
+                    return LESS_OR_EQUAL;
+                case "==":
+                    return EQUAL;
+                case "!=":
+                    return NOT_EQUAL;
+                default:
+                    return UNKNOWN;
+            }
+        }
+
+        /**
+         * @return the result of the comparison for the given sign of the difference between the operands, or null if
+         *         this is not a comparison
+         */
+        Boolean compare(int sign) {
+            switch (this) {
+                case GREATER:
+                    return sign > 0;
+                case GREATER_OR_EQUAL:
+                    return sign >= 0;
+                case LESS:
+                    return sign < 0;
+                case LESS_OR_EQUAL:
+                    return sign <= 0;
+                case EQUAL:
+                    return sign == 0;
+                case NOT_EQUAL:
+                    return sign != 0;
+                default:
+                    return null;
+            }
+        }
+
+        boolean isComparison() {
+            return compare(0) != null;
+        }
+    }
+
+    // collators are not thread-safe and costly to create, so each thread keeps one for the current default locale
+    static private final ThreadLocal<Collator> s_collator = new ThreadLocal<>();
+    static private final ThreadLocal<Locale> s_collatorLocale = new ThreadLocal<>();
+
     final protected Evaluable[] _args;
     final protected String _op;
+    final protected Operator _operator;
 
     public OperatorCallExpr(Evaluable[] args, String op) {
         _args = args;
         _op = op;
+        _operator = Operator.of(op);
     }
 
     @Override
@@ -70,18 +141,58 @@ public class OperatorCallExpr extends GrelExpr {
         }
 
         if (args.length == 2) {
-            if (args[0] != null && args[1] != null) {
-                if (isIntegral(args[0]) && isIntegral(args[1])) {
-                    long n1 = ((Number) args[0]).longValue();
-                    long n2 = ((Number) args[1]).longValue();
+            return apply(_operator, args[0], args[1]);
+        }
+        return null;
+    }
+
+    @Override
+    CompiledExpr.Node compile(CompiledExpr.Context context) {
+        if (_args.length != 2) {
+            return super.compile(context);
+        }
+        CompiledExpr.Node[] args = CompiledExpr.compileNodes(_args, context);
+        CompiledExpr.Node left = args[0];
+        CompiledExpr.Node right = args[1];
+        Operator operator = _operator;
+        CompiledExpr.Node node = bindings -> {
+            Object v0 = left.evaluate(bindings);
+            if (ExpressionUtils.isError(v0)) {
+                return v0;
+            }
+            Object v1 = right.evaluate(bindings);
+            if (ExpressionUtils.isError(v1)) {
+                return v1;
+            }
+            return apply(operator, v0, v1);
+        };
+        return CompiledExpr.fold(node, args);
+    }
+
+    @Override
+    Evaluable[] getChildren() {
+        return _args;
+    }
 
-                    if ("+".equals(_op)) {
+    @Override
+    boolean isPure() {
+        return true;
+    }
+
+    static protected Object apply(Operator op, Object arg0, Object arg1) {
+        if (arg0 != null && arg1 != null) {
+            if (isIntegral(arg0) && isIntegral(arg1)) {
+                long n1 = ((Number) arg0).longValue();
+                long n2 = ((Number) arg1).longValue();
+
+                switch (op) {
+                    case PLUS:
                         return n1 + n2;
-                    } else if ("-".equals(_op)) {
+                    case MINUS:
                         return n1 - n2;
-                    } else if ("*".equals(_op)) {
+                    case TIMES:
                         return n1 * n2;
-                    } else if ("/".equals(_op)) {
+                    case DIVIDE:
                         if (n2 == 0) {
                             if (n1 == 0) {
                                 return Double.NaN;
@@ -89,124 +200,102 @@ public class OperatorCallExpr extends GrelExpr {
                                 return n1 > 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
                             }
                         }
-                        // TODO: This will throw on divide by zero - return Double.Infinity / -Infinity instead?
                         return n1 / n2;
-                    } else if ("%".equals(_op)) {
+                    case MODULO:
                         return n1 % n2;
-                    } else if (">".equals(_op)) {
-                        return n1 > n2;
-                    } else if (">=".equals(_op)) {
-                        return n1 >= n2;
-                    } else if ("<".equals(_op)) {
-                        return n1 < n2;
-                    } else if ("<=".equals(_op)) {
-                        return n1 <= n2;
-                    } else if ("==".equals(_op)) {
-                        return n1 == n2;
-                    } else if ("!=".equals(_op)) {
-                        return n1 != n2;
-                    }
-                } else if (args[0] instanceof Number && args[1] instanceof Number) {
-                    double n1 = ((Number) args[0]).doubleValue();
-                    double n2 = ((Number) args[1]).doubleValue();
+                    default:
+                        Boolean comparison = op.compare(Long.compare(n1, n2));
+                        if (comparison != null) {
+                            return comparison;
+                        }
+                }
+            } else if (arg0 instanceof Number && arg1 instanceof Number) {
+                double n1 = ((Number) arg0).doubleValue();
+                double n2 = ((Number) arg1).doubleValue();
 
-                    if ("+".equals(_op)) {
+                switch (op) {
+                    case PLUS:
                         return n1 + n2;
-                    } else if ("-".equals(_op)) {
+                    case MINUS:
                         return n1 - n2;
-                    } else if ("*".equals(_op)) {
+                    case TIMES:
                         return n1 * n2;
-                    } else if ("/".equals(_op)) {
+                    case DIVIDE:
                         if (n2 == 0 && n1 == 0) {
                             return Double.NaN;
                         }
                         return n1 / n2;
-                    } else if ("%".equals(_op)) {
+                    case MODULO:
                         return n1 % n2;
-                    } else if (">".equals(_op)) {
+                    case GREATER:
                         return n1 > n2;
-                    } else if (">=".equals(_op)) {
+                    case GREATER_OR_EQUAL:
                         return n1 >= n2;
-                    } else if ("<".equals(_op)) {
+                    case LESS:
                         return n1 < n2;
-                    } else if ("<=".equals(_op)) {
+                    case LESS_OR_EQUAL:
                         return n1 <= n2;
-                    } else if ("==".equals(_op)) {
+                    case EQUAL:
                         return n1 == n2;
-                    } else if ("!=".equals(_op)) {
+                    case NOT_EQUAL:
                         return n1 != n2;
-                    }
-                } else if (args[0] instanceof String && args[1] instanceof String) {
-                    String s1 = (String) args[0];
-                    String s2 = (String) args[1];
-                    Collator collator = Collator.getInstance();
-                    collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
-//                    collator.setStrength(Collator.SECONDARY);
-
-                    if (">".equals(_op)) {
-                        return collator.compare(s1, s2) > 0;
-                    } else if (">=".equals(_op)) {
-                        return collator.compare(s1, s2) >= 0;
-                    } else if ("<".equals(_op)) {
-                        return collator.compare(s1, s2) < 0;
-                    } else if ("<=".equals(_op)) {
-                        return collator.compare(s1, s2) <= 0;
-                    } else if ("==".equals(_op)) {
-                        return collator.compare(s1, s2) == 0;
-                    } else if ("!=".equals(_op)) {
-                        return collator.compare(s1, s2) != 0;
-                    }
+                    default:
+                        break;
                 }
+            } else if (arg0 instanceof String && arg1 instanceof String && op.isComparison()) {
+                // identical strings are equal for any collator, which is much faster to check
+                int sign = arg0.equals(arg1) ? 0 : getCollator().compare((String) arg0, (String) arg1);
+                return op.compare(sign);
+            }
 
-                if (args[0] instanceof String || args[1] instanceof String) {
-                    String s1 = args[0] instanceof String ? (String) args[0] : args[0].toString();
-                    String s2 = args[1] instanceof String ? (String) args[1] : args[1].toString();
+            if ((arg0 instanceof String || arg1 instanceof String) && op == Operator.PLUS) {
+                String s1 = arg0 instanceof String ? (String) arg0 : arg0.toString();
+                String s2 = arg1 instanceof String ? (String) arg1 : arg1.toString();
+                return s1 + s2;
+            }
 
-                    if ("+".equals(_op)) {
-                        return s1 + s2;
-                    }
-                }
+            if (arg0 instanceof Comparable && arg1 instanceof Comparable
+                    && (arg0.getClass().isAssignableFrom(arg1.getClass()) ||
+                            arg1.getClass().isAssignableFrom(arg0.getClass()))) {
+                Comparable s1 = (Comparable) arg0;
+                Comparable s2 = (Comparable) arg1;
 
-                if (args[0] instanceof Comparable && args[1] instanceof Comparable
-                        && (args[0].getClass().isAssignableFrom(args[1].getClass()) ||
-                                args[1].getClass().isAssignableFrom(args[0].getClass()))) {
-                    Comparable s1 = (Comparable) args[0];
-                    Comparable s2 = (Comparable) args[1];
-
-                    if (">".equals(_op)) {
-                        return s1.compareTo(s2) > 0;
-                    } else if (">=".equals(_op)) {
-                        return s1.compareTo(s2) >= 0;
-                    } else if ("<".equals(_op)) {
-                        return s1.compareTo(s2) < 0;
-                    } else if ("<=".equals(_op)) {
-                        return s1.compareTo(s2) <= 0;
-                    } else if ("==".equals(_op)) {
-                        return s1.compareTo(s2) == 0;
-                    } else if ("!=".equals(_op)) {
-                        return s1.compareTo(s2) != 0;
-                    }
+                if (op.isComparison()) {
+                    return op.compare(s1.compareTo(s2));
                 }
-
             }
 
-            if ("==".equals(_op)) {
-                if (args[0] != null) {
-                    return args[0].equals(args[1]);
-                } else {
-                    return args[1] == null;
-                }
-            } else if ("!=".equals(_op)) {
-                if (args[0] != null) {
-                    return !args[0].equals(args[1]);
-                } else {
-                    return args[1] != null;
-                }
+        }
+
+        if (op == Operator.EQUAL) {
+            if (arg0 != null) {
+                return arg0.equals(arg1);
+            } else {
+                return arg1 == null;
+            }
+        } else if (op == Operator.NOT_EQUAL) {
+            if (arg0 != null) {
+                return !arg0.equals(arg1);
+            } else {
+                return arg1 != null;
             }
         }
         return null;
     }
 
+    static protected Collator getCollator() {
+        Collator collator = s_collator.get();
+        Locale locale = Locale.getDefault();
+        if (collator == null || !locale.equals(s_collatorLocale.get())) {
+            collator = Collator.getInstance(locale);
+            collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+//            collator.setStrength(Collator.SECONDARY);
+            s_collator.set(collator);
+            s_collatorLocale.set(locale);
+        }
+        return collator;
+    }
+
     @Override
     public final Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         Set<String> dependencies = new HashSet<>();
@@ -245,7 +334,7 @@ public class OperatorCallExpr extends GrelExpr {
         return sb.toString();
     }
 
-    private boolean isIntegral(Object n) {
+    static private boolean isIntegral(Object n) {
         return n instanceof Long || n instanceof Integer;
     }
 
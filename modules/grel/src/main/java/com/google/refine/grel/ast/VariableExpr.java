@@ -39,6 +39,7 @@ import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
 
+import com.google.refine.expr.Bindings;
 import com.google.refine.expr.Evaluable;
 
 /**
@@ -47,6 +48,8 @@ import com.google.refine.expr.Evaluable;
 public class VariableExpr extends GrelExpr {
 
     final protected String _name;
+    // slot of the variable in {@link Bindings}, or -1 if it must be looked up by name
+    final protected int _slot;
 
     public VariableExpr(String name) {
         if (name != null || !name.isEmpty()) {
@@ -54,13 +57,32 @@ public class VariableExpr extends GrelExpr {
         } else {
             throw new IllegalArgumentException("Illegal variable name ");
         }
+        _slot = Bindings.slotOf(_name);
     }
 
     @Override
     public Object evaluate(Properties bindings) {
+        if (_slot >= 0 && bindings instanceof Bindings) {
+            return ((Bindings) bindings).getSlot(_slot);
+        }
         return bindings.get(_name);
     }
 
+    @Override
+    CompiledExpr.Node compile(CompiledExpr.Context context) {
+        String name = _name;
+        int slot = _slot;
+        if (slot >= 0) {
+            return bindings -> bindings instanceof Bindings ? ((Bindings) bindings).getSlot(slot) : bindings.get(name);
+        }
+        return bindings -> bindings.get(name);
+    }
+
+    @Override
+    boolean isPure() {
+        return true;
+    }
+
     @Override
     public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         if (("value".equals(_name) || "cell".equals(_name) || "recon".equals(_name)) && baseColumn.isPresent()) {
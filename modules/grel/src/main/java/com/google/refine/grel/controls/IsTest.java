@@ -72,5 +72,15 @@ abstract class IsTest implements Control {
         return "boolean";
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     abstract protected boolean test(Object v);
 }
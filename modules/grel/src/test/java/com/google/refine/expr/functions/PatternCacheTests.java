@@ -0,0 +1,42 @@
+
+package com.google.refine.expr.functions;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.testng.annotations.Test;
+
+public class PatternCacheTests {
+
+    @Test
+    public void testPatternsAreShared() {
+        Pattern pattern = PatternCache.get("a+b");
+        assertSame(PatternCache.get("a+b"), pattern);
+        Pattern caseInsensitive = PatternCache.get("a+b", Pattern.CASE_INSENSITIVE);
+        assertNotSame(caseInsensitive, pattern);
+        assertEquals(caseInsensitive.flags(), Pattern.CASE_INSENSITIVE);
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        for (int i = 0; i < 2 * PatternCache.MAX_ENTRIES; i++) {
+            PatternCache.get("bounded" + i);
+        }
+        assertTrue(PatternCache.size() <= PatternCache.MAX_ENTRIES);
+    }
+
+    @Test
+    public void testIsLiteral() {
+        assertTrue(PatternCache.isLiteral("foo bar, baz-1"));
+        assertTrue(PatternCache.isLiteral(""));
+        assertFalse(PatternCache.isLiteral("a.b"));
+        assertFalse(PatternCache.isLiteral("\\d"));
+        assertFalse(PatternCache.isLiteral("(a)"));
+        assertFalse(PatternCache.isLiteral("a|b"));
+    }
+}
@@ -30,8 +30,15 @@ package com.google.refine.expr.functions;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
+import java.text.SimpleDateFormat;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.testng.annotations.Test;
 
@@ -107,4 +114,59 @@ public class ToDateTests extends GrelTestBase {
         }
     }
 
+    @Test
+    public void testLearnedFormats() throws CalendarParserException {
+        assertEquals(ToDate.getShape("Jan 15, 2012"), "Jan 00, 0000");
+        for (int i = 0; i < 3; i++) {
+            // the second format is learned for this shape, the first one for the next
+            assertEquals(invoke("toDate", "2012-03-01", "dd/MM/yyyy", "yyyy-MM-dd"), CalendarParser.parseAsOffsetDateTime("2012-03-01"));
+            assertEquals(invoke("toDate", "01/03/2012", "dd/MM/yyyy", "yyyy-MM-dd"), CalendarParser.parseAsOffsetDateTime("2012-03-01"));
+            // no format matches, so the value is parsed as ISO 8601
+            assertEquals(invoke("toDate", "2013-06-01T13:12:11Z", "dd/MM/yyyy"),
+                    CalendarParser.parseAsOffsetDateTime("2013-06-01 13:12:11"));
+            assertTrue(invoke("toDate", "not a date", "dd/MM/yyyy") instanceof EvalError);
+        }
+    }
+
+    @Test
+    public void testLongValuesAreParsedWithoutLearningFormats() throws CalendarParserException {
+        String value = "2012-03-01 " + "x".repeat(ToDate.MAX_SHAPE_LENGTH);
+        for (int i = 0; i < 2; i++) {
+            assertEquals(invoke("toDate", value, "dd/MM/yyyy", "yyyy-MM-dd"), CalendarParser.parseAsOffsetDateTime("2012-03-01"));
+        }
+    }
+
+    @Test
+    public void testFormattersDoNotKeepTimeZones() throws CalendarParserException {
+        TimeZone originalTimeZone = TimeZone.getDefault();
+        try {
+            assertEquals(invoke("toDate", "2012-03-01 10:00 JST", "yyyy-MM-dd HH:mm z"),
+                    CalendarParser.parseAsOffsetDateTime("2012-03-01 01:00"));
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            assertEquals(invoke("toDate", "2012-03-01 10:00", "yyyy-MM-dd HH:mm", "yyyy-MM-dd HH:mm z"),
+                    CalendarParser.parseAsOffsetDateTime("2012-03-01 10:00"));
+            assertEquals(invoke("toDate", "2012-03-01 10:00 UTC", "yyyy-MM-dd HH:mm z"),
+                    CalendarParser.parseAsOffsetDateTime("2012-03-01 10:00"));
+        } finally {
+            TimeZone.setDefault(originalTimeZone);
+        }
+    }
+
+    @Test
+    public void testConcurrentParsing() throws Exception {
+        List<String> values = IntStream.range(0, 2000)
+                .mapToObj(i -> String.format("%02d %s %d", 1 + i % 28, i % 2 == 0 ? "mars" : "juin", 1900 + i / 28))
+                .collect(Collectors.toList());
+        SimpleDateFormat reference = new SimpleDateFormat("dd MMMM yyyy", Locale.FRENCH);
+        reference.setTimeZone(TimeZone.getTimeZone("Z"));
+        List<Object> expected = new ArrayList<>();
+        for (String value : values) {
+            expected.add(reference.parse(value).toInstant().atOffset(ZoneOffset.UTC));
+        }
+        List<Object> actual = values.parallelStream()
+                .map(value -> invoke("toDate", value, "fr", "dd MMMM yyyy"))
+                .collect(Collectors.toList());
+        assertEquals(actual, expected);
+    }
+
 }
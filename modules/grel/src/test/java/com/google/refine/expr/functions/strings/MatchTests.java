@@ -0,0 +1,37 @@
+
+package com.google.refine.expr.functions.strings;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.MetaParser;
+import com.google.refine.expr.ParsingException;
+import com.google.refine.grel.GrelTestBase;
+
+public class MatchTests extends GrelTestBase {
+
+    @Test
+    public void testMatchStringPattern() {
+        Assert.assertEquals((String[]) invoke("match", "key: value", "(\\w+): (\\w+)"), new String[] { "key", "value" });
+        Assert.assertEquals((String[]) invoke("match", "key: value", Pattern.compile("(\\w+): (\\w+)")),
+                new String[] { "key", "value" });
+        Assert.assertNull(invoke("match", "key value", "(\\w+): (\\w+)"));
+    }
+
+    @Test
+    public void testMatchLiteralPattern() {
+        Assert.assertEquals((String[]) invoke("match", "abc", "abc"), new String[0]);
+        Assert.assertNull(invoke("match", "abcd", "abc"));
+        Assert.assertEquals((String[]) invoke("match", 12L, "12"), new String[0]);
+    }
+
+    @Test
+    public void testMatchInvalidPattern() throws ParsingException {
+        Assert.assertThrows(PatternSyntaxException.class, () -> invoke("match", "abc", "(abc"));
+        Assert.assertTrue(MetaParser.parse("grel:'abc'.match('(abc')").evaluate(bindings) instanceof EvalError);
+    }
+}
@@ -0,0 +1,18 @@
+
+package com.google.refine.grel;
+
+import org.testng.annotations.BeforeMethod;
+
+import com.google.refine.expr.MetaParser;
+
+/**
+ * Runs the GREL tests on compiled expressions.
+ */
+public class CompiledGrelTests extends GrelTests {
+
+    @Override
+    @BeforeMethod
+    public void registerGRELParser() {
+        MetaParser.registerLanguageParser("grel", "GREL", Parser.compilingGrelParser, "value");
+    }
+}
@@ -232,6 +232,28 @@ public class GrelTests extends GrelTestBase {
         Assert.assertTrue(result instanceof EvalError);
     }
 
+    @Test
+    public void testDeterministicExpressions() throws ParsingException {
+        String[] deterministic = { "value.trim().length()", "if(isBlank(value), 'none', [value, cells.foo.value].join(','))",
+                "forEach(value.split(','), v, v.toNumber())" };
+        for (String test : deterministic) {
+            Assert.assertTrue(MetaParser.parse("grel:" + test).isDeterministic(), test);
+        }
+        String[] notDeterministic = { "now()", "value + random()", "if(isBlank(value), now(), value)", "facetCount(value, 'value', 'foo')",
+                "cross(value, 'Other project', 'foo')" };
+        for (String test : notDeterministic) {
+            Assert.assertFalse(MetaParser.parse("grel:" + test).isDeterministic(), test);
+        }
+    }
+
+    @Test
+    public void testThreadSafeExpressions() throws ParsingException {
+        Assert.assertTrue(MetaParser.parse("grel:forEach(value.split(','), v, v.phonetic('soundex'))").isThreadSafe());
+        Assert.assertTrue(MetaParser.parse("grel:if(isBlank(value), now(), value.toDate())").isThreadSafe());
+        Assert.assertFalse(MetaParser.parse("grel:value + facetCount(value, 'value', 'foo')").isThreadSafe());
+        Assert.assertFalse(MetaParser.parse("grel:if(isBlank(value), cross(value, 'Other project', 'foo'), value)").isThreadSafe());
+    }
+
     @Test
     public void testRegexParsing() throws ParsingException {
         String test = "value.replace(/foo/, 'bar')";
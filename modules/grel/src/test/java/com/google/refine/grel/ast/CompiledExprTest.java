@@ -0,0 +1,175 @@
+
+package com.google.refine.grel.ast;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.expr.ParsingException;
+import com.google.refine.grel.Function;
+import com.google.refine.grel.Parser;
+import com.google.refine.model.Project;
+
+public class CompiledExprTest {
+
+    CompiledExpr compile(String source) throws ParsingException {
+        return (CompiledExpr) Parser.compilingGrelParser.parse(source, "grel");
+    }
+
+    Properties bindings(Object value) {
+        Properties bindings = ExpressionUtils.createBindings(new Project());
+        if (value != null) {
+            bindings.put("value", value);
+        }
+        return bindings;
+    }
+
+    @Test
+    public void testConstantOperatorsAreFolded() throws ParsingException {
+        assertTrue(compile("(1 + 2) * 3 > 8").isConstant());
+        assertEquals(compile("(1 + 2) * 3 > 8").evaluate(null), true);
+        assertTrue(compile("\"a\" + 1").isConstant());
+        assertFalse(compile("value + 1").isConstant());
+        assertFalse(compile("value.length()").isConstant());
+    }
+
+    @Test
+    public void testPureFunctionsOnConstantsAreFolded() throws ParsingException {
+        assertTrue(compile("\"a\".length() + 1").isConstant());
+        CompiledExpr split = compile("\"a,b,c\".split(\",\")");
+        assertTrue(split.isConstant());
+        assertEquals((Object[]) split.evaluate(null), new Object[] { "a", "b", "c" });
+        assertFalse(compile("now()").isConstant());
+        // mutable values are computed again for each evaluation
+        assertFalse(compile("parseJson(\"{}\")").isConstant());
+    }
+
+    @Test
+    public void testCommonSubexpressionsAreEvaluatedOncePerEvaluation() {
+        AtomicInteger calls = new AtomicInteger();
+        Function pure = countingFunction(calls, true);
+        Evaluable shared = new OperatorCallExpr(new Evaluable[] {
+                new FunctionCallExpr(new Evaluable[] { new VariableExpr("value") }, pure, "count", false),
+                new FunctionCallExpr(new Evaluable[] { new VariableExpr("value") }, pure, "count", false) }, "+");
+        Evaluable compiled = CompiledExpr.compile(shared);
+        assertEquals(compiled.evaluate(bindings(3L)), 8L);
+        assertEquals(compiled.evaluate(bindings(5L)), 12L);
+        assertEquals(calls.get(), 2);
+
+        AtomicInteger impureCalls = new AtomicInteger();
+        Function impure = countingFunction(impureCalls, false);
+        Evaluable notShared = new OperatorCallExpr(new Evaluable[] {
+                new FunctionCallExpr(new Evaluable[] { new VariableExpr("value") }, impure, "count", false),
+                new FunctionCallExpr(new Evaluable[] { new VariableExpr("value") }, impure, "count", false) }, "+");
+        CompiledExpr.compile(notShared).evaluate(bindings(3L));
+        assertEquals(impureCalls.get(), 2);
+    }
+
+    @Test
+    public void testVariablesBoundByControlsAreNotShared() throws ParsingException {
+        assertEquals((Object[]) compile("forEach([1, 2], v, v * 2 + v * 2)").evaluate(bindings(null)), new Object[] { 4L, 8L });
+        assertEquals(compile("with(2, value, value * 2) + (value * 2)").evaluate(bindings(5L)), 14L);
+    }
+
+    Function countingFunction(AtomicInteger calls, boolean pure) {
+        return new Function() {
+
+            @Override
+            public Object call(Properties bindings, Object[] args) {
+                calls.incrementAndGet();
+                return (Long) args[0] + 1;
+            }
+
+            @Override
+            public String getDescription() {
+                return "counts its calls";
+            }
+
+            @Override
+            public String getReturns() {
+                return "number";
+            }
+
+            @Override
+            public boolean isPure() {
+                return pure;
+            }
+        };
+    }
+
+    @Test
+    public void testExceptionsAreThrownWhenEvaluating() throws ParsingException {
+        CompiledExpr modulo = compile("1 % 0");
+        assertFalse(modulo.isConstant());
+        assertThrows(ArithmeticException.class, () -> modulo.evaluate(bindings(null)));
+    }
+
+    @Test
+    public void testMatchesInterpreter() throws ParsingException {
+        String[] sources = {
+                "value.trim().toLowercase()",
+                "value.length() * 2 - 1",
+                "if(value.length() > 3, value.substring(0, 3), value)",
+                "forEach(value.split(\",\"), v, v.trim()).join(\"|\")",
+                "value == \"Foo\"",
+                "value < \"zebra\"",
+                "[value, 1, 2][0]",
+                "with(value.split(\",\"), parts, parts.length())",
+                "value.foo",
+                "value.substring(1, 2, 3)",
+                "cells",
+                "if(value.trim() == \"\", null, value.trim())",
+                "forEach(value.split(\",\"), v, v.trim() + v.trim()).join(\"|\")",
+                "filter(value.split(\",\"), v, v.trim().length() > 2).length() + value.split(\",\").length()",
+        };
+        for (String source : sources) {
+            Evaluable interpreted = Parser.grelParser.parse(source, "grel");
+            CompiledExpr compiled = compile(source);
+            for (Object value : new Object[] { " Foo, Bar ", "a,b", 12L, null }) {
+                Object expected = interpreted.evaluate(bindings(value));
+                Object actual = compiled.evaluate(bindings(value));
+                if (expected instanceof EvalError) {
+                    assertTrue(actual instanceof EvalError, source);
+                } else {
+                    assertEquals(actual, expected, source + " on " + value);
+                }
+            }
+            assertEquals(compiled.getSource(), interpreted.getSource());
+            assertEquals(compiled.getColumnDependencies(Optional.of("foo")), interpreted.getColumnDependencies(Optional.of("foo")));
+        }
+    }
+
+    @Test
+    public void testRenameColumnDependencies() throws ParsingException {
+        CompiledExpr compiled = compile("cells[\"a\"].value + value");
+        Evaluable renamed = compiled.renameColumnDependencies(Map.of("a", "b"));
+        assertTrue(renamed instanceof CompiledExpr);
+        assertEquals(renamed.toString(), "cells.get(\"b\").value + value");
+        assertEquals(compile("value + 1"), compile("value + 1"));
+    }
+
+    @Test
+    public void testOtherEvaluablesAreInterpreted() {
+        AtomicInteger evaluations = new AtomicInteger();
+        Evaluable custom = bindings -> {
+            evaluations.incrementAndGet();
+            return 2L;
+        };
+        Evaluable compiled = CompiledExpr.compile(new OperatorCallExpr(new Evaluable[] { custom, new LiteralExpr(3L, "3") }, "*"));
+        assertEquals(compiled.evaluate(bindings(null)), 6L);
+        assertEquals(compiled.evaluate(bindings(null)), 6L);
+        assertEquals(evaluations.get(), 2);
+        assertEquals(CompiledExpr.compile(custom), custom);
+    }
+}
@@ -4,7 +4,9 @@ package com.google.refine.grel.ast;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
 
 import java.util.Optional;
 
@@ -64,4 +66,17 @@ public class FunctionCallExprTest extends ExprTestBase {
         assertEquals(ev.renameColumnDependencies(sampleRename),
                 new FunctionCallExpr(new Evaluable[] { currentColumnRenamed, unanalyzable }, function, "fun", false));
     }
+
+    @Test
+    public void testThreadSafety() {
+        Function threadSafe = mock(Function.class);
+        Evaluable[] args = new Evaluable[] { new LiteralExpr("a") };
+        // functions which do not opt in, such as those of older extensions, are not thread-safe
+        assertFalse(new FunctionCallExpr(args, threadSafe, "fun", false).isThreadSafe());
+
+        when(threadSafe.isThreadSafe()).thenReturn(true);
+        assertTrue(new FunctionCallExpr(args, threadSafe, "fun", false).isThreadSafe());
+        assertFalse(new FunctionCallExpr(new Evaluable[] { new FunctionCallExpr(args, function, "inner", false) }, threadSafe, "fun",
+                false).isThreadSafe());
+    }
 }